@@ -27,6 +27,10 @@ public class PerfPacketGenerator extends AbstractExecutionThreadService {
     final public static int PERF_TEST_PACKET_ID = 1000; // the packet id of the packets used for performance testing
                                                         // start from here
 
+    final Random r = new Random();
+    final byte[][] pktData;
+    final int changeChunk;
+
     public PerfPacketGenerator(ColSimulator simulator, int numPackets, int packetSize, long interval,
             double changePercent) {
         this.simulator = simulator;
@@ -34,40 +38,27 @@ public class PerfPacketGenerator extends AbstractExecutionThreadService {
         this.packetSize = packetSize;
         this.interval = interval;
         this.changePercent = changePercent;
-    }
-
-    @Override
-    protected void run() throws Exception {
-        Random r = new Random();
-        log.info("Starting performance data sending thread with {} packets of {} size spaced at {} ms intervals",
-                numPackets, packetSize, interval);
-        byte[][] pktData = new byte[numPackets][];
 
+        pktData = new byte[numPackets][];
         for (int i = 0; i < numPackets; i++) {
             byte[] p = new byte[packetSize];
             r.nextBytes(p);
             pktData[i] = p;
         }
 
-        int changeChunk = (int) (400 / changePercent);
-        if (changeChunk < 4) {
-            changeChunk = 4;
-        }
+        int cc = (int) (400 / changePercent);
+        changeChunk = cc < 4 ? 4 : cc;
+    }
+
+    @Override
+    protected void run() throws Exception {
+        log.info("Starting performance data sending thread with {} packets of {} size spaced at {} ms intervals",
+                numPackets, packetSize, interval);
 
         while (isRunning()) {
             if (!paused) {
                 for (int i = 0; i < numPackets; i++) {
-                    ColumbusCcsdsPacket packet = new ColumbusCcsdsPacket(ColSimulator.PERF_TEST_APID, packetSize,
-                            PERF_TEST_PACKET_ID + i);
-                    ByteBuffer bb = packet.getUserDataBuffer();
-                    bb.put(pktData[i]);
-                    for (int j = 0; j < packetSize - changeChunk; j += changeChunk) {
-                        int offset = j + (changeChunk > 4 ? r.nextInt(changeChunk - 4) : 0);
-                        bb.putInt(offset, r.nextInt());
-                    }
-                    packet.setTime(TimeEncoding.getWallclockTime());
-
-                    simulator.transmitRealtimeTM(packet);
+                    simulator.transmitRealtimeTM(generatePacket(i));
                 }
                 Thread.sleep(interval);
             } else {
@@ -76,6 +67,27 @@ public class PerfPacketGenerator extends AbstractExecutionThreadService {
         }
     }
 
+    /**
+     * Generates a new version of the packet with the index i (between 0 and numPackets-1), timestamped with the
+     * current wallclock time.
+     * <p>
+     * The packets match the MDB generated by the {@link PerfMdbLoader} with the same number of packets and packet
+     * size. The simulator is not used so this can be called on a generator created with a null simulator (e.g. to
+     * generate test data).
+     */
+    public ColumbusCcsdsPacket generatePacket(int i) {
+        ColumbusCcsdsPacket packet = new ColumbusCcsdsPacket(ColSimulator.PERF_TEST_APID, packetSize,
+                PERF_TEST_PACKET_ID + i);
+        ByteBuffer bb = packet.getUserDataBuffer();
+        bb.put(pktData[i]);
+        for (int j = 0; j < packetSize - changeChunk; j += changeChunk) {
+            int offset = j + (changeChunk > 4 ? r.nextInt(changeChunk - 4) : 0);
+            bb.putInt(offset, r.nextInt());
+        }
+        packet.setTime(TimeEncoding.getWallclockTime());
+        return packet;
+    }
+
     public void pause() {
         this.paused = true;
     }
@@ -0,0 +1,149 @@
+package org.yamcs.mdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.yamcs.YConfiguration;
+import org.yamcs.parameter.ContainerParameterValue;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.tests.RefMdbPacketGenerator;
+import org.yamcs.utils.BitBuffer;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.SequenceContainer;
+
+/**
+ * Checks that the compiled extraction gives exactly the same results as the interpreted one.
+ */
+public class CompiledExtractionTest {
+    private static Mdb mdb;
+
+    @BeforeAll
+    public static void setUpBeforeClass() throws Exception {
+        YConfiguration.setupTest("refmdb");
+        MdbFactory.reset();
+        mdb = MdbFactory.createInstanceByConfig("refmdb");
+    }
+
+    @Test
+    public void testSameAsInterpreted() {
+        RefMdbPacketGenerator tmGenerator = new RefMdbPacketGenerator();
+        List<byte[]> packets = List.of(
+                tmGenerator.generate_PKT1_1(),
+                tmGenerator.generate_PKT1_2(),
+                tmGenerator.generate_PKT1_3(),
+                tmGenerator.generate_PKT14(),
+                tmGenerator.generate_PKT1_5(),
+                tmGenerator.generate_PKT1_6(-3, 7),
+                tmGenerator.generate_PKT1_7(),
+                tmGenerator.generate_PKT1_8(-5, 1000),
+                tmGenerator.generate_PKT1_9(),
+                tmGenerator.generate_PKT1_10(3, 1, 2.5f),
+                tmGenerator.generate_PKT1_11(),
+                tmGenerator.generate_PKT1_12(),
+                tmGenerator.generate_PKT2(),
+                tmGenerator.generate_PKT3(),
+                tmGenerator.generate_PKT4(),
+                tmGenerator.generate_PKT5(),
+                tmGenerator.generate_PKT6(),
+                tmGenerator.generate_PKT7(),
+                tmGenerator.generate_PKT8(),
+                tmGenerator.generate_PKT10(),
+                tmGenerator.generate_PKT12(),
+                tmGenerator.generate_PKT13());
+
+        XtceTmExtractor interpreted = new XtceTmExtractor(mdb);
+        interpreted.provideAll();
+        XtceTmExtractor compiled = new XtceTmExtractor(mdb);
+        compiled.provideAll();
+        ContainerProcessingOptions opts = new ContainerProcessingOptions();
+        opts.setCompiledExtraction(true);
+        compiled.setOptions(opts);
+
+        for (byte[] pkt : packets) {
+            List<String> expected = describe(process(interpreted, pkt));
+            assertTrue(!expected.isEmpty());
+            assertEquals(expected, describe(process(compiled, pkt)));
+
+            // truncated packets are extracted by the interpreter, with the same errors
+            byte[] truncated = Arrays.copyOf(pkt, pkt.length - 1);
+            ContainerProcessingResult r1 = process(interpreted, truncated);
+            ContainerProcessingResult r2 = process(compiled, truncated);
+            assertEquals(describe(r1), describe(r2));
+            assertEquals(String.valueOf(r1.exception), String.valueOf(r2.exception));
+        }
+    }
+
+    @Test
+    public void testCompiledPrefix() {
+        SequenceContainer sc = mdb.getSequenceContainer("/REFMDB/SUBSYS1/PKT1_1");
+        CompiledContainerExtractor cce = CompiledContainerExtractor.compile(sc.getEntryList());
+        assertNotNull(cce);
+        assertTrue(cce.size() > 0);
+        assertTrue(cce.size() < sc.getEntryList().size());
+        // the string entry ends the compiled prefix
+        assertEquals(-1, CompiledContainerExtractor.getFixedSize(sc.getEntryList().get(cce.size())));
+
+        // the decoder of an identical layout is shared
+        CompiledContainerExtractor cce1 = CompiledContainerExtractor.compile(sc.getEntryList());
+        assertEquals(cce.decoder.getClass(), cce1.decoder.getClass());
+    }
+
+    @Test
+    public void testDecode() {
+        SequenceContainer sc = mdb.getSequenceContainer("/REFMDB/SUBSYS1/PKT1_1");
+        CompiledContainerExtractor cce = CompiledContainerExtractor.compile(sc.getEntryList());
+        byte[] pkt = new RefMdbPacketGenerator().generate_PKT1_1();
+
+        XtceTmExtractor extractor = new XtceTmExtractor(mdb);
+        extractor.provideAll();
+        ContainerProcessingResult r = process(extractor, pkt);
+
+        // decode the values directly with the generated class and compare with the interpreter
+        ContainerParameterValue first = (ContainerParameterValue) r.getParameterResult()
+                .getLastInserted(cce.entries[0].getParameter());
+        int start = cce.relative[0] ? first.getAbsoluteBitOffset() - cce.positions[0] : 0;
+        Value[] values = new Value[cce.size()];
+        cce.decoder.decode(new BitBuffer(pkt), start, values);
+
+        for (int i = 0; i < cce.size(); i++) {
+            ParameterValue pv = r.getParameterResult().getLastInserted(cce.entries[i].getParameter());
+            assertEquals(describe(pv.getRawValue()), describe(values[i]));
+        }
+    }
+
+    private static ContainerProcessingResult process(XtceTmExtractor extractor, byte[] pkt) {
+        return extractor.processPacket(pkt, TimeEncoding.parse("2024-01-01T00:00:00Z"),
+                TimeEncoding.parse("2024-01-01T00:00:01Z"), 0);
+    }
+
+    private static List<String> describe(ContainerProcessingResult result) {
+        List<String> l = new ArrayList<>();
+        for (ParameterValue pv : result.getParameterResult()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(pv.getParameterQualifiedName())
+                    .append(" raw=").append(describe(pv.getRawValue()))
+                    .append(" eng=").append(describe(pv.getEngValue()))
+                    .append(" status=").append(pv.getAcquisitionStatus(false))
+                    .append(" gentime=").append(pv.getGenerationTime())
+                    .append(" expire=").append(pv.getExpireMillis());
+            if (pv instanceof ContainerParameterValue cpv) {
+                sb.append(" offset=").append(cpv.getAbsoluteBitOffset())
+                        .append(" size=").append(cpv.getBitSize());
+            }
+            l.add(sb.toString());
+        }
+        return l;
+    }
+
+    private static String describe(Value v) {
+        return v == null ? "null" : v.getType() + ":" + v;
+    }
+}
@@ -0,0 +1,132 @@
+package org.yamcs.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.parameter.LastValueCache;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.InputParameter;
+import org.yamcs.xtce.OnParameterUpdateTrigger;
+import org.yamcs.xtce.OutputParameter;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.TriggerSetType;
+
+/**
+ * Measures the processing of one delivery by an algorithm execution context containing a large number of algorithms,
+ * with and without the trigger index.
+ * <p>
+ * Each algorithm has two inputs from a pool of parameters and is triggered by the first one; one algorithm out of
+ * ten produces an output which is the input of another algorithm. Each delivery contains a few parameters of the pool
+ * such that only a small fraction of the algorithms are affected.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AlgorithmExecutionContextBenchmark {
+    static final int NUM_INPUTS = 5000;
+    static final int DELIVERY_SIZE = 10;
+
+    @Param({ "300", "3000" })
+    int numAlgorithms;
+
+    @Param({ "true", "false" })
+    boolean useTriggerIndex;
+
+    AlgorithmExecutionContext ctx;
+    LastValueCache lvc;
+    List<List<ParameterValue>> deliveries;
+    int idx;
+    long numRuns;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        List<Parameter> inputs = new ArrayList<>();
+        for (int i = 0; i < NUM_INPUTS; i++) {
+            inputs.add(new Parameter("in" + i));
+        }
+        ctx = new AlgorithmExecutionContext("benchmark", null, Integer.MAX_VALUE);
+        ctx.useTriggerIndex = useTriggerIndex;
+        Parameter previousOutput = null;
+        for (int i = 0; i < numAlgorithms; i++) {
+            CustomAlgorithm algo = new CustomAlgorithm("algo" + i);
+            algo.setQualifiedName("/algo" + i);
+            Parameter trigger = previousOutput != null ? previousOutput : inputs.get(random.nextInt(NUM_INPUTS));
+            previousOutput = null;
+            algo.addInput(new InputParameter(new ParameterInstanceRef(trigger, true)));
+            algo.addInput(new InputParameter(new ParameterInstanceRef(inputs.get(random.nextInt(NUM_INPUTS)), true)));
+            TriggerSetType tst = new TriggerSetType();
+            tst.addOnParameterUpdateTrigger(new OnParameterUpdateTrigger(trigger));
+            algo.setTriggerSet(tst);
+            if (i % 10 == 0) {
+                previousOutput = new Parameter("out" + i);
+                algo.addOutput(new OutputParameter(previousOutput));
+            }
+            ctx.addAlgorithm(new ActiveAlgorithm(algo, ctx, new BenchmarkExecutor(algo, ctx)));
+        }
+
+        lvc = new LastValueCache();
+        deliveries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            List<ParameterValue> delivery = new ArrayList<>();
+            for (int j = 0; j < DELIVERY_SIZE; j++) {
+                ParameterValue pv = new ParameterValue(inputs.get(random.nextInt(NUM_INPUTS)));
+                pv.setEngValue(ValueUtility.getDoubleValue(j));
+                delivery.add(pv);
+            }
+            deliveries.add(delivery);
+        }
+    }
+
+    @Benchmark
+    public long process() {
+        List<ParameterValue> delivery = deliveries.get(idx);
+        idx = (idx + 1) % deliveries.size();
+
+        ProcessingContext pctx = ProcessingContext.createForTmProcessing(lvc, 0);
+        pctx.addTmParams(delivery);
+        ctx.process(0, pctx);
+        return numRuns;
+    }
+
+    class BenchmarkExecutor extends AbstractAlgorithmExecutor {
+        final List<ParameterValue> output;
+
+        BenchmarkExecutor(CustomAlgorithm algo, AlgorithmExecutionContext ctx) {
+            super(algo, ctx);
+            if (algo.getOutputSet().isEmpty()) {
+                output = List.of();
+            } else {
+                ParameterValue pv = new ParameterValue(algo.getOutputSet().get(0).getParameter());
+                pv.setEngValue(ValueUtility.getDoubleValue(1));
+                output = List.of(pv);
+            }
+        }
+
+        @Override
+        public AlgorithmExecutionResult execute(long acqTime, long genTime, ProcessingContext pctx) {
+            numRuns++;
+            return new AlgorithmExecutionResult(output);
+        }
+    }
+}
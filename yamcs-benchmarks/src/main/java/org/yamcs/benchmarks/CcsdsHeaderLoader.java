@@ -0,0 +1,76 @@
+package org.yamcs.benchmarks;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.yamcs.ConfigurationException;
+import org.yamcs.mdb.DatabaseLoadException;
+import org.yamcs.mdb.SpaceSystemLoader;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.IntegerParameterType;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterEntry;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.SequenceEntry.ReferenceLocationType;
+import org.yamcs.xtce.SpaceSystem;
+
+/**
+ * Generates the <code>/YSS/ccsds-default</code> container (CCSDS primary header followed by the Columbus secondary
+ * header) which is the base of the packets generated by the simulator {@link org.yamcs.simulator.PerfMdbLoader}.
+ * <p>
+ * It contains the subset of the simulator-ccsds spreadsheet needed to extract the performance test packets.
+ */
+public class CcsdsHeaderLoader implements SpaceSystemLoader {
+
+    @Override
+    public boolean needsUpdate(RandomAccessFile consistencyDateFile) throws IOException, ConfigurationException {
+        return true;
+    }
+
+    @Override
+    public String getConfigName() {
+        return "ccsds-header";
+    }
+
+    @Override
+    public void writeConsistencyDate(FileWriter consistencyDateFile) {
+        return;
+    }
+
+    @Override
+    public SpaceSystem load() throws ConfigurationException, DatabaseLoadException {
+        SpaceSystem ss = new SpaceSystem("YSS");
+        SequenceContainer sc = new SequenceContainer("ccsds-default");
+
+        addParameter(ss, sc, "ccsds-version", 0, 3);
+        addParameter(ss, sc, "ccsds-type", 3, 1);
+        addParameter(ss, sc, "ccsds-sec-header-flag", 4, 1);
+        addParameter(ss, sc, "ccsds-apid", 5, 11);
+        addParameter(ss, sc, "ccsds-seq-flags", 16, 2);
+        addParameter(ss, sc, "ccsds-seq-count", 18, 14);
+        addParameter(ss, sc, "ccsds-length", 32, 16);
+        addParameter(ss, sc, "coarse-time", 48, 32);
+        addParameter(ss, sc, "fine-time", 80, 8);
+        addParameter(ss, sc, "packet-type", 91, 5);
+        addParameter(ss, sc, "packet-id", 96, 32);
+
+        ss.addSequenceContainer(sc);
+        return ss;
+    }
+
+    private static void addParameter(SpaceSystem ss, SequenceContainer sc, String name, int bitOffset,
+            int sizeInBits) {
+        IntegerParameterType.Builder ptypeb = new IntegerParameterType.Builder().setName(name);
+        ptypeb.setSizeInBits(sizeInBits <= 32 ? 32 : 64);
+        ptypeb.setSigned(false);
+        ptypeb.setEncoding(new IntegerDataEncoding.Builder().setSizeInBits(sizeInBits));
+        IntegerParameterType ptype = ptypeb.build();
+        ss.addParameterType(ptype);
+
+        Parameter p = new Parameter(name);
+        p.setParameterType(ptype);
+        ss.addParameter(p);
+        sc.addEntry(new ParameterEntry(bitOffset, ReferenceLocationType.CONTAINER_START, p));
+    }
+}
@@ -0,0 +1,71 @@
+package org.yamcs.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.Processor;
+import org.yamcs.ProcessorFactory;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.parameter.ParameterProcessorManager;
+import org.yamcs.parameter.ParameterValue;
+
+/**
+ * Measures the processing (alarm checking, last value cache update, delivery to the subscribers) of the parameters
+ * extracted from one performance test packet.
+ * <p>
+ * The processor has the alarm checking enabled and one subscriber to all parameters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParameterProcessorManagerBenchmark {
+    Processor processor;
+    ParameterProcessorManager ppm;
+    List<List<ParameterValue>> pvLists;
+    int idx;
+    long numDelivered;
+
+    @Setup
+    public void setup() throws Exception {
+        PerfFixture.createEmptyDatabase(PerfFixture.INSTANCE);
+        processor = ProcessorFactory.create(PerfFixture.INSTANCE, "benchmark", "benchmark", "benchmark", null);
+        ppm = processor.getParameterProcessorManager();
+        ppm.getParameterRequestManager().subscribeAll((subscriptionId, items) -> numDelivered += items.size());
+
+        pvLists = PerfFixture.extract(processor.getMdb(), PerfFixture.generatePackets(10));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        processor.quit();
+        PerfFixture.dropDatabase(PerfFixture.INSTANCE);
+    }
+
+    @Benchmark
+    public long process() {
+        List<ParameterValue> pvList = pvLists.get(idx);
+        idx = (idx + 1) % pvLists.size();
+
+        ProcessingContext ctx = ProcessingContext.createForTmProcessing(ppm.getLastValueCache(),
+                pvList.get(0).getGenerationTime());
+        for (ParameterValue pv : pvList) {
+            ctx.addTmParam(pv);
+        }
+        ppm.process(ctx);
+        return numDelivered;
+    }
+}
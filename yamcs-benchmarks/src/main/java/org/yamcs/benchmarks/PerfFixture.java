@@ -0,0 +1,137 @@
+package org.yamcs.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.yamcs.YConfiguration;
+import org.yamcs.events.EventProducerFactory;
+import org.yamcs.mdb.ContainerProcessingResult;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.MdbFactory;
+import org.yamcs.mdb.XtceTmExtractor;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.simulator.PerfPacketGenerator;
+import org.yamcs.utils.FileUtils;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.YarchDatabase;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+
+/**
+ * Common fixtures of the benchmarks: the MDB generated by the simulator {@link org.yamcs.simulator.PerfMdbLoader} and
+ * packets generated by the {@link PerfPacketGenerator}.
+ * <p>
+ * The configuration (yamcs.yaml, yamcs.perfbench.yaml, processor.yaml) is loaded from the classpath; the data is
+ * stored under <code>${java.io.tmpdir}/yamcs-benchmarks</code>.
+ */
+public class PerfFixture {
+    public static final String INSTANCE = "perfbench";
+
+    // these have to match the PerfMdbLoader configuration from yamcs.perfbench.yaml
+    public static final int NUM_PACKETS = 100;
+    public static final int PACKET_SIZE = 1476;
+
+    private static boolean initialized = false;
+
+    /**
+     * Sets up the configuration system; can be called multiple times.
+     */
+    public static synchronized void setup() {
+        if (initialized) {
+            return;
+        }
+        YConfiguration.setupTest(null);
+        EventProducerFactory.setMockup(false);
+        try {
+            MdbFactory.setupTool(Files.createTempDirectory("yamcs-benchmarks-cache"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        initialized = true;
+    }
+
+    public static Mdb getMdb() {
+        setup();
+        return MdbFactory.getInstance(INSTANCE);
+    }
+
+    /**
+     * Generates numVersions versions of each of the NUM_PACKETS performance test packets.
+     * <p>
+     * The versions of one packet differ in about 10% of their content, as in the simulator default configuration.
+     */
+    public static List<byte[]> generatePackets(int numVersions) {
+        return generatePackets(numVersions, NUM_PACKETS);
+    }
+
+    /**
+     * Generates numVersions versions of each of the first numPackets performance test packets.
+     */
+    public static List<byte[]> generatePackets(int numVersions, int numPackets) {
+        PerfPacketGenerator generator = new PerfPacketGenerator(null, numPackets, PACKET_SIZE, 0, 10);
+        List<byte[]> packets = new ArrayList<>(numVersions * numPackets);
+        for (int k = 0; k < numVersions; k++) {
+            for (int i = 0; i < numPackets; i++) {
+                packets.add(generator.generatePacket(i).getBytes());
+            }
+        }
+        return packets;
+    }
+
+    /**
+     * Extracts the parameters from the packets.
+     */
+    public static List<List<ParameterValue>> extract(Mdb mdb, List<byte[]> packets) {
+        XtceTmExtractor extractor = new XtceTmExtractor(mdb);
+        extractor.provideAll();
+        List<List<ParameterValue>> result = new ArrayList<>(packets.size());
+        int seq = 0;
+        long t = TimeEncoding.getWallclockTime();
+        for (byte[] p : packets) {
+            ContainerProcessingResult cpr = extractor.processPacket(p, t, t, seq++);
+            result.add(new ArrayList<>(cpr.getParameterResult()));
+        }
+        return result;
+    }
+
+    /**
+     * Creates an empty Yarch database for the given instance, removing any data from a previous run.
+     */
+    public static YarchDatabaseInstance createEmptyDatabase(String instance) throws IOException {
+        setup();
+        if (YarchDatabase.hasInstance(instance)) {
+            YarchDatabase.removeInstance(instance);
+        }
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        if (rse.getTablespace(instance) != null) {
+            rse.dropTablespace(instance);
+        }
+        Path dataDir = Path.of(YarchDatabase.getDataDir());
+        FileUtils.deleteRecursivelyIfExists(dataDir.resolve(instance));
+        FileUtils.deleteRecursivelyIfExists(dataDir.resolve(instance + ".rdb"));
+        FileUtils.deleteRecursivelyIfExists(dataDir.resolve(instance + ".tbs"));
+        Files.createDirectories(dataDir.resolve(instance));
+        rse.createTablespace(instance);
+
+        return YarchDatabase.getInstance(instance);
+    }
+
+    /**
+     * Closes the database and removes its data.
+     */
+    public static void dropDatabase(String instance) throws IOException {
+        YarchDatabase.removeInstance(instance);
+        RdbStorageEngine rse = RdbStorageEngine.getInstance();
+        if (rse.getTablespace(instance) != null) {
+            rse.dropTablespace(instance);
+        }
+        Path dataDir = Path.of(YarchDatabase.getDataDir());
+        FileUtils.deleteRecursivelyIfExists(dataDir.resolve(instance));
+        FileUtils.deleteRecursivelyIfExists(dataDir.resolve(instance + ".rdb"));
+        FileUtils.deleteRecursivelyIfExists(dataDir.resolve(instance + ".tbs"));
+    }
+}
@@ -0,0 +1,98 @@
+package org.yamcs.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.archive.XtceTmRecorder;
+import org.yamcs.simulator.PerfPacketGenerator;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableWriter;
+import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+
+/**
+ * Measures the writing of the performance test packets into a table having the same definition as the tm table
+ * created by the {@link XtceTmRecorder}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RdbTableWriterBenchmark {
+    static final String INSTANCE = "perfbench_tablewriter";
+
+    @Param({ "INSERT", "UPSERT" })
+    InsertMode mode;
+
+    YarchDatabaseInstance ydb;
+    TableWriter tableWriter;
+    TupleDefinition tdef;
+    List<byte[]> packets;
+    String[] pnames;
+    int idx;
+    long genTime;
+    int seqNum;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ydb = PerfFixture.createEmptyDatabase(INSTANCE);
+        ydb.executeDiscardingResult("create table tm ("
+                + XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION.getStringDefinition1()
+                + ", primary key(gentime, seqNum)) histogram(pname) "
+                + "partition by time_and_value(gentime('YYYY'), pname) "
+                + "table_format=compressed,column_family:" + XtceTmRecorder.CF_NAME);
+        TableDefinition tblDef = ydb.getTable("tm");
+        RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
+        tableWriter = rse.newTableWriter(ydb, tblDef, mode);
+
+        tdef = new TupleDefinition();
+        tdef.addColumn("gentime", DataType.TIMESTAMP);
+        tdef.addColumn("seqNum", DataType.INT);
+        tdef.addColumn("rectime", DataType.TIMESTAMP);
+        tdef.addColumn("packet", DataType.BINARY);
+        tdef.addColumn(XtceTmRecorder.PNAME_COLUMN, DataType.ENUM);
+
+        packets = PerfFixture.generatePackets(10);
+        pnames = new String[PerfFixture.NUM_PACKETS];
+        for (int i = 0; i < pnames.length; i++) {
+            pnames[i] = "/perf-data/pkt_" + (PerfPacketGenerator.PERF_TEST_PACKET_ID + i);
+        }
+        genTime = TimeEncoding.getWallclockTime();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        tableWriter.close();
+        PerfFixture.dropDatabase(INSTANCE);
+    }
+
+    @Benchmark
+    public void onTuple() {
+        byte[] packet = packets.get(idx);
+        String pname = pnames[idx % PerfFixture.NUM_PACKETS];
+        idx = (idx + 1) % packets.size();
+
+        Tuple t = new Tuple(tdef, new Object[] { genTime++, seqNum++, genTime, packet, pname });
+        tableWriter.onTuple(null, t);
+    }
+}
@@ -0,0 +1,104 @@
+package org.yamcs.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.StandardTupleDefinitions;
+import org.yamcs.archive.XtceTmRecorder;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchDatabaseInstance;
+
+/**
+ * Measures the creation of the tuples on the ingest path and their deserialization from a table.
+ * <ul>
+ * <li>cmdhistAttribute - a command history attribute tuple as created by the StreamCommandHistoryPublisher</li>
+ * <li>recordedTm - a TM tuple extended with the partition name as done by the {@link XtceTmRecorder}</li>
+ * <li>deserializeTm - the deserialization of a row of the tm table</li>
+ * </ul>
+ * The interesting figure is the number of bytes allocated for each tuple, obtained by running with the gc profiler:
+ *
+ * <pre>
+ * java -jar yamcs-benchmarks/target/benchmarks.jar TupleBenchmark -prof gc
+ * </pre>
+ *
+ * (see the gc.alloc.rate.norm lines).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TupleBenchmark {
+    static final String INSTANCE = "perfbench_tuple";
+
+    YarchDatabaseInstance ydb;
+    TableDefinition tblDef;
+    Tuple tmTuple;
+    byte[] key;
+    byte[] value;
+    long genTime;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ydb = PerfFixture.createEmptyDatabase(INSTANCE);
+        ydb.executeDiscardingResult("create table tm ("
+                + XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION.getStringDefinition1()
+                + ", primary key(gentime, seqNum))");
+        tblDef = ydb.getTable("tm");
+
+        genTime = TimeEncoding.getWallclockTime();
+        byte[] packet = PerfFixture.generatePackets(1).get(0);
+        tmTuple = new Tuple(StandardTupleDefinitions.TM, new Object[] { genTime, 1, genTime, 0, packet,
+                null, 100L, "link1", null });
+
+        TupleDefinition tdef = XtceTmRecorder.RECORDED_TM_TUPLE_DEFINITION;
+        Object[] cols = new Object[tdef.size()];
+        for (int i = 0; i < tdef.size(); i++) {
+            String name = tdef.getColumn(i).getName();
+            cols[i] = name.equals(XtceTmRecorder.PNAME_COLUMN) ? "/perf-data/pkt" : tmTuple.getColumn(name);
+        }
+        Tuple t = new Tuple(tdef, cols);
+        key = tblDef.generateRow(t).getKey();
+        value = tblDef.serializeValue(t, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PerfFixture.dropDatabase(INSTANCE);
+    }
+
+    @Benchmark
+    public Tuple cmdhistAttribute() {
+        TupleDefinition td = StandardTupleDefinitions.TC.extend("Verifier_Complete_Status", DataType.STRING);
+        return new Tuple(td, new Object[] { genTime, "origin", 1, "/perf/cmd", "OK" });
+    }
+
+    @Benchmark
+    public Tuple recordedTm() {
+        TupleDefinition td = tmTuple.getDefinition().extend(XtceTmRecorder.PNAME_COLUMN, DataType.ENUM);
+        Object[] cols = tmTuple.getColumns().toArray(new Object[td.size()]);
+        cols[td.size() - 1] = "/perf-data/pkt";
+        return new Tuple(td, cols);
+    }
+
+    @Benchmark
+    public Tuple deserializeTm() {
+        return tblDef.deserialize(key, value);
+    }
+}
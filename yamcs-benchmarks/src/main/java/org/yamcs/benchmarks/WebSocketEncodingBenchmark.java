@@ -0,0 +1,79 @@
+package org.yamcs.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.http.HttpServer;
+import org.yamcs.http.WebSocketServerMessageHandler;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.protobuf.ServerMessage;
+import org.yamcs.protobuf.SubscribeParametersData;
+
+import com.google.protobuf.Any;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+
+/**
+ * Measures the encoding of the parameters extracted from one performance test packet into a binary websocket frame,
+ * the same way as done for the parameter subscriptions: conversion to protobuf, wrapping into a
+ * {@link ServerMessage} and serialization by the {@link WebSocketServerMessageHandler}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WebSocketEncodingBenchmark {
+    List<List<ParameterValue>> pvLists;
+    EmbeddedChannel channel;
+    int idx;
+    int seq;
+
+    @Setup
+    public void setup() {
+        pvLists = PerfFixture.extract(PerfFixture.getMdb(), PerfFixture.generatePackets(10));
+        channel = new EmbeddedChannel(new WebSocketServerMessageHandler(null, true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        List<ParameterValue> pvList = pvLists.get(idx);
+        idx = (idx + 1) % pvLists.size();
+
+        SubscribeParametersData.Builder datab = SubscribeParametersData.newBuilder();
+        int numericId = 0;
+        for (ParameterValue pv : pvList) {
+            datab.addValues(pv.toGpb(numericId++));
+        }
+        ServerMessage serverMessage = ServerMessage.newBuilder()
+                .setType("parameters")
+                .setCall(1)
+                .setSeq(seq++)
+                .setData(Any.pack(datab.build(), HttpServer.TYPE_URL_PREFIX))
+                .build();
+
+        channel.writeOutbound(serverMessage);
+        WebSocketFrame frame = channel.readOutbound();
+        int size = frame.content().readableBytes();
+        frame.release();
+        return size;
+    }
+}
@@ -0,0 +1,50 @@
+package org.yamcs.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.mdb.ContainerProcessingResult;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.XtceTmExtractor;
+import org.yamcs.utils.TimeEncoding;
+
+/**
+ * Measures the extraction of all the parameters from one performance test packet (369 32-bit parameters).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class XtceTmExtractorBenchmark {
+    XtceTmExtractor extractor;
+    List<byte[]> packets;
+    int idx;
+
+    @Setup
+    public void setup() {
+        Mdb mdb = PerfFixture.getMdb();
+        extractor = new XtceTmExtractor(mdb);
+        extractor.provideAll();
+        packets = PerfFixture.generatePackets(10);
+    }
+
+    @Benchmark
+    public ContainerProcessingResult processPacket() {
+        byte[] packet = packets.get(idx);
+        idx = (idx + 1) % packets.size();
+        long t = TimeEncoding.getWallclockTime();
+        return extractor.processPacket(packet, t, t, idx);
+    }
+}
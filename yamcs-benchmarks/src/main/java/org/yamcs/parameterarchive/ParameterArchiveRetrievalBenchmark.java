@@ -0,0 +1,159 @@
+package org.yamcs.parameterarchive;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rocksdb.RocksDBException;
+import org.yamcs.YConfiguration;
+import org.yamcs.benchmarks.PerfFixture;
+import org.yamcs.mdb.ContainerProcessingResult;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.XtceTmExtractor;
+import org.yamcs.parameter.ParameterRetrievalOptions;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.simulator.PerfPacketGenerator;
+import org.yamcs.utils.TimeEncoding;
+
+/**
+ * Measures the retrieval from the parameter archive of two hours of data (spanning two intervals) of one parameter,
+ * respectively of ten parameters from the same packet.
+ * <p>
+ * The archive is filled at setup with {@value #NUM_PACKET_TYPES} performance test packets received once per second,
+ * using the same segmentation as the archive fillers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParameterArchiveRetrievalBenchmark {
+    static final String INSTANCE = "perfbench_parchive";
+    static final int NUM_PACKET_TYPES = 10;
+    static final int NUM_SAMPLES = 2 * 3600;
+
+    @Param({ "true", "false" })
+    boolean ascending;
+
+    ParameterArchive parchive;
+    long start;
+    long stop;
+    String singleParameter;
+    ParameterId[] multiParameters;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        PerfFixture.createEmptyDatabase(INSTANCE);
+
+        Map<String, Object> bfc = new HashMap<>();
+        bfc.put("automaticBackfilling", Boolean.FALSE);
+        bfc.put("monitorStreams", Arrays.asList());
+        Map<String, Object> conf = new HashMap<>();
+        conf.put("backFiller", bfc);
+
+        parchive = new ParameterArchive();
+        YConfiguration config = parchive.getSpec().validate(YConfiguration.wrap(conf));
+        parchive.init(INSTANCE, "benchmark", config);
+
+        // start one hour into an interval such that the data spans two intervals
+        start = ParameterArchive.getIntervalStart(TimeEncoding.getWallclockTime()) + 3600_000L;
+        stop = start + NUM_SAMPLES * 1000L;
+        populate(PerfFixture.getMdb());
+
+        String prefix = "/perf-data/p_" + PerfPacketGenerator.PERF_TEST_PACKET_ID + "_uint32_";
+        singleParameter = prefix + 0;
+        multiParameters = new ParameterId[10];
+        for (int i = 0; i < multiParameters.length; i++) {
+            multiParameters[i] = parchive.getParameterIdDb().get(prefix + (i * 10))[0];
+        }
+    }
+
+    private void populate(Mdb mdb) throws RocksDBException, IOException {
+        ParameterIdDb pidDb = parchive.getParameterIdDb();
+        ParameterGroupIdDb pgDb = parchive.getParameterGroupIdDb();
+        int maxSegmentSize = parchive.getMaxSegmentSize();
+
+        PerfPacketGenerator generator = new PerfPacketGenerator(null, NUM_PACKET_TYPES, PerfFixture.PACKET_SIZE, 0,
+                10);
+        XtceTmExtractor extractor = new XtceTmExtractor(mdb);
+        extractor.provideAll();
+
+        PGSegment[] segments = new PGSegment[NUM_PACKET_TYPES];
+        for (int k = 0; k < NUM_SAMPLES; k++) {
+            long t = start + k * 1000L;
+            long interval = ParameterArchive.getIntervalStart(t);
+            for (int i = 0; i < NUM_PACKET_TYPES; i++) {
+                ContainerProcessingResult cpr = extractor.processPacket(generator.generatePacket(i).getBytes(), t, t,
+                        k);
+                BasicParameterList pvList = new BasicParameterList(pidDb);
+                for (ParameterValue pv : cpr.getParameterResult()) {
+                    pvList.add(pv);
+                }
+                pvList.sort();
+                var pg = pgDb.getGroup(pvList.getPids());
+
+                PGSegment pgs = segments[i];
+                if (pgs == null || pgs.getInterval() != interval) {
+                    if (pgs != null) {
+                        parchive.writeToArchive(pgs);
+                    }
+                    pgs = new PGSegment(pg.id, interval, pg.pids.size());
+                    pgs.addRecord(t, pvList);
+                } else if (pgs.size() >= maxSegmentSize) {
+                    pgs.freeze();
+                    parchive.writeToArchive(pgs);
+                    PGSegment pgs1 = new PGSegment(pg.id, interval, pg.pids.size());
+                    pgs1.addRecord(t, pvList);
+                    pgs1.continueSegment(pgs);
+                    pgs = pgs1;
+                } else {
+                    pgs.addRecord(t, pvList);
+                }
+                segments[i] = pgs;
+            }
+        }
+        for (PGSegment pgs : segments) {
+            parchive.writeToArchive(pgs);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        parchive.stopAsync().awaitTerminated();
+        PerfFixture.dropDatabase(INSTANCE);
+    }
+
+    @Benchmark
+    public long singleParameter() throws Exception {
+        ParameterRetrievalOptions opts = ParameterRetrievalOptions.newBuilder()
+                .withStartStop(start, stop).withAscending(ascending).build();
+        long[] count = new long[1];
+        new SingleParameterRetrieval(parchive, singleParameter, opts)
+                .retrieve(pva -> count[0] += pva.getTimestamps().length);
+        return count[0];
+    }
+
+    @Benchmark
+    public long multiParameter() throws Exception {
+        MultipleParameterRequest mpvr = new MultipleParameterRequest(start, stop, multiParameters, ascending);
+        long[] count = new long[1];
+        new MultiParameterRetrieval(parchive, mpvr).retrieve(pvil -> count[0] += pvil.size());
+        return count[0];
+    }
+}
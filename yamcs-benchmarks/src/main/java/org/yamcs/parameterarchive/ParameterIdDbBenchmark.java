@@ -0,0 +1,127 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rocksdb.RocksDBException;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.FileUtils;
+import org.yamcs.utils.IntArray;
+import org.yamcs.yarch.rocksdb.Tablespace;
+
+/**
+ * Measures the lookup of existing parameter ids and parameter groups, as done for each parameter (respectively each
+ * group of parameters) by the archive fillers, when 1, 8 and 32 threads are doing it concurrently.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParameterIdDbBenchmark {
+    static final int NUM_PARAMS = 10000;
+    static final int NUM_GROUPS = 100;
+
+    Path dir;
+    Tablespace tablespace;
+    ParameterIdDb pidDb;
+    ParameterGroupIdDb pgDb;
+    String[] names;
+    IntArray[] groups;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("ParameterIdDbBenchmark");
+        tablespace = new Tablespace("bench");
+        tablespace.setCustomDataDir(dir.toString());
+        tablespace.loadDb(false);
+
+        pidDb = new ParameterIdDb("bench", tablespace, false, 0);
+        pgDb = new ParameterGroupIdDb("bench", tablespace, false, 0);
+
+        names = new String[NUM_PARAMS];
+        for (int i = 0; i < NUM_PARAMS; i++) {
+            names[i] = "/bench/subsystem" + (i % 50) + "/param" + i;
+            pidDb.createAndGet(names[i], Type.DOUBLE, Type.UINT32);
+        }
+
+        int groupSize = NUM_PARAMS / NUM_GROUPS;
+        groups = new IntArray[NUM_GROUPS];
+        for (int i = 0; i < NUM_GROUPS; i++) {
+            IntArray pids = new IntArray(groupSize);
+            for (int j = 0; j < groupSize; j++) {
+                pids.add(pidDb.createAndGet(names[i * groupSize + j], Type.DOUBLE, Type.UINT32));
+            }
+            groups[i] = pids;
+            pgDb.getGroup(pids);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        tablespace.close();
+        FileUtils.deleteRecursivelyIfExists(dir);
+    }
+
+    int pidLookup() {
+        String name = names[ThreadLocalRandom.current().nextInt(NUM_PARAMS)];
+        return pidDb.createAndGet(name, Type.DOUBLE, Type.UINT32);
+    }
+
+    int groupLookup() throws RocksDBException {
+        IntArray pids = groups[ThreadLocalRandom.current().nextInt(NUM_GROUPS)];
+        return pgDb.getGroup(pids).id;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int createAndGet1() {
+        return pidLookup();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int createAndGet8() {
+        return pidLookup();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public int createAndGet32() {
+        return pidLookup();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int getGroup1() throws RocksDBException {
+        return groupLookup();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int getGroup8() throws RocksDBException {
+        return groupLookup();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public int getGroup32() throws RocksDBException {
+        return groupLookup();
+    }
+}
@@ -0,0 +1,106 @@
+package org.yamcs.parameterarchive;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.benchmarks.PerfFixture;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.ValueUtility;
+
+/**
+ * Measures the encoding and decoding of the segments of one parameter as written by the parameter archive.
+ * <p>
+ * The values are the ones of the first parameter of a performance test packet received once per second, with a
+ * segment size equal to the default maxSegmentSize.
+ * <ul>
+ * <li>time - the time segment</li>
+ * <li>uint32 - the engineering values as extracted</li>
+ * <li>double - the same values scaled to doubles (as they would be after a calibration)</li>
+ * <li>status - the parameter status segment</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SegmentEncoderDecoderBenchmark {
+    static final int SEGMENT_SIZE = 500;
+
+    @Param({ "time", "uint32", "double", "status" })
+    String segmentType;
+
+    long interval;
+    BaseSegment segment;
+    byte[] encoded;
+
+    @Setup
+    public void setup() throws DecodingException {
+        List<List<ParameterValue>> pvLists = PerfFixture.extract(PerfFixture.getMdb(),
+                PerfFixture.generatePackets(SEGMENT_SIZE, 1));
+        long t0 = pvLists.get(0).get(0).getGenerationTime();
+        interval = ParameterArchive.getIntervalStart(t0);
+
+        PGSegment pgs = new PGSegment(1, interval);
+        for (int i = 0; i < SEGMENT_SIZE; i++) {
+            ParameterValue pv = findFirstPerfParameter(pvLists.get(i));
+            if ("double".equals(segmentType)) {
+                ParameterValue pv1 = new ParameterValue(pv);
+                pv1.setEngValue(ValueUtility.getDoubleValue(pv.getEngValue().toDouble() * 0.01));
+                pv = pv1;
+            }
+            pgs.addRecord(interval + i * 1000L, IntArray.wrap(1), List.of(pv));
+        }
+        pgs.consolidate();
+        ParameterValueSegment pvs = pgs.getParameterValue(1);
+
+        switch (segmentType) {
+        case "time":
+            segment = pgs.getTimeSegment();
+            break;
+        case "uint32":
+        case "double":
+            segment = pvs.getConsolidatedEngValueSegment();
+            break;
+        case "status":
+            segment = pvs.getConsolidatedParmeterStatusSegment();
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown segment type " + segmentType);
+        }
+        encoded = SegmentEncoderDecoder.encode(segment);
+    }
+
+    private static ParameterValue findFirstPerfParameter(List<ParameterValue> pvList) {
+        for (ParameterValue pv : pvList) {
+            if (pv.getParameterQualifiedName().startsWith("/perf-data/")) {
+                return pv;
+            }
+        }
+        throw new IllegalStateException("No performance test parameter extracted");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return SegmentEncoderDecoder.encode(segment);
+    }
+
+    @Benchmark
+    public BaseSegment decode() throws DecodingException {
+        return SegmentEncoderDecoder.decode(encoded, interval);
+    }
+}
@@ -24,6 +24,24 @@ public class ProcessorConfig {
     private static final String CONFIG_KEY_SUBSCRIBE_CONTAINER_ARCHPART = "subscribeContainerArchivePartitions";
     private static final String CONFIG_KEY_PERSIST_PARAMETERS = "persistParameters";
     private static final String CONFIG_KEY_OVERRIDE_ALGORITHMS = "overrideAlgorithmsEnabled";
+    private static final String CONFIG_KEY_TM_PROCESSING_THREADS = "tmProcessingThreads";
+    private static final String CONFIG_KEY_TM_SHARD_KEY = "tmShardKey";
+    private static final String CONFIG_KEY_TM_QUEUE_SIZE = "tmQueueSize";
+
+    /**
+     * The key used to distribute the TM packets to the processing threads; the packets with the same key are processed
+     * by the same thread in the order in which they have been received.
+     */
+    public enum TmShardKey {
+        /**
+         * the CCSDS application process identifier (11 bits starting at bit 5 of the packet)
+         */
+        APID,
+        /**
+         * the root container from which the packet processing starts
+         */
+        ROOT_CONTAINER
+    }
 
     boolean checkParameterAlarms = true;
     boolean parameterAlarmServerEnabled = false;
@@ -38,6 +56,11 @@ public class ProcessorConfig {
     boolean checkParameterValidityRanges = true;
     boolean overrideAlgorithmsEnabled = false;
 
+    // if greater than 1, the TM packets are processed in parallel by this number of threads
+    int tmProcessingThreads = 1;
+    TmShardKey tmShardKey = TmShardKey.APID;
+    int tmQueueSize = 1024;
+
     // if true, save at shutdown and load at startup the value of all parameters having the persistent flag set
     boolean persistParameters = false;
 
@@ -96,6 +119,18 @@ public class ProcessorConfig {
                     persistParameters = config.getBoolean(key);
                 } else if (CONFIG_KEY_OVERRIDE_ALGORITHMS.equals(key)) {
                     overrideAlgorithmsEnabled = config.getBoolean(key);
+                } else if (CONFIG_KEY_TM_PROCESSING_THREADS.equals(key)) {
+                    tmProcessingThreads = config.getInt(key);
+                    if (tmProcessingThreads < 1) {
+                        throw new ConfigurationException(key + " has to be at least 1");
+                    }
+                } else if (CONFIG_KEY_TM_SHARD_KEY.equals(key)) {
+                    tmShardKey = config.getEnum(key, TmShardKey.class);
+                } else if (CONFIG_KEY_TM_QUEUE_SIZE.equals(key)) {
+                    tmQueueSize = config.getInt(key);
+                    if (tmQueueSize < 1) {
+                        throw new ConfigurationException(key + " has to be at least 1");
+                    }
                 } else {
                     log.warn("Ignoring unknown config key '{}'", key);
                 }
@@ -120,6 +155,10 @@ public class ProcessorConfig {
         spec.addOption(CONFIG_KEY_SUBSCRIBE_CONTAINER_ARCHPART, OptionType.BOOLEAN).withDefault(true);
         spec.addOption(CONFIG_KEY_PERSIST_PARAMETERS, OptionType.BOOLEAN).withDefault(false);
         spec.addOption(CONFIG_KEY_OVERRIDE_ALGORITHMS, OptionType.BOOLEAN).withDefault(false);
+        spec.addOption(CONFIG_KEY_TM_PROCESSING_THREADS, OptionType.INTEGER).withDefault(1);
+        spec.addOption(CONFIG_KEY_TM_SHARD_KEY, OptionType.STRING).withDefault("APID")
+                .withChoices(TmShardKey.class);
+        spec.addOption(CONFIG_KEY_TM_QUEUE_SIZE, OptionType.INTEGER).withDefault(1024);
 
         return spec;
     }
@@ -256,6 +295,45 @@ public class ProcessorConfig {
         return overrideAlgorithmsEnabled;
     }
 
+    /**
+     * Returns the number of threads processing the TM packets.
+     * <p>
+     * If 1 (default), the packets are processed in the thread delivering them (e.g. the stream thread for the realtime
+     * processors).
+     * 
+     * @return the number of TM processing threads
+     */
+    public int getTmProcessingThreads() {
+        return tmProcessingThreads;
+    }
+
+    public void setTmProcessingThreads(int tmProcessingThreads) {
+        this.tmProcessingThreads = tmProcessingThreads;
+    }
+
+    /**
+     * Returns the key used to distribute the packets to the TM processing threads.
+     * 
+     * @return the shard key
+     */
+    public TmShardKey getTmShardKey() {
+        return tmShardKey;
+    }
+
+    public void setTmShardKey(TmShardKey tmShardKey) {
+        this.tmShardKey = tmShardKey;
+    }
+
+    /**
+     * Returns the maximum number of packets waiting to be processed by each TM processing thread. When the queue is
+     * full, the thread delivering the packets is blocked.
+     * 
+     * @return the queue size
+     */
+    public int getTmQueueSize() {
+        return tmQueueSize;
+    }
+
     @Override
     public String toString() {
         return "ProcessorConfig [checkParameterAlarms=" + checkParameterAlarms + ", parameterAlarmServerEnabled="
@@ -114,4 +114,14 @@ public class StandardTupleDefinitions {
         EVENT_ALARM.addColumn(AlarmStreamer.CNAME_PENDING, DataType.BOOLEAN);
     }
 
+    // the definitions are shared by all the tuples of the standard streams
+    static {
+        TM.freeze();
+        INVALID_TM.freeze();
+        TC.freeze();
+        PARAMETER.freeze();
+        EVENT.freeze();
+        PARAMETER_ALARM.freeze();
+        EVENT_ALARM.freeze();
+    }
 }
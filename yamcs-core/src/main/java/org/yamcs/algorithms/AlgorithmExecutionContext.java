@@ -1,10 +1,21 @@
 package org.yamcs.algorithms;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.yamcs.events.EventProducer;
 import org.yamcs.logging.Log;
@@ -24,6 +35,14 @@ import org.yamcs.xtce.Algorithm.Scope;
  * <p>
  * The {@link #process(long, ProcessingContext)} method will trigger calling all the active algorithms from this context in
  * order.
+ * <p>
+ * To avoid visiting all the algorithms with each delivery, an {@link AlgorithmTriggerIndex} is used to find the
+ * algorithms affected by the parameters of the delivery. The index is rebuilt when the list of active algorithms
+ * changes.
+ * <p>
+ * If an executor service is set (see {@link #setExecutorService(ExecutorService)}), the algorithms are run level by
+ * level, the independent algorithms from one level being run concurrently. The outputs are added to the processing
+ * context in the execution order after each level such that the result is the same as for the serial execution.
  *
  */
 public class AlgorithmExecutionContext {
@@ -31,6 +50,14 @@ public class AlgorithmExecutionContext {
 
     CopyOnWriteArrayList<ActiveAlgorithm> executionOrder = new CopyOnWriteArrayList<>();
 
+    // built lazily from the executionOrder, rebuilt when the executionOrder changes
+    private volatile AlgorithmTriggerIndex triggerIndex;
+    private final AtomicInteger executionOrderVersion = new AtomicInteger();
+    // if false, all the algorithms are updated with each delivery
+    boolean useTriggerIndex = true;
+    // if not null, the independent algorithms are run concurrently on this executor
+    private volatile ExecutorService executorService;
+
     // algorithm tracers fqn -> AlgorithmTrace
     final Map<String, AlgorithmTrace> tracers = new HashMap<>();
 
@@ -42,7 +69,7 @@ public class AlgorithmExecutionContext {
     final int maxErrCount;
 
     // stores algorithms deactivated because of too many runtime errors
-    private Map<String, AlgorithmStatus> algorithmsInError = new HashMap<>();
+    private Map<String, AlgorithmStatus> algorithmsInError = new ConcurrentHashMap<>();
 
     public AlgorithmExecutionContext(String contextName, ProcessorData procData,
             int maxErrCount) {
@@ -66,31 +93,170 @@ public class AlgorithmExecutionContext {
         } else if (cmdParams != null && !cmdParams.isEmpty()) {
             genTime = cmdParams.getFirst().getGenerationTime();
         }
-        for (ActiveAlgorithm activeAlgo : executionOrder) {
-            boolean shouldRun = activeAlgo.update(pctx);
-            if (shouldRun) {
-                log.trace("Running algorithm {}", activeAlgo.getAlgorithm().getName());
-                List<ParameterValue> r = runAlgorithm(activeAlgo, acqTime, genTime, pctx);
-                if (r == null || r.isEmpty()) {
-                    continue;
+        if (!useTriggerIndex) {
+            for (ActiveAlgorithm activeAlgo : executionOrder) {
+                List<ParameterValue> r = update(activeAlgo, acqTime, genTime, pctx);
+                addOutputs(activeAlgo, r, pctx);
+            }
+            return;
+        }
+        AlgorithmTriggerIndex idx = getTriggerIndex();
+        BitSet affected = idx.getAffected(pctx);
+        ExecutorService executor = executorService;
+        if (executor == null || idx.levelMembers.length == 0) {
+            for (int i = affected.nextSetBit(0); i >= 0; i = affected.nextSetBit(i + 1)) {
+                ActiveAlgorithm activeAlgo = idx.algorithms[i];
+                List<ParameterValue> r = update(activeAlgo, acqTime, genTime, pctx);
+                if (r != null) {
+                    addOutputs(activeAlgo, r, pctx);
+                    // the outputs may trigger the algorithms following in the execution order
+                    idx.addAffected(affected, r);
                 }
-                if (activeAlgo.getScope() == Scope.GLOBAL) {
-                    if (tmParams != null) {
-                        tmParams.addAll(r);
-                    }
-                } else if (cmdParams != null) {
-                    for (ParameterValue pv : r) {
-                        if (pv.getParameter().isCommandParameter()) {
-                            cmdParams.add(pv);
-                        } else if (tmParams != null) {
-                            tmParams.add(pv);
+            }
+        } else {
+            processByLevel(executor, idx, affected, acqTime, genTime, pctx);
+        }
+    }
+
+    private void processByLevel(ExecutorService executor, AlgorithmTriggerIndex idx, BitSet affected, long acqTime,
+            long genTime, ProcessingContext pctx) {
+        for (BitSet members : idx.levelMembers) {
+            BitSet level = (BitSet) members.clone();
+            level.and(affected);
+            if (level.isEmpty()) {
+                continue;
+            }
+            // the algorithms sharing an execution group (e.g. a script engine) run one after the other in one task
+            Map<Object, List<Integer>> groups = new LinkedHashMap<>();
+            for (int i = level.nextSetBit(0); i >= 0; i = level.nextSetBit(i + 1)) {
+                groups.computeIfAbsent(getExecutionGroup(idx.algorithms[i]), k -> new ArrayList<>()).add(i);
+            }
+            // position -> output of the algorithms which ran and produced output
+            Map<Integer, List<ParameterValue>> results = new ConcurrentHashMap<>();
+            List<Callable<Object>> tasks = new ArrayList<>(groups.size());
+            for (List<Integer> group : groups.values()) {
+                tasks.add(Executors.callable(() -> {
+                    for (int i : group) {
+                        List<ParameterValue> r = update(idx.algorithms[i], acqTime, genTime, pctx);
+                        if (r != null) {
+                            results.put(i, r);
                         }
                     }
+                }));
+            }
+            invokeAll(executor, tasks);
+
+            // add the outputs in the execution order
+            for (int i = level.nextSetBit(0); i >= 0 && !results.isEmpty(); i = level.nextSetBit(i + 1)) {
+                List<ParameterValue> r = results.remove(i);
+                if (r != null) {
+                    addOutputs(idx.algorithms[i], r, pctx);
+                    idx.addAffected(affected, r);
+                }
+            }
+        }
+    }
+
+    private void invokeAll(ExecutorService executor, List<Callable<Object>> tasks) {
+        if (tasks.size() == 1 || executor.isShutdown()) {
+            runInCallingThread(tasks);
+            return;
+        }
+        try {
+            for (Future<Object> f : executor.invokeAll(tasks)) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    log.error("Error running algorithms in context {}", contextName, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while running algorithms in context {}", contextName);
+        } catch (RejectedExecutionException e) {
+            // the executor has been shut down in the meantime
+            log.warn("Algorithms in context {} not run: {}", contextName, e.getMessage());
+        }
+    }
+
+    private void runInCallingThread(List<Callable<Object>> tasks) {
+        for (Callable<Object> task : tasks) {
+            try {
+                task.call();
+            } catch (Exception e) {
+                log.error("Error running algorithms in context {}", contextName, e);
+            }
+        }
+    }
+
+    /**
+     * Returns an object identifying the algorithms which cannot run concurrently with the given one.
+     * <p>
+     * The script algorithms created while the context had no executor service share the script engine of their
+     * language, which is generally not thread safe; the ones created afterwards have their own engine (see
+     * {@link ScriptAlgorithmExecutorFactory}).
+     */
+    static Object getExecutionGroup(ActiveAlgorithm activeAlgo) {
+        if (activeAlgo.executor instanceof ScriptAlgorithmExecutor sae) {
+            return sae.invocable;
+        }
+        return activeAlgo;
+    }
+
+    /**
+     * Updates the algorithm with the data from the processing context and runs it if triggered.
+     * 
+     * @return the output of the algorithm or null if it did not run or had no output
+     */
+    private List<ParameterValue> update(ActiveAlgorithm activeAlgo, long acqTime, long genTime,
+            ProcessingContext pctx) {
+        boolean shouldRun = activeAlgo.update(pctx);
+        if (!shouldRun) {
+            return null;
+        }
+        log.trace("Running algorithm {}", activeAlgo.getAlgorithm().getName());
+        List<ParameterValue> r = runAlgorithm(activeAlgo, acqTime, genTime, pctx);
+        if (r == null || r.isEmpty()) {
+            return null;
+        }
+        return r;
+    }
+
+    /**
+     * Adds the output of the algorithm to the processing context.
+     */
+    private void addOutputs(ActiveAlgorithm activeAlgo, List<ParameterValue> r, ProcessingContext pctx) {
+        if (r == null) {
+            return;
+        }
+        ParameterValueList tmParams = pctx.getTmParams();
+        ParameterValueList cmdParams = pctx.getCmdParams();
+        if (activeAlgo.getScope() == Scope.GLOBAL) {
+            if (tmParams != null) {
+                tmParams.addAll(r);
+            }
+        } else if (cmdParams != null) {
+            for (ParameterValue pv : r) {
+                if (pv.getParameter().isCommandParameter()) {
+                    cmdParams.add(pv);
+                } else if (tmParams != null) {
+                    tmParams.add(pv);
                 }
             }
         }
     }
 
+    private AlgorithmTriggerIndex getTriggerIndex() {
+        // read the version before the list such that a concurrent change causes a rebuild at the next call
+        int version = executionOrderVersion.get();
+        AlgorithmTriggerIndex idx = triggerIndex;
+        if (idx == null || idx.version != version) {
+            idx = new AlgorithmTriggerIndex(executionOrder, version);
+            triggerIndex = idx;
+        }
+        return idx;
+    }
+
     List<ParameterValue> runAlgorithm(ActiveAlgorithm activeAlgo, long acqTime, long genTime, ProcessingContext pctx) {
         List<ParameterValue> params = activeAlgo.runAlgorithm(acqTime, genTime, pctx);
         if (activeAlgo.getErrorCount() >= maxErrCount) {
@@ -106,6 +272,7 @@ public class AlgorithmExecutionContext {
             algorithmsInError.put(algo.getQualifiedName(), status.build());
 
             executionOrder.remove(activeAlgo);
+            executionOrderVersion.incrementAndGet();
         }
         return params;
     }
@@ -114,12 +281,30 @@ public class AlgorithmExecutionContext {
         return contextName;
     }
 
+    /**
+     * Sets the executor used to run concurrently the algorithms which do not depend on each other.
+     * <p>
+     * If null (default), the algorithms are run one by one in the thread calling {@link #process(long,
+     * ProcessingContext)}.
+     * <p>
+     * It has to be set before adding the algorithms such that the script algorithms are created in their own script
+     * engine.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
     public boolean containsAlgorithm(String algoFqn) {
         return executionOrder.stream().anyMatch(aa -> aa.getAlgorithm().getQualifiedName().equals(algoFqn));
     }
 
     public void addAlgorithm(ActiveAlgorithm activeAlgorithm) {
         executionOrder.add(activeAlgorithm);
+        executionOrderVersion.incrementAndGet();
     }
 
     /**
@@ -135,6 +320,7 @@ public class AlgorithmExecutionContext {
         Optional<ActiveAlgorithm> algo = getByFqn(algoFqn);
         if (algo.isPresent()) {
             executionOrder.remove(algo.get());
+            executionOrderVersion.incrementAndGet();
             algo.get().executor.dispose();
             return algo.get();
         } else {
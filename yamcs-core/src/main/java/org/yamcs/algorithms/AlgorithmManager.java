@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -108,6 +109,9 @@ public class AlgorithmManager extends AbstractProcessorService
 
     int maxErrCount;
 
+    // runs the independent global algorithms concurrently; null if they run in the processing thread
+    ForkJoinPool executionPool;
+
     @Override
     public Spec getSpec() {
         Spec spec = new Spec();
@@ -118,6 +122,10 @@ public class AlgorithmManager extends AbstractProcessorService
         spec.addOption("maxErrorsBeforeAutomaticDeactivation", OptionType.INTEGER)
                 .withDescription("If an algorithm errors this number of times, it will be deactivated")
                 .withDefault(10);
+        spec.addOption("executionThreads", OptionType.INTEGER)
+                .withDescription("Number of threads running concurrently the independent algorithms. "
+                        + "If 1, the algorithms are run one by one in the processing thread")
+                .withDefault(1);
         return spec;
     }
 
@@ -164,6 +172,12 @@ public class AlgorithmManager extends AbstractProcessorService
         globalCtx = new AlgorithmExecutionContext("global", processor.getProcessorData(), maxErrCount);
         contexts.add(globalCtx);
 
+        int executionThreads = config.getInt("executionThreads", 1);
+        if (executionThreads > 1) {
+            executionPool = new ForkJoinPool(executionThreads);
+            globalCtx.setExecutorService(executionPool);
+        }
+
         for (Algorithm algo : mdb.getAlgorithms()) {
             if (algo.getScope() == Algorithm.Scope.GLOBAL) {
                 loadAlgorithm(algo, globalCtx);
@@ -495,6 +509,9 @@ public class AlgorithmManager extends AbstractProcessorService
         if (timer != null) {
             timer.shutdownNow();
         }
+        if (executionPool != null) {
+            executionPool.shutdown();
+        }
         notifyStopped();
     }
 
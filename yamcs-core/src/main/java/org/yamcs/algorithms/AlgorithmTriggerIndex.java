@@ -0,0 +1,209 @@
+package org.yamcs.algorithms;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.xtce.InputParameter;
+import org.yamcs.xtce.OnParameterUpdateTrigger;
+import org.yamcs.xtce.OutputParameter;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.TriggerSetType;
+
+/**
+ * Inverted index from parameters to the active algorithms of an {@link AlgorithmExecutionContext} which have to be
+ * updated when the parameters are part of a delivery.
+ * <p>
+ * The algorithms are identified by their position in the execution order, such that iterating over the affected
+ * positions visits the algorithms in the same (topological) order as iterating over the full list.
+ * <p>
+ * Only the algorithms whose executor is an {@link AbstractAlgorithmExecutor} with a non-empty trigger set and only
+ * parameter inputs are indexed: for those an update is a no-op unless one of the inputs or triggering parameters is in
+ * the delivery (the input values not being part of the delivery are retrieved again from the last value cache when
+ * the algorithm is triggered). All the other algorithms (e.g. custom executors or command verifiers) are visited for
+ * each delivery.
+ * <p>
+ * The index also groups the algorithms into levels based on the dependencies between their inputs and outputs: the
+ * algorithms from the same level are independent of each other and can be executed concurrently, provided that their
+ * outputs are added to the delivery in the execution order after the whole level has run.
+ * <p>
+ * The index is immutable; it is rebuilt by the context when the list of active algorithms changes.
+ */
+class AlgorithmTriggerIndex {
+    final ActiveAlgorithm[] algorithms;
+    // version of the execution order from which the index has been built
+    final int version;
+    // parameter -> positions of the algorithms that have to be updated
+    final Map<Parameter, int[]> index = new HashMap<>();
+    // positions of the algorithms that are updated with each delivery
+    final BitSet always = new BitSet();
+    // level of each algorithm and positions of the algorithms of each level
+    final int[] levels;
+    final BitSet[] levelMembers;
+
+    AlgorithmTriggerIndex(List<ActiveAlgorithm> executionOrder, int version) {
+        this.version = version;
+        algorithms = executionOrder.toArray(new ActiveAlgorithm[0]);
+        Map<Parameter, List<Integer>> m = new HashMap<>();
+        for (int i = 0; i < algorithms.length; i++) {
+            List<Parameter> params = getIndexParameters(algorithms[i]);
+            if (params == null) {
+                always.set(i);
+                continue;
+            }
+            for (Parameter p : params) {
+                List<Integer> l = m.computeIfAbsent(p, k -> new ArrayList<>());
+                if (l.isEmpty() || l.get(l.size() - 1) != i) {
+                    l.add(i);
+                }
+            }
+        }
+        for (Map.Entry<Parameter, List<Integer>> me : m.entrySet()) {
+            index.put(me.getKey(), me.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        levels = computeLevels(algorithms);
+        int maxLevel = -1;
+        for (int l : levels) {
+            maxLevel = Math.max(maxLevel, l);
+        }
+        levelMembers = new BitSet[maxLevel + 1];
+        for (int l = 0; l <= maxLevel; l++) {
+            levelMembers[l] = new BitSet();
+        }
+        for (int i = 0; i < levels.length; i++) {
+            levelMembers[levels[i]].set(i);
+        }
+    }
+
+    /**
+     * Computes the level of each algorithm such that running the levels one after the other, with the outputs of a
+     * level added to the delivery only after all its algorithms have run, gives the same result as running the
+     * algorithms one by one in the execution order.
+     * <p>
+     * An algorithm has to be at a higher level than the previous algorithms producing one of its inputs or triggers
+     * and at least at the same level as the previous algorithms using or producing one of its outputs.
+     */
+    static int[] computeLevels(ActiveAlgorithm[] algorithms) {
+        int[] levels = new int[algorithms.length];
+        // parameter -> max level of the algorithms producing it, respectively using it
+        Map<Parameter, Integer> producerLevel = new HashMap<>();
+        Map<Parameter, Integer> consumerLevel = new HashMap<>();
+
+        for (int i = 0; i < algorithms.length; i++) {
+            List<Parameter> inputs = getDependencies(algorithms[i]);
+            List<Parameter> outputs = new ArrayList<>();
+            List<OutputParameter> outList = algorithms[i].getOutputList();
+            if (outList != null) {
+                for (OutputParameter op : outList) {
+                    outputs.add(op.getParameter());
+                }
+            }
+            int level = 0;
+            for (Parameter p : inputs) {
+                Integer l = producerLevel.get(p);
+                if (l != null) {
+                    level = Math.max(level, l + 1);
+                }
+            }
+            for (Parameter p : outputs) {
+                level = Math.max(level, producerLevel.getOrDefault(p, 0));
+                level = Math.max(level, consumerLevel.getOrDefault(p, 0));
+            }
+            levels[i] = level;
+            for (Parameter p : inputs) {
+                consumerLevel.merge(p, level, Math::max);
+            }
+            for (Parameter p : outputs) {
+                producerLevel.merge(p, level, Math::max);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * @return the parameters used by the algorithm (inputs and triggers)
+     */
+    static List<Parameter> getDependencies(ActiveAlgorithm activeAlgo) {
+        List<Parameter> params = new ArrayList<>();
+        TriggerSetType triggerSet = activeAlgo.getAlgorithm().getTriggerSet();
+        if (triggerSet != null) {
+            for (OnParameterUpdateTrigger trigger : triggerSet.getOnParameterUpdateTriggers()) {
+                params.add(trigger.getParameter());
+            }
+        }
+        addInputParameters(params, activeAlgo.getAlgorithm().getInputList());
+        addInputParameters(params, activeAlgo.getInputList());
+        return params;
+    }
+
+    /**
+     * Returns the positions of the algorithms affected by the parameters of the processing context.
+     */
+    BitSet getAffected(ProcessingContext pctx) {
+        BitSet affected = (BitSet) always.clone();
+        addAffected(affected, pctx.getTmParams());
+        addAffected(affected, pctx.getCmdParams());
+        return affected;
+    }
+
+    /**
+     * Adds to the set the positions of the algorithms affected by the given parameter values.
+     */
+    void addAffected(BitSet affected, Iterable<ParameterValue> pvs) {
+        if (pvs == null || index.isEmpty()) {
+            return;
+        }
+        for (ParameterValue pv : pvs) {
+            int[] positions = index.get(pv.getParameter());
+            if (positions != null) {
+                for (int k : positions) {
+                    affected.set(k);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @return the number of algorithms which are updated with each delivery regardless of its content
+     */
+    int getUnindexedCount() {
+        return always.cardinality();
+    }
+
+    /**
+     * Returns the parameters whose presence in a delivery requires updating the algorithm or null if the algorithm has
+     * to be updated with each delivery.
+     */
+    static List<Parameter> getIndexParameters(ActiveAlgorithm activeAlgo) {
+        if (!(activeAlgo.executor instanceof AbstractAlgorithmExecutor)) {
+            return null;
+        }
+        TriggerSetType triggerSet = activeAlgo.getAlgorithm().getTriggerSet();
+        if (triggerSet == null || triggerSet.isEmpty()) {
+            return null;
+        }
+        if (hasArgumentInput(activeAlgo.getAlgorithm().getInputList())
+                || hasArgumentInput(activeAlgo.getInputList())) {
+            return null;
+        }
+        return getDependencies(activeAlgo);
+    }
+
+    private static boolean hasArgumentInput(List<InputParameter> inputList) {
+        return inputList.stream().anyMatch(ip -> ip.getParameterInstance() == null);
+    }
+
+    private static void addInputParameters(List<Parameter> params, List<InputParameter> inputList) {
+        for (InputParameter ip : inputList) {
+            if (ip.getParameterInstance() != null) {
+                params.add(ip.getParameterInstance().getParameter());
+            }
+        }
+    }
+}
@@ -31,11 +31,18 @@ import org.yamcs.xtce.OutputParameter;
  * Each algorithm is created as a function in the scriptEngine. There might be multiple executors for the same
  * algorithm: for example in the command verifier there will be one algorithm executor for each command. However there
  * will be only one function created in the script engine.
- *
+ * <p>
+ * The script engines are generally not thread safe; if the algorithms of the execution context may run concurrently
+ * (see {@link AlgorithmExecutionContext#setExecutorService}), each algorithm is created in its own script engine, with
+ * its own copy of the libraries. In this case the global variables of the libraries are not shared between the
+ * algorithms.
  * 
  */
 public class ScriptAlgorithmExecutorFactory implements AlgorithmExecutorFactory {
     final ScriptEngine scriptEngine;
+    final ScriptEngineFactory engineFactory;
+    final ScriptEngineManager scriptEngineManager;
+    final List<String> libraryNames;
     static final Logger log = LoggerFactory.getLogger(ScriptAlgorithmExecutorFactory.class);
 
     public ScriptAlgorithmExecutorFactory(ScriptEngineManager scriptEngineManager, String language,
@@ -49,16 +56,13 @@ public class ScriptAlgorithmExecutorFactory implements AlgorithmExecutorFactory
                 .findFirst()
                 .orElse(null);
 
-        if (factory != null) {
-            scriptEngine = factory.getScriptEngine();
-            scriptEngine.setBindings(scriptEngineManager.getBindings(), ScriptContext.GLOBAL_SCOPE);
-        } else {
+        if (factory == null) {
             throw new ConfigurationException("Cannot get a script engine for language " + language);
         }
-
-        if (libraryNames != null) {
-            loadLibraries(libraryNames);
-        }
+        this.engineFactory = factory;
+        this.scriptEngineManager = scriptEngineManager;
+        this.libraryNames = libraryNames;
+        scriptEngine = createEngine();
 
         // Put engine bindings in shared global scope - we want the variables in the libraries to be global
         Bindings commonBindings = scriptEngine.getBindings(ScriptContext.ENGINE_SCOPE);
@@ -74,7 +78,16 @@ public class ScriptAlgorithmExecutorFactory implements AlgorithmExecutorFactory
         scriptEngineManager.setBindings(commonBindings);
     }
 
-    private void loadLibraries(List<String> libraryNames) {
+    private ScriptEngine createEngine() {
+        ScriptEngine engine = engineFactory.getScriptEngine();
+        engine.setBindings(scriptEngineManager.getBindings(), ScriptContext.GLOBAL_SCOPE);
+        if (libraryNames != null) {
+            loadLibraries(engine);
+        }
+        return engine;
+    }
+
+    private void loadLibraries(ScriptEngine scriptEngine) {
         try {
             for (String lib : libraryNames) {
                 log.debug("Loading library {}", lib);
@@ -103,17 +116,22 @@ public class ScriptAlgorithmExecutorFactory implements AlgorithmExecutorFactory
         String functionName = calg.getQualifiedName().replace("/", "_");
         String functionScript = generateFunctionCode(functionName, calg);
         log.debug("Evaluating script:\n{}", functionScript);
+        ScriptEngine engine = scriptEngine;
+        if (execCtx.getExecutorService() != null) {
+            // the algorithm may run concurrently with the others
+            engine = createEngine();
+        }
         try {
             // improve error messages as well as required for event generation to know from where it is called
-            scriptEngine.put(ScriptEngine.FILENAME, calg.getQualifiedName());
-            scriptEngine.eval(functionScript);
+            engine.put(ScriptEngine.FILENAME, calg.getQualifiedName());
+            engine.eval(functionScript);
         } catch (ScriptException e) {
             String msg = "Error evaluating script " + functionScript + ": " + e.getMessage();
             execCtx.getEventProducer().sendWarning(msg);
             log.warn("Error while evaluating script {}: {}", functionScript, e.getMessage(), e);
             throw new AlgorithmException(msg);
         }
-        return new ScriptAlgorithmExecutor(calg, (Invocable) scriptEngine, functionName, functionScript, execCtx);
+        return new ScriptAlgorithmExecutor(calg, (Invocable) engine, functionName, functionScript, execCtx);
     }
 
     public static String generateFunctionCode(String functionName, CustomAlgorithm algorithmDef) {
@@ -2,12 +2,14 @@ package org.yamcs.archive;
 
 import java.util.stream.Collectors;
 
+import org.rocksdb.RocksDBException;
 import org.yamcs.AbstractYamcsService;
 import org.yamcs.InitException;
 import org.yamcs.StreamConfig;
 import org.yamcs.StreamConfig.StreamConfigEntry;
 import org.yamcs.YConfiguration;
 import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.protobuf.Db.Event;
@@ -15,6 +17,8 @@ import org.yamcs.yarch.streamsql.StreamSqlException;
 
 /**
  * Sets up the archiving of the events coming on events_realtime and events_dump streams into the yarch table events.
+ * <p>
+ * Optionally maintains a text index of the event messages, see {@link EventTextIndex}.
  *
  */
 public class EventRecorder extends AbstractYamcsService {
@@ -23,7 +27,9 @@ public class EventRecorder extends AbstractYamcsService {
     public static final String REALTIME_EVENT_STREAM_NAME = "events_realtime";
     public static final String DUMP_EVENT_STREAM_NAME = "events_dump";
     public static final String CF_NAME = XtceTmRecorder.CF_NAME;
-    
+
+    private EventTextIndex textIndex;
+
     @Override
     public void init(String yamcsInstance, String serviceName, YConfiguration config) throws InitException {
         super.init(yamcsInstance, serviceName, config);
@@ -43,19 +49,32 @@ public class EventRecorder extends AbstractYamcsService {
                         + " table_format=compressed,column_family:"+CF_NAME);
             }
 
+            if (config.getBoolean("textIndex", false)) {
+                textIndex = new EventTextIndex(ydb, config.getInt("textIndexMaxCandidates", 100000));
+            } else {
+                // the events recorded from now on are not indexed, so the index would be incomplete if re-enabled
+                EventTextIndex.drop(ydb);
+            }
+
             StreamConfig sc = StreamConfig.getInstance(yamcsInstance);
             for (StreamConfigEntry sce : sc.getEntries()) {
                 if (sce.getType() == StreamConfig.StandardStreamType.EVENT) {
                     ydb.execute("insert into " + TABLE_NAME + " select * from " + sce.getName());
+                    if (textIndex != null) {
+                        ydb.getStream(sce.getName()).addSubscriber(textIndex);
+                    }
                 }
             }
-        } catch (ParseException | StreamSqlException e) {
+        } catch (ParseException | StreamSqlException | RocksDBException e) {
             throw new InitException(e);
         }
     }
 
     @Override
     protected void doStart() {
+        if (textIndex != null) {
+            textIndex.buildIfNeeded();
+        }
         notifyStarted();
     }
 
@@ -65,7 +84,23 @@ public class EventRecorder extends AbstractYamcsService {
         StreamConfig sc = StreamConfig.getInstance(yamcsInstance);
 
         Utils.closeTableWriters(ydb, sc.getEntries().stream().map(sce -> sce.getName()).collect(Collectors.toList()));
+        if (textIndex != null) {
+            for (StreamConfigEntry sce : sc.getEntries(StreamConfig.StandardStreamType.EVENT)) {
+                Stream s = ydb.getStream(sce.getName());
+                if (s != null) {
+                    s.removeSubscriber(textIndex);
+                }
+            }
+        }
 
         notifyStopped();
     }
+
+    /**
+     *
+     * @return the text index of the event messages or null if the index is not enabled
+     */
+    public EventTextIndex getTextIndex() {
+        return textIndex;
+    }
 }
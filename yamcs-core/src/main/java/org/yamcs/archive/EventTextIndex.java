@@ -0,0 +1,484 @@
+package org.yamcs.archive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.yamcs.logging.Log;
+import org.yamcs.utils.ByteArray;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.ByteArrayComparator;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.StreamSubscriber;
+import org.yamcs.yarch.TableColumnDefinition;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TimePartitionInfo;
+import org.yamcs.yarch.TimePartitionSchema;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.YarchDatabaseInstance;
+import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.protobuf.Db.Event;
+import org.yamcs.yarch.rocksdb.DbIterator;
+import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.rocksdb.RdbTable;
+import org.yamcs.yarch.rocksdb.Tablespace;
+import org.yamcs.yarch.rocksdb.YRDB;
+import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord;
+import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
+import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TimeBasedPartition;
+import org.yamcs.yarch.streamsql.StreamSqlException;
+import org.yamcs.yarch.streamsql.StreamSqlResult;
+
+/**
+ * Inverted index of the words of the event messages, used to find the events containing a given text without
+ * decoding all the events in the searched time range.
+ * <p>
+ * The index is kept in the tablespace of the events table, split in the same time partitions as the table. Each
+ * partition has its own tbsIndex and the structure of the rocksdb records is:
+ *
+ * <pre>
+ * key: tbsIndex[4 bytes], term[UTF-8], 0[1 byte], events table primary key (gentime, source, seqNum)
+ * value: empty
+ * </pre>
+ *
+ * The terms are the suffixes of the (lower case) words of the message, of at least {@value #MIN_TERM_LENGTH}
+ * characters, truncated to {@value #MAX_TERM_LENGTH} characters. A word is a sequence of letters and digits. Storing
+ * the suffixes allows finding the words which contain a given text with a prefix search, such that the index can be
+ * used for the substring semantics of the LIKE operator: each sequence of letters and digits of the searched text has
+ * to be found inside one of the words of a matching message.
+ * <p>
+ * The index returns candidates; the LIKE condition still has to be verified on the events read from the table.
+ */
+public class EventTextIndex implements StreamSubscriber {
+    static final int MIN_TERM_LENGTH = 3;
+    static final int MAX_TERM_LENGTH = 16;
+
+    // characters which have a special meaning in the regular expression derived from a LIKE pattern (besides the
+    // '%' and '?' wildcards); if they are present, the text does not have to be contained literally in the message
+    static final String REGEX_CHARS = "\\*+[](){}^$|";
+
+    private static final AtomicInteger streamCounter = new AtomicInteger();
+    private static final Comparator<byte[]> KEY_COMPARATOR = new ByteArrayComparator();
+
+    final String yamcsInstance;
+    final YarchDatabaseInstance ydb;
+    final TableDefinition tblDef;
+    final RdbTable table;
+    final Tablespace tablespace;
+    final TableColumnDefinition gentimeColumn;
+    final TimePartitionSchema partitioningSchema;
+    final Log log;
+
+    // partition start -> partition
+    private final TreeMap<Long, IndexPartition> partitions = new TreeMap<>();
+
+    // if the number of candidates exceeds this, the index is not used
+    private final int maxCandidates;
+
+    // set after the index covers all the events from the table
+    private volatile boolean ready;
+
+    public EventTextIndex(YarchDatabaseInstance ydb, int maxCandidates) {
+        this.yamcsInstance = ydb.getName();
+        this.ydb = ydb;
+        this.maxCandidates = maxCandidates;
+        this.tblDef = ydb.getTable(EventRecorder.TABLE_NAME);
+        this.tablespace = RdbStorageEngine.getInstance().getTablespace(ydb);
+        this.table = tablespace.getTable(tblDef);
+        if (table == null) {
+            throw new YarchException("The text index requires the events table to be in the tablespace "
+                    + tablespace.getName());
+        }
+        this.gentimeColumn = tblDef.getKeyDefinition().get(0);
+        this.partitioningSchema = tblDef.hasPartitioning()
+                ? tblDef.getPartitioningSpec().getTimePartitioningSchema()
+                : null;
+        log = new Log(getClass(), yamcsInstance);
+
+        for (TablespaceRecord tr : getRecords(tablespace, yamcsInstance)) {
+            if (tr.hasPartition()) {
+                TimeBasedPartition tbp = tr.getPartition();
+                partitions.put(tbp.getPartitionStart(),
+                        new IndexPartition(tr.getTbsIndex(), tbp.getPartitionStart(), tbp.getPartitionEnd()));
+            } else {
+                ready = true;
+            }
+        }
+    }
+
+    private static List<TablespaceRecord> getRecords(Tablespace tablespace, String yamcsInstance) {
+        return tablespace.filter(Type.EVENT_TEXT_INDEX, yamcsInstance,
+                tr -> EventRecorder.TABLE_NAME.equals(tr.getTableName()));
+    }
+
+    /**
+     * Removes the index data; called when the index is disabled, because the events recorded afterwards would not be
+     * indexed.
+     */
+    public static void drop(YarchDatabaseInstance ydb) throws RocksDBException {
+        Tablespace tablespace = RdbStorageEngine.getInstance().getTablespace(ydb);
+        IntArray tbsIndices = new IntArray();
+        for (TablespaceRecord tr : getRecords(tablespace, ydb.getName())) {
+            tbsIndices.add(tr.getTbsIndex());
+        }
+        if (tbsIndices.size() > 0) {
+            tablespace.removeTbsIndices(Type.EVENT_TEXT_INDEX, tbsIndices);
+        }
+    }
+
+    /**
+     *
+     * @return true if all the events from the table are indexed, and the index can be used for searching
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Indexes the events already existing in the table, if this has not been done before. Called after the index has
+     * been subscribed to the event streams, such that no event is missed.
+     */
+    public void buildIfNeeded() {
+        if (ready) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                build();
+            } catch (Exception e) {
+                log.error("Failed to build the event text index", e);
+            }
+        }, "EventTextIndexBuilder[" + yamcsInstance + "]");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void build() throws StreamSqlException, ParseException, RocksDBException {
+        log.info("Building the text index of the events table");
+        long count = 0;
+        StreamSqlResult res = ydb.execute("select * from " + EventRecorder.TABLE_NAME);
+        try {
+            while (res.hasNext()) {
+                addEvent(res.next());
+                count++;
+            }
+        } finally {
+            res.close();
+        }
+        tablespace.createMetadataRecord(yamcsInstance, TablespaceRecord.newBuilder()
+                .setType(Type.EVENT_TEXT_INDEX).setTableName(EventRecorder.TABLE_NAME));
+        ready = true;
+        log.info("Event text index built, {} events indexed", count);
+    }
+
+    @Override
+    public void onTuple(Stream s, Tuple tuple) {
+        try {
+            addEvent(tuple);
+        } catch (RocksDBException e) {
+            log.error("Failed to index event", e);
+        }
+    }
+
+    private void addEvent(Tuple tuple) throws RocksDBException {
+        Event event = (Event) tuple.getColumn("body");
+        if (event == null || !event.hasMessage()) {
+            return;
+        }
+        Set<String> terms = getIndexTerms(event.getMessage());
+        if (terms.isEmpty()) {
+            return;
+        }
+        long gentime = (Long) tuple.getColumn(gentimeColumn.getName());
+        byte[] eventKey = tblDef.generateRow(tuple).getKey();
+        IndexPartition partition = getOrCreatePartition(gentime);
+
+        YRDB rdb = tablespace.getRdb();
+        try (WriteBatch writeBatch = new WriteBatch(); WriteOptions writeOpts = new WriteOptions()) {
+            for (String term : terms) {
+                writeBatch.put(indexKey(partition.tbsIndex, term, eventKey), RdbStorageEngine.ZERO_BYTES);
+            }
+            rdb.write(writeOpts, writeBatch);
+        }
+    }
+
+    private synchronized IndexPartition getOrCreatePartition(long instant) throws RocksDBException {
+        Map.Entry<Long, IndexPartition> e = partitions.floorEntry(instant);
+        if (e != null && e.getValue().end > instant) {
+            return e.getValue();
+        }
+        long start, end;
+        if (partitioningSchema == null) {
+            start = TimeEncoding.MIN_INSTANT;
+            end = TimeEncoding.MAX_INSTANT;
+        } else {
+            TimePartitionInfo pinfo = partitioningSchema.getPartitionInfo(instant);
+            start = pinfo.getStart();
+            end = pinfo.getEnd();
+        }
+        TablespaceRecord tr = tablespace.createMetadataRecord(yamcsInstance, TablespaceRecord.newBuilder()
+                .setType(Type.EVENT_TEXT_INDEX)
+                .setTableName(EventRecorder.TABLE_NAME)
+                .setPartition(TimeBasedPartition.newBuilder().setPartitionStart(start).setPartitionEnd(end)));
+        IndexPartition partition = new IndexPartition(tr.getTbsIndex(), start, end);
+        partitions.put(start, partition);
+        return partition;
+    }
+
+    private synchronized List<IndexPartition> getPartitions(TimeInterval interval) {
+        List<IndexPartition> l = new ArrayList<>();
+        for (IndexPartition p : partitions.values()) {
+            if ((!interval.hasStart() || p.end > interval.getStart())
+                    && (!interval.hasEnd() || p.start < interval.getEnd())) {
+                l.add(p);
+            }
+        }
+        return l;
+    }
+
+    /**
+     * Searches the events whose message may contain the given text, with the semantics of
+     * {@code message like '%text%'}.
+     *
+     * @param text
+     *            - the searched text
+     * @param interval
+     *            - the generation time interval, start inclusive, end exclusive
+     * @return the primary keys of the candidate events sorted in the table order, or null if the index cannot be used
+     *         for this search (because it is not ready, the text does not contain a long enough word or there are too
+     *         many candidates)
+     */
+    public NavigableSet<byte[]> search(String text, TimeInterval interval) throws RocksDBException {
+        if (!ready) {
+            return null;
+        }
+        List<String> terms = getSearchTerms(text);
+        if (terms == null || terms.isEmpty()) {
+            return null;
+        }
+        List<IndexPartition> plist = getPartitions(interval);
+        YRDB rdb = tablespace.getRdb();
+        NavigableSet<byte[]> candidates = null;
+
+        for (String term : terms) {
+            NavigableSet<byte[]> matching = new TreeSet<>(KEY_COMPARATOR);
+            for (IndexPartition p : plist) {
+                byte[] prefix = indexKey(p.tbsIndex, term, null);
+                try (DbIterator it = rdb.newPrefixIterator(prefix)) {
+                    while (it.isValid()) {
+                        byte[] eventKey = getEventKey(it.key(), prefix.length);
+                        if ((candidates == null || candidates.contains(eventKey))
+                                && interval.contains0(getGentime(eventKey))) {
+                            matching.add(eventKey);
+                            if (matching.size() > maxCandidates) {
+                                log.debug("More than {} candidates for term '{}', not using the index", maxCandidates,
+                                        term);
+                                return null;
+                            }
+                        }
+                        it.next();
+                    }
+                }
+            }
+            candidates = matching;
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Creates (and registers to the database) a stream which reads from the events table the rows with the given keys.
+     * <p>
+     * The stream has the same definition as the table and can be used in a select instead of the table.
+     *
+     * @param eventKeys
+     *            - the primary keys of the events as returned by {@link #search(String, TimeInterval)}
+     * @param ascending
+     *            - the order in which the events are emitted
+     * @return the stream, not yet started
+     */
+    public Stream newEventStream(NavigableSet<byte[]> eventKeys, boolean ascending) {
+        String name = "event_text_search" + streamCounter.incrementAndGet();
+        EventKeyStream stream = new EventKeyStream(ydb, name,
+                ascending ? eventKeys : eventKeys.descendingSet());
+        ydb.addStream(stream);
+        return stream;
+    }
+
+    private long getGentime(byte[] eventKey) {
+        try {
+            return (Long) gentimeColumn.deserializeValue(ByteArray.wrap(eventKey));
+        } catch (IOException e) {
+            throw new YarchException(e);
+        }
+    }
+
+    private static byte[] getEventKey(byte[] indexKey, int offset) {
+        int k = offset;
+        while (indexKey[k] != 0) {
+            k++;
+        }
+        return Arrays.copyOfRange(indexKey, k + 1, indexKey.length);
+    }
+
+    /**
+     * if eventKey is null, returns the prefix used for searching the term
+     */
+    private static byte[] indexKey(int tbsIndex, String term, byte[] eventKey) {
+        byte[] t = term.getBytes(StandardCharsets.UTF_8);
+        int n = 4 + t.length + (eventKey == null ? 0 : 1 + eventKey.length);
+        byte[] key = new byte[n];
+        ByteArrayUtils.encodeInt(tbsIndex, key, 0);
+        System.arraycopy(t, 0, key, 4, t.length);
+        if (eventKey != null) {
+            key[4 + t.length] = 0;
+            System.arraycopy(eventKey, 0, key, 5 + t.length, eventKey.length);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the terms under which a message is indexed: all the suffixes of the words, of at least
+     * {@link #MIN_TERM_LENGTH} characters and truncated to {@link #MAX_TERM_LENGTH} characters.
+     */
+    static Set<String> getIndexTerms(String message) {
+        Set<String> terms = new HashSet<>();
+        for (String word : getWords(message)) {
+            for (int k = 0; k <= word.length() - MIN_TERM_LENGTH; k++) {
+                terms.add(word.substring(k, Math.min(word.length(), k + MAX_TERM_LENGTH)));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Returns the terms to be searched in the index for a text, the longest (and most likely the most selective)
+     * first.
+     * <p>
+     * Returns null if the text contains characters which make the LIKE operator match messages not containing the
+     * text.
+     */
+    static List<String> getSearchTerms(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (REGEX_CHARS.indexOf(text.charAt(i)) >= 0) {
+                return null;
+            }
+        }
+        Set<String> terms = new HashSet<>();
+        for (String word : getWords(text)) {
+            if (word.length() >= MIN_TERM_LENGTH) {
+                terms.add(word.length() > MAX_TERM_LENGTH ? word.substring(0, MAX_TERM_LENGTH) : word);
+            }
+        }
+        List<String> l = new ArrayList<>(terms);
+        l.sort((t1, t2) -> Integer.compare(t2.length(), t1.length()));
+        return l;
+    }
+
+    /**
+     * splits the lower case text in sequences of letters and digits; the LIKE operator is case insensitive
+     */
+    static List<String> getWords(String text) {
+        String s = text.toLowerCase();
+        List<String> words = new ArrayList<>();
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            if (!Character.isLetterOrDigit(s.charAt(i))) {
+                i++;
+                continue;
+            }
+            int j = i + 1;
+            while (j < n && Character.isLetterOrDigit(s.charAt(j))) {
+                j++;
+            }
+            words.add(s.substring(i, j));
+            i = j;
+        }
+        return words;
+    }
+
+    @Override
+    public void streamClosed(Stream s) {
+        // nothing to do
+    }
+
+    @Override
+    public String getDescription() {
+        return "event text index";
+    }
+
+    static class IndexPartition {
+        final int tbsIndex;
+        final long start;
+        final long end;
+
+        IndexPartition(int tbsIndex, long start, long end) {
+            this.tbsIndex = tbsIndex;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Reads the events with the given keys from the table.
+     */
+    class EventKeyStream extends Stream implements Runnable {
+        final Collection<byte[]> eventKeys;
+
+        EventKeyStream(YarchDatabaseInstance ydb, String name, Collection<byte[]> eventKeys) {
+            super(ydb, name, tblDef.getTupleDefinition());
+            this.eventKeys = eventKeys;
+        }
+
+        @Override
+        public void doStart() {
+            Thread thread = new Thread(this, "EventKeyStream[" + getName() + "]");
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                Iterator<byte[]> it = eventKeys.iterator();
+                while (!quitting() && it.hasNext()) {
+                    byte[] eventKey = it.next();
+                    Tuple tuple = table.readRow(getGentime(eventKey), eventKey);
+                    if (tuple != null) {
+                        emitTuple(tuple);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Got exception when reading the events", e);
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        protected void doClose() {
+            // the reading thread stops when it sees the state change
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.yamcs.archive;
 
 import java.util.Collection;
 
+import org.yamcs.yarch.AsyncStreamSubscriber;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
 import org.yamcs.yarch.TableWriter;
@@ -19,6 +20,9 @@ public class Utils {
             Stream s = ydb.getStream(streamName);
             if(s!=null) {
                 for(StreamSubscriber ss:s.getSubscribers()) {
+                    if(ss instanceof AsyncStreamSubscriber) {
+                        ss = ((AsyncStreamSubscriber) ss).getSubscriber();
+                    }
                     if(ss instanceof TableWriter) {
                         s.removeSubscriber(ss);
                         ((TableWriter)ss).close();
@@ -192,6 +192,11 @@ public class XtceTmRecorder extends AbstractYamcsService {
         LinkedBlockingQueue<Tuple> tmQueue;
         XtceTmExtractor tmExtractor;
 
+        // definition of the recorded tuples, see updateRecordedDefinition
+        TupleDefinition lastInputDef;
+        TupleDefinition recordedDef;
+        int rootContainerIdx;
+
         StreamRecorder(Stream inputStream, Stream outputStream, SequenceContainer sc, boolean async) {
             this.outputStream = outputStream;
             this.inputStream = inputStream;
@@ -289,6 +294,20 @@ public class XtceTmRecorder extends AbstractYamcsService {
             }
         }
 
+        /**
+         * Computes the definition of the recorded tuples: the input columns without the root container followed by the
+         * partition name.
+         * <p>
+         * The result is frozen and shared by all the tuples recorded while the input definition does not change.
+         */
+        private void updateRecordedDefinition(TupleDefinition inputDef) {
+            TupleDefinition tdef = inputDef.copy();
+            rootContainerIdx = tdef.removeColumn(TM_ROOT_CONTAINER_COLUMN);
+            tdef.addColumn(PNAME_COLUMN, DataType.ENUM);
+            recordedDef = tdef.freeze();
+            lastInputDef = inputDef;
+        }
+
         /**
          * saves a TM tuple. The definition is in {@link StandardTupleDefinitions#TM}
          * 
@@ -309,24 +328,24 @@ public class XtceTmRecorder extends AbstractYamcsService {
             String pname = deriveArchivePartition(cpr);
 
             try {
-                List<?> c = t.getColumns();
-                List<Object> columns = new ArrayList<>(c.size() + 1);
-                columns.addAll(c);
-
-                columns.add(c.size(), pname);
-                TupleDefinition tdef = t.getDefinition().copy();
-                tdef.addColumn(PNAME_COLUMN, DataType.ENUM);
-
-                Tuple tp = new Tuple(tdef, columns);
-
+                TupleDefinition inputDef = t.getDefinition();
+                if (inputDef != lastInputDef || !inputDef.isFrozen()) {
+                    updateRecordedDefinition(inputDef);
+                }
+                int n = inputDef.size();
+                Object[] columns = new Object[recordedDef.size()];
+                int k = 0;
+                for (int i = 0; i < n; i++) {
+                    if (i != rootContainerIdx) {
+                        columns[k++] = t.getColumn(i);
+                    }
+                }
                 // If provided on the tuple (set by a preprocessor), this has more priority
                 // in determining the pname.
-                String rootContainer = tp.removeColumn(TM_ROOT_CONTAINER_COLUMN);
-                if (rootContainer != null) {
-                    tp.setColumn(PNAME_COLUMN, rootContainer);
-                }
+                String rootContainer = rootContainerIdx == -1 ? null : (String) t.getColumn(rootContainerIdx);
+                columns[k] = rootContainer != null ? rootContainer : pname;
 
-                outputStream.emitTuple(tp);
+                outputStream.emitTuple(new Tuple(recordedDef, columns));
             } catch (Exception e) {
                 log.error("got exception when saving packet ", e);
             }
@@ -36,8 +36,7 @@ public class StreamCommandHistoryPublisher implements CommandHistoryPublisher {
 
     @Override
     public void publish(CommandId cmdId, String key, String value) {
-        TupleDefinition td = StandardTupleDefinitions.TC.copy();
-        td.addColumn(key, DataType.STRING);
+        TupleDefinition td = StandardTupleDefinitions.TC.extend(key, DataType.STRING);
 
         Tuple t = new Tuple(td, new Object[] {
                 cmdId.getGenerationTime(),
@@ -51,8 +50,7 @@ public class StreamCommandHistoryPublisher implements CommandHistoryPublisher {
 
     @Override
     public void publish(CommandId cmdId, String key, long instant) {
-        TupleDefinition td = StandardTupleDefinitions.TC.copy();
-        td.addColumn(key, DataType.TIMESTAMP);
+        TupleDefinition td = StandardTupleDefinitions.TC.extend(key, DataType.TIMESTAMP);
 
         Tuple t = new Tuple(td, new Object[] {
                 cmdId.getGenerationTime(),
@@ -75,8 +73,7 @@ public class StreamCommandHistoryPublisher implements CommandHistoryPublisher {
     }
 
     public void publish(CommandId cmdId, String key, DataType dt, Object value) {
-        TupleDefinition td = StandardTupleDefinitions.TC.copy();
-        td.addColumn(key, dt);
+        TupleDefinition td = StandardTupleDefinitions.TC.extend(key, dt);
 
         Tuple t = new Tuple(td, new Object[] {
                 cmdId.getGenerationTime(),
@@ -91,19 +88,19 @@ public class StreamCommandHistoryPublisher implements CommandHistoryPublisher {
     @Override
     public void publishAck(CommandId cmdId, String key, long time, AckStatus state,
             String message, ParameterValue resultPv) {
-        TupleDefinition td = StandardTupleDefinitions.TC.copy();
-        td.addColumn(key + SUFFIX_STATUS, DataType.STRING);
-        td.addColumn(key + SUFFIX_TIME, DataType.TIMESTAMP);
+        // the extended definitions are cached so all the acks of the same type share the same definition
+        TupleDefinition td = StandardTupleDefinitions.TC.extend(key + SUFFIX_STATUS, DataType.STRING)
+                .extend(key + SUFFIX_TIME, DataType.TIMESTAMP);
         List<Object> vals = new ArrayList<>(Arrays.asList(cmdId.getGenerationTime(), cmdId.getOrigin(),
                 cmdId.getSequenceNumber(), cmdId.getCommandName(), state.toString(),
                 time));
 
         if (message != null) {
-            td.addColumn(key + SUFFIX_MESSAGE, DataType.STRING);
+            td = td.extend(key + SUFFIX_MESSAGE, DataType.STRING);
             vals.add(message);
         }
         if (resultPv != null) {
-            td.addColumn(key + SUFFIX_RETURN, DataType.PARAMETER_VALUE);
+            td = td.extend(key + SUFFIX_RETURN, DataType.PARAMETER_VALUE);
             vals.add(resultPv);
         }
         stream.emitTuple(new Tuple(td, vals));
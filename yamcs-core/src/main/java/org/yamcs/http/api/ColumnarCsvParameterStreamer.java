@@ -0,0 +1,232 @@
+package org.yamcs.http.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.yamcs.api.HttpBody;
+import org.yamcs.api.Observer;
+import org.yamcs.http.MediaType;
+import org.yamcs.parameter.ParameterWithId;
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.parameterarchive.ParameterColumnChunk;
+import org.yamcs.protobuf.Yamcs.NamedObjectId;
+import org.yamcs.utils.ParameterFormatter.Header;
+import org.yamcs.utils.TimeEncoding;
+
+import com.csvreader.CsvWriter;
+import com.google.protobuf.ByteString;
+
+/**
+ * Writes CSV records from the chunks produced by an ascending columnar retrieval from the Parameter Archive.
+ * <p>
+ * The output is the same as the one produced by the {@link org.yamcs.utils.ParameterFormatter} (one line for each
+ * timestamp) but the values are formatted directly from the value arrays of the chunks.
+ * <p>
+ * Since the chunks of different parameter groups overlap in time, they are kept until the start of a newer chunk
+ * guarantees that no more data can come before their timestamps.
+ */
+class ColumnarCsvParameterStreamer implements Consumer<ParameterColumnChunk> {
+    // send the data to the client when the buffer exceeds this size
+    static final int FLUSH_SIZE = 64 * 1024;
+
+    final Observer<HttpBody> observer;
+    final boolean addRaw;
+    // qualified name -> output columns
+    final Map<String, int[]> columnsByFqn = new HashMap<>();
+    final int numColumns;
+
+    final ByteString.Output data = ByteString.newOutput();
+    final CsvWriter csvWriter;
+    final String[] record;
+
+    // the chunks which have still rows to be written
+    final List<ChunkCursor> cursors = new ArrayList<>();
+
+    ColumnarCsvParameterStreamer(Observer<HttpBody> observer, String filename, List<NamedObjectId> ids,
+            List<ParameterWithId> pids, boolean addRaw, char columnDelimiter, Header header) {
+        this.observer = observer;
+        this.addRaw = addRaw;
+        this.numColumns = ids.size();
+        for (int i = 0; i < pids.size(); i++) {
+            String fqn = pids.get(i).getQualifiedName();
+            int[] cols = columnsByFqn.get(fqn);
+            cols = cols == null ? new int[] { i } : append(cols, i);
+            columnsByFqn.put(fqn, cols);
+        }
+        csvWriter = new CsvWriter(data, columnDelimiter, StandardCharsets.UTF_8);
+        record = new String[1 + numColumns * (addRaw ? 2 : 1)];
+
+        HttpBody metadata = HttpBody.newBuilder()
+                .setContentType(MediaType.CSV.toString())
+                .setFilename(filename)
+                .build();
+        observer.next(metadata);
+
+        if (header != Header.NONE) {
+            writeHeader(ids, header);
+        }
+    }
+
+    private void writeHeader(List<NamedObjectId> ids, Header header) {
+        List<String> h = new ArrayList<>();
+        h.add("Time");
+        for (NamedObjectId id : ids) {
+            String name = id.getName();
+            if (header == Header.SHORT_NAME) {
+                var idx = name.lastIndexOf('/');
+                if (idx != -1) {
+                    name = name.substring(idx + 1);
+                }
+            }
+            h.add(name);
+            if (addRaw) {
+                h.add(name + "_RAW");
+            }
+        }
+        writeRecord(h.toArray(new String[0]));
+    }
+
+    @Override
+    public void accept(ParameterColumnChunk chunk) {
+        writeUntil(chunk.getStart());
+        cursors.add(new ChunkCursor(chunk));
+        if (data.size() > FLUSH_SIZE) {
+            sendData();
+        }
+    }
+
+    /**
+     * write all the rows with the timestamps smaller than t
+     */
+    private void writeUntil(long t) {
+        while (true) {
+            long tmin = Long.MAX_VALUE;
+            for (ChunkCursor c : cursors) {
+                tmin = Math.min(tmin, c.time());
+            }
+            if (cursors.isEmpty() || tmin >= t) {
+                break;
+            }
+            Arrays.fill(record, "");
+            record[0] = TimeEncoding.toString(tmin);
+            var it = cursors.iterator();
+            while (it.hasNext()) {
+                ChunkCursor c = it.next();
+                if (c.time() == tmin) {
+                    c.fillRecord();
+                    if (!c.next()) {
+                        it.remove();
+                    }
+                }
+            }
+            writeRecord(record);
+        }
+    }
+
+    private void writeRecord(String[] values) {
+        try {
+            csvWriter.writeRecord(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sendData() {
+        csvWriter.flush();
+        if (data.size() > 0) {
+            observer.next(HttpBody.newBuilder().setData(data.toByteString()).build());
+            data.reset();
+        }
+    }
+
+    public void failed(Throwable t) {
+        observer.completeExceptionally(t);
+    }
+
+    public void finished() {
+        writeUntil(Long.MAX_VALUE);
+        sendData();
+        csvWriter.close();
+        observer.complete();
+    }
+
+    private static int[] append(int[] a, int x) {
+        int[] r = Arrays.copyOf(a, a.length + 1);
+        r[a.length] = x;
+        return r;
+    }
+
+    /**
+     * Keeps track of the current row in a chunk and of the next value in each of its columns
+     */
+    class ChunkCursor {
+        final ParameterColumnChunk chunk;
+        final long[] timestamps;
+        // output columns for each column of the chunk
+        final int[][] outColumns;
+        // position of the next value in each column of the chunk
+        final int[] valuePos;
+        int row = 0;
+
+        ChunkCursor(ParameterColumnChunk chunk) {
+            this.chunk = chunk;
+            this.timestamps = chunk.getTimestamps();
+            int n = chunk.numColumns();
+            this.outColumns = new int[n][];
+            this.valuePos = new int[n];
+            for (int i = 0; i < n; i++) {
+                outColumns[i] = columnsByFqn.get(chunk.getParameterId(i).getParamFqn());
+            }
+        }
+
+        long time() {
+            return timestamps[row];
+        }
+
+        void fillRecord() {
+            for (int i = 0; i < outColumns.length; i++) {
+                ValueArray engValues = chunk.getEngValues(i);
+                if (engValues == null) {
+                    continue;
+                }
+                int[] rows = chunk.getRows(i);
+                int pos = valuePos[i];
+                if (rows == null ? pos != row : (pos >= rows.length || rows[pos] != row)) {
+                    continue;
+                }
+                valuePos[i]++;
+                if (outColumns[i] == null) {
+                    continue;
+                }
+                String ev = engValues.getValueAsString(pos);
+                ValueArray rawValues = addRaw ? chunk.getRawValues(i) : null;
+                String rv = rawValues == null ? "" : rawValues.getValueAsString(pos);
+                for (int col : outColumns[i]) {
+                    if (addRaw) {
+                        record[1 + 2 * col] = ev;
+                        record[2 + 2 * col] = rv;
+                    } else {
+                        record[1 + col] = ev;
+                    }
+                }
+            }
+        }
+
+        /**
+         * advance to the next row
+         *
+         * @return false if there are no more rows in the chunk
+         */
+        boolean next() {
+            row++;
+            return row < timestamps.length;
+        }
+    }
+}
@@ -5,12 +5,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.TreeMap;
-import java.util.function.Consumer;
 
 import org.yamcs.logging.Log;
 import org.yamcs.parameter.Value;
 import org.yamcs.parameter.ValueArray;
 import org.yamcs.parameterarchive.ParameterValueArray;
+import org.yamcs.parameterarchive.RollupConsumer;
+import org.yamcs.parameterarchive.RollupSegment;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.UnsignedLong;
@@ -22,8 +23,11 @@ import org.yamcs.yarch.protobuf.Db.ParameterStatus;
  * <p>
  * The output is not a bunch of parameter values, but instead a range of values limited to n, which should be fit for
  * inclusion in plots.
+ * <p>
+ * Besides the individual values, it can also accept pre-aggregated buckets (rollups) from the parameter archive; each
+ * bucket is added to the sample containing its first value.
  */
-public class Downsampler implements Consumer<ParameterValueArray> {
+public class Downsampler implements RollupConsumer {
 
     private static final Log log = new Log(Downsampler.class);
     private static final int DEFAULT_SAMPLE_COUNT = 500;
@@ -167,6 +171,29 @@ public class Downsampler implements Consumer<ParameterValueArray> {
         }
     }
 
+    @Override
+    public void acceptRollup(RollupSegment rollup, int from, int to) {
+        for (int i = from; i < to; i++) {
+            long firstTime = rollup.getFirstTime(i);
+            if (firstTime > stop || firstTime < start) {
+                continue;
+            }
+            Entry<Long, Sample> entry = samplesByTime.floorEntry(firstTime);
+            if (entry == null) {
+                continue;
+            }
+            lastSampleTime = entry.getKey();
+            Sample sample = entry.getValue();
+            if (sample == null) {
+                sample = new Sample(entry.getKey());
+                samplesByTime.put(entry.getKey(), sample);
+            }
+            sample.merge(rollup.getCount(i), rollup.getSum(i), rollup.getMin(i), rollup.getMinTime(i),
+                    rollup.getMax(i), rollup.getMaxTime(i), firstTime, rollup.getLastTime(i),
+                    rollup.getLastExpireMillis(i));
+        }
+    }
+
     public void process(long time, double value, long expireMillis) {
         if (time > stop || time < start) {
             return;
@@ -252,13 +279,19 @@ public class Downsampler implements Consumer<ParameterValueArray> {
         }
 
         public void process(long valueTime, double value, long expireMillis) {
-            this.expireMillis = expireMillis;
-            lastTime = valueTime;
-            if (value < min) {
+            // the values are not necessarily received in chronological order
+            if (valueTime >= lastTime) {
+                this.expireMillis = expireMillis;
+                lastTime = valueTime;
+            }
+            if (valueTime < firstTime) {
+                firstTime = valueTime;
+            }
+            if (RollupSegment.isNewMin(value, min)) {
                 min = value;
                 minTime = valueTime;
             }
-            if (value > max) {
+            if (RollupSegment.isNewMax(value, max)) {
                 max = value;
                 maxTime = valueTime;
             }
@@ -267,6 +300,38 @@ public class Downsampler implements Consumer<ParameterValueArray> {
             avg += (value / n);
         }
 
+        /**
+         * Adds to this sample an aggregate of count values, not necessarily newer than the values already part of the
+         * sample.
+         */
+        void merge(int count, double sum, double min, long minTime, double max, long maxTime, long firstTime,
+                long lastTime, long expireMillis) {
+            if (n == 0) {
+                this.min = min;
+                this.max = max;
+                this.avg = sum / count;
+                this.minTime = minTime;
+                this.maxTime = maxTime;
+                this.firstTime = firstTime;
+            } else {
+                if (RollupSegment.isNewMin(min, this.min)) {
+                    this.min = min;
+                    this.minTime = minTime;
+                }
+                if (RollupSegment.isNewMax(max, this.max)) {
+                    this.max = max;
+                    this.maxTime = maxTime;
+                }
+                avg = (avg * n + sum) / (n + count);
+                this.firstTime = Math.min(this.firstTime, firstTime);
+            }
+            if (n == 0 || lastTime >= this.lastTime) {
+                this.lastTime = lastTime;
+                this.expireMillis = expireMillis;
+            }
+            n += count;
+        }
+
         @Override
         public String toString() {
             return String.format("%s (min=%s, max=%s, n=%s)", avg, min, max, n);
@@ -14,14 +14,18 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.rocksdb.RocksDBException;
 import org.yamcs.YamcsServer;
+import org.yamcs.YamcsServerInstance;
 import org.yamcs.api.HttpBody;
 import org.yamcs.api.Observer;
 import org.yamcs.archive.EventRecorder;
+import org.yamcs.archive.EventTextIndex;
 import org.yamcs.events.EventProducer;
 import org.yamcs.events.EventProducerFactory;
 import org.yamcs.http.BadRequestException;
@@ -41,6 +45,7 @@ import org.yamcs.protobuf.StreamEventsRequest;
 import org.yamcs.protobuf.SubscribeEventsRequest;
 import org.yamcs.security.SystemPrivilege;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.TimeInterval;
 import org.yamcs.yarch.SqlBuilder;
 import org.yamcs.yarch.Stream;
 import org.yamcs.yarch.StreamSubscriber;
@@ -54,6 +59,7 @@ import com.csvreader.CsvWriter;
 import com.google.common.collect.BiMap;
 import com.google.gson.Gson;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
 import com.google.protobuf.util.Timestamps;
 
 public class EventsApi extends AbstractEventsApi<Context> {
@@ -92,7 +98,13 @@ public class EventsApi extends AbstractEventsApi<Context> {
             nextToken = EventPageToken.decode(request.getNext());
         }
 
-        SqlBuilder sqlb = new SqlBuilder(EventRecorder.TABLE_NAME);
+        String eventSource = EventRecorder.TABLE_NAME;
+        if (request.hasQ() && pos == null) {
+            eventSource = getEventSource(instance, request.getQ(),
+                    request.hasStart() ? request.getStart() : null,
+                    request.hasStop() ? request.getStop() : null, !desc);
+        }
+        SqlBuilder sqlb = new SqlBuilder(eventSource);
 
         if (request.hasStart()) {
             sqlb.whereColAfterOrEqual(GENTIME_COLUMN, request.getStart());
@@ -271,7 +283,13 @@ public class EventsApi extends AbstractEventsApi<Context> {
         verifyEventArchiveSupport(instance);
         ctx.checkSystemPrivilege(SystemPrivilege.ReadEvents);
 
-        SqlBuilder sqlb = new SqlBuilder(EventRecorder.TABLE_NAME);
+        String eventSource = EventRecorder.TABLE_NAME;
+        if (request.hasQ()) {
+            eventSource = getEventSource(instance, request.getQ(),
+                    request.hasStart() ? request.getStart() : null,
+                    request.hasStop() ? request.getStop() : null, true);
+        }
+        SqlBuilder sqlb = new SqlBuilder(eventSource);
         if (request.hasStart()) {
             sqlb.whereColAfterOrEqual(GENTIME_COLUMN, request.getStart());
         }
@@ -320,7 +338,13 @@ public class EventsApi extends AbstractEventsApi<Context> {
         EventsApi.verifyEventArchiveSupport(instance);
         ctx.checkSystemPrivilege(SystemPrivilege.ReadEvents);
 
-        SqlBuilder sqlb = new SqlBuilder(EventRecorder.TABLE_NAME);
+        String eventSource = EventRecorder.TABLE_NAME;
+        if (request.hasQ()) {
+            eventSource = getEventSource(instance, request.getQ(),
+                    request.hasStart() ? request.getStart() : null,
+                    request.hasStop() ? request.getStop() : null, true);
+        }
+        SqlBuilder sqlb = new SqlBuilder(eventSource);
 
         if (request.hasStart()) {
             sqlb.whereColAfterOrEqual(GENTIME_COLUMN, request.getStart());
@@ -371,6 +395,41 @@ public class EventsApi extends AbstractEventsApi<Context> {
         StreamFactory.stream(instance, sql, sqlb.getQueryArguments(), streamer);
     }
 
+    /**
+     * Returns the name of the table or stream to select the events from when searching for a text.
+     * <p>
+     * If the text index of the events is enabled and usable for the text, this is a stream reading from the table
+     * only the candidate events found in the index; otherwise it is the events table. The LIKE condition on the
+     * message has to be applied in both cases.
+     */
+    private static String getEventSource(String instance, String q, Timestamp start, Timestamp stop,
+            boolean ascending) {
+        YamcsServerInstance ysi = YamcsServer.getServer().getInstance(instance);
+        for (EventRecorder recorder : ysi.getServices(EventRecorder.class)) {
+            EventTextIndex textIndex = recorder.getTextIndex();
+            if (textIndex == null) {
+                continue;
+            }
+            TimeInterval interval = new TimeInterval();
+            if (start != null) {
+                interval.setStart(TimeEncoding.fromProtobufTimestamp(start));
+            }
+            if (stop != null) {
+                interval.setEnd(TimeEncoding.fromProtobufTimestamp(stop));
+            }
+            try {
+                NavigableSet<byte[]> eventKeys = textIndex.search(q, interval);
+                if (eventKeys != null) {
+                    log.debug("Text index returned {} candidate events for '{}'", eventKeys.size(), q);
+                    return textIndex.newEventStream(eventKeys, ascending).getName();
+                }
+            } catch (RocksDBException e) {
+                log.warn("Failed to search the event text index, scanning the events table", e);
+            }
+        }
+        return EventRecorder.TABLE_NAME;
+    }
+
     /**
      * Checks if events are supported for the specified instance. This will succeed in two cases:
      * <ol>
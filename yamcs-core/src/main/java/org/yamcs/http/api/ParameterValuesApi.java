@@ -57,6 +57,7 @@ import org.yamcs.utils.ParameterFormatter.Header;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.ValueUtility;
 import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.util.DoubleRange;
 import org.yamcs.yarch.TableDefinition;
 import org.yamcs.yarch.YarchDatabase;
 import org.yamcs.yarch.YarchDatabaseInstance;
@@ -106,6 +107,15 @@ public class ParameterValuesApi extends AbstractParameterValuesApi<Context> {
                 .withAscending(ascending)
                 .withRetrieveParameterStatus(false);
 
+        if (request.hasMinValue() || request.hasMaxValue()) {
+            double minValue = request.hasMinValue() ? request.getMinValue() : Double.NaN;
+            double maxValue = request.hasMaxValue() ? request.getMaxValue() : Double.NaN;
+            if (minValue > maxValue) {
+                throw new BadRequestException("minValue must be smaller than maxValue");
+            }
+            optsb = optsb.withValueRange(new DoubleRange(minValue, maxValue, true, false));
+        }
+
         if (request.hasSource() && isReplayAsked(request.getSource())) {
             optsb = optsb
                     .withoutParchive(true)
@@ -340,6 +350,26 @@ public class ParameterValuesApi extends AbstractParameterValuesApi<Context> {
 
         var opts = optsb.build();
 
+        // if the output is one line per timestamp without any carry-over of values, the data can be formatted
+        // directly from the columns stored in the parameter archive
+        boolean columnar = ascending && start != TimeEncoding.INVALID_INSTANT && stop != TimeEncoding.INVALID_INSTANT
+                && pos < 0 && limit < 0 && interval < 0 && !preserveLastValue && !addMonitoring
+                && prs.canRetrieveColumnar(pids, opts);
+        if (columnar) {
+            var columnarOpts = opts.toBuilder()
+                    .withRetrieveRawValues(addRaw)
+                    .build();
+            var streamer = new ColumnarCsvParameterStreamer(observer, filename, ids, pids, addRaw,
+                    columnDelimiter, header);
+            prs.retrieveColumnar(pids, columnarOpts, streamer).thenRun(() -> {
+                streamer.finished();
+            }).exceptionally(e -> {
+                streamer.failed(e);
+                return null;
+            });
+            return;
+        }
+
         var listener = new CsvParameterStreamer(observer, pos, limit, filename, ids, addRaw, addMonitoring,
                 preserveLastValue, interval, columnDelimiter, header);
 
@@ -550,7 +580,8 @@ public class ParameterValuesApi extends AbstractParameterValuesApi<Context> {
                 .withoutRealtime(request.getNorealtime())
                 .withoutParchive(request.hasSource() && isReplayAsked(request.getSource()))
                 .build();
-        prs.retrieveScalar(pid, opts, sampler)
+        long samplingInterval = (stop - start) / sampleCount;
+        prs.retrieveDownsampled(pid, opts, samplingInterval, sampler)
                 .thenRun(() -> {
                     TimeSeries.Builder series = TimeSeries.newBuilder();
                     for (Sample s : sampler.collect()) {
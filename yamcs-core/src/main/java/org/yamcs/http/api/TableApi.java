@@ -64,6 +64,7 @@ import org.yamcs.utils.TimeInterval;
 import org.yamcs.utils.ValueUtility;
 import org.yamcs.utils.parser.ParseException;
 import org.yamcs.yarch.ArrayDataType;
+import org.yamcs.yarch.AsyncStreamSubscriber;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.ColumnSerializer;
 import org.yamcs.yarch.ColumnSerializerFactory;
@@ -691,8 +692,24 @@ public class TableApi extends AbstractTableApi<Context> {
             }
         }
         for (var subscriber : stream.getSubscribers()) {
-            var subscriberInfo = SubscriberInfo.newBuilder().setClassName(subscriber.getClass().getName())
-                    .setHashCode(subscriber.hashCode());
+            var subscriberInfo = SubscriberInfo.newBuilder();
+            if (subscriber instanceof AsyncStreamSubscriber asyncSubscriber) {
+                var delegate = asyncSubscriber.getSubscriber();
+                subscriberInfo.setClassName(delegate.getClass().getName())
+                        .setHashCode(delegate.hashCode())
+                        .setAsync(true)
+                        .setQueueSize(asyncSubscriber.getQueueSize())
+                        .setQueueCapacity(asyncSubscriber.getQueueCapacity())
+                        .setOverflowPolicy(asyncSubscriber.getOverflowPolicy().name())
+                        .setDroppedCount(asyncSubscriber.getDroppedCount())
+                        .setProcessedCount(asyncSubscriber.getProcessedCount())
+                        .setMeanLatency(asyncSubscriber.getMeanLatencyNanos() / 1e6)
+                        .setMaxLatency(asyncSubscriber.getMaxLatencyNanos() / 1e6);
+            } else {
+                subscriberInfo.setClassName(subscriber.getClass().getName())
+                        .setHashCode(subscriber.hashCode())
+                        .setAsync(false);
+            }
             if (subscriber.getDescription() != null) {
                 subscriberInfo.setDescription(subscriber.getDescription());
             }
@@ -0,0 +1,313 @@
+package org.yamcs.mdb;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamcs.parameter.ContainerParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.utils.BitBuffer;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.BooleanDataEncoding;
+import org.yamcs.xtce.DataEncoding;
+import org.yamcs.xtce.FloatDataEncoding;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.ParameterEntry;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.SequenceEntry;
+
+/**
+ * Extracts the leading entries of a container using a class generated specifically for their layout.
+ * <p>
+ * The entries are compiled as long as they are parameter entries without include condition or repeat, whose type is
+ * an integer, float (IEEE754) or boolean with a fixed size encoding and without custom decoding algorithm. The
+ * positions of these entries are known in advance, either absolute or relative to the position where the container
+ * starts, so the generated class reads them with the offsets and encodings inlined. The remaining entries are extracted
+ * by the {@link SequenceContainerProcessor} as usual.
+ * <p>
+ * The generated classes only depend on the layout of the entries, not on the parameters, so they are shared by all
+ * the containers with the same layout.
+ */
+public class CompiledContainerExtractor {
+    static final Logger log = LoggerFactory.getLogger(CompiledContainerExtractor.class);
+    static final String PACKAGE_NAME = "org.yamcs.mdb.cce";
+
+    private static final Map<String, Class<? extends FixedLayoutDecoder>> classCache = new ConcurrentHashMap<>();
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    final ParameterEntry[] entries;
+    // position of each entry, relative to the start of the container or absolute
+    final int[] positions;
+    final boolean[] relative;
+    final int[] sizes;
+    // end of the entries (max of position+size) relative to the start, or absolute; -1 if there is no such entry
+    final int relativeEnd;
+    final int absoluteEnd;
+    final FixedLayoutDecoder decoder;
+
+    private CompiledContainerExtractor(List<ParameterEntry> entries, int[] positions, boolean[] relative, int[] sizes,
+            FixedLayoutDecoder decoder) {
+        this.entries = entries.toArray(new ParameterEntry[0]);
+        this.positions = positions;
+        this.relative = relative;
+        this.sizes = sizes;
+        this.decoder = decoder;
+        int rend = -1;
+        int aend = -1;
+        for (int i = 0; i < positions.length; i++) {
+            int end = positions[i] + sizes[i];
+            if (relative[i]) {
+                rend = Math.max(rend, end);
+            } else {
+                aend = Math.max(aend, end);
+            }
+        }
+        this.relativeEnd = rend;
+        this.absoluteEnd = aend;
+    }
+
+    /**
+     *
+     * @return the number of entries extracted by this extractor; they are the first entries of the list used to
+     *         create it.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Extracts the compiled entries from the buffer of the context, starting at the current buffer position and adds
+     * them to the result.
+     * <p>
+     * If the entries do not all fit into the buffer, nothing is extracted and the buffer is not modified; the caller
+     * has to extract the entries one by one such that the error is reported as usual.
+     *
+     * @return the maximum position reached in the buffer (at least the start position) or -1 if the entries did not fit
+     *         in the buffer. The buffer is positioned at the end of the last entry.
+     */
+    int extract(ContainerProcessingContext pcontext) {
+        BitBuffer buf = pcontext.buffer;
+        int start = buf.getPosition();
+        int size = buf.sizeInBits();
+        if (start + relativeEnd > size || absoluteEnd > size) {
+            return -1;
+        }
+        Value[] values = new Value[entries.length];
+        decoder.decode(buf, start, values);
+
+        ContainerProcessingResult result = pcontext.result;
+        int maxposition = start;
+        int end = start;
+        for (int i = 0; i < entries.length; i++) {
+            ParameterEntry pe = entries[i];
+            int position = relative[i] ? start + positions[i] : positions[i];
+            end = position + sizes[i];
+            if (end > maxposition) {
+                maxposition = end;
+            }
+
+            ContainerParameterValue pv = new ContainerParameterValue(pe.getParameter(), buf.offset(), position);
+            pv.setRawValue(values[i]);
+            pv.setBitSize(sizes[i]);
+            pcontext.currentEntry = pe;
+            pcontext.proccessorData.parameterTypeProcessor.calibrate(result, pv);
+            pcontext.currentEntry = null;
+
+            pv.setAcquisitionTime(result.acquisitionTime);
+            pv.setGenerationTime(result.generationTime);
+            pv.setExpireMillis(result.expireMillis);
+            pv.setSequenceEntry(pe);
+            result.addTmParam(pv);
+        }
+        buf.setPosition(end);
+        return maxposition;
+    }
+
+    /**
+     * Compiles the longest prefix of the entry list which has a fixed layout.
+     *
+     * @return the extractor or null if the first entry cannot be compiled
+     */
+    public static CompiledContainerExtractor compile(List<SequenceEntry> entryList) {
+        List<ParameterEntry> entries = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        List<Boolean> relative = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+
+        // the position after the previous entry, initially the start of the container
+        boolean rel = true;
+        int pos = 0;
+        for (SequenceEntry se : entryList) {
+            int size = getFixedSize(se);
+            if (size < 0) {
+                break;
+            }
+            int p;
+            switch (se.getReferenceLocation()) {
+            case PREVIOUS_ENTRY:
+                p = pos + se.getLocationInContainerInBits();
+                break;
+            case CONTAINER_START:
+                rel = false;
+                p = se.getLocationInContainerInBits();
+                break;
+            default:
+                p = -1;
+            }
+            if (p < 0) {
+                break;
+            }
+            entries.add((ParameterEntry) se);
+            positions.add(p);
+            relative.add(rel);
+            sizes.add(size);
+            pos = p + size;
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+        int n = entries.size();
+        int[] pa = new int[n];
+        boolean[] ra = new boolean[n];
+        int[] sa = new int[n];
+        for (int i = 0; i < n; i++) {
+            pa[i] = positions.get(i);
+            ra[i] = relative.get(i);
+            sa[i] = sizes.get(i);
+        }
+        String body = generateDecodeBody(entries, pa, ra);
+        try {
+            Class<? extends FixedLayoutDecoder> c = classCache.computeIfAbsent(body,
+                    CompiledContainerExtractor::compileClass);
+            FixedLayoutDecoder decoder = c.getDeclaredConstructor().newInstance();
+            return new CompiledContainerExtractor(entries, pa, ra, sa, decoder);
+        } catch (Exception e) {
+            log.warn("Failed to compile the extraction of {} entries starting with {}", n, entries.get(0), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the number of bits taken by the entry if it can be compiled or -1 otherwise
+     */
+    static int getFixedSize(SequenceEntry se) {
+        if (se.getClass() != ParameterEntry.class || se.getIncludeCondition() != null
+                || se.getRepeatEntry() != null) {
+            return -1;
+        }
+        ParameterType ptype = ((ParameterEntry) se).getParameter().getParameterType();
+        if (!(ptype instanceof BaseDataType)) {
+            return -1;
+        }
+        DataEncoding de = ((BaseDataType) ptype).getEncoding();
+        if (de == null || de.getFromBinaryTransformAlgorithm() != null) {
+            return -1;
+        }
+        if (de instanceof IntegerDataEncoding ide) {
+            if (ide.getEncoding() == IntegerDataEncoding.Encoding.STRING
+                    || ide.getSizeInBits() < 1 || ide.getSizeInBits() > 64) {
+                return -1;
+            }
+            return ide.getSizeInBits();
+        } else if (de instanceof FloatDataEncoding fde) {
+            if (fde.getEncoding() != FloatDataEncoding.Encoding.IEEE754_1985
+                    || (fde.getSizeInBits() != 32 && fde.getSizeInBits() != 64)) {
+                return -1;
+            }
+            return fde.getSizeInBits();
+        } else if (de instanceof BooleanDataEncoding) {
+            return 1;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Generates the body of the decode method; it follows exactly the {@link DataEncodingDecoder} such that the
+     * decoded values are identical.
+     */
+    static String generateDecodeBody(List<ParameterEntry> entries, int[] positions, boolean[] relative) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("        long x;\n");
+        ByteOrder byteOrder = null;
+        for (int i = 0; i < entries.size(); i++) {
+            DataEncoding de = ((BaseDataType) entries.get(i).getParameter().getParameterType()).getEncoding();
+            sb.append("        buf.setPosition(").append(relative[i] ? "start + " : "").append(positions[i])
+                    .append(");\n");
+            if (!(de instanceof BooleanDataEncoding) && de.getByteOrder() != byteOrder) {
+                byteOrder = de.getByteOrder();
+                sb.append("        buf.setByteOrder(java.nio.ByteOrder.").append(byteOrder).append(");\n");
+            }
+            String value;
+            if (de instanceof IntegerDataEncoding ide) {
+                int n = ide.getSizeInBits();
+                sb.append("        x = buf.getBits(").append(n).append(");\n");
+                switch (ide.getEncoding()) {
+                case UNSIGNED:
+                    break;
+                case TWOS_COMPLEMENT:
+                    sb.append("        x = (x << ").append(64 - n).append(") >> ").append(64 - n).append(";\n");
+                    break;
+                case SIGN_MAGNITUDE:
+                    sb.append("        if (((x >>> ").append(n - 1).append(") & 1L) == 1L) {\n")
+                            .append("            x = -(x & ((1 << ").append(n - 1).append(") - 1));\n")
+                            .append("        }\n");
+                    break;
+                case ONES_COMPLEMENT:
+                    sb.append("        if (((x >>> ").append(n - 1).append(") & 1L) == 1L) {\n")
+                            .append("            x = -(~((x << ").append(64 - n).append(") >> ").append(64 - n)
+                            .append("));\n")
+                            .append("        }\n");
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected encoding " + ide.getEncoding());
+                }
+                boolean unsigned = ide.getEncoding() == IntegerDataEncoding.Encoding.UNSIGNED;
+                if (n <= 32) {
+                    value = (unsigned ? "getUint32Value" : "getSint32Value") + "((int) x)";
+                } else {
+                    value = (unsigned ? "getUint64Value" : "getSint64Value") + "(x)";
+                }
+            } else if (de instanceof FloatDataEncoding) {
+                if (de.getSizeInBits() == 32) {
+                    value = "getFloatValue(Float.intBitsToFloat((int) buf.getBits(32)))";
+                } else {
+                    value = "getDoubleValue(Double.longBitsToDouble(buf.getBits(64)))";
+                }
+            } else {
+                value = "getBooleanValue(buf.getBits(1) != 0)";
+            }
+            sb.append("        values[").append(i).append("] = org.yamcs.utils.ValueUtility.").append(value)
+                    .append(";\n");
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends FixedLayoutDecoder> compileClass(String body) {
+        String className = "FixedLayoutDecoder" + counter.incrementAndGet();
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE_NAME).append(";\n")
+                .append("public class ").append(className).append(" implements org.yamcs.mdb.FixedLayoutDecoder {\n")
+                .append("    public void decode(org.yamcs.utils.BitBuffer buf, int start, ")
+                .append("org.yamcs.parameter.Value[] values) {\n")
+                .append(body)
+                .append("    }\n")
+                .append("}\n");
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.setParentClassLoader(CompiledContainerExtractor.class.getClassLoader());
+            compiler.cook(sb.toString());
+            return (Class<? extends FixedLayoutDecoder>) compiler.getClassLoader()
+                    .loadClass(PACKAGE_NAME + "." + className);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot compile " + sb, e);
+        }
+    }
+}
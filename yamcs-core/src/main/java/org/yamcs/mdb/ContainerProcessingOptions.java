@@ -29,11 +29,18 @@ public class ContainerProcessingOptions {
 
     int maxArraySize = 10000;
 
+    /**
+     * If true, the entries with a fixed layout are extracted using classes generated at runtime for each container
+     * instead of interpreting the entry definitions for each packet.
+     */
+    boolean compiledExtraction = false;
+
     public ContainerProcessingOptions(YConfiguration config) {
         if (config != null) {
             ignoreOutOfContainerEntries = config.getBoolean("ignoreOutOfContainerEntries", false);
             expirationTolerance = config.getDouble("expirationTolerance", expirationTolerance);
             maxArraySize = config.getInt("maxArraySize", maxArraySize);
+            compiledExtraction = config.getBoolean("compiledExtraction", compiledExtraction);
         }
     }
 
@@ -42,6 +49,7 @@ public class ContainerProcessingOptions {
         spec.addOption("ignoreOutOfContainerEntries", OptionType.BOOLEAN).withDefault(false);
         spec.addOption("expirationTolerance", OptionType.FLOAT).withDefault(1.9);
         spec.addOption("maxArraySize", OptionType.INTEGER).withDefault(10000);
+        spec.addOption("compiledExtraction", OptionType.BOOLEAN).withDefault(false);
 
         return spec;
     }
@@ -80,4 +88,12 @@ public class ContainerProcessingOptions {
     public int getMaxArraySize() {
         return maxArraySize;
     }
+
+    public boolean useCompiledExtraction() {
+        return compiledExtraction;
+    }
+
+    public void setCompiledExtraction(boolean compiledExtraction) {
+        this.compiledExtraction = compiledExtraction;
+    }
 }
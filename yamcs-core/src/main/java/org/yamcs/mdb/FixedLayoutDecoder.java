@@ -0,0 +1,24 @@
+package org.yamcs.mdb;
+
+import org.yamcs.parameter.Value;
+import org.yamcs.utils.BitBuffer;
+
+/**
+ * Implemented by the classes generated by {@link CompiledContainerExtractor} to decode the raw values of a sequence of
+ * entries having fixed positions and encodings.
+ */
+public interface FixedLayoutDecoder {
+    /**
+     * Decode the raw values of the entries.
+     * <p>
+     * The caller has to make sure that all the entries fit into the buffer.
+     *
+     * @param buf
+     *            the buffer containing the packet
+     * @param start
+     *            the position in bits from which the entries whose location is relative to the previous entry start
+     * @param values
+     *            the array where the raw values are written, one for each entry
+     */
+    void decode(BitBuffer buf, int start, Value[] values);
+}
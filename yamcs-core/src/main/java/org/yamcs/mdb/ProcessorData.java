@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -58,11 +59,14 @@ public class ProcessorData {
      * <p>
      * Because the spreadsheet format allows sharing calibrators between different types, and the calibrator knows as
      * part of its definition the target type, we may need to create different instances for the different types.
+     * <p>
+     * The maps are concurrent because the TM packets may be processed by multiple threads (see
+     * {@link ProcessorConfig#getTmProcessingThreads()}).
      */
-    private Map<Calibrator, CalibratorProc> calibrators = new HashMap<>();
-    private Map<DataEncoding, DataDecoder> decoders = new HashMap<>();
-    private Map<DataEncoding, DataEncoder> encoders = new HashMap<>();
-    private Map<MatchCriteria, MatchCriteriaEvaluator> evaluators = new HashMap<>();
+    private Map<Calibrator, CalibratorProc> calibrators = new ConcurrentHashMap<>();
+    private Map<DataEncoding, DataDecoder> decoders = new ConcurrentHashMap<>();
+    private Map<DataEncoding, DataEncoder> encoders = new ConcurrentHashMap<>();
+    private Map<MatchCriteria, MatchCriteriaEvaluator> evaluators = new ConcurrentHashMap<>();
 
     final Mdb mdb;
     final Log log;
@@ -76,7 +80,7 @@ public class ProcessorData {
     /**
      * used to store parameter types which are changed dynamically (so they don't correspond anymore to MDB)
      */
-    Map<Parameter, ParameterType> typeOverrides = new HashMap<>();
+    Map<Parameter, ParameterType> typeOverrides = new ConcurrentHashMap<>();
     private Set<ParameterTypeListener> typeListeners = new CopyOnWriteArraySet<>();
 
     final String yamcsInstance;
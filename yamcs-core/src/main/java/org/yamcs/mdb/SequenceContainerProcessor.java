@@ -42,7 +42,20 @@ public class SequenceContainerProcessor {
 
         // then extract the entries
         List<SequenceEntry> entries = subscribedContainer.entries;
-        for (SequenceEntry se : entries) {
+        int firstEntry = 0;
+        if (options.useCompiledExtraction()) {
+            CompiledContainerExtractor cce = subscribedContainer.getCompiledExtractor();
+            if (cce != null) {
+                int p = cce.extract(pcontext);
+                if (p >= 0) {
+                    // the leading entries have been extracted; if they do not fit, they are extracted below
+                    firstEntry = cce.size();
+                    maxposition = Math.max(maxposition, p);
+                }
+            }
+        }
+        for (int idx = firstEntry; idx < entries.size(); idx++) {
+            SequenceEntry se = entries.get(idx);
             int position = buf.getPosition();
             try {
                 if (se.getIncludeCondition() != null) {
@@ -101,8 +114,8 @@ public class SequenceContainerProcessor {
             }
         }
 
-        List<InheritingContainer> inheritingContainers = subscribedContainer.inheritingContainers;
         // And then any derived containers
+        InheritingContainer[] inheritingContainers = subscribedContainer.getInheritingCandidates(result);
         int bitp = buf.getPosition();
         for (InheritingContainer inherited : inheritingContainers) {
             MatchResult r = inherited.matches(result);
@@ -2,20 +2,41 @@ package org.yamcs.mdb;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.yamcs.mdb.MatchCriteriaEvaluator.MatchResult;
+import org.yamcs.mdb.MatchCriteriaEvaluatorFactory.ANDedConditionsEvaluator;
+import org.yamcs.mdb.MatchCriteriaEvaluatorFactory.RefValueEvaluator;
 import org.yamcs.xtce.MatchCriteria;
+import org.yamcs.xtce.OperatorType;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.SequenceEntry;
 
 public class SubscribedContainer {
+    /**
+     * below this number of inheriting containers, the restriction criteria are simply evaluated one by one
+     */
+    static final int MIN_DISPATCH_SIZE = 8;
+    static final InheritingContainer[] NO_CONTAINERS = new InheritingContainer[0];
+
     final SequenceContainer conainerDef;
     List<SequenceEntry> entries = new ArrayList<>();
 
     List<InheritingContainer> inheritingContainers = new ArrayList<>();
     boolean allEntriesAdded = false;
 
+    // built lazily from the inheritingContainers, reset when an inheriting container is added
+    private DispatchTable dispatchTable;
+
+    // compiled lazily from the entries, reset when an entry is added
+    private CompiledContainerExtractor compiledExtractor;
+    private boolean compiled;
+
     public SubscribedContainer(SequenceContainer sc) {
         this.conainerDef = sc;
     }
@@ -28,6 +49,8 @@ public class SubscribedContainer {
         int idx = Collections.binarySearch(entries, se);
         if (idx < 0) {
             entries.add(-idx - 1, se);
+            compiled = false;
+            compiledExtractor = null;
         }
     }
 
@@ -36,14 +59,46 @@ public class SubscribedContainer {
             return;
         }
         entries = conainerDef.getEntryList();
+        compiled = false;
+        compiledExtractor = null;
+    }
+
+    /**
+     * Returns the extractor compiled for the leading fixed layout entries, compiling it on the first call.
+     *
+     * @return the compiled extractor or null if the first entry does not have a fixed layout
+     */
+    CompiledContainerExtractor getCompiledExtractor() {
+        if (!compiled) {
+            compiledExtractor = CompiledContainerExtractor.compile(entries);
+            compiled = true;
+        }
+        return compiledExtractor;
     }
 
     public void addIneriting(SubscribedContainer child) {
         if (!inheritingContainers.stream().anyMatch(ic -> ic.container == child)) {
             inheritingContainers.add(new InheritingContainer(child, child.conainerDef.getRestrictionCriteria()));
+            dispatchTable = null;
         }
     }
 
+    /**
+     * Returns the inheriting containers whose restriction criteria may match the given context, in the order in which
+     * they have been added.
+     * <p>
+     * If many of the restriction criteria are equality comparisons on the same parameter (e.g. APID or packet id),
+     * the value of that parameter is used to look up the candidates in a table instead of returning all the inheriting
+     * containers. The caller still has to evaluate the criteria of the returned containers.
+     */
+    InheritingContainer[] getInheritingCandidates(ProcessingContext ctx) {
+        DispatchTable dt = dispatchTable;
+        if (dt == null) {
+            dt = dispatchTable = new DispatchTable(inheritingContainers);
+        }
+        return dt.getCandidates(ctx);
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(conainerDef);
@@ -68,4 +123,127 @@ public class SubscribedContainer {
             return criteriaEvaluator.evaluate(ctx);
         }
     }
+
+    /**
+     * The parameter on which the inheriting containers are discriminated. The raw and engineering values are
+     * different discriminators.
+     */
+    record Discriminator(Parameter parameter, boolean calibrated) {
+    }
+
+    /**
+     * Maps the values of the discriminator parameter to the inheriting containers restricted to that value.
+     * <p>
+     * Only the conditions of type {@code parameter == value} (possibly ANDed with other conditions) on integer or
+     * string values are indexed. The containers whose criteria do not have such a condition are part of all the
+     * candidate lists. Each candidate list keeps the original order of the inheriting containers such that the
+     * extraction result does not depend on the presence of the table.
+     */
+    static class DispatchTable {
+        final InheritingContainer[] all;
+        final ParameterInstanceRef discriminatorRef;
+        final Map<Object, InheritingContainer[]> table;
+        // the containers not restricted on the discriminator, used when the value is not found in the table
+        final InheritingContainer[] unindexed;
+
+        DispatchTable(List<InheritingContainer> inheritingContainers) {
+            this.all = inheritingContainers.toArray(NO_CONTAINERS);
+            int n = all.length;
+
+            List<Map<Discriminator, RefValueEvaluator>> conditions = new ArrayList<>(n);
+            Map<Discriminator, Integer> counts = new HashMap<>();
+            for (InheritingContainer ic : all) {
+                Map<Discriminator, RefValueEvaluator> m = new LinkedHashMap<>();
+                collectEqualityConditions(ic.criteriaEvaluator, m);
+                conditions.add(m);
+                for (Discriminator d : m.keySet()) {
+                    counts.merge(d, 1, Integer::sum);
+                }
+            }
+            Discriminator discriminator = null;
+            int count = 0;
+            for (var me : counts.entrySet()) {
+                if (me.getValue() > count) {
+                    discriminator = me.getKey();
+                    count = me.getValue();
+                }
+            }
+
+            // the table is only worth it if it saves a good part of the evaluations
+            if (n < MIN_DISPATCH_SIZE || 2 * count <= n) {
+                discriminatorRef = null;
+                table = null;
+                unindexed = null;
+                return;
+            }
+
+            Map<Object, List<InheritingContainer>> buckets = new HashMap<>();
+            List<InheritingContainer> unindexedList = new ArrayList<>();
+            // the unindexed containers are added to all the buckets so they have to be known in advance
+            boolean[] indexed = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                RefValueEvaluator rve = conditions.get(i).get(discriminator);
+                if (rve == null) {
+                    unindexedList.add(all[i]);
+                } else {
+                    indexed[i] = true;
+                    buckets.computeIfAbsent(rve.rValue.value, k -> new ArrayList<>());
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (indexed[i]) {
+                    buckets.get(conditions.get(i).get(discriminator).rValue.value).add(all[i]);
+                } else {
+                    for (List<InheritingContainer> l : buckets.values()) {
+                        l.add(all[i]);
+                    }
+                }
+            }
+            Map<Object, InheritingContainer[]> t = new HashMap<>();
+            for (var me : buckets.entrySet()) {
+                t.put(me.getKey(), me.getValue().toArray(NO_CONTAINERS));
+            }
+            this.discriminatorRef = new ParameterInstanceRef(discriminator.parameter(), discriminator.calibrated());
+            this.table = t;
+            this.unindexed = unindexedList.toArray(NO_CONTAINERS);
+        }
+
+        InheritingContainer[] getCandidates(ProcessingContext ctx) {
+            if (table == null) {
+                return all;
+            }
+            ResolvedValue rv = MatchCriteriaEvaluatorFactory.resolveParameter(discriminatorRef, ctx);
+            if (rv == null) {
+                // the indexed conditions cannot match if the value is not available
+                return unindexed;
+            }
+            if (!(rv.value instanceof Long) && !(rv.value instanceof String)) {
+                // the indexed conditions are comparing values of different types; let them decide
+                return all;
+            }
+            InheritingContainer[] candidates = table.get(rv.value);
+            return candidates == null ? unindexed : candidates;
+        }
+
+        boolean isIndexed() {
+            return table != null;
+        }
+
+        private static void collectEqualityConditions(MatchCriteriaEvaluator evaluator,
+                Map<Discriminator, RefValueEvaluator> m) {
+            if (evaluator instanceof RefValueEvaluator rve) {
+                if (rve.comparisonOperator == OperatorType.EQUALITY
+                        && rve.ref instanceof ParameterInstanceRef pref
+                        && pref.getMemberPath() == null
+                        && rve.rValue != null
+                        && (rve.rValue.value instanceof Long || rve.rValue.value instanceof String)) {
+                    m.putIfAbsent(new Discriminator(pref.getParameter(), pref.useCalibratedValue()), rve);
+                }
+            } else if (evaluator instanceof ANDedConditionsEvaluator ace) {
+                for (MatchCriteriaEvaluator e : ace.evaluatorList) {
+                    collectEqualityConditions(e, m);
+                }
+            }
+        }
+    }
 }
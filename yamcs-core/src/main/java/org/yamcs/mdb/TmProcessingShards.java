@@ -0,0 +1,193 @@
+package org.yamcs.mdb;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.yamcs.ProcessorConfig.TmShardKey;
+import org.yamcs.TmPacket;
+import org.yamcs.logging.Log;
+import org.yamcs.xtce.SequenceContainer;
+
+/**
+ * Distributes the TM packets of a {@link XtceTmProcessor} to a number of worker threads.
+ * <p>
+ * The worker is chosen based on a key computed from the packet (see {@link TmShardKey}) such that the packets with the
+ * same key are always processed by the same worker, in the order in which they have been submitted.
+ * <p>
+ * Each worker has its own {@link XtceTmExtractor} because the subscription is not thread safe; the extractors are
+ * given at creation and the subscription changes have to be applied to all of them.
+ */
+class TmProcessingShards {
+    private static final Entry STOP = new Entry(null, null);
+    // how often the workers check the stopping flag when their queue is empty
+    static final long STOP_CHECK_MILLIS = 100;
+
+    final XtceTmProcessor tmProcessor;
+    final TmShardKey shardKey;
+    final Worker[] workers;
+    final Log log;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean running;
+    // set when stopping; the workers exit once their queue is empty
+    private volatile boolean stopping;
+
+    TmProcessingShards(String name, XtceTmProcessor tmProcessor, XtceTmExtractor[] extractors,
+            TmShardKey shardKey, int queueSize, Log log) {
+        this.tmProcessor = tmProcessor;
+        this.shardKey = shardKey;
+        this.log = log;
+        workers = new Worker[extractors.length];
+        for (int i = 0; i < extractors.length; i++) {
+            workers[i] = new Worker(name + "-" + i, extractors[i], queueSize);
+        }
+    }
+
+    void start() {
+        lock.writeLock().lock();
+        try {
+            for (Worker w : workers) {
+                w.thread.start();
+            }
+            running = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the workers after all the packets from their queues have been processed.
+     * <p>
+     * It can be called from one of the workers (e.g. if the processor is stopped while processing a packet); that
+     * worker stops after returning from the call and processing the rest of its queue.
+     */
+    void stop() {
+        lock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // no new packet can be queued, signal the workers without blocking on the full queues
+        stopping = true;
+        for (Worker w : workers) {
+            if (w.thread == Thread.currentThread()) {
+                continue;
+            }
+            // if the queue is full, the worker sees the flag after processing the queued packets
+            w.queue.offer(STOP);
+        }
+        for (Worker w : workers) {
+            if (w.thread == Thread.currentThread()) {
+                continue;
+            }
+            try {
+                w.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for the TM processing threads to finish");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Passes the packet to the worker corresponding to its key, blocking if the queue of the worker is full.
+     *
+     * @return false if the workers are not running, in which case the packet has not been queued
+     */
+    boolean submit(TmPacket pkt, SequenceContainer sc) {
+        lock.readLock().lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            workers[Math.floorMod(getKey(pkt, sc), workers.length)].put(new Entry(pkt, sc));
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int getKey(TmPacket pkt, SequenceContainer sc) {
+        switch (shardKey) {
+        case APID:
+            return getApid(pkt.getPacket());
+        case ROOT_CONTAINER:
+            SequenceContainer rootContainer = pkt.getRootContainer();
+            if (rootContainer == null) {
+                rootContainer = sc;
+            }
+            return rootContainer == null ? 0 : rootContainer.getQualifiedName().hashCode();
+        default:
+            throw new IllegalStateException("Unknown shard key " + shardKey);
+        }
+    }
+
+    /**
+     *
+     * @return the CCSDS APID of the packet or 0 if the packet is too short
+     */
+    static int getApid(byte[] packet) {
+        if (packet.length < 2) {
+            return 0;
+        }
+        return ((packet[0] & 0x07) << 8) | (packet[1] & 0xFF);
+    }
+
+    XtceTmExtractor getExtractor(int i) {
+        return workers[i].extractor;
+    }
+
+    int size() {
+        return workers.length;
+    }
+
+    class Worker {
+        final XtceTmExtractor extractor;
+        final BlockingQueue<Entry> queue;
+        final Thread thread;
+
+        Worker(String name, XtceTmExtractor extractor, int queueSize) {
+            this.extractor = extractor;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            thread = new Thread(this::run, "TmProcessing[" + name + "]");
+            thread.setDaemon(true);
+        }
+
+        void put(Entry e) {
+            try {
+                queue.put(e);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted when passing packet to the TM processing thread {}", thread.getName());
+            }
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    Entry e = queue.poll(STOP_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                    if (e == STOP || (e == null && stopping)) {
+                        return;
+                    }
+                    if (e == null) {
+                        continue;
+                    }
+                    tmProcessor.process(extractor, e.pkt, e.sc);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static record Entry(TmPacket pkt, SequenceContainer sc) {
+    }
+}
@@ -20,7 +20,7 @@ import org.yamcs.xtce.SequenceContainer;
 public class XtceTmExtractor {
     private static final Logger log = LoggerFactory.getLogger(XtceTmExtractor.class);
     protected final Subscription subscription;
-    private ProcessingStatistics stats = new ProcessingStatistics();
+    private final ProcessingStatistics stats;
 
     public final Mdb mdb;
     final SequenceContainer rootContainer;
@@ -41,7 +41,16 @@ public class XtceTmExtractor {
      * @param pdata
      */
     public XtceTmExtractor(Mdb mdb, ProcessorData pdata) {
+        this(mdb, pdata, new ProcessingStatistics());
+    }
+
+    /**
+     * Create a new TM extractor with the given context, collecting the statistics in the given object which may be
+     * shared with other extractors.
+     */
+    public XtceTmExtractor(Mdb mdb, ProcessorData pdata, ProcessingStatistics stats) {
         this.mdb = mdb;
+        this.stats = stats;
         this.subscription = new Subscription(mdb);
         rootContainer = mdb.getRootSequenceContainer();
         this.pdata = pdata;
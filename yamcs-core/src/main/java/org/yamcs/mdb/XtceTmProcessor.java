@@ -2,6 +2,7 @@ package org.yamcs.mdb;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.yamcs.AbstractProcessorService;
 import org.yamcs.ConfigurationException;
@@ -29,6 +30,11 @@ import org.yamcs.xtce.SequenceContainer;
  * manager for the distribution to the requesters.
  * 
  * Relies on {@link XtceTmExtractor} for extracting the parameters out of containers
+ * <p>
+ * If configured with more than one TM processing thread (see {@link ProcessorConfig#getTmProcessingThreads()}), the
+ * packets are distributed to the threads based on a key such that the packets with the same key are processed in
+ * order. The extraction and calibration are performed in parallel whereas the delivery of the results to the container
+ * and parameter listeners is serialized.
  * 
  */
 
@@ -39,6 +45,9 @@ public class XtceTmProcessor extends AbstractProcessorService
 
     public final Mdb mdb;
     final XtceTmExtractor tmExtractor;
+    // null if the packets are processed in the calling thread
+    final TmProcessingShards shards;
+    private final Object deliveryLock = new Object();
 
     public XtceTmProcessor(Processor processor) {
         this.processor = processor;
@@ -46,6 +55,7 @@ public class XtceTmProcessor extends AbstractProcessorService
         log = new Log(getClass(), processor.getInstance());
         log.setContext(processor.getName());
         tmExtractor = new XtceTmExtractor(mdb, processor.getProcessorData());
+        shards = createShards(processor.getName(), processor.getProcessorData(), processor.getConfig());
     }
 
     /**
@@ -62,6 +72,31 @@ public class XtceTmProcessor extends AbstractProcessorService
         String procName = processor == null ? "XTCEPROC" : processor.getName();
         var pdata = new ProcessorData(yamcsInstance, procName, mdb, pconfig, Collections.emptyMap());
         tmExtractor = new XtceTmExtractor(mdb, pdata);
+        shards = createShards(procName, pdata, pconfig);
+    }
+
+    private TmProcessingShards createShards(String name, ProcessorData pdata, ProcessorConfig pconfig) {
+        int n = pconfig.getTmProcessingThreads();
+        if (n <= 1) {
+            return null;
+        }
+        XtceTmExtractor[] extractors = new XtceTmExtractor[n];
+        extractors[0] = tmExtractor;
+        for (int i = 1; i < n; i++) {
+            extractors[i] = new XtceTmExtractor(mdb, pdata, tmExtractor.getStatistics());
+        }
+        return new TmProcessingShards(name, this, extractors, pconfig.getTmShardKey(), pconfig.getTmQueueSize(),
+                log);
+    }
+
+    private void forEachExtractor(Consumer<XtceTmExtractor> c) {
+        if (shards == null) {
+            c.accept(tmExtractor);
+        } else {
+            for (int i = 0; i < shards.size(); i++) {
+                c.accept(shards.getExtractor(i));
+            }
+        }
     }
 
     @Override
@@ -89,7 +124,7 @@ public class XtceTmProcessor extends AbstractProcessorService
      */
     @Override
     public void startProviding(Parameter param) {
-        tmExtractor.startProviding(param);
+        forEachExtractor(e -> e.startProviding(param));
     }
 
     /**
@@ -97,12 +132,12 @@ public class XtceTmProcessor extends AbstractProcessorService
      */
     @Override
     public void startProvidingAll() {
-        tmExtractor.provideAll();
+        forEachExtractor(XtceTmExtractor::provideAll);
     }
 
     @Override
     public void stopProviding(Parameter param) {
-        tmExtractor.stopProviding(param);
+        forEachExtractor(e -> e.stopProviding(param));
     }
 
     @Override
@@ -131,10 +166,18 @@ public class XtceTmProcessor extends AbstractProcessorService
 
     /**
      * Process telemetry packets
-     *
+     * <p>
+     * If multiple TM processing threads are configured, the packet is queued to the thread corresponding to its key.
      */
     @Override
     public void processPacket(TmPacket pkt, SequenceContainer sc) {
+        if (shards != null && shards.submit(pkt, sc)) {
+            return;
+        }
+        process(tmExtractor, pkt, sc);
+    }
+
+    void process(XtceTmExtractor extractor, TmPacket pkt, SequenceContainer sc) {
         try {
             long rectime = pkt.getReceptionTime();
             if (rectime == TimeEncoding.INVALID_INSTANT) {
@@ -144,24 +187,34 @@ public class XtceTmProcessor extends AbstractProcessorService
             if (rootContainer == null) {
                 rootContainer = sc;
             }
-            ContainerProcessingResult result = tmExtractor.processPacket(pkt.getPacket(), pkt.getGenerationTime(),
+            ContainerProcessingResult result = extractor.processPacket(pkt.getPacket(), pkt.getGenerationTime(),
                     rectime, pkt.getSeqCount(), rootContainer);
             result.setLink(pkt.getLink());
 
-            ParameterValueList paramResult = result.getTmParams();
-
-            if ((containerRequestManager != null) && (result.containers.size() > 0)) {
-                containerRequestManager.update(result);
-            }
-
-            if ((parameterProcessorManager != null) && (paramResult.size() > 0)) {
-                parameterProcessorManager.process(result);
+            if (shards == null) {
+                deliver(result);
+            } else {
+                synchronized (deliveryLock) {
+                    deliver(result);
+                }
             }
         } catch (Exception e) {
             log.error("Exception while processing packet", e);
         }
     }
 
+    private void deliver(ContainerProcessingResult result) {
+        ParameterValueList paramResult = result.getTmParams();
+
+        if ((containerRequestManager != null) && (result.containers.size() > 0)) {
+            containerRequestManager.update(result);
+        }
+
+        if ((parameterProcessorManager != null) && (paramResult.size() > 0)) {
+            parameterProcessorManager.process(result);
+        }
+    }
+
     @Override
     public void finished() {
         stopAsync();
@@ -182,17 +235,17 @@ public class XtceTmProcessor extends AbstractProcessorService
 
     @Override
     public void startProviding(SequenceContainer container) {
-        tmExtractor.startProviding(container);
+        forEachExtractor(e -> e.startProviding(container));
     }
 
     @Override
     public void stopProviding(SequenceContainer container) {
-        tmExtractor.stopProviding(container);
+        forEachExtractor(e -> e.stopProviding(container));
     }
 
     @Override
     public void startProvidingAllContainers() {
-        tmExtractor.provideAll();
+        forEachExtractor(XtceTmExtractor::provideAll);
     }
 
     @Override
@@ -210,11 +263,18 @@ public class XtceTmProcessor extends AbstractProcessorService
 
     @Override
     protected void doStart() {
+        if (shards != null) {
+            shards.start();
+        }
         notifyStarted();
     }
 
     @Override
     protected void doStop() {
+        if (shards != null) {
+            // the packets already queued are processed before stopping
+            shards.stop();
+        }
         notifyStopped();
     }
 
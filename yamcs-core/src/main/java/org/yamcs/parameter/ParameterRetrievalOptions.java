@@ -2,6 +2,7 @@ package org.yamcs.parameter;
 
 import org.yamcs.protobuf.Yamcs.PacketReplayRequest;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.util.DoubleRange;
 
 /**
  * Contains retrieval options used when retrieving parameters.
@@ -28,7 +29,12 @@ public record ParameterRetrievalOptions(
         /**
          * If not null and a replay is performed, this can be used to limit the packets that go in replay
          */
-        PacketReplayRequest packetReplayRequest) {
+        PacketReplayRequest packetReplayRequest,
+        /**
+         * If not null, only the values whose numeric engineering value is in this range are retrieved. The
+         * non-numeric and NaN values are never in range.
+         */
+        DoubleRange valueRange) {
 
     public static class Builder {
         // invalid start and/or stop means open ended interval
@@ -42,6 +48,7 @@ public record ParameterRetrievalOptions(
         private boolean noparchive = false;
         private boolean noreplay = false;
         private PacketReplayRequest packetReplayRequest = null;
+        private DoubleRange valueRange = null;
 
         public Builder withStartStop(long start, long stop) {
             this.start = start;
@@ -99,12 +106,16 @@ public record ParameterRetrievalOptions(
             return this;
         }
 
+        public Builder withValueRange(DoubleRange valueRange) {
+            this.valueRange = valueRange;
+            return this;
+        }
 
         public ParameterRetrievalOptions build() {
             return new ParameterRetrievalOptions(
                     start, stop, ascending,
                     retrieveEngineeringValues, retrieveRawValues, retrieveParameterStatus,
-                    norealtime, noparchive, noreplay, packetReplayRequest);
+                    norealtime, noparchive, noreplay, packetReplayRequest, valueRange);
         }
 
     }
@@ -118,7 +129,8 @@ public record ParameterRetrievalOptions(
                 .withRetrieveParameterStatus(this.retrieveParameterStatus)
                 .withoutReplay(this.noreplay)
                 .withoutParchive(this.noparchive)
-                .withoutRealtime(this.norealtime);
+                .withoutRealtime(this.norealtime)
+                .withValueRange(this.valueRange);
     }
 
     public ParameterRetrievalOptions withUpdatedStart(long newStart) {
@@ -22,14 +22,20 @@ import org.yamcs.ProcessorFactory;
 import org.yamcs.YConfiguration;
 import org.yamcs.YamcsServer;
 import org.yamcs.archive.ReplayOptions;
+import org.yamcs.parameterarchive.ColumnarParameterRetrieval;
 import org.yamcs.parameterarchive.ConsumerAbortException;
 import org.yamcs.parameterarchive.MultiParameterRetrieval;
 import org.yamcs.parameterarchive.MultipleParameterRequest;
 import org.yamcs.parameterarchive.ParameterArchive;
+import org.yamcs.parameterarchive.ParameterColumnChunk;
 import org.yamcs.parameterarchive.ParameterId;
 import org.yamcs.parameterarchive.ParameterIdDb;
 import org.yamcs.parameterarchive.ParameterValueArray;
+import org.yamcs.parameterarchive.RollupConsumer;
+import org.yamcs.parameterarchive.RollupRetrieval;
+import org.yamcs.parameterarchive.RollupSegment;
 import org.yamcs.parameterarchive.SingleParameterRetrieval;
+import org.yamcs.parameterarchive.ValueRangeFilter;
 import org.yamcs.protobuf.Yamcs.ParameterReplayRequest;
 import org.yamcs.time.Instant;
 import org.yamcs.utils.AggregateUtil;
@@ -37,6 +43,7 @@ import org.yamcs.utils.IntArray;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.PathElement;
+import org.yamcs.xtce.util.DoubleRange;
 
 import com.google.common.collect.Lists;
 
@@ -125,45 +132,40 @@ public class ParameterRetrievalService extends AbstractYamcsService {
         var cf = new CompletableFuture<Void>();
         executor.submit(() -> {
             try {
-                if (parchive == null || opts.noparchive()) {
-                    retrieveScalarReplayOrCache(pid, opts, consumer);
-                } else if (parchive.getRealtimeFiller() != null) {
-                    retrieveScalarParameterArchive(pid, opts, consumer);
-                } else {
-                    long coverageEnd = parchive.coverageEnd();
-
-                    if (opts.ascending()) {
-                        // ascending case -> retrieve max possible from the parameter archive
-                        var tc = retrieveScalarParameterArchive(pid, opts, consumer);
-                        // then from cache or via replay
-                        if (tc.isValid()) {
-                            if (opts.stop() > tc.time && opts.stop() > coverageEnd) {
-                                var opts1 = opts.withUpdatedStart(tc.time + 1);
-                                retrieveScalarReplayOrCache(pid, opts1, consumer);
-                            }
-                        } else {// no data retrieved from the parameter archive
-                            retrieveScalarReplayOrCache(pid, opts, consumer);
-                        }
-                    } else {
-                        // descending case
-                        // if the request is beyond parameter archive coverage, retrieve first by cache or replay
-                        if (opts.stop() > coverageEnd) {
-                            if (opts.start() >= coverageEnd) {
-                                // request does not overlap at all with the parameter archive coverage
-                                retrieveScalarReplayOrCache(pid, opts, consumer);
-                            } else {
-                                // request overlaps with the parameter archive coverage
-                                var req1 = opts.withUpdatedStart(coverageEnd);
-                                retrieveScalarReplayOrCache(pid, req1, consumer);
-                                var req2 = opts.withUpdatedStop(coverageEnd);
-                                retrieveScalarParameterArchive(pid, req2, consumer);
+                doRetrieveScalar(pid, opts, consumer);
+                cf.complete(null);
+            } catch (Exception e) {
+                log.error("Error during retrieval", e);
+                cf.completeExceptionally(e);
+            }
+        });
+        return cf;
+    }
 
-                            }
-                        } else {
-                            // request can be satisfied only by parameter archive
-                            retrieveScalarParameterArchive(pid, opts, consumer);
-                        }
-                    }
+    /**
+     * Retrieves a single scalar parameter for the purpose of downsampling it with the given sampling interval.
+     * <p>
+     * If the Parameter Archive maintains rollups with a resolution fine enough for the sampling interval, the part of
+     * the request covered by the archive is sent as pre-aggregated buckets via
+     * {@link RollupConsumer#acceptRollup(RollupSegment, int, int)}. The beginning and end of the requested range not
+     * aligned to the rollup resolution, as well as the data not yet in the archive (realtime filler, cache or replay),
+     * are retrieved as in {@link #retrieveScalar(ParameterWithId, ParameterRetrievalOptions, Consumer)}.
+     * <p>
+     * Only the ascending retrieval of engineering values is supported for rollups, for other options this method is
+     * equivalent with {@link #retrieveScalar(ParameterWithId, ParameterRetrievalOptions, Consumer)}.
+     */
+    public CompletableFuture<Void> retrieveDownsampled(ParameterWithId pid, ParameterRetrievalOptions opts,
+            long samplingInterval, RollupConsumer consumer) {
+        log.debug("retrieveDownsampled pid: {}, opts: {}, samplingInterval: {}", pid, opts, samplingInterval);
+        var cf = new CompletableFuture<Void>();
+        executor.submit(() -> {
+            try {
+                int level = RollupSegment.selectLevel(samplingInterval);
+                if (parchive == null || opts.noparchive() || !opts.ascending() || opts.retrieveRawValues()
+                        || pid.getPath() != null || opts.valueRange() != null || level < 0) {
+                    doRetrieveScalar(pid, opts, consumer);
+                } else {
+                    retrieveRollups(pid, opts, level, consumer);
                 }
                 cf.complete(null);
             } catch (Exception e) {
@@ -174,6 +176,78 @@ public class ParameterRetrievalService extends AbstractYamcsService {
         return cf;
     }
 
+    private void retrieveRollups(ParameterWithId pid, ParameterRetrievalOptions opts, int level,
+            RollupConsumer consumer) throws Exception {
+        long resolution = RollupSegment.getResolution(level);
+
+        // the rollups cover the full buckets from the archive, the data in the realtime filler is not part of them
+        long rstart = Math.floorDiv(opts.start() + resolution - 1, resolution) * resolution;
+        long rstop = Math.floorDiv(opts.stop(), resolution) * resolution;
+        long archiveEnd = parchive.getRealtimeFiller() == null ? parchive.coverageEnd()
+                : parchive.getRealtimeFiller().getOldestSegmentStart();
+        rstop = Math.min(rstop, Math.floorDiv(archiveEnd, resolution) * resolution);
+
+        var rollupRetrieval = new RollupRetrieval(parchive, pid.getQualifiedName(), level,
+                opts.toBuilder().withStartStop(rstart, rstop).build());
+        if (rstart >= rstop || !rollupRetrieval.isApplicable()) {
+            doRetrieveScalar(pid, opts, consumer);
+            return;
+        }
+        log.debug("Retrieving rollups level {} for [{}, {})", level, TimeEncoding.toString(rstart),
+                TimeEncoding.toString(rstop));
+        if (opts.start() < rstart) {
+            doRetrieveScalar(pid, opts.withUpdatedStop(rstart), consumer);
+        }
+        rollupRetrieval.retrieve(consumer);
+        if (rstop < opts.stop()) {
+            doRetrieveScalar(pid, opts.withUpdatedStart(rstop), consumer);
+        }
+    }
+
+    private void doRetrieveScalar(ParameterWithId pid, ParameterRetrievalOptions opts,
+            Consumer<ParameterValueArray> consumer) throws Exception {
+        if (parchive == null || opts.noparchive()) {
+            retrieveScalarReplayOrCache(pid, opts, consumer);
+        } else if (parchive.getRealtimeFiller() != null) {
+            retrieveScalarParameterArchive(pid, opts, consumer);
+        } else {
+            long coverageEnd = parchive.coverageEnd();
+
+            if (opts.ascending()) {
+                // ascending case -> retrieve max possible from the parameter archive
+                var tc = retrieveScalarParameterArchive(pid, opts, consumer);
+                // then from cache or via replay
+                if (tc.isValid()) {
+                    if (opts.stop() > tc.time && opts.stop() > coverageEnd) {
+                        var opts1 = opts.withUpdatedStart(tc.time + 1);
+                        retrieveScalarReplayOrCache(pid, opts1, consumer);
+                    }
+                } else {// no data retrieved from the parameter archive
+                    retrieveScalarReplayOrCache(pid, opts, consumer);
+                }
+            } else {
+                // descending case
+                // if the request is beyond parameter archive coverage, retrieve first by cache or replay
+                if (opts.stop() > coverageEnd) {
+                    if (opts.start() >= coverageEnd) {
+                        // request does not overlap at all with the parameter archive coverage
+                        retrieveScalarReplayOrCache(pid, opts, consumer);
+                    } else {
+                        // request overlaps with the parameter archive coverage
+                        var req1 = opts.withUpdatedStart(coverageEnd);
+                        retrieveScalarReplayOrCache(pid, req1, consumer);
+                        var req2 = opts.withUpdatedStop(coverageEnd);
+                        retrieveScalarParameterArchive(pid, req2, consumer);
+
+                    }
+                } else {
+                    // request can be satisfied only by parameter archive
+                    retrieveScalarParameterArchive(pid, opts, consumer);
+                }
+            }
+        }
+    }
+
     public CompletableFuture<Void> retrieveSingle(ParameterWithId pid, ParameterRetrievalOptions opts,
             Consumer<ParameterValueWithId> consumer) {
         log.debug("retrieveSingle requestedParamWithId: {}, opts: {}", pid, opts);
@@ -291,6 +365,83 @@ public class ParameterRetrievalService extends AbstractYamcsService {
         return cf;
     }
 
+    /**
+     * Returns true if the request can be served by
+     * {@link #retrieveColumnar(List, ParameterRetrievalOptions, Consumer)}, that is if the requested range is covered by
+     * the Parameter Archive and all the parameters are scalars stored in the Parameter Archive.
+     */
+    public boolean canRetrieveColumnar(List<ParameterWithId> pids, ParameterRetrievalOptions opts) {
+        if (parchive == null || opts.noparchive() || opts.valueRange() != null) {
+            return false;
+        }
+        if (parchive.getRealtimeFiller() == null && opts.stop() > parchive.coverageEnd()) {
+            return false;
+        }
+        ParameterIdDb piddb = parchive.getParameterIdDb();
+        for (ParameterWithId pid : pids) {
+            if (pid.getPath() != null) {
+                return false;
+            }
+            ParameterId[] paraIds = piddb.get(pid.getQualifiedName());
+            if (paraIds != null) {
+                for (ParameterId paraId : paraIds) {
+                    if (!paraId.isSimple()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the values of multiple parameters from the Parameter Archive in columnar form, see
+     * {@link ColumnarParameterRetrieval}.
+     * <p>
+     * Only the Parameter Archive (including the data from the realtime filler) is used, the cache and the replays are
+     * not. {@link #canRetrieveColumnar(List, ParameterRetrievalOptions)} can be used to verify that the request is
+     * covered.
+     * <p>
+     * The columns of the chunks contain the parameter archive ids; they can be mapped back to the requested parameters
+     * using {@link ParameterId#getParamFqn()}.
+     */
+    public CompletableFuture<Void> retrieveColumnar(List<ParameterWithId> pids, ParameterRetrievalOptions opts,
+            Consumer<ParameterColumnChunk> consumer) {
+        log.debug("retrieveColumnar pids: {}, opts: {}", pids, opts);
+        var cf = new CompletableFuture<Void>();
+        if (parchive == null) {
+            cf.completeExceptionally(new IllegalStateException("The Parameter Archive is not enabled"));
+            return cf;
+        }
+        executor.submit(() -> {
+            try {
+                ParameterIdDb piddb = parchive.getParameterIdDb();
+                List<ParameterId> parameterIds = new ArrayList<>();
+                for (ParameterWithId pid : pids) {
+                    ParameterId[] paraIds = piddb.get(pid.getQualifiedName());
+                    if (paraIds != null) {
+                        for (ParameterId paraId : paraIds) {
+                            if (!parameterIds.contains(paraId)) {
+                                parameterIds.add(paraId);
+                            }
+                        }
+                    }
+                }
+                if (!parameterIds.isEmpty()) {
+                    var mpvr = new MultipleParameterRequest(opts.start(), opts.stop(),
+                            parameterIds.toArray(new ParameterId[0]), null, opts.ascending(),
+                            opts.retrieveEngValues(), opts.retrieveRawValues(), opts.retrieveParameterStatus());
+                    new ColumnarParameterRetrieval(parchive, mpvr).retrieve(consumer);
+                }
+                cf.complete(null);
+            } catch (Exception e) {
+                log.error("Error during retrieval", e);
+                cf.completeExceptionally(e);
+            }
+        });
+        return cf;
+    }
+
     public ParameterCache getParameterCache() {
         return pcache;
     }
@@ -318,6 +469,9 @@ public class ParameterRetrievalService extends AbstractYamcsService {
             Consumer<ParameterValueArray> consumer) throws Exception {
 
         log.debug("retrieveScalarReplayOrCache pid: {}, opts: {} pcache present: {}", pid, opts, pcache != null);
+        if (opts.valueRange() != null) {
+            consumer = filterScalar(opts.valueRange(), consumer);
+        }
         if (pcache != null && !opts.norealtime()) {
             long start = opts.start();
             long stop = opts.stop();
@@ -370,6 +524,7 @@ public class ParameterRetrievalService extends AbstractYamcsService {
         if (pids != null) {
             TimeAndCount tc = new TimeAndCount(TimeEncoding.INVALID_INSTANT, 0);
             mpvr = new MultipleParameterRequest(opts.start(), opts.stop(), pids, opts.ascending());
+            mpvr.setValueRange(opts.valueRange());
             MultiParameterRetrieval mpdr = new MultiParameterRetrieval(parchive, mpvr);
             mpdr.retrieve(pvList -> {
                 tc.count += pvList.size();
@@ -388,6 +543,9 @@ public class ParameterRetrievalService extends AbstractYamcsService {
             Consumer<ParameterValueWithId> consumer) throws Exception {
 
         log.debug("retrieveSingleReplayOrCache pid: {}, opts: {} pcache present: {}", pid, opts, pcache != null);
+        if (opts.valueRange() != null) {
+            consumer = filterSingle(opts.valueRange(), consumer);
+        }
         if (pcache != null && !opts.norealtime()) {
             long start = opts.start();
             long stop = opts.stop();
@@ -461,6 +619,7 @@ public class ParameterRetrievalService extends AbstractYamcsService {
             TimeAndCount tc = new TimeAndCount(TimeEncoding.INVALID_INSTANT, 0);
             mpvr = new MultipleParameterRequest(opts.start(), opts.stop(),
                     parameterIds.toArray(new ParameterId[0]), opts.ascending());
+            mpvr.setValueRange(opts.valueRange());
             MultiParameterRetrieval mpdr = new MultiParameterRetrieval(parchive, mpvr);
 
             mpdr.retrieve(pvList -> {
@@ -487,6 +646,9 @@ public class ParameterRetrievalService extends AbstractYamcsService {
     TimeAndCount retrieveMultiReplayOrCache(List<ParameterWithId> pids, ParameterRetrievalOptions opts,
             Consumer<List<ParameterValueWithId>> consumer) throws Exception {
         log.debug("retrieveSingleReplayOrCache pid: {}, opts: {} pcache present: {}", pids, opts, pcache != null);
+        if (opts.valueRange() != null) {
+            consumer = filterMulti(opts.valueRange(), consumer);
+        }
         if (pcache != null && !opts.norealtime()) {
             long start = opts.start();
             long stop = opts.stop();
@@ -537,6 +699,42 @@ public class ParameterRetrievalService extends AbstractYamcsService {
         }
     }
 
+    // the value range filter is applied by the parameter archive retrievals, these are used for the data coming from
+    // the cache or replay
+    private static Consumer<ParameterValueArray> filterScalar(DoubleRange range,
+            Consumer<ParameterValueArray> consumer) {
+        return pva -> {
+            var pva1 = ValueRangeFilter.filter(range, pva);
+            if (pva1 != null) {
+                consumer.accept(pva1);
+            }
+        };
+    }
+
+    private static Consumer<ParameterValueWithId> filterSingle(DoubleRange range,
+            Consumer<ParameterValueWithId> consumer) {
+        return pvwid -> {
+            if (ValueRangeFilter.inRange(range, pvwid.getParameterValue().getEngValue())) {
+                consumer.accept(pvwid);
+            }
+        };
+    }
+
+    private static Consumer<List<ParameterValueWithId>> filterMulti(DoubleRange range,
+            Consumer<List<ParameterValueWithId>> consumer) {
+        return pvList -> {
+            List<ParameterValueWithId> l = new ArrayList<>(pvList.size());
+            for (var pvwid : pvList) {
+                if (ValueRangeFilter.inRange(range, pvwid.getParameterValue().getEngValue())) {
+                    l.add(pvwid);
+                }
+            }
+            if (!l.isEmpty()) {
+                consumer.accept(l);
+            }
+        };
+    }
+
     // splits the list in arrays of parameters having the same type
     private TimeAndCount splitAndSend(List<ParameterValue> pvlist, Consumer<ParameterValueArray> consumer) {
         int n = 0;
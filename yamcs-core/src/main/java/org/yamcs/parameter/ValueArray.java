@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.BitSet;
 
 import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.StringConverter;
+import org.yamcs.utils.TimeEncoding;
 import org.yamcs.utils.ValueUtility;
 
 /**
@@ -157,6 +159,38 @@ public class ValueArray {
     }
     
     
+    /**
+     * Returns the string representation of the value on position idx; it is the same as
+     * <code>getValue(idx).toString()</code> but it does not create the intermediate {@link Value} object.
+     */
+    public String getValueAsString(int idx) {
+        switch (type) {
+        case BOOLEAN:
+            return Boolean.toString(((BitSet) obj).get(idx));
+        case DOUBLE:
+            return Double.toString(((double[]) obj)[idx]);
+        case FLOAT:
+            return Float.toString(((float[]) obj)[idx]);
+        case SINT32:
+            return Integer.toString(((int[]) obj)[idx]);
+        case UINT32:
+            return Integer.toUnsignedString(((int[]) obj)[idx]);
+        case SINT64:
+            return Long.toString(((long[]) obj)[idx]);
+        case UINT64:
+            return Long.toUnsignedString(((long[]) obj)[idx]);
+        case TIMESTAMP:
+            return TimeEncoding.toString(((long[]) obj)[idx]);
+        case STRING:
+        case ENUMERATED:
+            return (String) ((Object[]) obj)[idx];
+        case BINARY:
+            return StringConverter.arrayToHexString((byte[]) (((Object[]) obj)[idx]));
+        default:
+            throw new IllegalStateException("Unknown type " + type);
+        }
+    }
+
     private static Object newObj(Type type, int size) {
         switch (type) {
         case BOOLEAN:
@@ -224,6 +258,55 @@ public class ValueArray {
     public int size() {
         return size;
     }
+
+    /**
+     * Returns a new array containing the elements at the first n positions from idx.
+     *
+     * @param idx
+     *            - positions of the elements to be selected
+     * @param n
+     *            - the number of positions from idx to consider
+     */
+    public ValueArray subset(int[] idx, int n) {
+        if (obj instanceof int[] a) {
+            int[] r = new int[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = a[idx[i]];
+            }
+            return new ValueArray(type, r);
+        } else if (obj instanceof long[] a) {
+            long[] r = new long[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = a[idx[i]];
+            }
+            return new ValueArray(type, r);
+        } else if (obj instanceof double[] a) {
+            double[] r = new double[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = a[idx[i]];
+            }
+            return new ValueArray(r);
+        } else if (obj instanceof float[] a) {
+            float[] r = new float[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = a[idx[i]];
+            }
+            return new ValueArray(r);
+        } else if (obj instanceof Object[] a) {
+            Object[] r = new Object[n];
+            for (int i = 0; i < n; i++) {
+                r[i] = a[idx[i]];
+            }
+            return new ValueArray(type, r);
+        } else {
+            BitSet a = (BitSet) obj;
+            BitSet r = new BitSet(n);
+            for (int i = 0; i < n; i++) {
+                r.set(i, a.get(idx[i]));
+            }
+            return new ValueArray(r, n);
+        }
+    }
     
     /**
      * merges the value arrays srcValueArray into a new array based on idx.
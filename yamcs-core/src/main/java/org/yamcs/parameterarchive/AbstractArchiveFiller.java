@@ -32,6 +32,10 @@ abstract class AbstractArchiveFiller implements ParameterConsumer {
     // for the realtime filler this is not used and left to default
     protected long collectionStart = TimeEncoding.NEGATIVE_INFINITY;
 
+    // ignore any data newer or equal than this
+    // when doing backfilling in parallel chunks, the data belonging to the next chunk is left for that chunk
+    protected long collectionStop = TimeEncoding.POSITIVE_INFINITY;
+
     protected int maxSegmentSize;
     boolean aborted = false;
 
@@ -48,10 +52,14 @@ abstract class AbstractArchiveFiller implements ParameterConsumer {
         this.collectionStart = collectionStart;
     }
 
+    void setCollectionStop(long collectionStop) {
+        this.collectionStop = collectionStop;
+    }
+
     /**
      * adds the parameters to the pgSegments structure
      * 
-     * parameters older than collectionSegmentStart are ignored.
+     * parameters older than collectionStart or newer than collectionStop are ignored.
      * 
      * 
      * @param items
@@ -61,7 +69,7 @@ abstract class AbstractArchiveFiller implements ParameterConsumer {
         Map<Long, BasicParameterList> m = new HashMap<>();
         for (ParameterValue pv : items) {
             long t = pv.getGenerationTime();
-            if (t < collectionStart) {
+            if (t < collectionStart || t >= collectionStop) {
                 continue;
             }
 
@@ -110,8 +118,15 @@ abstract class AbstractArchiveFiller implements ParameterConsumer {
 
     protected abstract void abort();
 
+    /**
+     * Returns true if the heap usage after the last garbage collection exceeds 90% of the maximum heap
+     */
+    static boolean isMemoryLow() {
+        return memoryBean != null && memoryBean.isCollectionUsageThresholdExceeded();
+    }
+
     private boolean oomImminent() {
-        if (memoryBean != null && memoryBean.isCollectionUsageThresholdExceeded()) {
+        if (isMemoryLow()) {
             aborted = true;
             String msg = "Aborting parameter archive filling due to imminent out of memory. Consider decreasing the maxSegmentSize (current value is "
                     + maxSegmentSize + ").";
@@ -6,6 +6,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +40,10 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 /**
  * Back-fills the parameter archive by triggering replays: - either regularly scheduled replays - or monitor data
  * streams (tm, param) and keep track of which segments have to be rebuild
+ * <p>
+ * If more than one thread is configured, the time range to be rebuilt is split into chunks made of whole intervals
+ * (see {@link ParameterArchive#getInterval(long)}); each chunk is processed by its own {@link BackFillerTask} with its
+ * own replay processor. Since the chunks do not share any interval, they can be written to the archive independently.
  * 
  */
 public class BackFiller implements StreamSubscriber {
@@ -52,6 +59,13 @@ public class BackFiller implements StreamSubscriber {
     private final Log log;
     final ScheduledThreadPoolExecutor executor;
 
+    // number of chunks processed in parallel
+    final int numThreads;
+    // runs the chunks if numThreads > 1
+    final ExecutorService workerExecutor;
+    // when splitting a range into chunks, make at most this number of chunks for each thread
+    static final int MAX_CHUNKS_PER_THREAD = 4;
+
     // set of segments that have to be rebuilt following monitoring of streams
     private Map<Long, StreamUpdate> streamUpdates;
     // streams which are monitored
@@ -86,6 +100,16 @@ public class BackFiller implements StreamSubscriber {
         executor = new ScheduledThreadPoolExecutor(1,
                 new ThreadFactoryBuilder().setNameFormat("ParameterArchive-BackFiller-" + parchive.getYamcsInstance())
                         .build());
+        numThreads = config.getInt("numThreads", 1);
+        if (numThreads < 1) {
+            throw new ConfigurationException("numThreads has to be at least 1");
+        }
+        if (numThreads > 1) {
+            workerExecutor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+                    .setNameFormat("ParameterArchive-BackFiller-" + parchive.getYamcsInstance() + "-%d").build());
+        } else {
+            workerExecutor = null;
+        }
     }
 
     public static Spec getSpec() {
@@ -109,6 +133,9 @@ public class BackFiller implements StreamSubscriber {
 
         spec.addOption("schedule", OptionType.MAP).withSpec(schedSpec);
         spec.addOption("compactFrequency", OptionType.INTEGER).withDefault(-1);
+        spec.addOption("numThreads", OptionType.INTEGER).withDefault(1)
+                .withDescription("Number of chunks of the time range to rebuild which are processed in parallel. "
+                        + "Each chunk uses its own replay processor.");
 
         return spec;
     }
@@ -239,11 +266,85 @@ public class BackFiller implements StreamSubscriber {
 
     private void runTask(long start, long stop) {
         try {
-            start = ParameterArchive.getIntervalStart(start);
-            stop = ParameterArchive.getIntervalEnd(stop) + 1;
+            boolean unbounded = start == TimeEncoding.NEGATIVE_INFINITY || stop == TimeEncoding.POSITIVE_INFINITY;
+
+            if (workerExecutor == null || unbounded) {
+                runChunk(ParameterArchive.getIntervalStart(start), ParameterArchive.getIntervalEnd(stop) + 1);
+            } else {
+                runChunks(getChunks(start, stop, numThreads));
+            }
+            if (compactFrequency != -1 && ++compactCount >= compactFrequency) {
+                compactCount = 0;
+                parchive.compact();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error when running the archive filler task", e);
+        }
+        log.debug("After backilling filler lock count: {}", parchive.getFillerLock().lockCount());
+
+        if (log.isTraceEnabled()) {
+            log.trace("Filler locks: {}", parchive.getFillerLock().toString());
+        }
+    }
+
+    /**
+     * Splits the [start, stop] range into chunks of whole intervals: the first chunk starts at the beginning of the
+     * interval containing start and the last one ends (exclusive) at the end of the interval containing stop.
+     * <p>
+     * All the chunks have the same number of intervals, except the last one which may be shorter; there are at most
+     * {@link #MAX_CHUNKS_PER_THREAD} chunks for each thread.
+     */
+    static List<Chunk> getChunks(long start, long stop, int numThreads) {
+        start = ParameterArchive.getIntervalStart(start);
+        stop = ParameterArchive.getIntervalEnd(stop) + 1;
+
+        long intervalDuration = ParameterArchive.getIntervalDuration();
+        long numIntervals = (stop - start) / intervalDuration;
+        long maxChunks = (long) numThreads * MAX_CHUNKS_PER_THREAD;
+        long chunkDuration = Math.max(1, (numIntervals + maxChunks - 1) / maxChunks) * intervalDuration;
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (long chunkStart = start; chunkStart < stop; chunkStart += chunkDuration) {
+            chunks.add(new Chunk(chunkStart, Math.min(stop, chunkStart + chunkDuration)));
+        }
+        return chunks;
+    }
+
+    /**
+     * runs the chunks in parallel, waiting for all of them to finish.
+     */
+    private void runChunks(List<Chunk> chunks) throws InterruptedException {
+        log.debug("Splitting parameter archive fillup for [{}-{}) into {} chunks",
+                TimeEncoding.toString(chunks.get(0).start()),
+                TimeEncoding.toString(chunks.get(chunks.size() - 1).stop()), chunks.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (Chunk c : chunks) {
+            futures.add(workerExecutor.submit(() -> runChunk(c.start(), c.stop())));
+        }
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            // runChunk catches all exceptions, this should not happen
+            log.error("Error when running the archive filler task", e.getCause());
+        } finally {
+            for (Future<?> f : futures) {
+                f.cancel(false);
+            }
+        }
+    }
 
+    /**
+     * Processes [start, stop) with a new replay processor; the start and stop are aligned to the interval boundaries
+     */
+    private void runChunk(long start, long stop) {
+        try {
             BackFillerTask bft = new BackFillerTask(parchive);
             bft.setCollectionStart(start);
+            bft.setCollectionStop(stop);
             String timePeriod = '[' + TimeEncoding.toString(start) + "-" + TimeEncoding.toString(stop) + ')';
             log.debug("Starting parameter archive fillup for interval {}", timePeriod);
             long t0 = System.nanoTime();
@@ -274,18 +375,9 @@ public class BackFiller implements StreamSubscriber {
                     listener.onBackfillFinished(start, stop, bft.getNumProcessedParameters());
                 }
             }
-            if (compactFrequency != -1 && ++compactCount >= compactFrequency) {
-                compactCount = 0;
-                parchive.compact();
-            }
         } catch (Exception e) {
             log.error("Error when running the archive filler task", e);
         }
-        log.debug("After backilling filler lock count: {}", parchive.getFillerLock().lockCount());
-
-        if (log.isTraceEnabled()) {
-            log.trace("Filler locks: {}", parchive.getFillerLock().toString());
-        }
     }
 
     private void runSchedule(Schedule s) {
@@ -395,7 +487,13 @@ public class BackFiller implements StreamSubscriber {
             }
         }
         executor.shutdown();
+        if (workerExecutor != null) {
+            workerExecutor.shutdown();
+        }
         executor.awaitTermination(10, TimeUnit.SECONDS);
+        if (workerExecutor != null) {
+            workerExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
     }
 
     @Override
@@ -445,4 +543,10 @@ public class BackFiller implements StreamSubscriber {
                     dataAge / 3600000.0, fillFrequency / 1000.0, quietThreshold / 1000.0);
         }
     }
+
+    /**
+     * A [start, stop) time range made of whole intervals, processed by one {@link BackFillerTask}
+     */
+    static record Chunk(long start, long stop) {
+    }
 }
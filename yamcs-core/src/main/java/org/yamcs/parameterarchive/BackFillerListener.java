@@ -3,7 +3,10 @@ package org.yamcs.parameterarchive;
 public interface BackFillerListener {
 
     /**
-     * Called when a backfilling task finished
+     * Called when a backfilling task finished.
+     * <p>
+     * If the backfiller runs with multiple threads, a rebuild request is split into chunks and this method is called
+     * (possibly from different threads) after each chunk finishes, with the start and stop of the chunk.
      */
     void onBackfillFinished(long start, long stop, long processedParameters);
 }
@@ -25,6 +25,7 @@ class BackFillerTask extends AbstractArchiveFiller {
 
     void flush() {
         for (PGSegment pgs : pgSegments.values()) {
+            pgs.setLastInInterval();
             writeToArchive(pgs);
             fillerLock.unlock(pgs.getInterval(), pgs.getParameterGroupId());
             var segEnd = pgs.getSegmentEnd();
@@ -80,6 +81,7 @@ class BackFillerTask extends AbstractArchiveFiller {
                 pgs.addRecord(t, pvList);
                 pgSegments.put(parameterGroupId, pgs);
             } else if (interval != pgs.getInterval()) {
+                pgs.setLastInInterval();
                 writeToArchive(pgs);
                 fillerLock.unlock(pgs.getInterval(), parameterGroupId);
 
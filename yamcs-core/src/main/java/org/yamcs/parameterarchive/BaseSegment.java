@@ -32,6 +32,12 @@ public abstract class BaseSegment {
     // in order to allow merging segments later.
     public static final byte FORMAT_ID_GapSegment = 22;
 
+    // pre-aggregated values (min/max/first/last/sum/count) per fixed time bucket, see RollupSegment
+    public static final byte FORMAT_ID_RollupSegment = 23;
+
+    // min/max and counts of the values of one interval, see ZoneMapSegment
+    public static final byte FORMAT_ID_ZoneMapSegment = 24;
+
     protected byte formatId;
 
     BaseSegment(byte formatId) {
@@ -79,6 +85,10 @@ public abstract class BaseSegment {
             return BinaryValueSegment.parseFrom(bb);
         case FORMAT_ID_SortedTimeValueSegmentV2:
             return SortedTimeSegment.parseFromV2(bb, segmentStart);
+        case FORMAT_ID_RollupSegment:
+            return RollupSegment.parseFrom(bb, segmentStart);
+        case FORMAT_ID_ZoneMapSegment:
+            return ZoneMapSegment.parseFrom(bb);
         default:
             throw new DecodingException("Invalid format id " + formatId);
         }
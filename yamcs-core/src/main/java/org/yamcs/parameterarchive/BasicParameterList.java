@@ -43,7 +43,7 @@ class BasicParameterList {
         this.pvList = new ArrayList<>();
     }
 
-    // used for unit tests
+    // used for unit tests and for the records read from the SpillBuffer
     BasicParameterList(IntArray idArray, List<BasicParameterValue> pvList) {
         this.idArray = idArray;
         this.parameterIdMap = null;
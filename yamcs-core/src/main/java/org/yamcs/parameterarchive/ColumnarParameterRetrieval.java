@@ -0,0 +1,260 @@
+package org.yamcs.parameterarchive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.rocksdb.RocksDBException;
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.ParameterRetrievalOptions;
+import org.yamcs.utils.SortedIntArray;
+
+/**
+ * Retrieves multiple parameters from the Parameter Archive in columnar form.
+ * <p>
+ * Unlike {@link MultiParameterRetrieval}, the values are not pivoted into one list per timestamp; instead for each
+ * segment of each parameter group, one {@link ParameterColumnChunk} is sent containing the timestamps of the segment
+ * and the array of values of each requested parameter from that group. No object is created for each individual
+ * value.
+ * <p>
+ * The chunks of the different groups are sent in the order of their start (end if descending), such that the consumer
+ * can merge them knowing that no chunk will follow with data before (after if descending) the
+ * {@link ParameterColumnChunk#getStart()}.
+ * <p>
+ * Only scalar parameters are supported (the aggregates and arrays have to be retrieved with
+ * {@link MultiParameterRetrieval}).
+ * <p>
+ * If a limit is set in the request, the retrieval stops after the chunk which brings the number of sent timestamps
+ * over the limit.
+ */
+public class ColumnarParameterRetrieval {
+    final ParameterArchive parchive;
+    final MultipleParameterRequest mpvr;
+    final ParameterRetrievalOptions opts;
+    private final Log log;
+
+    public ColumnarParameterRetrieval(ParameterArchive parchive, MultipleParameterRequest mpvr) {
+        for (ParameterId pid : mpvr.parameterIds) {
+            if (!pid.isSimple()) {
+                throw new IllegalArgumentException(
+                        "Parameter " + pid.getParamFqn() + " is an aggregate or array, it cannot be retrieved in columns");
+            }
+        }
+        this.parchive = parchive;
+        this.mpvr = mpvr;
+        this.opts = ParameterRetrievalOptions.newBuilder().withStartStop(mpvr.start, mpvr.stop)
+                .withAscending(mpvr.ascending).withRetrieveEngineeringValues(mpvr.retrieveEngValues)
+                .withRetrieveRawValues(mpvr.retrieveRawValues)
+                .withRetrieveParameterStatus(mpvr.retrieveParamStatus).build();
+        this.log = new Log(this.getClass(), parchive.getYamcsInstance());
+    }
+
+    public void retrieve(Consumer<ParameterColumnChunk> consumer) throws RocksDBException, IOException {
+        log.trace("Starting a columnar parameter retrieval: {}", mpvr);
+
+        // parameter group id -> parameters requested from that group
+        Map<Integer, List<ParameterId>> groups = new TreeMap<>();
+        ParameterGroupIdDb pgDb = parchive.getParameterGroupIdDb();
+        for (int i = 0; i < mpvr.parameterIds.length; i++) {
+            ParameterId pid = mpvr.parameterIds[i];
+            if (mpvr.parameterGroupIds != null) {
+                groups.computeIfAbsent(mpvr.parameterGroupIds[i], k -> new ArrayList<>()).add(pid);
+            } else {
+                for (int pgid : pgDb.getAllGroups(pid.getPid())) {
+                    groups.computeIfAbsent(pgid, k -> new ArrayList<>()).add(pid);
+                }
+            }
+        }
+
+        PriorityQueue<GroupIterator> queue = new PriorityQueue<>(new GroupIteratorComparator(mpvr.ascending));
+        GroupIterator it = null;
+        long count = 0;
+        try {
+            for (var entry : groups.entrySet()) {
+                var git = new GroupIterator(entry.getKey(), entry.getValue().toArray(new ParameterId[0]));
+                if (git.isValid()) {
+                    queue.add(git);
+                } else {
+                    git.close();
+                }
+            }
+            log.trace("Got {} parallel iterators", queue.size());
+
+            while (!queue.isEmpty()) {
+                it = queue.poll();
+                ParameterColumnChunk chunk = it.nextChunk();
+                if (chunk != null) {
+                    consumer.accept(chunk);
+                    count += chunk.size();
+                    if (mpvr.limit > 0 && count >= mpvr.limit) {
+                        return;
+                    }
+                }
+                if (it.isValid()) {
+                    queue.add(it);
+                } else {
+                    it.close();
+                }
+                it = null;
+            }
+        } catch (ConsumerAbortException e) {
+            log.debug("Stopped early due to receiving ConsumerAbortException");
+        } finally {
+            if (it != null) {
+                it.close();
+            }
+            queue.forEach(it1 -> it1.close());
+        }
+        log.trace("Retrieval finished");
+    }
+
+    /**
+     * Iterates over the segments of one parameter group, converting them into chunks.
+     */
+    class GroupIterator {
+        final int parameterGroupId;
+        final ParameterId[] pids;
+        final MultiSegmentIterator it;
+        // the segments from the realtime filler may overlap with those from the archive;
+        // bound is used to skip the data already sent
+        long bound;
+
+        GroupIterator(int parameterGroupId, ParameterId[] pids) {
+            this.parameterGroupId = parameterGroupId;
+            this.pids = pids;
+            this.it = new MultiSegmentIterator(parchive, pids, parameterGroupId, opts);
+            this.bound = mpvr.ascending ? mpvr.start : mpvr.stop;
+        }
+
+        boolean isValid() {
+            return it.isValid();
+        }
+
+        MultiParameterValueSegment value() {
+            return it.value();
+        }
+
+        ParameterColumnChunk nextChunk() {
+            MultiParameterValueSegment mpvs = it.value();
+            it.next();
+            ParameterColumnChunk chunk = mpvr.ascending ? getChunk(mpvs, bound, mpvr.stop)
+                    : getChunk(mpvs, mpvr.start, bound);
+            if (chunk != null) {
+                long last = chunk.timestamps[chunk.timestamps.length - 1];
+                bound = mpvr.ascending ? last + 1 : last - 1;
+            }
+            return chunk;
+        }
+
+        private ParameterColumnChunk getChunk(MultiParameterValueSegment mpvs, long start, long stop) {
+            SortedTimeSegment timeSegment = mpvs.timeSegment;
+            boolean ascending = mpvr.ascending;
+            int posStart, posStop;
+            if (ascending) {
+                posStart = timeSegment.search(start);
+                if (posStart < 0) {
+                    posStart = -posStart - 1;
+                }
+                posStop = timeSegment.search(stop);
+                if (posStop < 0) {
+                    posStop = -posStop - 1;
+                }
+            } else {
+                posStop = timeSegment.search(stop);
+                if (posStop < 0) {
+                    posStop = -posStop - 2;
+                }
+                posStart = timeSegment.search(start);
+                if (posStart < 0) {
+                    posStart = -posStart - 2;
+                }
+            }
+            if (posStart >= posStop) {
+                return null;
+            }
+
+            long[] timestamps = timeSegment.getRange(posStart, posStop, ascending);
+            ParameterValueArray[] columns = new ParameterValueArray[pids.length];
+            int[][] rows = new int[pids.length][];
+            for (int i = 0; i < pids.length; i++) {
+                ParameterValueSegment pvs = mpvs.getPvs(i);
+                if (pvs == null) {
+                    continue;
+                }
+                ParameterValueArray pva = pvs.getRange(posStart, posStop, ascending, mpvr.retrieveParamStatus);
+                if (pva == null) {
+                    continue;
+                }
+                // the segments from the realtime filler contain all the values, filter out what is not requested
+                // for the parameters without raw values, the raw value segment is the engineering value segment
+                columns[i] = new ParameterValueArray(pva.timestamps, mpvr.retrieveEngValues ? pva.engValues : null,
+                        mpvr.retrieveRawValues && pids[i].hasRawValue() ? pva.rawValues : null, pva.paramStatus);
+                if (pvs.gaps != null) {
+                    rows[i] = getRows(pvs.gaps, posStart, posStop, ascending);
+                }
+            }
+            // the iterators are sorted by segment start (end if descending) so no other group can send data before it
+            long chunkStart = ascending ? Math.max(mpvr.start, mpvs.getSegmentStart())
+                    : Math.min(mpvr.stop, mpvs.getSegmentEnd());
+            return new ParameterColumnChunk(parameterGroupId, chunkStart, timestamps, pids, columns, rows);
+        }
+
+        void close() {
+            it.close();
+        }
+    }
+
+    /**
+     * Returns the positions relative to the start of the range of the elements which are not gaps. The range is the
+     * same as for {@link SortedTimeSegment#getRangeWithGaps(int, int, boolean, SortedIntArray)}.
+     */
+    static int[] getRows(SortedIntArray gaps, int posStart, int posStop, boolean ascending) {
+        int[] r = new int[posStop - posStart];
+        int j = 0;
+        if (ascending) {
+            int k = 0;
+            for (int i = posStart; i < posStop; i++) {
+                while (k < gaps.size() && gaps.get(k) < i) {
+                    k++;
+                }
+                if (k >= gaps.size() || gaps.get(k) != i) {
+                    r[j++] = i - posStart;
+                }
+            }
+        } else {
+            int k = gaps.size() - 1;
+            for (int i = posStop; i > posStart; i--) {
+                while (k >= 0 && gaps.get(k) > i) {
+                    k--;
+                }
+                if (k < 0 || gaps.get(k) != i) {
+                    r[j++] = posStop - i;
+                }
+            }
+        }
+        return j == r.length ? r : Arrays.copyOf(r, j);
+    }
+
+    static class GroupIteratorComparator implements Comparator<GroupIterator> {
+        final boolean ascending;
+
+        public GroupIteratorComparator(boolean ascending) {
+            this.ascending = ascending;
+        }
+
+        @Override
+        public int compare(GroupIterator it1, GroupIterator it2) {
+            if (ascending) {
+                return Long.compare(it1.value().getSegmentStart(), it2.value().getSegmentStart());
+            } else {
+                return Long.compare(it2.value().getSegmentEnd(), it1.value().getSegmentEnd());
+            }
+        }
+    }
+}
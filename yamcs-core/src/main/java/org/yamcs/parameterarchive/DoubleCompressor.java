@@ -0,0 +1,107 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.ByteBuffer;
+
+import org.yamcs.utils.BitReader;
+import org.yamcs.utils.BitWriter;
+
+/**
+ * 64 bit version of the {@link FloatCompressor}: each value is XORed with the previous one and only the meaningful
+ * bits of the result (between the leading and trailing zeros) are stored.
+ * <p>
+ * For each value after the first one:
+ * <ul>
+ * <li>'0' - the value is the same as the previous one.</li>
+ * <li>'10' followed by the meaningful bits - the meaningful bits fit in the window of the previous value.</li>
+ * <li>'11' followed by 6 bits number of leading zeros, 6 bits number of meaningful bits minus 1 and the meaningful
+ * bits.</li>
+ * </ul>
+ */
+public class DoubleCompressor {
+    // number of bits used to store a new window
+    static final int WINDOW_HEADER_BITS = 12;
+
+    /**
+     * compress the first n (n>0) elements from the array of doubles into the ByteBuffer
+     */
+    static public void compress(double[] da, int n, ByteBuffer bb) {
+        BitWriter bw = new BitWriter(bb);
+
+        long prevV = Double.doubleToRawLongBits(da[0]);
+        writeBits(bw, prevV, 64);
+
+        int prevLz = -1; // no window yet
+        int prevTz = 0;
+
+        for (int i = 1; i < n; i++) {
+            long v = Double.doubleToRawLongBits(da[i]);
+            long xor = v ^ prevV;
+            if (xor == 0) {
+                bw.write(0, 1);
+            } else {
+                bw.write(1, 1);
+                int lz = Long.numberOfLeadingZeros(xor);
+                int tz = Long.numberOfTrailingZeros(xor);
+                int mb = 64 - lz - tz;
+                int prevMb = 64 - prevLz - prevTz;
+                // reuse the previous window unless storing a new one results in fewer bits
+                if (prevLz >= 0 && lz >= prevLz && tz >= prevTz && prevMb <= WINDOW_HEADER_BITS + mb) {
+                    bw.write(0, 1);
+                    writeBits(bw, xor >>> prevTz, prevMb);
+                } else {
+                    bw.write(1, 1);
+                    bw.write(lz, 6);
+                    bw.write(mb - 1, 6);
+                    writeBits(bw, xor >>> tz, mb);
+                    prevLz = lz;
+                    prevTz = tz;
+                }
+            }
+            prevV = v;
+        }
+        bw.flush();
+    }
+
+    public static double[] decompress(ByteBuffer bb, int n) {
+        BitReader br = new BitReader(bb);
+        double[] da = new double[n];
+        long v = readBits(br, 64);
+        da[0] = Double.longBitsToDouble(v);
+
+        int tz = 0; // trailing zeros
+        int mb = 0; // meaningful bits
+        for (int i = 1; i < n; i++) {
+            if (br.read(1) == 0) {
+                da[i] = da[i - 1];
+                continue;
+            }
+            if (br.read(1) == 1) {
+                int lz = br.read(6);
+                mb = br.read(6) + 1;
+                tz = 64 - lz - mb;
+            }
+            v ^= readBits(br, mb) << tz;
+            da[i] = Double.longBitsToDouble(v);
+        }
+        return da;
+    }
+
+    // the BitWriter writes at most 32 bits at a time
+    private static void writeBits(BitWriter bw, long x, int numBits) {
+        if (numBits > 32) {
+            bw.write((int) (x >>> 32), numBits - 32);
+            bw.write((int) x, 32);
+        } else {
+            bw.write((int) x, numBits);
+        }
+    }
+
+    private static long readBits(BitReader br, int numBits) {
+        if (numBits > 32) {
+            long hi = br.readLong(numBits - 32);
+            return (hi << 32) | br.readLong(32);
+        } else {
+            return br.readLong(numBits);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.yamcs.parameterarchive;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 import org.yamcs.parameter.Value;
@@ -11,8 +12,11 @@ import org.yamcs.utils.VarIntUtil;
 
 public class DoubleValueSegment extends BaseSegment implements ValueSegment {
     final static byte SUBFORMAT_ID_RAW = 0;
+    final static byte SUBFORMAT_ID_XOR = 1; // compressed with the DoubleCompressor
 
     DoubleArray values;
+    // true if the segment has been decoded from the compressed format
+    boolean compressed;
 
     DoubleValueSegment() {
         super(FORMAT_ID_DoubleValueSegment);
@@ -29,8 +33,41 @@ public class DoubleValueSegment extends BaseSegment implements ValueSegment {
         values.add(value.getDoubleValue());
     }
 
+    /**
+     * Writes the segment in the raw format which can be extended by the RocksDB merge operator.
+     */
     @Override
     public void writeTo(ByteBuffer bb) {
+        writeRaw(bb);
+    }
+
+    /**
+     * Writes the segment compressed if that results in a smaller size than the raw encoding.
+     * <p>
+     * The compressed format is not understood by the RocksDB merge operator, see
+     * {@link ParameterArchive#isMergeable(BaseSegment)}
+     */
+    public void writeCompressedTo(ByteBuffer bb) {
+        int n = values.size();
+        if (n > 1) {
+            int position = bb.position();
+            int rawSize = 1 + VarIntUtil.getEncodedSize(n) + 8 * n;
+            try {
+                bb.put(SUBFORMAT_ID_XOR);
+                VarIntUtil.writeVarInt32(bb, n);
+                DoubleCompressor.compress(values.array(), n, bb);
+                if (bb.position() - position < rawSize) {
+                    return;
+                }
+            } catch (BufferOverflowException e) {
+                // the compressed data does not fit in the buffer, write it raw
+            }
+            bb.position(position);
+        }
+        writeRaw(bb);
+    }
+
+    private void writeRaw(ByteBuffer bb) {
         bb.put(SUBFORMAT_ID_RAW);
         int n = values.size();
         VarIntUtil.writeVarInt32(bb, n);
@@ -41,14 +78,17 @@ public class DoubleValueSegment extends BaseSegment implements ValueSegment {
 
     private void parse(ByteBuffer bb) throws DecodingException {
         byte fid = bb.get();
-        if (fid != SUBFORMAT_ID_RAW) {
-            throw new DecodingException("Uknown sub format id: " + fid);
-        }
         int n = VarIntUtil.readVarInt32(bb);
-        values = new DoubleArray(n);
-
-        for (int i = 0; i < n; i++) {
-            values.add(bb.getDouble());
+        if (fid == SUBFORMAT_ID_RAW) {
+            values = new DoubleArray(n);
+            for (int i = 0; i < n; i++) {
+                values.add(bb.getDouble());
+            }
+        } else if (fid == SUBFORMAT_ID_XOR) {
+            values = DoubleArray.wrap(DoubleCompressor.decompress(bb, n));
+            compressed = true;
+        } else {
+            throw new DecodingException("Uknown sub format id: " + fid);
         }
     }
 
@@ -1,5 +1,6 @@
 package org.yamcs.parameterarchive;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 import org.yamcs.parameter.Value;
@@ -10,14 +11,28 @@ import org.yamcs.utils.LongArray;
 import org.yamcs.utils.ValueUtility;
 import org.yamcs.utils.VarIntUtil;
 
+import me.lemire.integercompression.FastPFOR128;
+import me.lemire.integercompression.IntWrapper;
+
+/**
+ * 64 bit integers (or timestamps) encoded as deltas of deltas if that results in a smaller size than the raw encoding.
+ * <p>
+ * The first value is stored as a varint. If all the zigzag encoded deltas of deltas fit on 32 bits, they are compressed
+ * like in the {@link IntValueSegment}, otherwise they are stored as 64 bit varints.
+ */
 public class LongValueSegment extends BaseSegment implements ValueSegment {
 
     final static int SUBFORMAT_ID_RAW = 0;
+    final static int SUBFORMAT_ID_DELTAZG_FPF128_VB = 1; // compressed with DeltaZigzag and then FastPFOR128 plus
+                                                         // VariableByte for remaining
+    final static int SUBFORMAT_ID_DELTAZG_VB = 2; // compressed with DeltaZigzag plus 64 bit VariableByte
     LongArray values;
 
     // all possible types that can be stored by this segment
     static final Type[] types = new Type[] { Type.UINT64, Type.SINT64, Type.TIMESTAMP };
     int numericType;// index in the array above
+    // true if the segment has been decoded from a compressed format
+    boolean compressed;
 
     LongValueSegment(Type type) {
         super(FORMAT_ID_LongValueSegment);
@@ -63,8 +78,39 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
         throw new IllegalStateException();
     }
 
+    /**
+     * Writes the segment in the raw format which can be extended by the RocksDB merge operator.
+     */
     @Override
     public void writeTo(ByteBuffer bb) {
+        writeRaw(bb);
+    }
+
+    /**
+     * Writes the segment compressed if that results in a smaller size than the raw encoding.
+     * <p>
+     * The compressed formats are not understood by the RocksDB merge operator, see
+     * {@link ParameterArchive#isMergeable(BaseSegment)}
+     */
+    public void writeCompressedTo(ByteBuffer bb) {
+        int n = values.size();
+        if (n > 1) {
+            int position = bb.position();
+            int rawSize = 1 + VarIntUtil.getEncodedSize(n) + 8 * n;
+            try {
+                writeCompressed(bb);
+                if (bb.position() - position < rawSize) {
+                    return;
+                }
+            } catch (IndexOutOfBoundsException | BufferOverflowException e) {
+                // the compressed data does not fit in the buffer, write it raw
+            }
+            bb.position(position);
+        }
+        writeRaw(bb);
+    }
+
+    private void writeRaw(ByteBuffer bb) {
         writeHeader(SUBFORMAT_ID_RAW, bb);
         int n = values.size();
         VarIntUtil.writeVarInt32(bb, n);
@@ -73,6 +119,56 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
         }
     }
 
+    private void writeCompressed(ByteBuffer bb) {
+        int n = values.size();
+        long[] ddz = encodeDeltaDeltaZigZag(values);
+        boolean fitsInt = true;
+        for (int i = 1; i < n; i++) {
+            if ((ddz[i] >>> 32) != 0) {
+                fitsInt = false;
+                break;
+            }
+        }
+        if (fitsInt && writeFastPfor(ddz, bb)) {
+            return;
+        }
+        writeHeader(SUBFORMAT_ID_DELTAZG_VB, bb);
+        VarIntUtil.writeVarInt32(bb, n);
+        for (int i = 0; i < n; i++) {
+            VarIntUtil.writeVarInt64(bb, ddz[i]);
+        }
+    }
+
+    // returns false if fastpfor didn't compress anything (probably there were too few datapoints)
+    private boolean writeFastPfor(long[] ddz, ByteBuffer bb) {
+        int size = ddz.length - 1;
+        int[] x = new int[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = (int) ddz[i + 1];
+        }
+        FastPFOR128 fastpfor = FastPFORFactory.get();
+        IntWrapper inputoffset = new IntWrapper(0);
+        IntWrapper outputoffset = new IntWrapper(0);
+        int[] xc = new int[size];
+        fastpfor.compress(x, inputoffset, size, xc, outputoffset);
+        if (outputoffset.get() == 0) {
+            return false;
+        }
+
+        writeHeader(SUBFORMAT_ID_DELTAZG_FPF128_VB, bb);
+        VarIntUtil.writeVarInt32(bb, ddz.length);
+        VarIntUtil.writeVarInt64(bb, ddz[0]);
+        int length = outputoffset.get();
+        for (int i = 0; i < length; i++) {
+            bb.putInt(xc[i]);
+        }
+        // write the remaining values varint compressed
+        for (int i = inputoffset.get(); i < size; i++) {
+            VarIntUtil.writeVarInt32(bb, x[i]);
+        }
+        return true;
+    }
+
     // write header:
     // 1st byte: spare type subformatid
     // 2 bits 2 bits 4 bits
@@ -84,13 +180,30 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
     private void parse(ByteBuffer bb) throws DecodingException {
         byte x = bb.get();
         int subFormatId = x & 0xF;
-        if (subFormatId != SUBFORMAT_ID_RAW)
-            throw new DecodingException("Unknown subformatId " + subFormatId + " for LongValueSegment");
-
         numericType = (x >> 4) & 3;
-
         int n = VarIntUtil.readVarInt32(bb);
 
+        compressed = subFormatId != SUBFORMAT_ID_RAW;
+        switch (subFormatId) {
+        case SUBFORMAT_ID_RAW:
+            parseRaw(bb, n);
+            break;
+        case SUBFORMAT_ID_DELTAZG_FPF128_VB:
+            parseCompressedFpf(bb, n);
+            break;
+        case SUBFORMAT_ID_DELTAZG_VB:
+            long[] ddz = new long[n];
+            for (int i = 0; i < n; i++) {
+                ddz[i] = VarIntUtil.readVarInt64(bb);
+            }
+            values = LongArray.wrap(decodeDeltaDeltaZigZag(ddz));
+            break;
+        default:
+            throw new DecodingException("Unknown subformatId " + subFormatId + " for LongValueSegment");
+        }
+    }
+
+    private void parseRaw(ByteBuffer bb, int n) throws DecodingException {
         if (bb.limit() - bb.position() < 8 * n) {
             throw new DecodingException("Cannot decode long segment: expected " + (8 * n) + " bytes and only "
                     + (bb.limit() - bb.position()) + " available");
@@ -101,6 +214,71 @@ public class LongValueSegment extends BaseSegment implements ValueSegment {
         }
     }
 
+    private void parseCompressedFpf(ByteBuffer bb, int n) throws DecodingException {
+        long[] ddz = new long[n];
+        ddz[0] = VarIntUtil.readVarInt64(bb);
+
+        int size = n - 1;
+        int[] ddzi = new int[size];
+        IntWrapper inputoffset = new IntWrapper(0);
+        IntWrapper outputoffset = new IntWrapper(0);
+        int position = bb.position();
+
+        int[] x = new int[(bb.limit() - bb.position()) / 4];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = bb.getInt();
+        }
+        FastPFOR128 fastpfor = FastPFORFactory.get();
+        fastpfor.uncompress(x, inputoffset, x.length, ddzi, outputoffset);
+        bb.position(position + inputoffset.get() * 4);
+
+        for (int i = outputoffset.get(); i < size; i++) {
+            ddzi[i] = VarIntUtil.readVarInt32(bb);
+        }
+        for (int i = 0; i < size; i++) {
+            ddz[i + 1] = ddzi[i] & 0xFFFFFFFFL;
+        }
+        values = LongArray.wrap(decodeDeltaDeltaZigZag(ddz));
+    }
+
+    // zigzag encoding of the deltas of deltas, see VarIntUtil#encodeDeltaDeltaZigZag(int[])
+    static long[] encodeDeltaDeltaZigZag(LongArray a) {
+        int n = a.size();
+        long[] ddz = new long[n];
+        if (n > 0) {
+            ddz[0] = encodeZigZag(a.get(0));
+            long d = 0;
+            for (int i = 1; i < n; i++) {
+                long d1 = a.get(i) - a.get(i - 1);
+                ddz[i] = encodeZigZag(d1 - d);
+                d = d1;
+            }
+        }
+        return ddz;
+    }
+
+    static long[] decodeDeltaDeltaZigZag(long[] ddz) {
+        int n = ddz.length;
+        long[] x = new long[n];
+        if (n > 0) {
+            x[0] = decodeZigZag(ddz[0]);
+            long d = 0;
+            for (int i = 1; i < n; i++) {
+                d = d + decodeZigZag(ddz[i]);
+                x[i] = x[i - 1] + d;
+            }
+        }
+        return x;
+    }
+
+    private static long encodeZigZag(long x) {
+        return (x << 1) ^ (x >> 63);
+    }
+
+    private static long decodeZigZag(long x) {
+        return (x >>> 1) ^ -(x & 1);
+    }
+
     public static LongValueSegment parseFrom(ByteBuffer bb) throws DecodingException {
         LongValueSegment r = new LongValueSegment();
         r.parse(bb);
@@ -55,7 +55,8 @@ public class MultiParameterRetrieval {
             ParameterRetrievalOptions req = ParameterRetrievalOptions.newBuilder().withStartStop(mpvr.start, mpvr.stop)
                     .withAscending(mpvr.ascending).withRetrieveEngineeringValues(mpvr.retrieveEngValues)
                     .withRetrieveRawValues(mpvr.retrieveRawValues && paraId.hasRawValue())
-                    .withRetrieveParameterStatus(mpvr.retrieveParamStatus).build();
+                    .withRetrieveParameterStatus(mpvr.retrieveParamStatus)
+                    .withValueRange(mpvr.valueRange).build();
 
             if (parameterGroupIds != null) {
                 queueIterator(queue, paraId, parameterGroupIds[i], req);
@@ -33,13 +33,8 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
 
     ParameterArchive parchive;
 
-    List<Partition> partitions;
-
-    // iterates over partitions
-    Iterator<Partition> topIt;
-
-    // iterates over segments in one partition
-    SubIterator subIt;
+    // iterates over the segments from all partitions, possibly reading ahead on a different thread
+    ParchiveIterator<MultiParameterValueSegment> archiveIt;
 
     final boolean ascending, retrieveEngValues, retrieveRawValues, retrieveParameterStatus;
 
@@ -62,8 +57,9 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
         this.retrieveRawValues = req.retrieveRawValues();
         this.retrieveParameterStatus = req.retrieveParameterStatus();
 
-        partitions = parchive.getPartitions(getIntervalStart(start), getIntervalEnd(stop), req.ascending());
-        topIt = partitions.iterator();
+        List<Partition> partitions = parchive.getPartitions(getIntervalStart(start), getIntervalEnd(stop),
+                req.ascending());
+        archiveIt = parchive.readAhead(new PartitionIterator(partitions));
 
         rtfiller = parchive.getRealtimeFiller();
 
@@ -100,10 +96,9 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
             }
         }
 
-        subIt = getPartitionIterator();
-        if (subIt != null) {
-            curValue = subIt.value();
-            subIt.next();
+        if (archiveIt.isValid()) {
+            curValue = archiveIt.value();
+            archiveIt.next();
             return;
         } else {
             curValue = null;
@@ -131,30 +126,12 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
         }
     }
 
-    private SubIterator getPartitionIterator() {
-        while (subIt == null || !subIt.isValid()) {
-            if (topIt.hasNext()) {
-                Partition p = topIt.next();
-                close(subIt);
-                subIt = new SubIterator(p);
-            } else {
-                close(subIt);
-                return null;
-            }
-        }
-        return subIt;
-    }
-
     /**
      * Close the underlying rocks iterator if not already closed
      */
     public void close() {
-        close(subIt);
-    }
-
-    private void close(SubIterator pit) {
-        if (pit != null) {
-            pit.close();
+        if (archiveIt != null) {
+            archiveIt.close();
         }
     }
 
@@ -162,6 +139,85 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
         return parameterGroupId;
     }
 
+    /**
+     * Iterates over the segments of all the partitions, decoding them on demand
+     */
+    class PartitionIterator implements ParchiveIterator<MultiParameterValueSegment> {
+        // iterates over partitions
+        final Iterator<Partition> topIt;
+
+        // iterates over segments in one partition
+        SubIterator subIt;
+
+        MultiParameterValueSegment value;
+        boolean loaded = false;
+
+        PartitionIterator(List<Partition> partitions) {
+            this.topIt = partitions.iterator();
+        }
+
+        @Override
+        public boolean isValid() {
+            load();
+            return value != null;
+        }
+
+        @Override
+        public MultiParameterValueSegment value() {
+            load();
+            if (value == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public void next() {
+            load();
+            loaded = false;
+        }
+
+        private void load() {
+            if (loaded) {
+                return;
+            }
+            SubIterator sit = getPartitionIterator();
+            if (sit != null) {
+                value = sit.value();
+                sit.next();
+            } else {
+                value = null;
+            }
+            loaded = true;
+        }
+
+        private SubIterator getPartitionIterator() {
+            while (subIt == null || !subIt.isValid()) {
+                if (topIt.hasNext()) {
+                    Partition p = topIt.next();
+                    closeSubIterator();
+                    subIt = new SubIterator(p);
+                } else {
+                    closeSubIterator();
+                    return null;
+                }
+            }
+            return subIt;
+        }
+
+        @Override
+        public void close() {
+            closeSubIterator();
+        }
+
+        private void closeSubIterator() {
+            if (subIt != null) {
+                subIt.close();
+                subIt = null;
+            }
+        }
+    }
+
     class SubIterator {
         final Partition partition;
         private SegmentKey currentKey;
@@ -209,7 +265,7 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
             currentKey = this.partition.version == 0 ? SegmentKey.decodeV0(dbIterator.key())
                     : SegmentKey.decode(dbIterator.key());
             try {
-                currentTimeSegment = (SortedTimeSegment) SegmentEncoderDecoder.decode(dbIterator.value(),
+                currentTimeSegment = (SortedTimeSegment) parchive.decodeSegment(dbIterator.key(), dbIterator.value(),
                         currentKey.segmentStart);
             } catch (DecodingException e) {
                 throw new DatabaseCorruptionException("Cannot decode time segment", e);
@@ -261,19 +317,18 @@ public class MultiSegmentIterator implements ParchiveIterator<MultiParameterValu
                         switch (type) {
                         case SegmentKey.TYPE_ENG_VALUE:
                             if (retrieveEngValues || retrieveRawValues) {
-                                engValueSegment = (ValueSegment) SegmentEncoderDecoder.decode(it.value(), segStart);
+                                engValueSegment = (ValueSegment) parchive.decodeSegment(it.key(), it.value(), segStart);
                             }
                             break;
                         case SegmentKey.TYPE_RAW_VALUE:
                             if (retrieveRawValues) {
-                                rawValueSegment = (ValueSegment) SegmentEncoderDecoder.decode(it.value(), segStart);
+                                rawValueSegment = (ValueSegment) parchive.decodeSegment(it.key(), it.value(), segStart);
                             }
                             break;
                         case SegmentKey.TYPE_PARAMETER_STATUS:
                             if (retrieveParameterStatus) {
-                                parameterStatusSegment = (ParameterStatusSegment) SegmentEncoderDecoder.decode(
-                                        it.value(),
-                                        segStart);
+                                parameterStatusSegment = (ParameterStatusSegment) parchive.decodeSegment(it.key(),
+                                        it.value(), segStart);
                             }
                             break;
                         case SegmentKey.TYPE_GAPS:
@@ -3,6 +3,7 @@ package org.yamcs.parameterarchive;
 import java.util.Arrays;
 
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.util.DoubleRange;
 
 public class MultipleParameterRequest {
 
@@ -17,6 +18,7 @@ public class MultipleParameterRequest {
     final int[] parameterGroupIds;
 
     int limit = -1;
+    DoubleRange valueRange;
 
     public MultipleParameterRequest(long start, long stop, ParameterId[] parameterIds, boolean ascending) {
         this(start, stop, parameterIds, null, ascending, true, true, true);
@@ -76,6 +78,19 @@ public class MultipleParameterRequest {
         this.limit = limit;
     }
 
+    public DoubleRange getValueRange() {
+        return valueRange;
+    }
+
+    /**
+     * retrieve only the values of the simple parameters whose numeric engineering value is in the range
+     * <p>
+     * null means no filter
+     */
+    public void setValueRange(DoubleRange valueRange) {
+        this.valueRange = valueRange;
+    }
+
     @Override
     public String toString() {
         return "MultipleParameterRequest [parameterIds=" + Arrays.toString(parameterIds)
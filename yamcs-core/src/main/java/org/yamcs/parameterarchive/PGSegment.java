@@ -73,6 +73,13 @@ public class PGSegment {
      */
     boolean frozen = false;
 
+    // set when no other segment follows this one in the interval
+    boolean lastInInterval = false;
+
+    // set for the segments read from the archive, respectively for the segments continuing them
+    boolean fromArchive = false;
+    boolean continuesArchived = false;
+
     public PGSegment(int parameterGroupId, long interval) {
         this(parameterGroupId, interval, 1000);
     }
@@ -206,6 +213,7 @@ public class PGSegment {
     public void continueSegment(PGSegment prevSegment) {
         assert (prevSegment.isFrozen());
         this.segmentIdxInsideInterval = prevSegment.getSegmentIdxInsideInterval() + prevSegment.size();
+        this.continuesArchived = prevSegment.fromArchive;
         var pvl1 = prevSegment.pvSegments;
         var pvl2 = pvSegments;
         int idx1 = 0; // tracks the previous segment
@@ -302,6 +310,38 @@ public class PGSegment {
         return segmentIdxInsideInterval == 0;
     }
 
+    /**
+     * returns true if it is known that no other segment follows this one in the interval.
+     * <p>
+     * If the segment is also the first one in the interval, its double and long values are written compressed.
+     */
+    public boolean isLastInInterval() {
+        return lastInInterval;
+    }
+
+    /**
+     * Marks this segment as the last one of the interval.
+     * <p>
+     * Should be called only by the fillers which know that no more data is coming for the interval; if more data comes
+     * nevertheless, the realtime filler will rewrite the interval instead of continuing it, see {@link #isMergeable()}.
+     */
+    public void setLastInInterval() {
+        this.lastInInterval = true;
+    }
+
+    /**
+     * returns true if the segments read from the archive can be continued using the RocksDB merge operator
+     */
+    public boolean isMergeable() {
+        for (var pvs : pvSegments) {
+            if (!ParameterArchive.isMergeable(pvs.getConsolidatedEngValueSegment())
+                    || !ParameterArchive.isMergeable(pvs.getConsolidatedRawValueSegment())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * In case the interval is composed of multiple segments, this returns the idx of the segment inside interval.
      * <p>
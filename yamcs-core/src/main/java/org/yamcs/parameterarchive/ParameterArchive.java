@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -25,6 +27,7 @@ import org.yamcs.Spec;
 import org.yamcs.Spec.OptionType;
 import org.yamcs.YConfiguration;
 import org.yamcs.YamcsServer;
+import org.yamcs.parameter.SystemParametersService;
 import org.yamcs.parameterarchive.ParameterGroupIdDb.ParameterGroup;
 import org.yamcs.time.Instant;
 import org.yamcs.time.TimeService;
@@ -49,6 +52,8 @@ import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
 
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TimeBasedPartition;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * 
  * The parameter archive stores data in partitions(optional) -> intervals -> segments.
@@ -92,6 +97,9 @@ public class ParameterArchive extends AbstractYamcsService {
     // from Yamcs 5.9.0, store the parameter archive data into a separate Column Family with this name
     public static final String CF_NAME = "parameter_archive";
 
+    // number of segments read ahead in one go by the retrieval threads
+    static final int READ_AHEAD_BATCH_SIZE = 4;
+
     // how long in the future (compared to mission time) to allow data part of the coverage
     private long coverageEndDelta = 3600_000;
 
@@ -115,6 +123,14 @@ public class ParameterArchive extends AbstractYamcsService {
     int maxSegmentSize;
     boolean sparseGroups;
     double minimumGroupOverlap;
+    boolean rollupsEnabled;
+    boolean zoneMapsEnabled;
+    // null if disabled
+    SegmentCache segmentCache;
+    SegmentCacheSysParamProducer segmentCacheSysParamProducer;
+    // used to read ahead the segments during the retrievals; null if disabled
+    ExecutorService retrievalExecutor;
+    int readAheadBatches;
 
     AtomicLong coverageEnd = new AtomicLong(TimeEncoding.NEGATIVE_INFINITY);
 
@@ -130,6 +146,20 @@ public class ParameterArchive extends AbstractYamcsService {
         spec.addOption("maxSegmentSize", OptionType.INTEGER).withDefault(500);
         spec.addOption("sparseGroups", OptionType.BOOLEAN).withDefault(true);
         spec.addOption("minimumGroupOverlap", OptionType.FLOAT).withDefault(0.5);
+        spec.addOption("rollups", OptionType.BOOLEAN).withDefault(true)
+                .withDescription("maintain pre-aggregated values of the numeric parameters at multiple resolutions, "
+                        + "used to speed up the retrieval of samples over long time ranges");
+        spec.addOption("zoneMaps", OptionType.BOOLEAN).withDefault(true)
+                .withDescription("maintain the minimum and maximum of the numeric values of each interval, "
+                        + "used to skip the data which cannot match the value filter of a retrieval");
+        spec.addOption("segmentCacheSize", OptionType.INTEGER).withDefault(64)
+                .withDescription("maximum size in megabytes of the cache of decoded segments used by the retrievals; "
+                        + "0 disables the cache");
+        spec.addOption("retrievalThreads", OptionType.INTEGER).withDefault(4)
+                .withDescription("number of threads used to read and decode ahead the segments during retrievals; "
+                        + "0 means that the segments are read on the thread performing the retrieval");
+        spec.addOption("readAheadSegments", OptionType.INTEGER).withDefault(16)
+                .withDescription("maximum number of segments read ahead by each iterator of a retrieval");
         spec.addOption("coverageEndDelta", OptionType.INTEGER).withDefault(60)
                 .withDescription("how long in the future in seconds (compared to mission time) "
                         + "to allow data part of the coverage)");
@@ -159,6 +189,21 @@ public class ParameterArchive extends AbstractYamcsService {
 
         sparseGroups = config.getBoolean("sparseGroups");
         minimumGroupOverlap = config.getDouble("minimumGroupOverlap");
+        rollupsEnabled = config.getBoolean("rollups");
+        zoneMapsEnabled = config.getBoolean("zoneMaps");
+        int segmentCacheSize = config.getInt("segmentCacheSize");
+        if (segmentCacheSize > 0) {
+            segmentCache = new SegmentCache(segmentCacheSize * 1024L * 1024);
+        }
+        int retrievalThreads = config.getInt("retrievalThreads");
+        if (retrievalThreads < 0) {
+            throw new ConfigurationException("retrievalThreads cannot be negative");
+        }
+        if (retrievalThreads > 0) {
+            retrievalExecutor = Executors.newFixedThreadPool(retrievalThreads, new ThreadFactoryBuilder()
+                    .setNameFormat("ParameterArchive-Retrieval-" + yamcsInstance + "-%d").setDaemon(true).build());
+        }
+        readAheadBatches = Math.max(1, config.getInt("readAheadSegments") / READ_AHEAD_BATCH_SIZE);
         coverageEndDelta = config.getLong("coverageEndDelta") * 1000;
 
         try {
@@ -299,11 +344,39 @@ public class ParameterArchive extends AbstractYamcsService {
         updateCoverageEnd(maxTime);
     }
 
+    /**
+     * Builds the rollups of an interval already written to the archive without its last segment being marked as such.
+     * <p>
+     * Used by the realtime filler for the intervals flushed before being complete.
+     */
+    public void buildRollups(int pgid, long interval) throws RocksDBException, IOException {
+        if (!rollupsEnabled) {
+            return;
+        }
+        var pgParams = getParameterGroupIdDb().getParameterGroup(pgid);
+        PGSegment pgs = readPGsegment(new ParameterGroup(pgid, pgParams), interval);
+        if (pgs == null) {
+            return;
+        }
+        pgs.setLastInInterval();
+
+        Partition p = createAndGetPartition(interval);
+        YRDB rdb = tablespace.getRdb(p.partitionDir, false);
+        ColumnFamilyHandle cfh = cfh(rdb, p);
+
+        try (WriteBatch writeBatch = new WriteBatch(); WriteOptions wo = new WriteOptions()) {
+            for (var pvs : pgs.pvSegments) {
+                writeRollups(cfh, writeBatch, pgs, null, pvs);
+            }
+            rdb.write(wo, writeBatch);
+        }
+    }
+
     // write data to the archive using the merge operator.
     // first segment has to be written with put, the subsequent ones with merge
     // the merge operator will merge the segments into intervals
     private void writeToBatch(YRDB rdb, ColumnFamilyHandle cfh, WriteBatch writeBatch, PGSegment pgs)
-            throws RocksDBException {
+            throws RocksDBException, IOException {
         log.trace("Writing {}", pgs);
         int pgid = pgs.getParameterGroupId();
 
@@ -321,11 +394,18 @@ public class ParameterArchive extends AbstractYamcsService {
         byte[] timeKey = new SegmentKey(parameterIdDb.timeParameterId, pgs.getParameterGroupId(),
                 pgs.getInterval(), SegmentKey.TYPE_ENG_VALUE).encode();
         byte[] timeValue = SegmentEncoderDecoder.encode(timeSegment);
+        invalidateCache(timeKey);
         if (pgs.isFirstInInterval()) {
             writeBatch.put(cfh, timeKey, timeValue);
         } else {
             writeBatch.merge(cfh, timeKey, timeValue);
         }
+        // the previous segments of the interval, used to build the rollups when the interval is complete
+        PGSegment prevSegments = null;
+        if (rollupsEnabled && pgs.isLastInInterval() && !pgs.isFirstInInterval()) {
+            prevSegments = readPGsegment(new ParameterGroup(pgid, pgParams), pgs.getInterval());
+        }
+
         // and then the consolidated value segments
         for (var pvs : pgs.pvSegments) {
             log.trace("Writing {}", pvs);
@@ -357,33 +437,32 @@ public class ParameterArchive extends AbstractYamcsService {
 
             byte[] engKey = new SegmentKey(parameterId, pgs.getParameterGroupId(), pgs.getInterval(),
                     SegmentKey.TYPE_ENG_VALUE).encode();
-            byte[] engValue = SegmentEncoderDecoder.encode(vs);
-            if (pgs.isFirstInInterval() || pgs.wasPreviousGap(pvs.pid)) {
-                writeBatch.put(cfh, engKey, engValue);
-            } else {
-                writeBatch.merge(cfh, engKey, engValue);
-            }
+            boolean first = pgs.isFirstInInterval() || pgs.wasPreviousGap(pvs.pid);
+            writeValueSegment(cfh, writeBatch, engKey, vs, first, pgs.isLastInInterval());
 
             if (STORE_RAW_VALUES && rvs != null) {
                 byte[] rawKey = new SegmentKey(parameterId, pgid, pgs.getInterval(), SegmentKey.TYPE_RAW_VALUE)
                         .encode();
-                byte[] rawValue = SegmentEncoderDecoder.encode(rvs);
-                if (pgs.isFirstInInterval() || pgs.wasPreviousGap(pvs.pid)) {
-                    writeBatch.put(cfh, rawKey, rawValue);
-                } else {
-                    writeBatch.merge(cfh, rawKey, rawValue);
-                }
+                writeValueSegment(cfh, writeBatch, rawKey, rvs, first, pgs.isLastInInterval());
             }
 
             byte[] pssKey = new SegmentKey(parameterId, pgid, pgs.getInterval(), SegmentKey.TYPE_PARAMETER_STATUS)
                     .encode();
             byte[] pssValue = SegmentEncoderDecoder.encode(pss);
-            if (pgs.isFirstInInterval() || pgs.wasPreviousGap(pvs.pid)) {
+            invalidateCache(pssKey);
+            if (first) {
                 writeBatch.put(cfh, pssKey, pssValue);
             } else {
                 writeBatch.merge(cfh, pssKey, pssValue);
             }
 
+            if (rollupsEnabled) {
+                writeRollups(cfh, writeBatch, pgs, prevSegments, pvs);
+            }
+            if (zoneMapsEnabled) {
+                writeZoneMap(rdb, cfh, writeBatch, pgs, pvs);
+            }
+
             if (gaps != null) {
                 byte[] gapsValue = SegmentEncoderDecoder.encodeGaps(pgs.segmentIdxInsideInterval, gaps);
                 if (pgs.isFirstInInterval()) {
@@ -415,6 +494,13 @@ public class ParameterArchive extends AbstractYamcsService {
 
                     key.type = SegmentKey.TYPE_GAPS;
                     writeBatch.delete(cfh, key.encode());
+
+                    for (int level = 0; level < RollupSegment.numLevels(); level++) {
+                        key.type = SegmentKey.rollupType(level);
+                        writeBatch.delete(cfh, key.encode());
+                    }
+                    key.type = SegmentKey.TYPE_ZONE_MAP;
+                    writeBatch.delete(cfh, key.encode());
                 }
             }
         }
@@ -430,6 +516,113 @@ public class ParameterArchive extends AbstractYamcsService {
         }
     }
 
+    // write a value segment using the merge operator if it is not the first one in the interval
+    // the double and long segments are written compressed only if they are the only segment of the interval, otherwise
+    // they are written raw such that the RocksDB merge operator can append to them the next segments.
+    private void writeValueSegment(ColumnFamilyHandle cfh, WriteBatch writeBatch, byte[] key, BaseSegment vs,
+            boolean first, boolean last) throws RocksDBException {
+        invalidateCache(key);
+        if (first) {
+            byte[] value = last ? SegmentEncoderDecoder.encodeCompressed(vs) : SegmentEncoderDecoder.encode(vs);
+            writeBatch.put(cfh, key, value);
+        } else {
+            writeBatch.merge(cfh, key, SegmentEncoderDecoder.encode(vs));
+        }
+    }
+
+    /**
+     * Returns true if the segment read from the archive may be extended with the RocksDB merge operator.
+     * <p>
+     * The merge operator only knows the raw format of the double and long segments; these are written compressed
+     * when they are the only segment of the interval.
+     */
+    static boolean isMergeable(BaseSegment segment) {
+        if (segment instanceof DoubleValueSegment dvs) {
+            return !dvs.compressed;
+        } else if (segment instanceof LongValueSegment lvs) {
+            return !lvs.compressed;
+        } else {
+            return true;
+        }
+    }
+
+    // the rollup segments cannot be merged by the RocksDB merge operator, they are built once the interval is complete
+    // (i.e. when writing its last segment) from the segment and the previous segments of the interval (if any), and
+    // written with put.
+    // the rollups existing from a previous filling are removed when writing the first segment of the interval or the
+    // segment continuing an interval read from the archive; the retrieval uses the full resolution data for the
+    // incomplete intervals.
+    // if the interval does not contain enough values per bucket, the rollup is not written and the retrieval will use
+    // the full resolution data.
+    private void writeRollups(ColumnFamilyHandle cfh, WriteBatch writeBatch, PGSegment pgs, PGSegment prevSegments,
+            ParameterValueSegment pvs) throws RocksDBException {
+        if (pvs.engValueSegment == null || !RollupSegment.isNumeric(pvs.engValueSegment)) {
+            return;
+        }
+        boolean first = pgs.isFirstInInterval() || pgs.wasPreviousGap(pvs.pid);
+        long interval = pgs.getInterval();
+        ParameterValueSegment prevPvs = (first || prevSegments == null) ? null
+                : prevSegments.getParameterValue(pvs.pid);
+
+        for (int level = 0; level < RollupSegment.numLevels(); level++) {
+            byte[] key = new SegmentKey(pvs.pid, pgs.getParameterGroupId(), interval, SegmentKey.rollupType(level))
+                    .encode();
+            RollupSegment rs = null;
+            if (pgs.isLastInInterval()) {
+                if (prevPvs == null) {
+                    rs = RollupSegment.build(level, pvs, true);
+                } else {
+                    rs = RollupSegment.build(level, prevPvs, false);
+                    RollupSegment next = RollupSegment.build(level, pvs, false);
+                    if (rs == null) {
+                        rs = next;
+                    } else if (next != null) {
+                        rs.merge(next);
+                    }
+                    if (rs != null && !rs.isDense()) {
+                        rs = null;
+                    }
+                }
+            }
+            if (rs == null) {
+                if (first || pgs.continuesArchived || pgs.isLastInInterval()) {
+                    writeBatch.delete(cfh, key);
+                }
+            } else {
+                writeBatch.put(cfh, key, SegmentEncoderDecoder.encode(rs));
+            }
+        }
+    }
+
+    // the zone maps are merged in Java, like the rollups.
+    // if the interval has previous segments without zone map (written before enabling the zone maps), no zone map is
+    // written for the interval; a zone map covering only the new values could cause the retrieval to skip the old ones.
+    private void writeZoneMap(YRDB rdb, ColumnFamilyHandle cfh, WriteBatch writeBatch, PGSegment pgs,
+            ParameterValueSegment pvs) throws RocksDBException {
+        ZoneMapSegment zm = ZoneMapSegment.build(pvs);
+        if (zm == null) {
+            return;
+        }
+        long interval = pgs.getInterval();
+        byte[] key = new SegmentKey(pvs.pid, pgs.getParameterGroupId(), interval, SegmentKey.TYPE_ZONE_MAP)
+                .encode();
+        boolean first = pgs.isFirstInInterval() || pgs.wasPreviousGap(pvs.pid);
+        if (!first) {
+            byte[] existing = rdb.get(cfh, key);
+            if (existing == null) {
+                return;
+            }
+            try {
+                ZoneMapSegment zm0 = (ZoneMapSegment) SegmentEncoderDecoder.decode(existing, interval);
+                zm0.merge(zm);
+                zm = zm0;
+            } catch (DecodingException e) {
+                throw new DatabaseCorruptionException(e);
+            }
+        }
+        writeBatch.put(cfh, key, SegmentEncoderDecoder.encode(zm));
+    }
+
     // writes to the archive without using the rocksdb merge operator (which merges segments together into intervals).
     // The segment start (instead of the interval start) is part of the key which means that we need to remove old
     // data as it may have a different segment start resulting into a different key.
@@ -607,6 +800,13 @@ public class ParameterArchive extends AbstractYamcsService {
             realtimeFiller = new RealtimeArchiveFiller(this, realtimeFillerConfig);
             realtimeFiller.start();
         }
+        if (segmentCache != null) {
+            SystemParametersService sps = SystemParametersService.getInstance(yamcsInstance);
+            if (sps != null) {
+                segmentCacheSysParamProducer = new SegmentCacheSysParamProducer(segmentCache, sps);
+                sps.registerProducer(segmentCacheSysParamProducer);
+            }
+        }
         notifyStarted();
     }
 
@@ -620,6 +820,15 @@ public class ParameterArchive extends AbstractYamcsService {
             if (realtimeFiller != null) {
                 realtimeFiller.shutDown();
             }
+            if (retrievalExecutor != null) {
+                retrievalExecutor.shutdown();
+            }
+            if (segmentCacheSysParamProducer != null) {
+                SystemParametersService sps = SystemParametersService.getInstance(yamcsInstance);
+                if (sps != null) {
+                    sps.unregisterProducer(segmentCacheSysParamProducer);
+                }
+            }
         } catch (Exception e) {
             log.error("Error stopping realtime filler", e);
             notifyFailed(e);
@@ -706,6 +915,9 @@ public class ParameterArchive extends AbstractYamcsService {
             }
         }
         partitions = new PartitionedTimeInterval<>();
+        if (segmentCache != null) {
+            segmentCache.invalidateAll();
+        }
 
         log.debug("removing metadata records related to main parameter archive data");
         // data has been removed in the partition loop above
@@ -767,12 +979,50 @@ public class ParameterArchive extends AbstractYamcsService {
             return null;
         }
         try {
-            return (SortedTimeSegment) SegmentEncoderDecoder.decode(tv, segmentStart);
+            return (SortedTimeSegment) decodeSegment(timeKey, tv, segmentStart);
         } catch (DecodingException e) {
             throw new DatabaseCorruptionException(e);
         }
     }
 
+    /**
+     * Decodes a segment read from the database, using the segment cache if enabled.
+     * <p>
+     * The segments returned may be shared between retrievals and must not be modified.
+     */
+    BaseSegment decodeSegment(byte[] key, byte[] value, long segmentStart) throws DecodingException {
+        if (segmentCache == null) {
+            return SegmentEncoderDecoder.decode(value, segmentStart);
+        } else {
+            return segmentCache.get(key, value, segmentStart);
+        }
+    }
+
+    /**
+     * If enabled, returns an iterator reading ahead the values of the given iterator on the retrieval executor.
+     * Otherwise returns the iterator itself.
+     */
+    <T> ParchiveIterator<T> readAhead(ParchiveIterator<T> it) {
+        if (retrievalExecutor == null) {
+            return it;
+        } else {
+            return new ReadAheadIterator<>(it, retrievalExecutor, READ_AHEAD_BATCH_SIZE, readAheadBatches);
+        }
+    }
+
+    private void invalidateCache(byte[] key) {
+        if (segmentCache != null) {
+            segmentCache.invalidate(key);
+        }
+    }
+
+    /**
+     * @return the cache of decoded segments or null if disabled
+     */
+    public SegmentCache getSegmentCache() {
+        return segmentCache;
+    }
+
     /**
      * Used by the realtime filler to read a PGSegment for an interval in order to add data to it
      * <p>
@@ -843,7 +1093,9 @@ public class ParameterArchive extends AbstractYamcsService {
                 pvsList.add(pvs);
 
             }
-            return new PGSegment(pg.id, timeSegment, pvsList);
+            PGSegment pgs = new PGSegment(pg.id, timeSegment, pvsList);
+            pgs.fromArchive = true;
+            return pgs;
         } catch (DecodingException e) {
             throw new DatabaseCorruptionException(e);
         }
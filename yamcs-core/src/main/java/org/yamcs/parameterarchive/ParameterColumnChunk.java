@@ -0,0 +1,120 @@
+package org.yamcs.parameterarchive;
+
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.yarch.protobuf.Db.ParameterStatus;
+
+/**
+ * Values of multiple parameters from the same parameter group, sharing the same timestamps.
+ * <p>
+ * A chunk corresponds to (part of) one segment of the Parameter Archive; there is one column for each parameter
+ * requested from the group, containing the values in the order of the timestamps. Because of the sparse groups, a
+ * parameter may not have a value for each timestamp; in this case {@link #getRows(int)} gives for each value its
+ * position in the {@link #getTimestamps()} array.
+ * <p>
+ * The chunks are produced by the {@link ColumnarParameterRetrieval}.
+ */
+public class ParameterColumnChunk {
+    final int parameterGroupId;
+    final long start;
+    final long[] timestamps;
+    final ParameterId[] pids;
+    // one entry for each pid, null if the parameter has no value in this chunk
+    final ParameterValueArray[] columns;
+    // one entry for each pid, null if the parameter has values for all timestamps
+    final int[][] rows;
+
+    ParameterColumnChunk(int parameterGroupId, long start, long[] timestamps, ParameterId[] pids,
+            ParameterValueArray[] columns, int[][] rows) {
+        this.parameterGroupId = parameterGroupId;
+        this.start = start;
+        this.timestamps = timestamps;
+        this.pids = pids;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public int getParameterGroupId() {
+        return parameterGroupId;
+    }
+
+    /**
+     * For an ascending retrieval, all the timestamps of this chunk and of the chunks sent after this one are greater or
+     * equal than this value.
+     * <p>
+     * For a descending retrieval, all the timestamps of this chunk and of the chunks sent after this one are smaller
+     * or equal than this value.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the timestamps, sorted in the order of the retrieval
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public int numColumns() {
+        return pids.length;
+    }
+
+    public ParameterId getParameterId(int col) {
+        return pids[col];
+    }
+
+    /**
+     * Returns the values of the parameter from the column col together with their timestamps or null if the parameter
+     * has no value in this chunk.
+     */
+    public ParameterValueArray getColumn(int col) {
+        return columns[col];
+    }
+
+    /**
+     * @return the engineering values of the parameter from the column col or null if there is no value or the
+     *         engineering values have not been retrieved.
+     */
+    public ValueArray getEngValues(int col) {
+        var pva = columns[col];
+        return pva == null ? null : pva.engValues;
+    }
+
+    /**
+     * @return the raw values of the parameter from the column col or null if there is no value or the raw values have
+     *         not been retrieved.
+     */
+    public ValueArray getRawValues(int col) {
+        var pva = columns[col];
+        return pva == null ? null : pva.rawValues;
+    }
+
+    /**
+     * @return the statuses of the parameter from the column col or null if there is no value or the statuses have not
+     *         been retrieved.
+     */
+    public ParameterStatus[] getStatuses(int col) {
+        var pva = columns[col];
+        return pva == null ? null : pva.paramStatus;
+    }
+
+    /**
+     * Returns for each value of the column, its position in the timestamps array.
+     * <p>
+     * Returns null if the column contains a value for each timestamp (i.e. the value on position i corresponds to the
+     * timestamp on position i) or if the column has no values at all.
+     */
+    public int[] getRows(int col) {
+        return rows[col];
+    }
+
+    @Override
+    public String toString() {
+        return "ParameterColumnChunk[pgid: " + parameterGroupId + ", numColumns: " + pids.length + ", size: "
+                + timestamps.length + "]";
+    }
+}
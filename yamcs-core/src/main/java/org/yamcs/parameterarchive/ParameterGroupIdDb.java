@@ -1,11 +1,11 @@
 package org.yamcs.parameterarchive;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -63,7 +63,8 @@ public class ParameterGroupIdDb {
     // the group 0 was not used
     private List<ParameterGroup> groups = new ArrayList<>();
 
-    Map<IntArray, ParameterGroup> pg2groupCache = new HashMap<>();
+    // read without lock on the ingest path, modified under the write lock
+    Map<IntArray, ParameterGroup> pg2groupCache = new ConcurrentHashMap<>();
 
     private ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -151,12 +152,19 @@ public class ParameterGroupIdDb {
      * <li>The existing group misses some entries from the input array. In this case the group is extended with the
      * missing entries, then it is returned.</li>
      * </ul>
-     * 
+     * <p>
+     * The input array should not be modified after the call.
+     * <p>
+     * The lookup of an input array seen before does not take any lock.
      */
     public ParameterGroup getGroup(IntArray input) throws RocksDBException {
+        ParameterGroup pg = pg2groupCache.get(input);
+        if (pg != null) {
+            return pg;
+        }
         lock.writeLock().lock();
         try {
-            ParameterGroup pg = pg2groupCache.get(input);
+            pg = pg2groupCache.get(input);
             if (pg == null) {
                 if (sparseGroups) {
                     pg = createOrModify(input);
@@ -276,8 +284,8 @@ public class ParameterGroupIdDb {
     static public class ParameterGroup {
         /** parmeter group id */
         final int id;
-        /** list of parameter ids */
-        IntArray pids;
+        /** list of parameter ids; replaced (never modified) when the group is extended */
+        volatile IntArray pids;
 
         public ParameterGroup(int pgId, IntArray pids) {
             this.id = pgId;
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.rocksdb.RocksDBException;
@@ -25,30 +26,31 @@ import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord;
  * <p>
  * The aggregates and arrays are also allocated parameter_ids (i.e. tbsIndex) but they do not contain any data, just a
  * list of members parameter ids stored in the tablespace metadata.
- * 
+ * <p>
+ * The lookups are lock free, such that the archive filler threads resolving the parameter ids of each incoming value do
+ * not contend with each other. Only the creation of new ids is synchronized.
  * 
  * Backed by RocksDB
  *
  */
 public class ParameterIdDb {
-    final static float LOAD_FACTOR = 0.7f;
     final static int INITIAL_SIZE = 512;
 
     final Tablespace tablespace;
     final String yamcsInstance;
 
-    private int size = 0;
-    private Entry[] entries;
+    // the entries in the order of their creation; modified only under the object lock
+    // the size is written after the entry has been added, the readers read the size before the array
+    private volatile int size = 0;
+    private volatile Entry[] entries;
 
-    // hash tables for pid and fqn; the values are indexes in the entries array
-    private int[] pidHtable;
-    private int[] fqnHtable;
-    private int threshold;
+    // fqn -> all the entries with that fqn, copy on write arrays (most often with one element)
+    private final ConcurrentHashMap<String, Entry[]> fqnMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Entry> pidMap = new ConcurrentHashMap<>();
 
     // used as parameterId (tbsIndex) for the time records
     int timeParameterId;
     public static final String TIME_PARAMETER_FQN = "__time_parameter_";
-    static final int UNSET = -1;
 
     private ParameterGroupIdDb pgidMap;
 
@@ -58,12 +60,6 @@ public class ParameterIdDb {
         this.yamcsInstance = yamcsInstance;
 
         entries = new Entry[INITIAL_SIZE];
-        pidHtable = new int[INITIAL_SIZE];
-        fqnHtable = new int[INITIAL_SIZE];
-        Arrays.fill(pidHtable, UNSET);
-        Arrays.fill(fqnHtable, UNSET);
-        size = 0;
-        threshold = (int) (LOAD_FACTOR * INITIAL_SIZE);
 
         readDb();
         pgidMap = new ParameterGroupIdDb(yamcsInstance, tablespace, sparseGroups, minGroupOverlap);
@@ -82,18 +78,27 @@ public class ParameterIdDb {
      * @throws ParameterArchiveException
      *             if there was an error creating and storing a new parameter_id
      */
-    public synchronized int createAndGet(String paramFqn, Value.Type engType, Value.Type rawType)
+    public int createAndGet(String paramFqn, Value.Type engType, Value.Type rawType)
             throws ParameterArchiveException {
         int type = numericType(engType, rawType);
 
+        Entry e = getCachedEntry(paramFqn, type);
+        if (e == null) {
+            e = create(paramFqn, type);
+        }
+
+        return e.pid;
+    }
+
+    private synchronized Entry create(String paramFqn, int type) {
+        // check again, it may have been created by another thread in the meanwhile
         Entry e = getCachedEntry(paramFqn, type);
         if (e == null) {
             int pid = addParameterToRocksdb(paramFqn, type);
             e = new Entry(pid, type, paramFqn);
             addEntry(e);
         }
-
-        return e.pid;
+        return e;
     }
 
     public ParameterGroupIdDb getParameterGroupIdDb() {
@@ -101,87 +106,38 @@ public class ParameterIdDb {
     }
 
     private Entry getCachedEntry(String paramFqn, int type) {
-        int fhash = paramFqn.hashCode() & (fqnHtable.length - 1);
-        int idx = fqnHtable[fhash];
-        if (idx == UNSET) {
-            return null;
-        } else {
-            Entry e = entries[idx];
-            while (e != null && !e.equals(paramFqn, type)) {
-                e = e.nextFqn;
+        Entry[] l = fqnMap.get(paramFqn);
+        if (l != null) {
+            for (Entry e : l) {
+                if (e.type == type) {
+                    return e;
+                }
             }
-            return e;
         }
+        return null;
     }
 
+    // called under the object lock
     private void addEntry(Entry e) {
         if (e == null) {
             throw new NullPointerException();
         }
-        if (size > threshold) {
-            resizeHashTables();
-        }
-        if (size == entries.length) {
-            resizeEntries();
+        int idx = size;
+        if (idx == entries.length) {
+            entries = Arrays.copyOf(entries, 2 * entries.length);
         }
-        int idx = size++;
         entries[idx] = e;
-        addHash(idx, e);
-    }
-
-    private void addHash(int idx, Entry e) {
-        int fhash = e.fqn.hashCode() & (fqnHtable.length - 1);
-        int phash = e.pid & (pidHtable.length - 1);
-
-        int fidx = fqnHtable[fhash];
-        int pidx = pidHtable[phash];
-        Entry e1, e2;
 
-        if (fidx == UNSET) {
-            fqnHtable[fhash] = idx;
+        pidMap.put(e.pid, e);
+        Entry[] l = fqnMap.get(e.fqn);
+        if (l == null) {
+            l = new Entry[] { e };
         } else {
-            e1 = entries[fidx];
-            while ((e2 = e1.nextFqn) != null) {
-                e1 = e2;
-            }
-            e1.nextFqn = e;
-        }
-
-        if (pidx == UNSET) {
-            pidHtable[phash] = idx;
-        } else {
-            e1 = entries[pidx];
-            while ((e2 = e1.nextPid) != null) {
-                e1 = e2;
-            }
-            e1.nextPid = e;
+            l = Arrays.copyOf(l, l.length + 1);
+            l[l.length - 1] = e;
         }
-    }
-
-    private void resizeHashTables() {
-        int n = fqnHtable.length;
-        if (n == Integer.MAX_VALUE) {
-            throw new ParameterArchiveException("too many parameters");
-        }
-        n *= 2;
-        fqnHtable = new int[n];
-        pidHtable = new int[n];
-        threshold = (int) (LOAD_FACTOR * n);
-
-        // rehash all entries
-        Arrays.fill(fqnHtable, UNSET);
-        Arrays.fill(pidHtable, UNSET);
-
-        for (int i = 0; i < size; i++) {
-            entries[i].nextFqn = entries[i].nextPid = null;
-        }
-        for (int i = 0; i < size; i++) {
-            addHash(i, entries[i]);
-        }
-    }
-
-    private void resizeEntries() {
-        entries = Arrays.copyOf(entries, 2 * entries.length);
+        fqnMap.put(e.fqn, l);
+        size = idx + 1;
     }
 
     /**
@@ -283,7 +239,10 @@ public class ParameterIdDb {
     }
 
     public void print(PrintStream out) {
-        for (Entry me : entries) {
+        int n = size;
+        Entry[] a = entries;
+        for (int i = 0; i < n; i++) {
+            Entry me = a[i];
             String pname = me.fqn;
             out.print(pname + ": ");
             out.println("\t(" + getEngType(me.type) + ", " + getRawType(me.type) + ") -> " + me.pid);
@@ -307,32 +266,12 @@ public class ParameterIdDb {
      *            - fully qualified name of the parameter for which the ids are returned
      * @return all parameters ids for a given qualified name or null if no parameter id exists for that fqn
      */
-    public synchronized ParameterId[] get(String fqn) {
-        int fhash = fqn.hashCode() & (fqnHtable.length - 1);
-        int idx = fqnHtable[fhash];
-        if (idx == UNSET) {
+    public ParameterId[] get(String fqn) {
+        Entry[] l = fqnMap.get(fqn);
+        if (l == null) {
             return null;
         }
-        Entry e = entries[idx];
-        int n = 0;
-        Entry e1 = e;
-        while (e1 != null) {
-            if (fqn.equals(e1.fqn)) {
-                n++;
-            }
-            e1 = e1.nextFqn;
-        }
-
-        ParameterId[] r = new ParameterId[n];
-        e1 = e;
-        int i = 0;
-        while (e1 != null && i < n) {
-            if (fqn.equals(e1.fqn)) {
-                r[i++] = e1;
-            }
-            e1 = e1.nextFqn;
-        }
-        return r;
+        return Arrays.copyOf(l, l.length, ParameterId[].class);
     }
 
     /**
@@ -356,17 +295,7 @@ public class ParameterIdDb {
     }
 
     public Entry getCachedEntryById(int pid) {
-        int phash = pid & (pidHtable.length - 1);
-        int idx = pidHtable[phash];
-        if (idx == UNSET) {
-            return null;
-        } else {
-            Entry e = entries[idx];
-            while (e != null && e.pid != pid) {
-                e = e.nextPid;
-            }
-            return e;
-        }
+        return pidMap.get(pid);
     }
 
     /**
@@ -377,8 +306,10 @@ public class ParameterIdDb {
      * @param consumer
      */
     public void iterate(BiFunction<String, ParameterId, Boolean> consumer) {
-        for (int i = 0; i < size; i++) {
-            Entry e = entries[i];
+        int n = size;
+        Entry[] a = entries;
+        for (int i = 0; i < n; i++) {
+            Entry e = a[i];
             if (!consumer.apply(e.fqn, e)) {
                 return;
             }
@@ -416,15 +347,10 @@ public class ParameterIdDb {
         int pid = -1;
         int numericType = numericType(engType, rawType);
 
-        int fhash = paramFqn.hashCode() & (fqnHtable.length - 1);
-        int idx = fqnHtable[fhash];
-        if (idx == UNSET) {
-            pid = addAggArray(paramFqn, numericType, components);
-            addEntry(new AggArrayEntry(pid, paramFqn, numericType, components));
-        } else {
-            Entry e = entries[idx];
-            while (e != null) {
-                if (paramFqn.equals(e.fqn) && (e instanceof AggArrayEntry agge)) {
+        Entry[] l = fqnMap.get(paramFqn);
+        if (l != null) {
+            for (Entry e : l) {
+                if (e instanceof AggArrayEntry agge) {
                     int c = IntArray.compare(agge.components, components);
                     if (c != -1) {
                         pid = e.pid;
@@ -435,7 +361,6 @@ public class ParameterIdDb {
                         break;
                     }
                 }
-                e = e.nextFqn;
             }
         }
         if (pid == -1) {
@@ -509,12 +434,12 @@ public class ParameterIdDb {
      * returns an array of all parameter ids (including the time pseudo-parameter id)
      */
     public IntArray getAllPids() {
-        IntArray r = new IntArray(size + 1);
+        int n = size;
+        Entry[] a = entries;
+        IntArray r = new IntArray(n + 1);
         r.add(timeParameterId);
-        for (var e : entries) {
-            if (e != null) {
-                r.add(e.pid);
-            }
+        for (int i = 0; i < n; i++) {
+            r.add(a[i].pid);
         }
         return r;
     }
@@ -524,9 +449,6 @@ public class ParameterIdDb {
         final int type;
         final String fqn;
 
-        Entry nextPid;
-        Entry nextFqn;
-
         public Entry(int pid, int numericType, String fqn) {
             this.pid = pid;
             this.type = numericType;
@@ -580,8 +502,8 @@ public class ParameterIdDb {
     }
 
     static class AggArrayEntry extends Entry {
-
-        IntArray components;
+        // replaced (never modified) when the aggregate or array gets new members
+        volatile IntArray components;
 
         public AggArrayEntry(int pid, String fqn, int numericType, IntArray components) {
             super(pid, numericType, fqn);
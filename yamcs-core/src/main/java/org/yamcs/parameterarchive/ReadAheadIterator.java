@@ -0,0 +1,203 @@
+package org.yamcs.parameterarchive;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Wraps a {@link ParchiveIterator} and reads its values ahead on an executor, such that the reading and decoding of
+ * the next segments from the database overlaps with the processing of the current ones by the caller.
+ * <p>
+ * The values are read in batches and at most {@code maxBatches} batches are kept in memory. The tasks submitted to
+ * the executor never block: when the batch queue is full the task finishes and a new one is submitted when the caller
+ * consumes a batch. This way any number of iterators (e.g. one for each parameter group in a multi-parameter
+ * retrieval) can share an executor with a small number of threads, each progressing independently.
+ * <p>
+ * The wrapped iterator is accessed from one thread at a time and is closed when it is exhausted, when it throws an
+ * exception or when this iterator is closed. An exception thrown by the wrapped iterator is rethrown to the caller
+ * after the values read before it.
+ * <p>
+ * Like the other parameter archive iterators, this class is not thread safe: it has to be used from one thread at a
+ * time.
+ */
+public class ReadAheadIterator<T> implements ParchiveIterator<T> {
+    final ParchiveIterator<T> source;
+    final Executor executor;
+    final int batchSize;
+    final int maxBatches;
+
+    // these are accessed under the lock of this object
+    private final ArrayDeque<List<T>> batches = new ArrayDeque<>();
+    // a fill task is submitted or running
+    private boolean running;
+    // no more data will come from the source
+    private boolean sourceDone;
+    private boolean sourceClosed;
+    private boolean closed;
+    private RuntimeException error;
+
+    // these are accessed only by the caller
+    private List<T> curBatch;
+    private int curIdx;
+
+    public ReadAheadIterator(ParchiveIterator<T> source, Executor executor, int batchSize, int maxBatches) {
+        if (batchSize < 1 || maxBatches < 1) {
+            throw new IllegalArgumentException("batchSize and maxBatches have to be at least 1");
+        }
+        this.source = source;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        synchronized (this) {
+            schedule();
+        }
+    }
+
+    @Override
+    public boolean isValid() {
+        return loadBatch();
+    }
+
+    @Override
+    public T value() {
+        if (!loadBatch()) {
+            throw new NoSuchElementException();
+        }
+        return curBatch.get(curIdx);
+    }
+
+    @Override
+    public void next() {
+        if (loadBatch()) {
+            curIdx++;
+        }
+    }
+
+    /**
+     * Makes sure that the current batch has a value, waiting for the next batch if necessary.
+     *
+     * @return false if there is no more data
+     */
+    private boolean loadBatch() {
+        if (curBatch != null && curIdx < curBatch.size()) {
+            return true;
+        }
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            while (batches.isEmpty() && !sourceDone) {
+                if (!running) {
+                    schedule();
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ParameterArchiveException("Interrupted while waiting for the parameter archive data", e);
+                }
+            }
+            curBatch = batches.poll();
+            curIdx = 0;
+            if (!running && !sourceDone) {
+                schedule();
+            }
+            if (curBatch == null && error != null) {
+                RuntimeException e = error;
+                error = null;
+                throw e;
+            }
+        }
+        return curBatch != null;
+    }
+
+    // called under the lock
+    private void schedule() {
+        running = true;
+        try {
+            executor.execute(this::fill);
+        } catch (RejectedExecutionException e) {
+            running = false;
+            finish(new ParameterArchiveException("Cannot read ahead the parameter archive data", e));
+        }
+    }
+
+    private void fill() {
+        while (true) {
+            synchronized (this) {
+                if (closed || batches.size() >= maxBatches) {
+                    running = false;
+                    if (closed) {
+                        closeSource();
+                    }
+                    return;
+                }
+            }
+            List<T> batch = new ArrayList<>(batchSize);
+            boolean done;
+            try {
+                while (batch.size() < batchSize && source.isValid()) {
+                    batch.add(source.value());
+                    source.next();
+                }
+                done = !source.isValid();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    addBatch(batch);
+                    running = false;
+                    finish(e);
+                }
+                return;
+            }
+            synchronized (this) {
+                addBatch(batch);
+                if (done) {
+                    running = false;
+                    finish(null);
+                    return;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // called under the lock
+    private void addBatch(List<T> batch) {
+        if (!batch.isEmpty() && !closed) {
+            batches.add(batch);
+        }
+    }
+
+    // called under the lock
+    private void finish(RuntimeException e) {
+        error = e;
+        sourceDone = true;
+        closeSource();
+        notifyAll();
+    }
+
+    // called under the lock
+    private void closeSource() {
+        if (!sourceClosed) {
+            sourceClosed = true;
+            source.close();
+        }
+    }
+
+    /**
+     * Stops the read ahead and closes the wrapped iterator. If a read ahead task is running, the wrapped iterator is
+     * closed at the end of the task.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        batches.clear();
+        curBatch = null;
+        if (!running) {
+            closeSource();
+        }
+    }
+}
@@ -3,12 +3,15 @@ package org.yamcs.parameterarchive;
 import static org.yamcs.parameterarchive.ParameterArchive.getInterval;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
@@ -23,8 +26,12 @@ import org.yamcs.YConfiguration;
 import org.yamcs.YamcsServer;
 import org.yamcs.logging.Log;
 import org.yamcs.Spec.OptionType;
+import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameterarchive.ParameterGroupIdDb.ParameterGroup;
+import org.yamcs.parameterarchive.RealtimeArchiveFiller.DataQueue.AddResult;
+import org.yamcs.utils.DecodingException;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.YarchDatabase;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
@@ -43,7 +50,10 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  * 
  * <p>
  * If the group reaches its max size, it is archived and a new one opened.
- * 
+ * <p>
+ * If the heap memory is low or if the queue of a group is full because the archive writing does not keep up, the data
+ * is stored in a {@link SpillBuffer} (off-heap and then in a file) and replayed into the queues when the memory has
+ * been released and the queues have room again. If spilling is disabled, the data is dropped in these situations.
  */
 public class RealtimeArchiveFiller extends AbstractArchiveFiller {
     String processorName = "realtime";
@@ -65,6 +75,20 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
 
     int numThreads;
 
+    // maximum number of spilled records replayed at once
+    static final int MAX_REPLAY_RECORDS = 1000;
+
+    // null if spilling is disabled; while spilling is active, the operations on the queues are performed with the
+    // spill lock held
+    SpillBuffer spill;
+    // true when the data is spilled because the memory is low
+    boolean spillingForMemory;
+    // true if there is spilled data or the data is spilled because the memory is low; while false, the data is added
+    // to the queues by the delivering thread without taking the spill lock
+    volatile boolean spillActive;
+    // number of records dropped since the spill buffer became full
+    long numDropped;
+
     public RealtimeArchiveFiller(ParameterArchive parameterArchive, YConfiguration config) {
         super(parameterArchive);
         this.yamcsInstance = parameterArchive.getYamcsInstance();
@@ -78,6 +102,15 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
             throw new ConfigurationException("flushInterval (" + flushInterval
                     + " seconds) cannot be smaller than the sorting threshold (" + sortingThreshold + " milliseconds)");
         }
+        long spillBufferSize = config.getInt("spillBufferSize", 16) * 1024L * 1024;
+        long maxSpillFileSize = config.getLong("maxSpillFileSize", 1024) * 1024 * 1024;
+        if (spillBufferSize > Integer.MAX_VALUE) {
+            throw new ConfigurationException("spillBufferSize cannot be larger than 2047 MB");
+        }
+        if (spillBufferSize > 0 || maxSpillFileSize > 0) {
+            String spillDir = config.getString("spillDirectory", null);
+            spill = new SpillBuffer((int) spillBufferSize, maxSpillFileSize, () -> getSpillDirectory(spillDir));
+        }
     }
 
     static Spec getSpec() {
@@ -96,9 +129,26 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                 "If no data is received for a parameter group in this number of seconds, then flush the data to disk. "
                         + "If data is received, the data will be flushed after maxSegmentSize data points are received")
                 .withDefault(60);
+        spec.addOption("spillBufferSize", OptionType.INTEGER).withDescription(
+                "Size in MB of the off-heap buffer used to store the data which cannot be kept in memory "
+                        + "because the heap is low or because the archive writing does not keep up.")
+                .withDefault(16);
+        spec.addOption("maxSpillFileSize", OptionType.INTEGER).withDescription(
+                "Maximum size in MB of the file used to store the data when the spill buffer is full. "
+                        + "If both the spill buffer size and the spill file size are 0, the data is dropped.")
+                .withDefault(1024);
+        spec.addOption("spillDirectory", OptionType.STRING).withDescription(
+                "Directory where the spill file is created. By default the instance data directory is used.");
         return spec;
     }
 
+    private Path getSpillDirectory(String spillDir) {
+        if (spillDir != null) {
+            return Path.of(spillDir);
+        }
+        return Path.of(YarchDatabase.getInstance(yamcsInstance).getRoot());
+    }
+
     /**
      * Gets the Yamcs server reference. Code in this class should call this method rather than
      * <code>YamcsServer.getServer()</code> so the server can be mocked for unit testing.
@@ -138,6 +188,9 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
         var timer = getYamcsServer().getThreadPoolExecutor();
         if (timer != null) {
             timer.scheduleAtFixedRate(this::flushPeriodically, flushInterval, flushInterval, TimeUnit.SECONDS);
+            if (spill != null) {
+                timer.scheduleAtFixedRate(this::replayPeriodically, 1, 1, TimeUnit.SECONDS);
+            }
         }
     }
 
@@ -158,6 +211,11 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
     public void shutDown() throws InterruptedException {
         realtimeProcessor.getParameterRequestManager().unsubscribeAll(subscriptionId);
         log.info("Shutting down, writing all pending segments");
+        if (spill != null) {
+            synchronized (spill) {
+                replayOnShutdown();
+            }
+        }
         for (DataQueue queue : queues.values()) {
             queue.flush();
         }
@@ -167,19 +225,188 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
         }
     }
 
+    @Override
+    public void updateItems(int subscriptionId, List<ParameterValue> items) {
+        if (spill == null) {
+            super.updateItems(subscriptionId, items);
+            return;
+        }
+        if (!spillActive && !isMemoryLow()) {
+            processParameters(items);
+            return;
+        }
+        synchronized (spill) {
+            checkMemory();
+            if (!spillingForMemory) {
+                replay(MAX_REPLAY_RECORDS);
+            }
+            processParameters(items);
+        }
+    }
+
     @Override
     protected void processParameters(long t, BasicParameterList pvList) {
+        if (spill == null) {
+            if (!addToQueue(t, pvList)) {
+                log.warn("Realtime parameter archive queue full, dropping data. Consider increasing the numThreads "
+                        + "(if CPUs are available) or using a back filler");
+            }
+            return;
+        }
+        if (!spillActive && addToQueue(t, pvList)) {
+            return;
+        }
+        synchronized (spill) {
+            // while there is spilled data, the new data is spilled too, in order to keep it sorted
+            if (spillingForMemory || !spill.isEmpty() || !addToQueue(t, pvList)) {
+                spill(t, pvList);
+            }
+        }
+    }
+
+    // called with the spill lock held after each change of the spill state
+    private void updateSpillActive() {
+        spillActive = spillingForMemory || !spill.isEmpty();
+    }
+
+    // checks the heap memory, called with the spill lock held
+    private void checkMemory() {
+        boolean memoryLow = isMemoryLow();
+        if (memoryLow && !spillingForMemory) {
+            log.warn("Heap memory is low, spilling the realtime parameter archive data and flushing the segments. "
+                    + "Consider decreasing the maxSegmentSize (current value is {}).", maxSegmentSize);
+            for (DataQueue queue : queues.values()) {
+                synchronized (queue) {
+                    queue.flush();
+                }
+            }
+        }
+        spillingForMemory = memoryLow;
+        updateSpillActive();
+    }
+
+    // called with the spill lock held
+    private void spill(long t, BasicParameterList pvList) {
+        if (spill.isEmpty()) {
+            log.info("Spilling the realtime parameter archive data {}",
+                    spillingForMemory ? "due to low memory" : "because the archive writing does not keep up");
+        }
+        boolean added;
+        try {
+            added = spill.add(t, pvList);
+        } catch (IOException e) {
+            log.error("Error writing to the spill file", e);
+            added = false;
+        }
+        if (added) {
+            numDropped = 0;
+        } else if (numDropped++ == 0) {
+            log.error("The spill buffer of the realtime parameter archive filler is full ({} records, {} bytes), "
+                    + "dropping data", spill.numRecords(), spill.size());
+        }
+        updateSpillActive();
+    }
+
+    /**
+     * Moves at most maxRecords records from the spill buffer into the queues.
+     * <p>
+     * Returns false if the replay has stopped because a queue is full. Called with the spill lock held.
+     */
+    private boolean replay(int maxRecords) {
+        try {
+            return doReplay(maxRecords);
+        } finally {
+            updateSpillActive();
+        }
+    }
+
+    private boolean doReplay(int maxRecords) {
+        for (int i = 0; i < maxRecords && !spill.isEmpty(); i++) {
+            try {
+                var r = spill.peek();
+                if (!addToQueue(r.t(), r.pvList())) {
+                    return false;
+                }
+                spill.remove();
+            } catch (IOException | DecodingException e) {
+                log.error("Error reading the spilled data, discarding {} records", spill.numRecords(), e);
+                closeSpill();
+                return true;
+            }
+            if (spill.isEmpty()) {
+                log.info("All the spilled data has been replayed");
+            }
+        }
+        return true;
+    }
+
+    private void replayPeriodically() {
+        if (!spillActive) {
+            return;
+        }
+        synchronized (spill) {
+            if (spill.isEmpty()) {
+                return;
+            }
+            checkMemory();
+            if (!spillingForMemory) {
+                replay(10 * MAX_REPLAY_RECORDS);
+            }
+        }
+    }
+
+    // replays all the spilled data, waiting for the segments to be written when the queues are full
+    private void replayOnShutdown() {
+        if (spill.isEmpty()) {
+            return;
+        }
+        log.info("Writing {} spilled records to the archive", spill.numRecords());
+        spillingForMemory = false;
+        while (!spill.isEmpty()) {
+            if (!replay(Integer.MAX_VALUE)) {
+                for (DataQueue queue : queues.values()) {
+                    synchronized (queue) {
+                        queue.flush();
+                    }
+                    queue.awaitWrites();
+                }
+                if (!replay(1)) {
+                    log.error("Cannot write the spilled data, discarding {} records", spill.numRecords());
+                    break;
+                }
+            }
+        }
+        closeSpill();
+    }
+
+    private void closeSpill() {
+        try {
+            spill.close();
+        } catch (IOException e) {
+            log.warn("Error closing the spill file", e);
+        }
+        updateSpillActive();
+    }
+
+    /**
+     * Adds the record to the queue of its parameter group.
+     * <p>
+     * Returns false if the queue is full; the record can be added later. Returns true if the record has been added or
+     * dropped (because it is too old or because the interval is locked by a backfiller).
+     */
+    private boolean addToQueue(long t, BasicParameterList pvList) {
         ParameterGroup pg;
         try {
             pg = parameterGroupIdMap.getGroup(pvList.getPids());
         } catch (RocksDBException e) {
             log.error("Error creating parameter group id", e);
-            return;
+            return true;
         }
 
         DataQueue segQueue = queues.computeIfAbsent(pg.id,
                 id -> new DataQueue(pg.id, maxSegmentSize, pgs -> scheduleWriteToArchive(pgs),
-                        interval -> readPgSegment(pg, interval), parameterArchive.getFillerLock()));
+                        interval -> readPgSegment(pg, interval), interval -> scheduleBuildRollups(pg.id, interval),
+                        parameterArchive.getFillerLock()));
 
         synchronized (segQueue) {
             if (segQueue.hasDataToWrite()) {
@@ -194,15 +421,16 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                             + "Unsorted data received in the realtime filler? Consider using a backfiller instead",
                             TimeEncoding.toString(t),
                             TimeEncoding.toString(segStart - sortingThreshold));
-                    return;
+                    return true;
                 }
             }
 
-            if (segQueue.addRecord(t, pvList)) {
+            var result = segQueue.add(t, pvList);
+            if (result == AddResult.ADDED) {
                 segQueue.sendToArchive(t - sortingThreshold);
             }
+            return result != AddResult.QUEUE_FULL;
         }
-
     }
 
     private PGSegment readPgSegment(ParameterGroup pg, long interval) {
@@ -227,6 +455,29 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
         return cf;
     }
 
+    private CompletableFuture<Void> scheduleBuildRollups(int pgid, long interval) {
+        CompletableFuture<Void> cf = new CompletableFuture<>();
+        try {
+            executor.submit(() -> {
+                doBuildRollups(pgid, interval, cf);
+            });
+        } catch (RejectedExecutionException e) {
+            doBuildRollups(pgid, interval, cf);
+        }
+        return cf;
+    }
+
+    private void doBuildRollups(int pgid, long interval, CompletableFuture<Void> cf) {
+        try {
+            parameterArchive.buildRollups(pgid, interval);
+            cf.complete(null);
+        } catch (RocksDBException | IOException e) {
+            log.error("Error building the rollups of the interval {} for parameter group {}",
+                    TimeEncoding.toString(interval), pgid, e);
+            cf.completeExceptionally(e);
+        }
+    }
+
     private void doWriteToArchive(PGSegment pgs, CompletableFuture<Void> cf) {
         try {
             long t0 = System.nanoTime();
@@ -241,7 +492,7 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
     }
 
     /**
-     * Called when risking running out of memory, drop all data
+     * Called when risking running out of memory and spilling is disabled, drop all data
      */
     @Override
     protected void abort() {
@@ -281,6 +532,20 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
         return queue.getPVSegments(parameterId, ascending);
     }
 
+    /**
+     * Returns the start of the oldest segment still kept in memory, including the segments which are being written to
+     * the archive. The data before this time is completely stored in the archive.
+     * <p>
+     * If there is no data in memory, {@link TimeEncoding#POSITIVE_INFINITY} is returned.
+     */
+    public long getOldestSegmentStart() {
+        long r = TimeEncoding.POSITIVE_INFINITY;
+        for (DataQueue queue : queues.values()) {
+            r = Math.min(r, queue.getOldestSegmentStart());
+        }
+        return r;
+    }
+
     public List<MultiParameterValueSegment> getSegments(ParameterId[] pids, int parameterGroupId, boolean ascending) {
         DataQueue queue = queues.get(parameterGroupId);
         if (queue == null) {
@@ -312,6 +577,15 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
      */
     static class DataQueue {
         private static Log log = new Log(DataQueue.class);
+
+        enum AddResult {
+            ADDED,
+            // the queue is full, the record can be added after the pending segments have been written to the archive
+            QUEUE_FULL,
+            // the interval is locked by a backfiller
+            LOCKED
+        }
+
         final int parameterGroupId;
 
         // sorted list of intervals
@@ -325,17 +599,22 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
         // used to read an existing segment from the archive at startup or if after a period of inactivity the data has
         // been flushed
         final Function<Long, PGSegment> readFromArchiveFunction;
+
+        // used to build the rollups of an interval which has been flushed before being complete
+        final Function<Long, CompletableFuture<Void>> buildRollupsFunction;
         final FillerLock fillerLock;
 
         private long latestUpdateTime;
 
         public DataQueue(int parameterGroupId, int maxSegmentSize,
                 Function<PGSegment, CompletableFuture<Void>> writeToArchiveFunction,
-                Function<Long, PGSegment> readFromArchiveFunction, FillerLock fillerLocks) {
+                Function<Long, PGSegment> readFromArchiveFunction,
+                Function<Long, CompletableFuture<Void>> buildRollupsFunction, FillerLock fillerLocks) {
             this.parameterGroupId = parameterGroupId;
             this.maxSegmentSize = maxSegmentSize;
             this.writeToArchiveFunction = writeToArchiveFunction;
             this.readFromArchiveFunction = readFromArchiveFunction;
+            this.buildRollupsFunction = buildRollupsFunction;
             this.fillerLock = fillerLocks;
         }
 
@@ -353,20 +632,22 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
 
             for (int i = 0; i < intervals.size(); i++) {
                 var intv = intervals.get(i);
-                if (firstNonEmpty == -1 && intv.hasDataToRead()) {
+                if (firstNonEmpty == -1 && (intv.hasDataToRead() || intv.flushedIncomplete)) {
                     firstNonEmpty = i;
                 }
                 if (intv.hasDataToWrite()) {
                     if (intv.interval < t1int) {
-                        intv.flush();
+                        intv.flushLast();
                         fillerLock.unlock(intv.interval, parameterGroupId);
                     } else if (intv.interval == t1int) {
                         intv.sendToArchive(t1);
                     } else {
                         break;
                     }
+                } else if (intv.flushedIncomplete && intv.interval < t1int) {
+                    // the interval has been flushed before newer data came in, it is now complete
+                    intv.flushLast();
                 }
-
             }
             if (firstNonEmpty > 0) {
                 // we can discard all intervals before firstNonEmpty
@@ -380,6 +661,16 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
         }
 
         public synchronized boolean addRecord(long t, BasicParameterList pvList) {
+            return add(t, pvList) == AddResult.ADDED;
+        }
+
+        /**
+         * Adds the record to the queue and returns the outcome.
+         * <p>
+         * If the result is {@link AddResult#QUEUE_FULL}, the record can be added later, after the segments being
+         * written to the archive have been released.
+         */
+        public synchronized AddResult add(long t, BasicParameterList pvList) {
             long interval = getInterval(t);
             latestUpdateTime = System.currentTimeMillis();
             int pos = 0;
@@ -395,7 +686,7 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                         replace = true;
                         break;
                     } else {
-                        return intv.addRecord(t, pvList);
+                        return intv.addRecord(t, pvList) ? AddResult.ADDED : AddResult.QUEUE_FULL;
                     }
                 } else if (intv.interval < interval) {
                     // Since the list is sorted, no need to check earlier elements
@@ -407,7 +698,7 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
             if (!fillerLock.try_lock(interval, parameterGroupId, this)) {
                 log.warn("Cannot lock interval {} for parameter group {}", TimeEncoding.toString(interval),
                         parameterGroupId);
-                return false;
+                return AddResult.LOCKED;
             }
 
             var intv = new IntervalData(t, pvList);
@@ -417,7 +708,26 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                 intervals.add(pos, intv);
             }
 
-            return true;
+            return AddResult.ADDED;
+        }
+
+        /**
+         * Waits until all the segments sent to the archive have been written.
+         */
+        public void awaitWrites() {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            synchronized (this) {
+                for (var intv : intervals) {
+                    futures.add(intv.lastWriteFuture);
+                }
+            }
+            for (var cf : futures) {
+                try {
+                    cf.join();
+                } catch (CompletionException | CancellationException e) {
+                    // the error has been logged when writing
+                }
+            }
         }
 
         public synchronized long getStart() {
@@ -429,6 +739,18 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
             throw new IllegalStateException("queue is empty");
         }
 
+        /**
+         * Returns the start of the oldest segment which can be read (i.e. has not yet been written to the archive) or
+         * {@link TimeEncoding#POSITIVE_INFINITY} if there is no such segment.
+         */
+        public synchronized long getOldestSegmentStart() {
+            long r = TimeEncoding.POSITIVE_INFINITY;
+            for (var intv : intervals) {
+                r = Math.min(r, intv.getOldestSegmentStart());
+            }
+            return r;
+        }
+
         /**
          * Returns a list of segments for the pid.
          * 
@@ -449,7 +771,7 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                     intv.getSegmentsDescending(pids, r);
                 }
             }
-            return null;
+            return r;
         }
 
         /**
@@ -476,9 +798,20 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
             return r;
         }
 
+        /**
+         * Writes all the segments to the archive.
+         * <p>
+         * The intervals followed by newer data are complete; the last one may still receive data and its rollups are
+         * built once the data of a newer interval is sent to the archive.
+         */
         public void flush() {
-            for (var intv : intervals) {
-                intv.flush();
+            for (int i = 0; i < intervals.size(); i++) {
+                var intv = intervals.get(i);
+                if (i < intervals.size() - 1) {
+                    intv.flushLast();
+                } else {
+                    intv.flush();
+                }
                 fillerLock.unlock(intv.interval, parameterGroupId);
             }
         }
@@ -532,14 +865,18 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
             // we use this to make sure that only one write is running for a given pg at a time
             CompletableFuture<Void> lastWriteFuture = CompletableFuture.completedFuture(null);
 
+            // true if segments have been written to the archive without the last one in the interval being marked
+            boolean flushedIncomplete = false;
+
             public IntervalData(long t, BasicParameterList pvList) {
                 this.interval = getInterval(t);
                 // we need to read the existing interval from the archive, we may need to add to it
                 // or in any case to continue it
                 PGSegment prevSeg = readFromArchiveFunction.apply(interval);
                 log.trace("Read from archive prevSeg {}", prevSeg);
-                if (prevSeg != null && t <= prevSeg.getSegmentEnd()) {
-                    // data fits into the previous segment
+                if (prevSeg != null && (t <= prevSeg.getSegmentEnd() || !prevSeg.isMergeable())) {
+                    // data fits into the previous segment or the previous segment has been written compressed and
+                    // cannot be continued with the merge operator
                     prevSeg.makeWritable();
                     prevSeg.addRecord(t, pvList);
                     segments[tail] = prevSeg;
@@ -575,8 +912,7 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
              * If not such a segment exists, a new segment is created and inserted in the queue (if the queue is not
              * full).
              * <p>
-             * Returns true if the record has been added or false if the queue was full or if the filler lock could not
-             * be obtained.
+             * Returns true if the record has been added or false if the queue was full.
              */
             public boolean addRecord(long t, BasicParameterList pvList) {
                 int k = head;
@@ -595,9 +931,6 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                 // if segments[tail] is not null, it means it hasn't been written to the archive yet (async operation),
                 // we do not want to overwrite it because it won't be found in the retrieval
                 if (inc(tail) == head || segments[tail] != null) {
-                    log.warn("Realtime parameter archive queue for parameter group {} full."
-                            + "Consider increasing the writerThreads (if CPUs are available) or using a back filler",
-                            parameterGroupId);
                     return false;
                 }
 
@@ -636,11 +969,28 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
             }
 
             void flush() {
+                if (head != tail) {
+                    flushedIncomplete = true;
+                }
                 while (head != tail) {
                     sendHeadToArchive();
                 }
             }
 
+            // flush the data of an interval which is over
+            void flushLast() {
+                if (head != tail) {
+                    segments[dec(tail)].setLastInInterval();
+                    while (head != tail) {
+                        sendHeadToArchive();
+                    }
+                } else if (flushedIncomplete) {
+                    // the segments have already been written, build the rollups from the archive
+                    lastWriteFuture = lastWriteFuture.thenCompose(v -> buildRollupsFunction.apply(interval));
+                }
+                flushedIncomplete = false;
+            }
+
             // send the head to the archive and move the head towards the tail
             private void sendHeadToArchive() {
                 PGSegment seg = segments[head];
@@ -672,6 +1022,16 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                 return head != tail;
             }
 
+            private long getOldestSegmentStart() {
+                long r = TimeEncoding.POSITIVE_INFINITY;
+                for (var seg : segments) {
+                    if (seg != null) {
+                        r = Math.min(r, seg.getSegmentStart());
+                    }
+                }
+                return r;
+            }
+
             private boolean hasDataToRead() {
                 for (var seg : segments) {
                     if (seg != null) {
@@ -736,6 +1096,7 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
 
                 while (k != tail) {
                     PGSegment seg = segments[k];
+                    k = inc(k);
                     if (seg == null) {
                         continue;
                     }
@@ -744,7 +1105,6 @@ public class RealtimeArchiveFiller extends AbstractArchiveFiller {
                     if (pvs != null) {
                         r.add(pvs);
                     }
-                    k = inc(k);
                 }
             }
 
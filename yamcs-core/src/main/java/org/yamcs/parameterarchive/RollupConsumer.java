@@ -0,0 +1,21 @@
+package org.yamcs.parameterarchive;
+
+import java.util.function.Consumer;
+
+/**
+ * Consumer of data retrieved with {@link RollupRetrieval}.
+ * <p>
+ * The pre-aggregated buckets are sent via {@link #acceptRollup(RollupSegment, int, int)} whereas for the parts of the
+ * archive where the rollups are not available (e.g. data archived before the rollups were introduced or too sparse
+ * data) the full resolution values are sent via {@link #accept(Object)}.
+ * <p>
+ * The intervals are sent in chronological order but inside one interval, the data coming from different parameter
+ * groups is not merged: a bucket or value may be older than the ones previously sent for the same interval.
+ */
+public interface RollupConsumer extends Consumer<ParameterValueArray> {
+
+    /**
+     * Called with the buckets with the index in the range [from, to) of the rollup segment
+     */
+    void acceptRollup(RollupSegment rollup, int from, int to);
+}
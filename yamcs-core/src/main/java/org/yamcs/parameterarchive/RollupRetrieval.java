@@ -0,0 +1,220 @@
+package org.yamcs.parameterarchive;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.rocksdb.RocksDBException;
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.ParameterRetrievalOptions;
+import org.yamcs.parameterarchive.ParameterArchive.Partition;
+import org.yamcs.utils.DatabaseCorruptionException;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.yarch.rocksdb.AscendingRangeIterator;
+
+/**
+ * Retrieves the rollups (see {@link RollupSegment}) of one level for a numeric parameter.
+ * <p>
+ * The intervals for which the rollup of the requested level is not available are retrieved with full resolution using
+ * {@link SingleParameterRetrieval}.
+ * <p>
+ * The retrieval covers the archived data in the range [start, stop) of the retrieval options; the start and stop are
+ * expected to be aligned to the resolution of the level, the buckets not entirely contained in the range are not sent.
+ * The values which are still in the realtime filler are not part of the rollups, the caller should make sure that the
+ * range does not overlap with them.
+ */
+public class RollupRetrieval {
+    private final Log log;
+    final ParameterArchive parchive;
+    final ParameterRetrievalOptions opts;
+    final ParameterId[] pids;
+    final int level;
+
+    public RollupRetrieval(ParameterArchive parchive, String parameterFqn, int level, ParameterRetrievalOptions opts) {
+        this.parchive = parchive;
+        this.opts = opts;
+        this.level = level;
+        this.log = new Log(RollupRetrieval.class, parchive.getYamcsInstance());
+        pids = parchive.getParameterIdDb().get(parameterFqn);
+        if (pids == null) {
+            log.warn("No parameter id found in the parameter archive for {}", parameterFqn);
+        }
+    }
+
+    /**
+     * Returns true if the parameter exists in the archive and all its ids are of numeric type (only those have
+     * rollups).
+     */
+    public boolean isApplicable() {
+        if (pids == null) {
+            return false;
+        }
+        for (ParameterId pid : pids) {
+            if (!pid.isSimple() || !isNumeric(pid)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumeric(ParameterId pid) {
+        var type = pid.getEngType();
+        if (type == null) {
+            return false;
+        }
+        switch (type) {
+        case FLOAT:
+        case DOUBLE:
+        case SINT32:
+        case UINT32:
+        case SINT64:
+        case UINT64:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    public void retrieve(RollupConsumer consumer) throws RocksDBException, IOException {
+        if (pids == null) {
+            return;
+        }
+        for (ParameterId pid : pids) {
+            int[] pgids = parchive.getParameterGroupIdDb().getAllGroups(pid.getPid());
+            if (pgids.length == 0) {
+                continue;
+            }
+            for (Partition p : parchive.getPartitions(ParameterArchive.getIntervalStart(opts.start()),
+                    ParameterArchive.getIntervalEnd(opts.stop()), true)) {
+                retrieve(p, pid, pgids, consumer);
+            }
+        }
+    }
+
+    // the intervals of the different parameter groups are merged such that they are sent in chronological order
+    // the intervals without rollup are retrieved with full resolution
+    private void retrieve(Partition partition, ParameterId pid, int[] pgids, RollupConsumer consumer)
+            throws RocksDBException, IOException {
+        if (partition.version == 0) {
+            // the rollups are only written in the partitions using the merge operator
+            retrieveFullResolution(pid, pgids, Math.max(opts.start(), partition.getStart()),
+                    Math.min(opts.stop(), partition.getEnd()), consumer);
+            return;
+        }
+
+        PriorityQueue<GroupIterator> queue = new PriorityQueue<>(Comparator.comparingLong(git -> git.interval));
+        try {
+            for (int pgid : pgids) {
+                GroupIterator git = new GroupIterator(partition, pid, pgid);
+                if (git.isValid()) {
+                    queue.add(git);
+                } else {
+                    git.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                GroupIterator git = queue.poll();
+                if (git.rollup != null) {
+                    sendRollup(git.rollup, consumer);
+                } else {
+                    retrieveFullResolution(pid, new int[] { git.pgid }, git.interval,
+                            ParameterArchive.getIntervalEnd(git.interval) + 1, consumer);
+                }
+                git.next();
+                if (git.isValid()) {
+                    queue.add(git);
+                } else {
+                    git.close();
+                }
+            }
+        } catch (DecodingException e) {
+            throw new DatabaseCorruptionException(e);
+        } finally {
+            queue.forEach(GroupIterator::close);
+        }
+    }
+
+    private void sendRollup(RollupSegment rs, RollupConsumer consumer) {
+        long resolution = 1L << rs.getResolutionBits();
+        int n = rs.size();
+        int from = 0;
+        while (from < n && rs.getBucketStart(from) < opts.start()) {
+            from++;
+        }
+        int to = from;
+        while (to < n && rs.getBucketStart(to) + resolution <= opts.stop()) {
+            to++;
+        }
+        if (from < to) {
+            consumer.acceptRollup(rs, from, to);
+        }
+    }
+
+    private void retrieveFullResolution(ParameterId pid, int[] pgids, long start, long stop,
+            RollupConsumer consumer) throws RocksDBException, IOException {
+        start = Math.max(start, opts.start());
+        stop = Math.min(stop, opts.stop());
+        if (start >= stop) {
+            return;
+        }
+        log.trace("Retrieving full resolution data for pid {} pgids {} in [{}, {})", pid.getPid(), pgids,
+                TimeEncoding.toString(start), TimeEncoding.toString(stop));
+        var spr = new SingleParameterRetrieval(parchive, pid.getPid(), pgids,
+                opts.toBuilder().withStartStop(start, stop).withAscending(true).build());
+        spr.retrieve(consumer);
+    }
+
+    /**
+     * Iterates over the intervals of one parameter group inside one partition; for each interval it provides the
+     * rollup of the requested level or null if the interval does not have one.
+     */
+    class GroupIterator implements AutoCloseable {
+        final int pgid;
+        final byte rollupType;
+        final RdbIteratorWithOptions itwo;
+        final AscendingRangeIterator it;
+        long interval = TimeEncoding.INVALID_INSTANT;
+        RollupSegment rollup;
+
+        GroupIterator(Partition partition, ParameterId pid, int pgid)
+                throws RocksDBException, IOException, DecodingException {
+            this.pgid = pgid;
+            this.rollupType = SegmentKey.rollupType(level);
+            byte[] rangeStart = new SegmentKey(pid.getPid(), pgid, ParameterArchive.getIntervalStart(opts.start()),
+                    (byte) 0).encode();
+            byte[] rangeStop = new SegmentKey(pid.getPid(), pgid, opts.stop(), Byte.MAX_VALUE).encode();
+            itwo = parchive.getIteratorWithOptions(partition);
+            it = new AscendingRangeIterator(itwo.it(), rangeStart, rangeStop);
+            next();
+        }
+
+        boolean isValid() {
+            return interval != TimeEncoding.INVALID_INSTANT;
+        }
+
+        // moves to the next interval; all the keys of an interval are consecutive
+        void next() throws DecodingException {
+            interval = TimeEncoding.INVALID_INSTANT;
+            rollup = null;
+            while (it.isValid()) {
+                var key = SegmentKey.decode(it.key());
+                if (interval == TimeEncoding.INVALID_INSTANT) {
+                    interval = key.segmentStart;
+                } else if (key.segmentStart != interval) {
+                    break;
+                }
+                if (key.type == rollupType) {
+                    rollup = (RollupSegment) SegmentEncoderDecoder.decode(it.value(), key.segmentStart);
+                }
+                it.next();
+            }
+        }
+
+        @Override
+        public void close() {
+            it.close();
+            itwo.close();
+        }
+    }
+}
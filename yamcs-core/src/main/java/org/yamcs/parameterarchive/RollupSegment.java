@@ -0,0 +1,468 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.ByteBuffer;
+
+import org.yamcs.parameter.ValueArray;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.DoubleArray;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.LongArray;
+import org.yamcs.utils.SortedIntArray;
+import org.yamcs.utils.UnsignedLong;
+import org.yamcs.utils.VarIntUtil;
+import org.yamcs.yarch.protobuf.Db.ParameterStatus;
+
+/**
+ * Pre-aggregated values of one numeric parameter over one interval, at a fixed resolution.
+ * <p>
+ * The interval is divided into buckets of 2^resolutionBits milliseconds and for each non-empty bucket we keep the
+ * count, sum, min, max, first and last values together with the times of the min/max/first/last values and the
+ * expiration of the last value (used to detect the gaps in the data). Because the bucket durations are powers of two
+ * smaller than the interval duration, the buckets never span across intervals.
+ * <p>
+ * The NaN values are counted and part of the sum but they are ignored when computing the min and max.
+ * <p>
+ * The rollups are computed from the engineering values when the segments are written to the archive and are stored
+ * under their own {@link SegmentKey} type (one type per resolution level) with the interval start as segment start.
+ * <p>
+ * The segment cannot be merged by the RocksDB merge operator; instead it is written once the interval is complete,
+ * built from all the segments of the interval (see {@link #merge(RollupSegment)}).
+ */
+public class RollupSegment extends BaseSegment {
+    /**
+     * The resolutions (as number of bits of the bucket duration in milliseconds) of the rollup levels: about 1 second,
+     * 1 minute and 1 hour.
+     */
+    public static final int[] RESOLUTION_BITS = { 10, 16, 22 };
+
+    /**
+     * When selecting a level for a given sampling interval, we want at least this many buckets per sample; this
+     * limits the error introduced by assigning a bucket to a sample based on its first value time.
+     */
+    static final int MIN_BUCKETS_PER_SAMPLE = 4;
+
+    /**
+     * A rollup level is only written if the interval contains on average this many values per bucket; otherwise the
+     * rollup would be larger than the data itself and the retrieval uses the full resolution data.
+     */
+    static final int MIN_VALUES_PER_BUCKET = 2;
+
+    final long interval;
+    final int resolutionBits;
+
+    // bucket index inside the interval
+    IntArray buckets;
+    IntArray counts;
+    DoubleArray sums;
+    DoubleArray mins;
+    DoubleArray maxs;
+    DoubleArray firsts;
+    DoubleArray lasts;
+    // times relative to the interval start
+    IntArray minTimes;
+    IntArray maxTimes;
+    IntArray firstTimes;
+    IntArray lastTimes;
+    // expiration in milliseconds of the last value or -1 if it does not expire
+    LongArray lastExpires;
+
+    RollupSegment(long interval, int resolutionBits) {
+        this(interval, resolutionBits, 16);
+    }
+
+    private RollupSegment(long interval, int resolutionBits, int capacity) {
+        super(FORMAT_ID_RollupSegment);
+        this.interval = interval;
+        this.resolutionBits = resolutionBits;
+        buckets = new IntArray(capacity);
+        counts = new IntArray(capacity);
+        sums = new DoubleArray(capacity);
+        mins = new DoubleArray(capacity);
+        maxs = new DoubleArray(capacity);
+        firsts = new DoubleArray(capacity);
+        lasts = new DoubleArray(capacity);
+        minTimes = new IntArray(capacity);
+        maxTimes = new IntArray(capacity);
+        firstTimes = new IntArray(capacity);
+        lastTimes = new IntArray(capacity);
+        lastExpires = new LongArray(capacity);
+    }
+
+    /**
+     * Returns the duration in milliseconds of the buckets for the given level
+     */
+    public static long getResolution(int level) {
+        return 1L << RESOLUTION_BITS[level];
+    }
+
+    public static int numLevels() {
+        return RESOLUTION_BITS.length;
+    }
+
+    /**
+     * Returns the coarsest level whose buckets fit at least {@link #MIN_BUCKETS_PER_SAMPLE} times in the sampling
+     * interval or -1 if there is no such level (in which case the full resolution data should be used).
+     */
+    public static int selectLevel(long samplingInterval) {
+        for (int level = RESOLUTION_BITS.length - 1; level >= 0; level--) {
+            if (getResolution(level) * MIN_BUCKETS_PER_SAMPLE <= samplingInterval) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the rollup at the given level from the engineering values of the parameter value segment.
+     * <p>
+     * Returns null if the values are not numeric or if checkDensity is true and there are too few values per bucket.
+     */
+    static RollupSegment build(int level, ParameterValueSegment pvs, boolean checkDensity) {
+        ValueSegment vs = pvs.engValueSegment;
+        if (vs == null || !isNumeric(vs)) {
+            return null;
+        }
+        int n = vs.size();
+        if (n == 0) {
+            return null;
+        }
+        SortedTimeSegment timeSegment = pvs.timeSegment;
+        int rbits = RESOLUTION_BITS[level];
+        long interval = timeSegment.getInterval();
+
+        int numBuckets = (int) ((getTime(timeSegment, pvs.gaps, n - 1) - interval) >> rbits)
+                - (int) ((getTime(timeSegment, pvs.gaps, 0) - interval) >> rbits) + 1;
+        if (checkDensity && n < MIN_VALUES_PER_BUCKET * numBuckets) {
+            return null;
+        }
+        double[] values = toDoubleArray(vs.getRange(0, n, true));
+        RollupSegment rs = new RollupSegment(interval, rbits, numBuckets);
+
+        var pss = (ParameterStatusSegment) pvs.getConsolidatedParmeterStatusSegment();
+        ParameterStatus[] statuses = pss == null ? null : pss.getRangeArray(0, n, true);
+        SortedIntArray gaps = pvs.gaps;
+        int idxG = 0;
+        int idxT = 0;
+        for (int idxV = 0; idxV < n; idxV++) {
+            while (gaps != null && idxG < gaps.size() && idxT == gaps.get(idxG)) {
+                idxT++;
+                idxG++;
+            }
+            rs.add((int) (timeSegment.getTime(idxT) - interval), values[idxV], getExpireMillis(statuses, idxV));
+            idxT++;
+        }
+        return rs;
+    }
+
+    // returns the time of the value at position idxV, skipping the gaps
+    private static long getTime(SortedTimeSegment timeSegment, SortedIntArray gaps, int idxV) {
+        if (gaps == null) {
+            return timeSegment.getTime(idxV);
+        }
+        int idxT = idxV;
+        for (int i = 0; i < gaps.size() && gaps.get(i) <= idxT; i++) {
+            idxT++;
+        }
+        return timeSegment.getTime(idxT);
+    }
+
+    private static long getExpireMillis(ParameterStatus[] statuses, int idxV) {
+        ParameterStatus ps = statuses == null ? null : statuses[idxV];
+        return (ps != null && ps.hasExpireMillis()) ? ps.getExpireMillis() : -1;
+    }
+
+    /**
+     * Returns true if v is not NaN and it is smaller than the min or the min is NaN
+     */
+    public static boolean isNewMin(double v, double min) {
+        return v < min || (Double.isNaN(min) && !Double.isNaN(v));
+    }
+
+    /**
+     * Returns true if v is not NaN and it is greater than the max or the max is NaN
+     */
+    public static boolean isNewMax(double v, double max) {
+        return v > max || (Double.isNaN(max) && !Double.isNaN(v));
+    }
+
+    static boolean isNumeric(ValueSegment vs) {
+        if (vs instanceof LongValueSegment lvs) {
+            return LongValueSegment.types[lvs.numericType] != Type.TIMESTAMP;
+        }
+        return vs instanceof IntValueSegment || vs instanceof FloatValueSegment || vs instanceof DoubleValueSegment;
+    }
+
+    static double[] toDoubleArray(ValueArray va) {
+        int n = va.size();
+        double[] r = new double[n];
+        switch (va.getType()) {
+        case FLOAT:
+            float[] fv = va.getFloatArray();
+            for (int i = 0; i < n; i++) {
+                r[i] = fv[i];
+            }
+            break;
+        case DOUBLE:
+            System.arraycopy(va.getDoubleArray(), 0, r, 0, n);
+            break;
+        case UINT32:
+            int[] iv = va.getIntArray();
+            for (int i = 0; i < n; i++) {
+                r[i] = iv[i] & 0xFFFFFFFFL;
+            }
+            break;
+        case SINT32:
+            iv = va.getIntArray();
+            for (int i = 0; i < n; i++) {
+                r[i] = iv[i];
+            }
+            break;
+        case UINT64:
+            long[] lv = va.getLongArray();
+            for (int i = 0; i < n; i++) {
+                r[i] = UnsignedLong.toDouble(lv[i]);
+            }
+            break;
+        case SINT64:
+            lv = va.getLongArray();
+            for (int i = 0; i < n; i++) {
+                r[i] = lv[i];
+            }
+            break;
+        default:
+            throw new IllegalStateException("Unexpected type " + va.getType());
+        }
+        return r;
+    }
+
+    /**
+     * add a value; the time (relative to the interval start) has to be greater or equal than the previous added time
+     */
+    void add(int t, double v, long expireMillis) {
+        int bucket = t >> resolutionBits;
+        int k = buckets.size() - 1;
+        if (k >= 0 && buckets.get(k) == bucket) {
+            counts.set(k, counts.get(k) + 1);
+            sums.set(k, sums.get(k) + v);
+            if (isNewMin(v, mins.get(k))) {
+                mins.set(k, v);
+                minTimes.set(k, t);
+            }
+            if (isNewMax(v, maxs.get(k))) {
+                maxs.set(k, v);
+                maxTimes.set(k, t);
+            }
+            lasts.set(k, v);
+            lastTimes.set(k, t);
+            lastExpires.set(k, expireMillis);
+        } else {
+            buckets.add(bucket);
+            counts.add(1);
+            sums.add(v);
+            mins.add(v);
+            maxs.add(v);
+            firsts.add(v);
+            lasts.add(v);
+            minTimes.add(t);
+            maxTimes.add(t);
+            firstTimes.add(t);
+            lastTimes.add(t);
+            lastExpires.add(expireMillis);
+        }
+    }
+
+    /**
+     * Appends the buckets of the next segment of the same interval to this one.
+     * <p>
+     * The first bucket of the next segment may be the same with the last bucket of this one in which case they are
+     * combined.
+     */
+    void merge(RollupSegment next) {
+        if (next.interval != interval || next.resolutionBits != resolutionBits) {
+            throw new IllegalArgumentException("Cannot merge rollups with different interval or resolution");
+        }
+        int start = 0;
+        int k = buckets.size() - 1;
+        if (k >= 0 && next.size() > 0 && next.buckets.get(0) == buckets.get(k)) {
+            counts.set(k, counts.get(k) + next.counts.get(0));
+            sums.set(k, sums.get(k) + next.sums.get(0));
+            if (isNewMin(next.mins.get(0), mins.get(k))) {
+                mins.set(k, next.mins.get(0));
+                minTimes.set(k, next.minTimes.get(0));
+            }
+            if (isNewMax(next.maxs.get(0), maxs.get(k))) {
+                maxs.set(k, next.maxs.get(0));
+                maxTimes.set(k, next.maxTimes.get(0));
+            }
+            if (next.firstTimes.get(0) < firstTimes.get(k)) {
+                firsts.set(k, next.firsts.get(0));
+                firstTimes.set(k, next.firstTimes.get(0));
+            }
+            if (next.lastTimes.get(0) >= lastTimes.get(k)) {
+                lasts.set(k, next.lasts.get(0));
+                lastTimes.set(k, next.lastTimes.get(0));
+                lastExpires.set(k, next.lastExpires.get(0));
+            }
+            start = 1;
+        }
+        for (int i = start; i < next.size(); i++) {
+            buckets.add(next.buckets.get(i));
+            counts.add(next.counts.get(i));
+            sums.add(next.sums.get(i));
+            mins.add(next.mins.get(i));
+            maxs.add(next.maxs.get(i));
+            firsts.add(next.firsts.get(i));
+            lasts.add(next.lasts.get(i));
+            minTimes.add(next.minTimes.get(i));
+            maxTimes.add(next.maxTimes.get(i));
+            firstTimes.add(next.firstTimes.get(i));
+            lastTimes.add(next.lastTimes.get(i));
+            lastExpires.add(next.lastExpires.get(i));
+        }
+    }
+
+    /**
+     * Returns true if the rollup contains on average at least {@link #MIN_VALUES_PER_BUCKET} values per bucket,
+     * counting also the empty buckets between the first and the last one.
+     */
+    boolean isDense() {
+        int n = buckets.size();
+        if (n == 0) {
+            return false;
+        }
+        long count = 0;
+        for (int i = 0; i < n; i++) {
+            count += counts.get(i);
+        }
+        return count >= (long) MIN_VALUES_PER_BUCKET * (buckets.get(n - 1) - buckets.get(0) + 1);
+    }
+
+    @Override
+    public void writeTo(ByteBuffer bb) {
+        bb.put((byte) resolutionBits);
+        int n = buckets.size();
+        VarIntUtil.writeVarInt32(bb, n);
+        int prevBucket = 0;
+        for (int i = 0; i < n; i++) {
+            int bucket = buckets.get(i);
+            int bucketStart = bucket << resolutionBits;
+            VarIntUtil.writeVarInt32(bb, bucket - prevBucket);
+            prevBucket = bucket;
+            VarIntUtil.writeVarInt32(bb, counts.get(i));
+            VarIntUtil.writeVarInt32(bb, firstTimes.get(i) - bucketStart);
+            VarIntUtil.writeVarInt32(bb, lastTimes.get(i) - bucketStart);
+            VarIntUtil.writeVarInt32(bb, minTimes.get(i) - bucketStart);
+            VarIntUtil.writeVarInt32(bb, maxTimes.get(i) - bucketStart);
+            bb.putDouble(sums.get(i));
+            bb.putDouble(mins.get(i));
+            bb.putDouble(maxs.get(i));
+            bb.putDouble(firsts.get(i));
+            bb.putDouble(lasts.get(i));
+            VarIntUtil.writeVarInt64(bb, lastExpires.get(i) + 1);
+        }
+    }
+
+    public static RollupSegment parseFrom(ByteBuffer bb, long interval) throws DecodingException {
+        int resolutionBits = bb.get();
+        if (resolutionBits < 0 || resolutionBits > ParameterArchive.NUMBITS_MASK) {
+            throw new DecodingException("Invalid rollup resolution " + resolutionBits);
+        }
+        int n = VarIntUtil.readVarInt32(bb);
+        RollupSegment rs = new RollupSegment(interval, resolutionBits, n);
+        int bucket = 0;
+        for (int i = 0; i < n; i++) {
+            bucket += VarIntUtil.readVarInt32(bb);
+            int bucketStart = bucket << resolutionBits;
+            rs.buckets.add(bucket);
+            rs.counts.add(VarIntUtil.readVarInt32(bb));
+            rs.firstTimes.add(bucketStart + VarIntUtil.readVarInt32(bb));
+            rs.lastTimes.add(bucketStart + VarIntUtil.readVarInt32(bb));
+            rs.minTimes.add(bucketStart + VarIntUtil.readVarInt32(bb));
+            rs.maxTimes.add(bucketStart + VarIntUtil.readVarInt32(bb));
+            rs.sums.add(bb.getDouble());
+            rs.mins.add(bb.getDouble());
+            rs.maxs.add(bb.getDouble());
+            rs.firsts.add(bb.getDouble());
+            rs.lasts.add(bb.getDouble());
+            rs.lastExpires.add(VarIntUtil.readVarInt64(bb) - 1);
+        }
+        return rs;
+    }
+
+    @Override
+    public int getMaxSerializedSize() {
+        // 5 bytes for each of the 6 varints, 5 doubles and a 64 bits varint per bucket
+        return 6 + buckets.size() * (6 * 5 + 5 * 8 + 10);
+    }
+
+    @Override
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public int getResolutionBits() {
+        return resolutionBits;
+    }
+
+    public long getBucketStart(int idx) {
+        return interval + ((long) buckets.get(idx) << resolutionBits);
+    }
+
+    public int getCount(int idx) {
+        return counts.get(idx);
+    }
+
+    public double getSum(int idx) {
+        return sums.get(idx);
+    }
+
+    public double getMin(int idx) {
+        return mins.get(idx);
+    }
+
+    public double getMax(int idx) {
+        return maxs.get(idx);
+    }
+
+    public double getFirst(int idx) {
+        return firsts.get(idx);
+    }
+
+    public double getLast(int idx) {
+        return lasts.get(idx);
+    }
+
+    public long getMinTime(int idx) {
+        return interval + minTimes.get(idx);
+    }
+
+    public long getMaxTime(int idx) {
+        return interval + maxTimes.get(idx);
+    }
+
+    public long getFirstTime(int idx) {
+        return interval + firstTimes.get(idx);
+    }
+
+    public long getLastTime(int idx) {
+        return interval + lastTimes.get(idx);
+    }
+
+    /**
+     * Returns the expiration in milliseconds of the last value of the bucket or -1 if it does not expire
+     */
+    public long getLastExpireMillis(int idx) {
+        return lastExpires.get(idx);
+    }
+
+    @Override
+    public String toString() {
+        return "RollupSegment [interval=" + interval + ", resolutionBits=" + resolutionBits + ", size="
+                + buckets.size() + "]";
+    }
+}
@@ -0,0 +1,107 @@
+package org.yamcs.parameterarchive;
+
+import java.util.Arrays;
+
+import org.yamcs.utils.ByteArrayWrapper;
+import org.yamcs.utils.DecodingException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * LRU cache of decoded segments, used to avoid decompressing again and again the same segments when the same data is
+ * retrieved repeatedly (e.g. operators opening the same displays).
+ * <p>
+ * The cache is keyed by the RocksDB key of the segment. Together with the decoded segment, the cache keeps the encoded
+ * value from which it has been decoded; a cached segment is returned only if the encoded value read from the database
+ * is identical. This way, the retrievals working on a snapshot older than the last write cannot get or insert wrong
+ * data. The entries are also invalidated when the parameter archive writes to the keys, such that the memory is freed
+ * early.
+ * <p>
+ * The size of the cache is limited by an estimation of the memory used by the encoded and decoded segments.
+ */
+public class SegmentCache {
+    // estimation of the per entry memory overhead
+    static final int ENTRY_OVERHEAD = 128;
+
+    final Cache<ByteArrayWrapper, Entry> cache;
+
+    /**
+     *
+     * @param maxSize
+     *            - the maximum size in bytes of the cached data
+     */
+    public SegmentCache(long maxSize) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((ByteArrayWrapper k, Entry e) -> e.weight())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the decoded segment corresponding to the key and encoded value, either from the cache or by decoding it.
+     */
+    public BaseSegment get(byte[] key, byte[] value, long segmentStart) throws DecodingException {
+        ByteArrayWrapper k = new ByteArrayWrapper(key);
+        Entry e = cache.getIfPresent(k);
+        if (e != null && e.segmentStart == segmentStart && Arrays.equals(e.value, value)) {
+            return e.segment;
+        }
+        BaseSegment segment = SegmentEncoderDecoder.decode(value, segmentStart);
+        cache.put(k, new Entry(value, segmentStart, segment));
+        return segment;
+    }
+
+    /**
+     * Removes from the cache the segment corresponding to the key
+     */
+    public void invalidate(byte[] key) {
+        cache.invalidate(new ByteArrayWrapper(key));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of segments in the cache
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return an estimation of the memory used by the cached segments in bytes
+     */
+    public long weight() {
+        long w = 0;
+        for (Entry e : cache.asMap().values()) {
+            w += e.weight();
+        }
+        return w;
+    }
+
+    static final class Entry {
+        final byte[] value;
+        final long segmentStart;
+        final BaseSegment segment;
+        final int weight;
+
+        Entry(byte[] value, long segmentStart, BaseSegment segment) {
+            this.value = value;
+            this.segmentStart = segmentStart;
+            this.segment = segment;
+            this.weight = ENTRY_OVERHEAD + value.length + segment.getMaxSerializedSize();
+        }
+
+        int weight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.yamcs.parameterarchive;
+
+import static org.yamcs.utils.ValueUtility.getUint64Value;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.yamcs.parameter.AggregateValue;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.SystemParametersProducer;
+import org.yamcs.parameter.SystemParametersService;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.xtce.AggregateParameterType;
+import org.yamcs.xtce.Member;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.UnitType;
+
+/**
+ * Makes the system parameter /yamcs/{instance-id}/parameterArchive/segmentCache containing statistics about the
+ * {@link SegmentCache}.
+ */
+public class SegmentCacheSysParamProducer implements SystemParametersProducer {
+    private AggregateParameterType aggrType;
+    private Parameter param;
+
+    final SegmentCache segmentCache;
+
+    public SegmentCacheSysParamProducer(SegmentCache segmentCache, SystemParametersService sysParamsService) {
+        this.segmentCache = segmentCache;
+
+        Member hitsMember = new Member("hits", sysParamsService.getBasicType(Type.UINT64));
+        hitsMember.setShortDescription("Number of segments found in the cache");
+
+        Member missesMember = new Member("misses", sysParamsService.getBasicType(Type.UINT64));
+        missesMember.setShortDescription("Number of segments which had to be decoded");
+
+        Member evictionsMember = new Member("evictions", sysParamsService.getBasicType(Type.UINT64));
+        evictionsMember.setShortDescription("Number of segments evicted from the cache due to its size limit");
+
+        Member countMember = new Member("count", sysParamsService.getBasicType(Type.UINT64));
+        countMember.setShortDescription("Number of segments currently in the cache");
+
+        Member sizeMember = new Member("size", sysParamsService.getBasicType(Type.UINT64, new UnitType("KB")));
+        sizeMember.setShortDescription("Estimation of the memory used by the cached segments");
+
+        aggrType = new AggregateParameterType.Builder().setName("SegmentCacheStats")
+                .addMember(hitsMember)
+                .addMember(missesMember)
+                .addMember(evictionsMember)
+                .addMember(countMember)
+                .addMember(sizeMember)
+                .build();
+
+        param = sysParamsService.createSystemParameter("parameterArchive/segmentCache", aggrType,
+                "Statistics about the cache of decoded parameter archive segments");
+    }
+
+    @Override
+    public Collection<ParameterValue> getSystemParameters(long gentime) {
+        var stats = segmentCache.stats();
+
+        AggregateValue v = new AggregateValue(aggrType.getMemberNames());
+        v.setMemberValue("hits", getUint64Value(stats.hitCount()));
+        v.setMemberValue("misses", getUint64Value(stats.missCount()));
+        v.setMemberValue("evictions", getUint64Value(stats.evictionCount()));
+        v.setMemberValue("count", getUint64Value(segmentCache.size()));
+        v.setMemberValue("size", getUint64Value(segmentCache.weight() / 1024));
+
+        ParameterValue pv = new ParameterValue(param);
+        pv.setGenerationTime(gentime);
+        pv.setAcquisitionTime(gentime);
+        pv.setEngValue(v);
+        pv.setExpireMillis((long) (1.9 * getFrequency() * 1000));
+
+        return List.of(pv);
+    }
+
+    @Override
+    public int getFrequency() {
+        return 5;
+    }
+}
@@ -12,9 +12,30 @@ import static org.yamcs.parameterarchive.BaseSegment.*;
 public class SegmentEncoderDecoder {
 
     static public byte[] encode(BaseSegment valueSegment) {
+        return encode(valueSegment, false);
+    }
+
+    /**
+     * Encodes the segment using the compressed format for the double and long segments, if that results in a smaller
+     * size.
+     * <p>
+     * The result cannot be extended with the RocksDB merge operator so it should only be used for segments which are
+     * not followed by other segments in the same interval.
+     */
+    static public byte[] encodeCompressed(BaseSegment valueSegment) {
+        return encode(valueSegment, true);
+    }
+
+    static private byte[] encode(BaseSegment valueSegment, boolean compressed) {
         ByteBuffer bb = ByteBuffer.allocate(2 + valueSegment.getMaxSerializedSize());
         bb.put(valueSegment.getFormatId());
-        valueSegment.writeTo(bb);
+        if (compressed && valueSegment instanceof DoubleValueSegment dvs) {
+            dvs.writeCompressedTo(bb);
+        } else if (compressed && valueSegment instanceof LongValueSegment lvs) {
+            lvs.writeCompressedTo(bb);
+        } else {
+            valueSegment.writeTo(bb);
+        }
         if (bb.position() < bb.capacity()) {
             int length = bb.position();
             byte[] v = new byte[length];
@@ -16,6 +16,7 @@ import org.yamcs.utils.DatabaseCorruptionException;
 import org.yamcs.utils.DecodingException;
 import org.yamcs.utils.SortedIntArray;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.util.DoubleRange;
 import org.yamcs.yarch.rocksdb.AscendingRangeIterator;
 import org.yamcs.yarch.rocksdb.DbIterator;
 import org.yamcs.yarch.rocksdb.DescendingRangeIterator;
@@ -55,16 +56,13 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
 
     ParameterArchive parchive;
 
-    List<Partition> partitions;
-
-    // iterates over partitions
-    Iterator<Partition> topIt;
-
-    // iterates over segments in one partition
-    SubIterator subIt;
+    // iterates over the segments from all partitions, possibly reading ahead on a different thread
+    ParchiveIterator<ParameterValueSegment> archiveIt;
 
     final boolean ascending, retrieveEngValues, retrieveRawValues, retrieveParameterStatus;
     final long start, stop;
+    // if not null, the segments whose zone map does not intersect this range are skipped
+    final DoubleRange valueRange;
 
     ParameterValueSegment curValue;
     Iterator<ParameterValueSegment> rtIterator;
@@ -81,15 +79,16 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
         this.retrieveEngValues = req.retrieveEngValues();
         this.retrieveRawValues = (parameterId.getRawType() == null) ? false : req.retrieveRawValues();
         this.retrieveParameterStatus = req.retrieveParameterStatus();
+        this.valueRange = req.valueRange();
 
         int pid = parameterId.getPid();
 
         rtfiller = parchive.getRealtimeFiller();
 
         if (retrieveEngValues || retrieveRawValues || retrieveParameterStatus) {
-            partitions = parchive.getPartitions(getIntervalStart(req.start()), getIntervalEnd(req.stop()),
-                    req.ascending());
-            topIt = partitions.iterator();
+            List<Partition> partitions = parchive.getPartitions(getIntervalStart(req.start()),
+                    getIntervalEnd(req.stop()), req.ascending());
+            archiveIt = parchive.readAhead(new PartitionIterator(partitions));
 
             if (rtfiller != null && !ascending) {
                 rtIterator = rtfiller.getSegments(pid, parameterGroupId, ascending).iterator();
@@ -125,10 +124,9 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
             }
         }
 
-        subIt = getPartitionIterator();
-        if (subIt != null) {
-            curValue = subIt.value();
-            subIt.next();
+        if (archiveIt.isValid()) {
+            curValue = archiveIt.value();
+            archiveIt.next();
             return;
         } else {
             curValue = null;
@@ -156,30 +154,12 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
         }
     }
 
-    private SubIterator getPartitionIterator() {
-        while (subIt == null || !subIt.isValid()) {
-            if (topIt.hasNext()) {
-                Partition p = topIt.next();
-                close(subIt);
-                subIt = new SubIterator(p);
-            } else {
-                close(subIt);
-                return null;
-            }
-        }
-        return subIt;
-    }
-
     /**
      * Close the underlying rocks iterator if not already closed
      */
     public void close() {
-        close(subIt);
-    }
-
-    private void close(SubIterator pit) {
-        if (pit != null) {
-            pit.close();
+        if (archiveIt != null) {
+            archiveIt.close();
         }
     }
 
@@ -191,6 +171,85 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
         return parameterId;
     }
 
+    /**
+     * Iterates over the segments of all the partitions, decoding them on demand
+     */
+    class PartitionIterator implements ParchiveIterator<ParameterValueSegment> {
+        // iterates over partitions
+        final Iterator<Partition> topIt;
+
+        // iterates over segments in one partition
+        SubIterator subIt;
+
+        ParameterValueSegment value;
+        boolean loaded = false;
+
+        PartitionIterator(List<Partition> partitions) {
+            this.topIt = partitions.iterator();
+        }
+
+        @Override
+        public boolean isValid() {
+            load();
+            return value != null;
+        }
+
+        @Override
+        public ParameterValueSegment value() {
+            load();
+            if (value == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public void next() {
+            load();
+            loaded = false;
+        }
+
+        private void load() {
+            if (loaded) {
+                return;
+            }
+            SubIterator sit = getPartitionIterator();
+            if (sit != null) {
+                value = sit.value();
+                sit.next();
+            } else {
+                value = null;
+            }
+            loaded = true;
+        }
+
+        private SubIterator getPartitionIterator() {
+            while (subIt == null || !subIt.isValid()) {
+                if (topIt.hasNext()) {
+                    Partition p = topIt.next();
+                    closeSubIterator();
+                    subIt = new SubIterator(p);
+                } else {
+                    closeSubIterator();
+                    return null;
+                }
+            }
+            return subIt;
+        }
+
+        @Override
+        public void close() {
+            closeSubIterator();
+        }
+
+        private void closeSubIterator() {
+            if (subIt != null) {
+                subIt.close();
+                subIt = null;
+            }
+        }
+    }
+
     class SubIterator {
         final Partition partition;
         private SegmentKey currentKey;
@@ -200,6 +259,7 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
         private byte[] currentStatusSegment;
         private byte[] currentGaps;
         long currentGapsSegmentStart;
+        private byte[] currentZoneMap;
         /**
          * Iterator with options containing a snapshot to ensure that the time and value segments are consistent
          */
@@ -240,14 +300,26 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
         }
 
         public void next() {
-            if (!dbIterator.isValid()) {
-                valid = false;
-                return;
+            while (dbIterator.isValid()) {
+                currentZoneMap = null;
+                if (ascending) {
+                    nextAscending();
+                } else {
+                    nextDescending();
+                }
+                if (currentZoneMap == null || zoneMapMatches()) {
+                    return;
+                }
             }
-            if (ascending) {
-                nextAscending();
-            } else {
-                nextDescending();
+            valid = false;
+        }
+
+        private boolean zoneMapMatches() {
+            try {
+                var zm = (ZoneMapSegment) SegmentEncoderDecoder.decode(currentZoneMap, currentKey.segmentStart);
+                return zm.mayMatch(valueRange);
+            } catch (DecodingException e) {
+                throw new DatabaseCorruptionException(e);
             }
         }
 
@@ -310,6 +382,11 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
                 currentGapsSegmentStart = currentKey.segmentStart;
                 currentGaps = dbIterator.value();
                 break;
+            case SegmentKey.TYPE_ZONE_MAP:
+                if (valueRange != null) {
+                    currentZoneMap = dbIterator.value();
+                }
+                break;
             }
         }
 
@@ -335,20 +412,20 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
 
                 ValueSegment _engValueSegment = null;
                 if (currentEngValueSegment != null) {
-                    _engValueSegment = (ValueSegment) SegmentEncoderDecoder.decode(currentEngValueSegment, segStart);
+                    _engValueSegment = (ValueSegment) decode(currentEngValueSegment, SegmentKey.TYPE_ENG_VALUE, segStart);
                 }
 
                 ValueSegment engValueSegment = retrieveEngValues ? _engValueSegment : null;
 
                 ValueSegment rawValueSegment = null;
                 if (currentRawValueSegment != null) {
-                    rawValueSegment = (ValueSegment) SegmentEncoderDecoder.decode(currentRawValueSegment, segStart);
+                    rawValueSegment = (ValueSegment) decode(currentRawValueSegment, SegmentKey.TYPE_RAW_VALUE, segStart);
                 } else if (retrieveRawValues) {
                     rawValueSegment = _engValueSegment;
                 }
                 ParameterStatusSegment parameterStatusSegment = currentStatusSegment == null ? null
-                        : (ParameterStatusSegment) SegmentEncoderDecoder.decode(currentStatusSegment,
-                                segStart);
+                        : (ParameterStatusSegment) decode(currentStatusSegment,
+                                SegmentKey.TYPE_PARAMETER_STATUS, segStart);
                 SortedIntArray gaps = currentGaps == null || segStart != currentGapsSegmentStart ? null
                         : SegmentEncoderDecoder.decodeGaps(currentGaps);
 
@@ -364,6 +441,12 @@ public class SegmentIterator implements ParchiveIterator<ParameterValueSegment>
 
         }
 
+        // decodes the segment going through the segment cache of the parameter archive
+        private BaseSegment decode(byte[] value, byte type, long segStart) throws DecodingException {
+            SegmentKey key = new SegmentKey(parameterId.getPid(), parameterGroupId, segStart, type);
+            return parchive.decodeSegment(partition.version == 0 ? key.encodeV0() : key.encode(), value, segStart);
+        }
+
         /**
          * Checks that the size of the engingeering raw and parameter status is the same and the size of the gaps with
          * the size of the values is equal to the size of the timestamp segment.
@@ -17,6 +17,11 @@ public class SegmentKey {
     public static final byte TYPE_RAW_VALUE = 1;
     public static final byte TYPE_PARAMETER_STATUS = 2;
     public static final byte TYPE_GAPS = 3;
+    // the rollup segments use one type for each level, starting with this one
+    public static final byte TYPE_ROLLUP = 4;
+    // the zone map of the engineering values; the types between the rollups and this one are reserved for future
+    // rollup levels
+    public static final byte TYPE_ZONE_MAP = 16;
 
     public SegmentKey(int parameterId, int parameterGroupId, long segmentStart, byte type) {
         this.parameterId = parameterId;
@@ -25,6 +30,13 @@ public class SegmentKey {
         this.type = type;
     }
 
+    /**
+     * returns the key type used for the rollup segments of the given level
+     */
+    public static byte rollupType(int level) {
+        return (byte) (TYPE_ROLLUP + level);
+    }
+
     /**
      * Key encode in Yamcs starting with 5.10 - we use the invertSign for the timestamps in order for the negative times
      * to sort before the positive ones in the archive
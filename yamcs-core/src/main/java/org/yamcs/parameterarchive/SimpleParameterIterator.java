@@ -44,6 +44,13 @@ public class SimpleParameterIterator implements ParameterIterator {
 
     @Override
     public void next() {
+        do {
+            nextValue();
+        } while (currentValue != null && req.valueRange() != null
+                && !ValueRangeFilter.inRange(req.valueRange(), currentValue.engValue));
+    }
+
+    private void nextValue() {
         currentValue = null;
 
         if (pvsIt == null || !pvsIt.isValid()) {
@@ -154,6 +154,9 @@ public class SingleParameterRetrieval {
         }
 
         ParameterValueArray pva = pvs.getRange(posStart, posStop, pvr.ascending(), pvr.retrieveParameterStatus());
+        if (pva != null && pvr.valueRange() != null) {
+            pva = ValueRangeFilter.filter(pvr.valueRange(), pva);
+        }
         if (pva != null) {
             consumer.accept(pva);
         }
@@ -0,0 +1,450 @@
+package org.yamcs.parameterarchive;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.yamcs.parameter.BasicParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.yarch.protobuf.Db.ParameterStatus;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * FIFO buffer for the records (timestamp and sorted parameter list) which the realtime filler cannot keep in its
+ * queues, either because the heap memory is low or because the queues are full (the archive writing does not keep up
+ * with the incoming data).
+ * <p>
+ * The records are serialised with a compact primitive layout (no object per value) into a direct buffer allocated
+ * outside of the heap. When this buffer is full, the records are appended to a spill file which is deleted once it has
+ * been read completely. Once the spill file contains data, all the new records are appended to it such that the
+ * records are always read back in the order in which they have been added.
+ * <p>
+ * This class is not thread safe.
+ */
+class SpillBuffer implements Closeable {
+    static final byte STATUS_ACQUIRED = 0;
+    static final byte STATUS_FULL = 1;
+
+    final int memoryCapacity;
+    final long maxFileSize;
+    // provides the directory where the spill file is created, called only when the file is needed
+    final Supplier<Path> dirSupplier;
+
+    // allocated when the first record is added; the data between memReadPos and position() is not yet read
+    private ByteBuffer memBuf;
+    private int memReadPos;
+
+    private FileChannel file;
+    private Path filePath;
+    private long fileReadPos;
+    private long fileWritePos;
+
+    // used to serialise a record before appending it and to read a record from the file
+    private ByteBuffer recBuf = ByteBuffer.allocate(4096);
+
+    // size and source of the last record returned by peek()
+    private int peekedSize = -1;
+    private boolean peekedFromFile;
+
+    private int numRecords;
+
+    /**
+     * @param memoryCapacity
+     *            size in bytes of the off-heap buffer; if 0 all the records are written to the file
+     * @param maxFileSize
+     *            maximum size in bytes of the spill file; if 0 no file is used
+     * @param dirSupplier
+     *            supplies the directory where the spill file is created
+     */
+    SpillBuffer(int memoryCapacity, long maxFileSize, Supplier<Path> dirSupplier) {
+        this.memoryCapacity = memoryCapacity;
+        this.maxFileSize = maxFileSize;
+        this.dirSupplier = dirSupplier;
+    }
+
+    /**
+     * Appends the record to the buffer.
+     *
+     * @return false if the record could not be added because both the memory buffer and the spill file are full
+     * @throws IOException
+     *             if the record could not be written to the spill file
+     */
+    boolean add(long t, BasicParameterList pvList) throws IOException {
+        ByteBuffer bb = encode(t, pvList);
+        int size = bb.remaining();
+
+        if (fileWritePos == fileReadPos && putInMemory(bb)) {
+            numRecords++;
+            return true;
+        }
+        if (fileWritePos + size > maxFileSize) {
+            return false;
+        }
+        if (file == null) {
+            openFile();
+        }
+        while (bb.hasRemaining()) {
+            fileWritePos += file.write(bb, fileWritePos);
+        }
+        numRecords++;
+        return true;
+    }
+
+    private boolean putInMemory(ByteBuffer bb) {
+        int size = bb.remaining();
+        if (size > memoryCapacity) {
+            return false;
+        }
+        if (memBuf == null) {
+            memBuf = ByteBuffer.allocateDirect(memoryCapacity);
+        }
+        if (memBuf.remaining() < size && memReadPos > 0) {
+            // move the unread data to the beginning of the buffer
+            memBuf.flip().position(memReadPos);
+            memBuf.compact();
+            memReadPos = 0;
+        }
+        if (memBuf.remaining() < size) {
+            return false;
+        }
+        memBuf.put(bb);
+        return true;
+    }
+
+    private void openFile() throws IOException {
+        Path dir = dirSupplier.get();
+        Files.createDirectories(dir);
+        filePath = Files.createTempFile(dir, "parchive-spill-", ".dat");
+        file = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /**
+     * Returns the oldest record without removing it from the buffer or null if the buffer is empty.
+     *
+     * @throws IOException
+     *             if the record could not be read from the spill file
+     * @throws DecodingException
+     *             if the record could not be decoded
+     */
+    SpilledRecord peek() throws IOException, DecodingException {
+        ByteBuffer bb;
+        if (memBuf != null && memReadPos < memBuf.position()) {
+            bb = memBuf.duplicate();
+            bb.limit(memBuf.position()).position(memReadPos);
+            peekedFromFile = false;
+        } else if (fileReadPos < fileWritePos) {
+            bb = readFromFile();
+            peekedFromFile = true;
+        } else {
+            return null;
+        }
+        int start = bb.position();
+        SpilledRecord r = decode(bb);
+        peekedSize = bb.position() - start;
+        return r;
+    }
+
+    private ByteBuffer readFromFile() throws IOException {
+        ByteBuffer lenBuf = ByteBuffer.allocate(4);
+        readFully(lenBuf, fileReadPos);
+        int size = lenBuf.getInt(0);
+        if (recBuf.capacity() < size) {
+            recBuf = ByteBuffer.allocate(size);
+        }
+        recBuf.clear().limit(size);
+        readFully(recBuf, fileReadPos);
+        recBuf.flip();
+        return recBuf;
+    }
+
+    private void readFully(ByteBuffer bb, long pos) throws IOException {
+        while (bb.hasRemaining()) {
+            int n = file.read(bb, pos);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of the spill file " + filePath);
+            }
+            pos += n;
+        }
+    }
+
+    /**
+     * Removes the record returned by the last call to {@link #peek()}.
+     * <p>
+     * No record can be added between the calls to peek and remove.
+     */
+    void remove() throws IOException {
+        if (peekedSize < 0) {
+            throw new IllegalStateException("No record to remove");
+        }
+        if (peekedFromFile) {
+            fileReadPos += peekedSize;
+            if (fileReadPos == fileWritePos) {
+                // the file has been completely read, it is deleted on close
+                closeFile();
+            }
+        } else {
+            memReadPos += peekedSize;
+            if (memReadPos == memBuf.position()) {
+                memBuf.clear();
+                memReadPos = 0;
+            }
+        }
+        peekedSize = -1;
+        numRecords--;
+    }
+
+    boolean isEmpty() {
+        return numRecords == 0;
+    }
+
+    int numRecords() {
+        return numRecords;
+    }
+
+    /**
+     * @return the number of bytes of the records not yet removed
+     */
+    long size() {
+        long memSize = memBuf == null ? 0 : memBuf.position() - memReadPos;
+        return memSize + fileWritePos - fileReadPos;
+    }
+
+    private void closeFile() throws IOException {
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+        fileReadPos = fileWritePos = 0;
+    }
+
+    /**
+     * Discards all the records and deletes the spill file.
+     */
+    @Override
+    public void close() throws IOException {
+        memBuf = null;
+        memReadPos = 0;
+        numRecords = 0;
+        peekedSize = -1;
+        closeFile();
+    }
+
+    // encodes the record including its size at the beginning
+    private ByteBuffer encode(long t, BasicParameterList pvList) {
+        while (true) {
+            try {
+                recBuf.clear();
+                recBuf.putInt(0);
+                recBuf.putLong(t);
+                int numLists = 0;
+                for (var l = pvList; l != null; l = l.next()) {
+                    numLists++;
+                }
+                recBuf.putInt(numLists);
+                for (var l = pvList; l != null; l = l.next()) {
+                    IntArray pids = l.getPids();
+                    recBuf.putInt(pids.size());
+                    for (int i = 0; i < pids.size(); i++) {
+                        recBuf.putInt(pids.get(i));
+                        encode(l.getValues().get(i));
+                    }
+                }
+                recBuf.putInt(0, recBuf.position());
+                return recBuf.flip();
+            } catch (BufferOverflowException e) {
+                recBuf = ByteBuffer.allocate(2 * recBuf.capacity());
+            }
+        }
+    }
+
+    private void encode(BasicParameterValue pv) {
+        encodeValue(pv.getEngValue());
+        Value rawValue = pv.getRawValue();
+        if (rawValue == null) {
+            recBuf.put((byte) -1);
+        } else {
+            encodeValue(rawValue);
+        }
+        // same condition as in ParameterStatusSegment.getStatus
+        if (pv.getAcquisitionStatus(false) == AcquisitionStatus.ACQUIRED && pv.getMonitoringResult() == null) {
+            recBuf.put(STATUS_ACQUIRED);
+            recBuf.putLong(pv.getExpireMillis());
+        } else {
+            recBuf.put(STATUS_FULL);
+            putBytes(pv.getStatus().toProtoBuf(false).toByteArray());
+        }
+    }
+
+    private void encodeValue(Value v) {
+        Type type = v.getType();
+        recBuf.put((byte) type.getNumber());
+        switch (type) {
+        case FLOAT:
+            recBuf.putFloat(v.getFloatValue());
+            break;
+        case DOUBLE:
+            recBuf.putDouble(v.getDoubleValue());
+            break;
+        case UINT32:
+            recBuf.putInt(v.getUint32Value());
+            break;
+        case SINT32:
+            recBuf.putInt(v.getSint32Value());
+            break;
+        case UINT64:
+            recBuf.putLong(v.getUint64Value());
+            break;
+        case SINT64:
+            recBuf.putLong(v.getSint64Value());
+            break;
+        case TIMESTAMP:
+            recBuf.putLong(v.getTimestampValue());
+            break;
+        case BOOLEAN:
+            recBuf.put((byte) (v.getBooleanValue() ? 1 : 0));
+            break;
+        case STRING:
+            putBytes(v.getStringValue().getBytes(StandardCharsets.UTF_8));
+            break;
+        case BINARY:
+            putBytes(v.getBinaryValue());
+            break;
+        case ENUMERATED:
+            recBuf.putLong(v.getSint64Value());
+            putBytes(v.getStringValue().getBytes(StandardCharsets.UTF_8));
+            break;
+        default:
+            // the aggregates and arrays are split into their members by the BasicParameterList
+            putBytes(ValueUtility.toGbp(v).toByteArray());
+        }
+    }
+
+    private void putBytes(byte[] b) {
+        recBuf.putInt(b.length);
+        recBuf.put(b);
+    }
+
+    private static SpilledRecord decode(ByteBuffer bb) throws DecodingException {
+        try {
+            bb.getInt();
+            long t = bb.getLong();
+            int numLists = bb.getInt();
+            BasicParameterList first = null;
+            BasicParameterList prev = null;
+            for (int k = 0; k < numLists; k++) {
+                int n = bb.getInt();
+                IntArray pids = new IntArray(n);
+                List<BasicParameterValue> values = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    pids.add(bb.getInt());
+                    values.add(decodeParameterValue(bb));
+                }
+                BasicParameterList l = new BasicParameterList(pids, values);
+                if (prev == null) {
+                    first = l;
+                } else {
+                    prev.next = l;
+                }
+                prev = l;
+            }
+            return new SpilledRecord(t, first);
+        } catch (RuntimeException | InvalidProtocolBufferException e) {
+            throw new DecodingException("Cannot decode spilled record", e);
+        }
+    }
+
+    private static BasicParameterValue decodeParameterValue(ByteBuffer bb) throws InvalidProtocolBufferException {
+        BasicParameterValue pv = new BasicParameterValue();
+        pv.setEngValue(decodeValue(bb, bb.get()));
+        byte rawType = bb.get();
+        if (rawType != -1) {
+            pv.setRawValue(decodeValue(bb, rawType));
+        }
+        if (bb.get() == STATUS_ACQUIRED) {
+            pv.setExpireMillis(bb.getLong());
+        } else {
+            ParameterStatus ps = ParameterStatus.parseFrom(getBytes(bb));
+            if (ps.hasAcqStatus()) {
+                pv.setAcqStatus(ps.getAcqStatus());
+            } else if (ps.hasAcquisitionStatus()) {
+                pv.setAcqStatus(org.yamcs.parameter.ParameterStatus.getAcquisitionStatus(ps.getAcquisitionStatus()));
+            }
+            if (ps.hasMonitoringResult()) {
+                pv.setMonitoringResult(ps.getMonitoringResult());
+            }
+            if (ps.getAlarmRangeCount() > 0) {
+                pv.addAlarmRanges(ps.getAlarmRangeList());
+            }
+            if (ps.hasExpireMillis()) {
+                pv.setExpireMillis(ps.getExpireMillis());
+            }
+            if (ps.hasRangeCondition()) {
+                pv.setRangeCondition(ps.getRangeCondition());
+            }
+        }
+        return pv;
+    }
+
+    private static Value decodeValue(ByteBuffer bb, byte typeNum) throws InvalidProtocolBufferException {
+        Type type = Type.forNumber(typeNum);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown value type " + typeNum);
+        }
+        switch (type) {
+        case FLOAT:
+            return ValueUtility.getFloatValue(bb.getFloat());
+        case DOUBLE:
+            return ValueUtility.getDoubleValue(bb.getDouble());
+        case UINT32:
+            return ValueUtility.getUint32Value(bb.getInt());
+        case SINT32:
+            return ValueUtility.getSint32Value(bb.getInt());
+        case UINT64:
+            return ValueUtility.getUint64Value(bb.getLong());
+        case SINT64:
+            return ValueUtility.getSint64Value(bb.getLong());
+        case TIMESTAMP:
+            return ValueUtility.getTimestampValue(bb.getLong());
+        case BOOLEAN:
+            return ValueUtility.getBooleanValue(bb.get() != 0);
+        case STRING:
+            return ValueUtility.getStringValue(new String(getBytes(bb), StandardCharsets.UTF_8));
+        case BINARY:
+            return ValueUtility.getBinaryValue(getBytes(bb));
+        case ENUMERATED:
+            long l = bb.getLong();
+            return ValueUtility.getEnumeratedValue(l, new String(getBytes(bb), StandardCharsets.UTF_8));
+        default:
+            return ValueUtility.fromGpb(org.yamcs.protobuf.Yamcs.Value.parseFrom(getBytes(bb)));
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer bb) {
+        byte[] b = new byte[bb.getInt()];
+        bb.get(b);
+        return b;
+    }
+
+    /**
+     * Record read from the spill buffer
+     */
+    static record SpilledRecord(long t, BasicParameterList pvList) {
+    }
+}
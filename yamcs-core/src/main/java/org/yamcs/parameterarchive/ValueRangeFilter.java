@@ -0,0 +1,79 @@
+package org.yamcs.parameterarchive;
+
+import org.yamcs.parameter.Value;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.xtce.util.DoubleRange;
+import org.yamcs.yarch.protobuf.Db.ParameterStatus;
+
+/**
+ * Filters the values based on a range of their numeric engineering value.
+ * <p>
+ * The non-numeric values (including the timestamps) and the NaN values are never in range.
+ * <p>
+ * The {@link ZoneMapSegment zone maps} are used to skip the segments which cannot contain values in range; this class
+ * is used to filter the values of the remaining segments and the values which are not coming from the archive.
+ */
+public class ValueRangeFilter {
+
+    public static boolean isNumeric(Type type) {
+        switch (type) {
+        case FLOAT:
+        case DOUBLE:
+        case SINT32:
+        case UINT32:
+        case SINT64:
+        case UINT64:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    public static boolean inRange(DoubleRange range, Value v) {
+        if (v == null || !isNumeric(v.getType())) {
+            return false;
+        }
+        double d = v.toDouble();
+        return !Double.isNaN(d) && range.inRange(d) == 0;
+    }
+
+    /**
+     * Returns an array containing only the values whose engineering value is in range or null if there is no such
+     * value (including when the engineering values have not been retrieved).
+     * <p>
+     * If all the values are in range, the array passed as argument is returned.
+     */
+    public static ParameterValueArray filter(DoubleRange range, ParameterValueArray pva) {
+        if (pva.engValues == null || !isNumeric(pva.engValues.getType())) {
+            return null;
+        }
+        double[] values = RollupSegment.toDoubleArray(pva.engValues);
+        int[] idx = new int[values.length];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            double d = values[i];
+            if (!Double.isNaN(d) && range.inRange(d) == 0) {
+                idx[n++] = i;
+            }
+        }
+        if (n == 0) {
+            return null;
+        }
+        if (n == values.length) {
+            return pva;
+        }
+        long[] timestamps = new long[n];
+        ParameterStatus[] paramStatus = pva.paramStatus == null ? null : new ParameterStatus[n];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = pva.timestamps[idx[i]];
+            if (paramStatus != null) {
+                paramStatus[i] = pva.paramStatus[idx[i]];
+            }
+        }
+        var engValues = pva.engValues.subset(idx, n);
+        var rawValues = pva.rawValues == null ? null
+                : pva.rawValues == pva.engValues ? engValues : pva.rawValues.subset(idx, n);
+
+        return new ParameterValueArray(timestamps, engValues, rawValues, paramStatus);
+    }
+}
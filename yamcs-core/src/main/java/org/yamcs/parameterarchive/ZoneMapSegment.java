@@ -0,0 +1,174 @@
+package org.yamcs.parameterarchive;
+
+import java.nio.ByteBuffer;
+
+import org.yamcs.protobuf.Pvalue.AcquisitionStatus;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.VarIntUtil;
+import org.yamcs.xtce.util.DoubleRange;
+import org.yamcs.yarch.protobuf.Db.ParameterStatus;
+
+/**
+ * Summary of the engineering values of one numeric parameter over one interval: the number of values, the number of
+ * NaN values, the number of values with an invalid acquisition status and the minimum and maximum of the non NaN
+ * values.
+ * <p>
+ * The zone map is written together with the value segments and is stored under its own {@link SegmentKey} type with
+ * the interval start as segment start. It is used to skip the segments that cannot contain values in a requested range
+ * without reading and decoding them.
+ * <p>
+ * Like the {@link RollupSegment}, the zone map cannot be merged by the RocksDB merge operator; when a subsequent
+ * segment of the interval is written, the existing zone map is read, {@link #merge(ZoneMapSegment) merged} in Java and
+ * written back.
+ */
+public class ZoneMapSegment extends BaseSegment {
+    int count;
+    int nanCount;
+    int invalidCount;
+    // NaN if all the values are NaN
+    double min = Double.NaN;
+    double max = Double.NaN;
+
+    ZoneMapSegment() {
+        super(FORMAT_ID_ZoneMapSegment);
+    }
+
+    /**
+     * Builds the zone map from the engineering values and statuses of the parameter value segment.
+     * <p>
+     * Returns null if the values are not numeric.
+     */
+    static ZoneMapSegment build(ParameterValueSegment pvs) {
+        ValueSegment vs = pvs.engValueSegment;
+        if (vs == null || !RollupSegment.isNumeric(vs)) {
+            return null;
+        }
+        int n = vs.size();
+        ZoneMapSegment zm = new ZoneMapSegment();
+        if (n == 0) {
+            return zm;
+        }
+        for (double v : RollupSegment.toDoubleArray(vs.getRange(0, n, true))) {
+            zm.add(v);
+        }
+        BaseSegment pss = pvs.getConsolidatedParmeterStatusSegment();
+        if (pss instanceof ParameterStatusSegment statusSegment && statusSegment.size() == n) {
+            for (ParameterStatus ps : statusSegment.getRangeArray(0, n, true)) {
+                if (isInvalid(ps)) {
+                    zm.invalidCount++;
+                }
+            }
+        }
+        return zm;
+    }
+
+    private static boolean isInvalid(ParameterStatus ps) {
+        if (ps.hasAcqStatus()) {
+            return ps.getAcqStatus() == AcquisitionStatus.INVALID;
+        } else if (ps.hasAcquisitionStatus()) {
+            return org.yamcs.parameter.ParameterStatus
+                    .getAcquisitionStatus(ps.getAcquisitionStatus()) == AcquisitionStatus.INVALID;
+        } else {
+            return false;
+        }
+    }
+
+    void add(double v) {
+        count++;
+        if (Double.isNaN(v)) {
+            nanCount++;
+        } else if (Double.isNaN(min)) {
+            min = v;
+            max = v;
+        } else {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+    }
+
+    /**
+     * Adds the statistics of the other zone map (corresponding to another segment of the same interval) to this one.
+     */
+    void merge(ZoneMapSegment other) {
+        count += other.count;
+        nanCount += other.nanCount;
+        invalidCount += other.invalidCount;
+        if (Double.isNaN(min)) {
+            min = other.min;
+            max = other.max;
+        } else if (!Double.isNaN(other.min)) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * Returns false if none of the values summarised by this zone map is in the range.
+     * <p>
+     * A NaN min or max of the range means that the range is unbounded on that side; the NaN values are never in range.
+     */
+    public boolean mayMatch(DoubleRange range) {
+        if (Double.isNaN(min)) {
+            return false;
+        }
+        // the values cover [min, max], there is an intersection unless the range is entirely below or above
+        return range.inRange(max) >= 0 && range.inRange(min) <= 0;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer bb) {
+        VarIntUtil.writeVarInt32(bb, count);
+        VarIntUtil.writeVarInt32(bb, nanCount);
+        VarIntUtil.writeVarInt32(bb, invalidCount);
+        bb.putDouble(min);
+        bb.putDouble(max);
+    }
+
+    public static ZoneMapSegment parseFrom(ByteBuffer bb) throws DecodingException {
+        ZoneMapSegment zm = new ZoneMapSegment();
+        zm.count = VarIntUtil.readVarInt32(bb);
+        zm.nanCount = VarIntUtil.readVarInt32(bb);
+        zm.invalidCount = VarIntUtil.readVarInt32(bb);
+        if (zm.nanCount > zm.count || zm.invalidCount > zm.count) {
+            throw new DecodingException("Invalid zone map counts");
+        }
+        zm.min = bb.getDouble();
+        zm.max = bb.getDouble();
+        return zm;
+    }
+
+    @Override
+    public int getMaxSerializedSize() {
+        return 3 * 5 + 2 * 8;
+    }
+
+    /**
+     * @return the number of values summarised by this zone map
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    public int getNanCount() {
+        return nanCount;
+    }
+
+    public int getInvalidCount() {
+        return invalidCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "ZoneMapSegment [count=" + count + ", nanCount=" + nanCount + ", invalidCount=" + invalidCount
+                + ", min=" + min + ", max=" + max + "]";
+    }
+}
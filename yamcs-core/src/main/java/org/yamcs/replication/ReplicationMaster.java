@@ -34,6 +34,7 @@ import org.yamcs.YamcsServer;
 import org.yamcs.replication.protobuf.ColumnInfo;
 import org.yamcs.replication.protobuf.Request;
 import org.yamcs.replication.protobuf.StreamInfo;
+import org.yamcs.yarch.AsyncStreamSubscriber.OverflowPolicy;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.ColumnSerializer;
 import org.yamcs.yarch.ColumnSerializerFactory;
@@ -87,6 +88,9 @@ public class ReplicationMaster extends AbstractYamcsService {
     Pattern filePattern;
     int maxTupleSize;
     long timeMsgFreqMillis;
+    // if greater than 0, the streams are written to the file from a separate thread, through a queue of this size
+    int asyncQueueSize;
+    OverflowPolicy asyncOverflowPolicy;
 
     ScheduledFuture<?> closeUnusedFilesSchedule;
     ScheduledFuture<?> deleteExpiredFilesSchedule;
@@ -105,6 +109,8 @@ public class ReplicationMaster extends AbstractYamcsService {
         maxFileSize = 1024 * config.getInt("maxFileSizeKB", 100 * 1024);
         this.maxTupleSize = config.getInt("maxTupleSize");
         this.timeMsgFreqMillis = config.getLong("timeMsgFreqSec") * 1000;
+        this.asyncQueueSize = config.getInt("asyncQueueSize");
+        this.asyncOverflowPolicy = config.getEnum("asyncOverflowPolicy", OverflowPolicy.class);
 
         int hdrSize = ReplicationFile.headerSize(pageSize, maxPages);
         if (maxFileSize < hdrSize) {
@@ -198,6 +204,13 @@ public class ReplicationMaster extends AbstractYamcsService {
                 .withDescription("Maximum size of the serialized tuple");
         spec.addOption("timeMsgFreqSec", OptionType.INTEGER).withDefault(10)
                 .withDescription("How often (in seconds) to send the time message to the slaves");
+        spec.addOption("asyncQueueSize", OptionType.INTEGER).withDefault(0)
+                .withDescription("If greater than 0, the tuples are written to the replication file in a separate "
+                        + "thread for each stream, through a queue of this size");
+        spec.addOption("asyncOverflowPolicy", OptionType.STRING)
+                .withChoices(OverflowPolicy.class)
+                .withDefault(OverflowPolicy.BLOCK)
+                .withDescription("What to do when the queue of an asynchronous stream is full");
 
         return spec;
     }
@@ -426,8 +439,12 @@ public class ReplicationMaster extends AbstractYamcsService {
 
         StreamToFile(Stream s, int streamId) {
             this.stream = s;
-            stream.addSubscriber(this);
             this.streamId = streamId;
+            if (asyncQueueSize > 0) {
+                stream.addAsyncSubscriber(this, asyncQueueSize, asyncOverflowPolicy);
+            } else {
+                stream.addSubscriber(this);
+            }
         }
 
         @Override
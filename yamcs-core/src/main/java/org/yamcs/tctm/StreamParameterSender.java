@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -30,6 +31,8 @@ public class StreamParameterSender {
     TimeService timeService;
     protected final Log log;
     Map<String, AtomicInteger> groupSeq = new HashMap<>();
+    // the last definition used for each group, shared by the tuples as long as the same parameters are sent
+    final Map<String, TupleDefinition> groupDefs = new ConcurrentHashMap<>();
 
     public StreamParameterSender(String yamcsInstance, Stream stream) {
         this.stream = stream;
@@ -59,7 +62,22 @@ public class StreamParameterSender {
     }
 
     public void updateParameters(long gentime, String group, int seqNum, Collection<ParameterValue> params) {
-        TupleDefinition tdef = StandardTupleDefinitions.PARAMETER.copy();
+        int n = StandardTupleDefinitions.PARAMETER.size();
+        TupleDefinition tdef = groupDefs.get(group);
+        if (tdef != null && matches(tdef, n, params)) {
+            Object[] cols = new Object[n + params.size()];
+            cols[0] = gentime;
+            cols[1] = group;
+            cols[2] = seqNum;
+            cols[3] = timeService.getMissionTime();
+            for (ParameterValue pv : params) {
+                cols[n++] = pv;
+            }
+            stream.emitTuple(new Tuple(tdef, cols));
+            return;
+        }
+
+        tdef = StandardTupleDefinitions.PARAMETER.copy();
         List<Object> cols = new ArrayList<>(4 + params.size());
         cols.add(gentime);
         cols.add(group);
@@ -76,8 +94,22 @@ public class StreamParameterSender {
             tdef.addColumn(qualifiedName, DataType.PARAMETER_VALUE);
             cols.add(pv);
         }
+        groupDefs.put(group, tdef.freeze());
         Tuple t = new Tuple(tdef, cols);
         stream.emitTuple(t);
     }
 
+    // true if the definition contains exactly the given parameters in the same order, after the first n columns
+    private static boolean matches(TupleDefinition tdef, int n, Collection<ParameterValue> params) {
+        if (tdef.size() != n + params.size()) {
+            return false;
+        }
+        for (ParameterValue pv : params) {
+            if (!tdef.getColumn(n++).getName().equals(pv.getParameterQualifiedName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
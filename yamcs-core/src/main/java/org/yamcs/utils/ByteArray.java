@@ -244,6 +244,29 @@ public class ByteArray {
         position += bp.length;
     }
 
+    /**
+     * advance the position with n bytes
+     */
+    public void skip(int n) {
+        if (n < 0) {
+            throw new IndexOutOfBoundsException("Negative skip: " + n);
+        }
+        rangeCheck(position + n);
+        position += n;
+    }
+
+    /**
+     * advance the position after the next null byte
+     */
+    public void skipNullTerminated() {
+        int i = position;
+        while (i < length && a[i] != 0) {
+            i++;
+        }
+        rangeCheck(i + 1);
+        position = i + 1;
+    }
+
     public <T extends MessageLite.Builder> void getSizePrefixedProto(T builder) {
         int size = getInt();
         try {
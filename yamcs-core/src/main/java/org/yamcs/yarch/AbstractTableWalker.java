@@ -74,6 +74,18 @@ public abstract class AbstractTableWalker implements TableWalker {
     }
 
 
+    /**
+     * Returns an iterator going through the intervals one after the other.
+     * <p>
+     * Only the walkers implementing {@link #openInterval(PartitionManager.Interval, DbRange)} support it.
+     */
+    @Override
+    public TableIterator iterator() {
+        log.debug("Starting to iterate ascending: {}, rangeIndexFilter: {}", ascending, range);
+        running = true;
+        return new WalkerIterator();
+    }
+
     private Iterator<PartitionManager.Interval> getIntervalIterator() {
         PartitionManager partitionManager = ydb.getPartitionManager(tableDefinition);
         Iterator<PartitionManager.Interval> partitionIterator;
@@ -153,6 +165,16 @@ public abstract class AbstractTableWalker implements TableWalker {
     protected abstract boolean walkInterval(PartitionManager.Interval interval, DbRange range, TableVisitor visitor)
             throws YarchException, StreamSqlException;
 
+    /**
+     * Opens an iterator over the data in the time interval, restricted to the range. The keys returned by the iterator
+     * are the table keys.
+     * <p>
+     * The end of the range is checked by the caller, the iterator may return data beyond it.
+     */
+    protected TableIterator openInterval(PartitionManager.Interval interval, DbRange range) throws YarchException {
+        throw new UnsupportedOperationException();
+    }
+
     protected boolean isRunning() {
         return running;
     }
@@ -161,4 +183,81 @@ public abstract class AbstractTableWalker implements TableWalker {
     public void close() {
         running = false;
     }
+
+    /**
+     * Iterates through the data of all intervals, stopping at the end of the range.
+     */
+    class WalkerIterator implements TableIterator {
+        final Iterator<PartitionManager.Interval> partitionIterator = getIntervalIterator();
+        TableIterator current;
+
+        WalkerIterator() {
+            try {
+                seek();
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        // positions the iterator on the next row, opening the following intervals if necessary
+        private void seek() {
+            while (true) {
+                if (current != null) {
+                    if (!isRunning()) {
+                        close();
+                        return;
+                    }
+                    if (current.isValid()) {
+                        byte[] key = current.key();
+                        boolean finished = ascending ? iAscendingFinished(key, null, range.rangeEnd)
+                                : isDescendingFinished(key, null, range.rangeStart);
+                        if (finished) {
+                            close();
+                        } else {
+                            numRecordsRead++;
+                        }
+                        return;
+                    }
+                    current.close();
+                    current = null;
+                }
+                if (!isRunning() || !partitionIterator.hasNext()) {
+                    running = false;
+                    return;
+                }
+                current = openInterval(partitionIterator.next(), range);
+            }
+        }
+
+        @Override
+        public boolean isValid() {
+            return current != null;
+        }
+
+        @Override
+        public void next() {
+            current.next();
+            seek();
+        }
+
+        @Override
+        public byte[] key() {
+            return current.key();
+        }
+
+        @Override
+        public byte[] value() {
+            return current.value();
+        }
+
+        @Override
+        public void close() {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            AbstractTableWalker.this.close();
+        }
+    }
 }
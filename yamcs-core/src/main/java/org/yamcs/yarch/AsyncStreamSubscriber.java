@@ -0,0 +1,248 @@
+package org.yamcs.yarch;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.yamcs.logging.Log;
+
+/**
+ * Passes the tuples of a stream to a subscriber in a dedicated thread, such that a slow subscriber does not block the
+ * producer and the other subscribers of the stream.
+ * <p>
+ * The tuples are buffered in a bounded queue; when the queue is full, the behaviour is given by the
+ * {@link OverflowPolicy}.
+ * <p>
+ * Created with {@link Stream#addAsyncSubscriber(StreamSubscriber, int, OverflowPolicy)}.
+ */
+public class AsyncStreamSubscriber implements StreamSubscriber {
+    public enum OverflowPolicy {
+        /**
+         * the producer waits until there is space in the queue
+         */
+        BLOCK,
+        /**
+         * the oldest tuple in the queue is discarded to make space for the new one
+         */
+        DROP_OLDEST,
+        /**
+         * the subscriber is removed from the stream and the tuples in the queue are discarded
+         */
+        FAIL
+    }
+
+    private static final Entry STOP = new Entry(null, null, 0);
+
+    final Stream stream;
+    final StreamSubscriber subscriber;
+    final OverflowPolicy overflowPolicy;
+    final int queueCapacity;
+    final BlockingQueue<Entry> queue;
+    final Thread thread;
+    final Log log;
+
+    volatile boolean failed;
+    final AtomicLong droppedCount = new AtomicLong();
+
+    // updated only by the dispatching thread
+    volatile long processedCount;
+    volatile long totalLatencyNanos;
+    volatile long maxLatencyNanos;
+
+    AsyncStreamSubscriber(Stream stream, StreamSubscriber subscriber, int queueCapacity,
+            OverflowPolicy overflowPolicy) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The queue capacity has to be at least 1");
+        }
+        this.stream = stream;
+        this.subscriber = subscriber;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.log = new Log(getClass(), stream.ydb.getName());
+        log.setContext(stream.getName());
+
+        thread = new Thread(this::dispatch, "AsyncSubscriber[" + stream.getName() + "]");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void onTuple(Stream s, Tuple tuple) {
+        if (failed) {
+            return;
+        }
+        Entry e = new Entry(s, tuple, System.nanoTime());
+        switch (overflowPolicy) {
+        case BLOCK:
+            put(e);
+            break;
+        case DROP_OLDEST:
+            while (!queue.offer(e)) {
+                if (queue.poll() != null) {
+                    droppedCount.incrementAndGet();
+                }
+            }
+            break;
+        case FAIL:
+            if (!queue.offer(e)) {
+                log.error("The queue of subscriber {} is full ({} tuples), removing it from the stream", subscriber,
+                        queueCapacity);
+                droppedCount.incrementAndGet();
+                failed = true;
+                // this discards also the tuples from the queue
+                stream.removeSubscriber(this);
+            }
+            break;
+        default:
+            throw new IllegalStateException("Unknown overflow policy " + overflowPolicy);
+        }
+    }
+
+    @Override
+    public void streamClosed(Stream s) {
+        if (!failed) {
+            // the close is passed after all the tuples in the queue
+            put(new Entry(s, null, System.nanoTime()));
+        }
+    }
+
+    private void put(Entry e) {
+        try {
+            queue.put(e);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            log.info("Interrupted when passing data to subscriber {}", subscriber);
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                Entry e = queue.take();
+                if (e == STOP) {
+                    return;
+                }
+                if (e.tuple == null) {
+                    subscriber.streamClosed(e.stream);
+                    return;
+                }
+                try {
+                    subscriber.onTuple(e.stream, e.tuple);
+                } catch (Exception ex) {
+                    log.warn("Exception received when passing tuple to subscriber {}", subscriber, ex);
+                }
+                long latency = System.nanoTime() - e.enqueueTime;
+                processedCount++;
+                totalLatencyNanos += latency;
+                if (latency > maxLatencyNanos) {
+                    maxLatencyNanos = latency;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the dispatching thread, discarding the tuples from the queue. Called when the subscriber is removed from
+     * the stream.
+     */
+    void quit() {
+        droppedCount.addAndGet(queue.size());
+        queue.clear();
+        if (!queue.offer(STOP)) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     *
+     * @return the subscriber receiving the tuples
+     */
+    public StreamSubscriber getSubscriber() {
+        return subscriber;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     *
+     * @return the number of tuples waiting in the queue
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     *
+     * @return the number of tuples discarded due to the queue being full or the subscriber being removed
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     *
+     * @return the number of tuples passed to the subscriber
+     */
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     *
+     * @return the average time in nanoseconds between a tuple being emitted and the subscriber finishing processing
+     *         it
+     */
+    public long getMeanLatencyNanos() {
+        long n = processedCount;
+        return n == 0 ? 0 : totalLatencyNanos / n;
+    }
+
+    /**
+     *
+     * @return the maximum time in nanoseconds between a tuple being emitted and the subscriber finishing processing
+     *         it
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     *
+     * @return true if the subscriber has been removed from the stream because of the {@link OverflowPolicy#FAIL}
+     *         policy
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String getDescription() {
+        return subscriber.getDescription();
+    }
+
+    @Override
+    public String toString() {
+        return "async(" + subscriber + ")";
+    }
+
+    static final class Entry {
+        final Stream stream;
+        final Tuple tuple;
+        final long enqueueTime;
+
+        Entry(Stream stream, Tuple tuple, long enqueueTime) {
+            this.stream = stream;
+            this.tuple = tuple;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
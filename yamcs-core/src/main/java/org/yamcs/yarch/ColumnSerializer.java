@@ -29,6 +29,20 @@ public interface ColumnSerializer<T> {
      */
     T deserialize(ByteArray array, ColumnDefinition cd);
 
+    /**
+     * Advance the position of the array over one column value without decoding it.
+     * <p>
+     * Used when the value is not needed; the default implementation deserializes the value and discards it.
+     * 
+     * @param array
+     *            - array used for the input
+     * @param cd
+     *            the column definition for the involved column
+     */
+    default void skip(ByteArray array, ColumnDefinition cd) {
+        deserialize(array, cd);
+    }
+
     /**
      * Same as above but read the data from a ByteBuffer.
      * <p>
@@ -228,6 +228,11 @@ public class ColumnSerializerFactory {
     }
 
     static class BooleanColumnSerializer implements ColumnSerializer<Boolean> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(1);
+        }
+
         @Override
         public Boolean deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return byteArray.get() != 0;
@@ -251,6 +256,11 @@ public class ColumnSerializerFactory {
     }
 
     static class ByteColumnSerializer implements ColumnSerializer<Byte> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(1);
+        }
+
         @Override
         public Byte deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return byteArray.get();
@@ -273,6 +283,11 @@ public class ColumnSerializerFactory {
     }
 
     static class NullTerminatedStringColumnSerializer implements ColumnSerializer<String> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skipNullTerminated();
+        }
+
         @Override
         public String deserialize(ByteArray byteArray, ColumnDefinition cd) {
             try {
@@ -301,6 +316,11 @@ public class ColumnSerializerFactory {
 
     static class SizePrefixedtringColumnSerializer implements ColumnSerializer<String> {
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getShort() & 0xFFFF);
+        }
+
         @Override
         public String deserialize(ByteArray byteArray, ColumnDefinition cd) {
             try {
@@ -395,6 +415,11 @@ public class ColumnSerializerFactory {
     }
 
     static class BinaryColumnSerializer implements ColumnSerializer<byte[]> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getInt());
+        }
+
         @Override
         public byte[] deserialize(ByteArray byteArray, ColumnDefinition cd) {
             int length = byteArray.getInt();
@@ -441,6 +466,11 @@ public class ColumnSerializerFactory {
             this.newBuilderMethod = newBuilderMethod;
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getInt());
+        }
+
         @Override
         public MessageLite deserialize(ByteArray byteArray, ColumnDefinition cd) {
             try {
@@ -532,6 +562,11 @@ public class ColumnSerializerFactory {
             return idx;
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(2);
+        }
+
         @Override
         public String deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return getValue(byteArray.getShort());
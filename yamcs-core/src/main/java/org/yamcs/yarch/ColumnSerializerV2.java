@@ -13,6 +13,11 @@ import org.yamcs.utils.ByteArrayUtils;
  */
 public class ColumnSerializerV2 {
     static class ShortColumnSerializer implements ColumnSerializer<Short> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(2);
+        }
+
         @Override
         public Short deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return byteArray.getShort();
@@ -35,6 +40,11 @@ public class ColumnSerializerV2 {
     }
 
     static class IntegerColumnSerializer implements ColumnSerializer<Integer> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(4);
+        }
+
         @Override
         public Integer deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return byteArray.getInt();
@@ -57,6 +67,11 @@ public class ColumnSerializerV2 {
     }
 
     static class LongColumnSerializer implements ColumnSerializer<Long> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Long deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return byteArray.getLong();
@@ -91,6 +106,11 @@ public class ColumnSerializerV2 {
 
     static class HresTimestampColumnSerializer implements ColumnSerializer<Instant> {
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(12);
+        }
+
         @Override
         public Instant deserialize(ByteArray byteArray, ColumnDefinition cd) {
             long millis = byteArray.getLong();
@@ -134,6 +154,11 @@ public class ColumnSerializerV2 {
     }
     static class DoubleColumnSerializer implements ColumnSerializer<Double> {
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Double deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return byteArray.getDouble();
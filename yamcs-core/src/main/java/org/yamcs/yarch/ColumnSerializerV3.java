@@ -24,6 +24,11 @@ public class ColumnSerializerV3 {
     } 
 
     static class ShortColumnSerializer implements ColumnSerializer<Short> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(2);
+        }
+
         @Override
         public Short deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return invertSign(byteArray.getShort());
@@ -57,6 +62,11 @@ public class ColumnSerializerV3 {
     }
 
     static class IntegerColumnSerializer implements ColumnSerializer<Integer> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(4);
+        }
+
         @Override
         public Integer deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return invertSign(byteArray.getInt());
@@ -80,6 +90,11 @@ public class ColumnSerializerV3 {
 
     
     static class LongColumnSerializer implements ColumnSerializer<Long> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Long deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return invertSign(byteArray.getLong());
@@ -116,6 +131,11 @@ public class ColumnSerializerV3 {
             return Double.longBitsToDouble(x);
         }
 
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(8);
+        }
+
         @Override
         public Double deserialize(ByteArray byteArray, ColumnDefinition cd) {
             return longToDouble(byteArray.getLong());
@@ -140,6 +160,11 @@ public class ColumnSerializerV3 {
     
     static class HresTimestampColumnSerializer implements ColumnSerializer<Instant> {
       //picos is always positive, no need to invert the sign
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(12);
+        }
+
         @Override
         public Instant deserialize(ByteArray byteArray, ColumnDefinition cd) {
             long millis = invertSign(byteArray.getLong());
@@ -184,6 +209,11 @@ public class ColumnSerializerV3 {
 
     
     static class UUIDColumnSerializer implements ColumnSerializer<java.util.UUID> {
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(16);
+        }
+
         @Override
         public java.util.UUID deserialize(ByteArray byteArray, ColumnDefinition cd) {
             long msb = invertSign(byteArray.getLong());
@@ -217,6 +247,11 @@ public class ColumnSerializerV3 {
         public ArrayColumnSerializer(ColumnSerializer elementSerializer) {
             this.elementSerializer = elementSerializer;
         }
+        @Override
+        public void skip(ByteArray byteArray, ColumnDefinition cd) {
+            byteArray.skip(byteArray.getInt());
+        }
+
         @Override
         public List deserialize(ByteArray array, ColumnDefinition cd) {
             int length = array.getInt();
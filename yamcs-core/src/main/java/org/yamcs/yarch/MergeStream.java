@@ -1,5 +1,6 @@
 package org.yamcs.yarch;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -11,13 +12,29 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.yamcs.yarch.streamsql.StreamSqlException;
 
+/**
+ * Merges the tuples of multiple streams sorting them by the value of a column.
+ * <p>
+ * If all the streams are reading from tables (possibly through selects), the merge is performed in pull mode: one
+ * thread reads the rows from the tables (see {@link TableReaderStream#emitNext()}) and always pulls the next tuple from
+ * the stream whose last tuple has been emitted.
+ * <p>
+ * Otherwise (e.g. live streams) each stream pushes its tuples in a queue and one thread merges the heads of the
+ * queues.
+ */
 public class MergeStream extends Stream implements StreamSubscriber, Runnable {
+    // push mode
     private Map<Stream, LinkedBlockingQueue<Tuple>> tupleQueues;
+    // pull mode
+    private Map<Stream, PullSource> pullSources;
+
     private PriorityQueue<TupleQueuePair> orderedQueue;
     Stream[] streams;
     private Tuple queueEndMark = new Tuple(new TupleDefinition(), new ArrayList<>());
     static AtomicInteger counter = new AtomicInteger();
     private final String mergeColumn;
+    private final boolean ascending;
+    private volatile Thread thread;
 
     public MergeStream(YarchDatabaseInstance ydb, Stream[] streams, String mergeColumn, boolean ascending)
             throws StreamSqlException {
@@ -25,6 +42,7 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
         super(ydb, getStreamName(streams), streams[0].getDefinition());
         this.streams = streams;
         this.mergeColumn = mergeColumn;
+        this.ascending = ascending;
 
         if (ascending) {
             orderedQueue = new PriorityQueue<>();
@@ -32,18 +50,38 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
             orderedQueue = new PriorityQueue<>(REVERSE_COMPARATOR);
         }
 
-        Map<Stream, LinkedBlockingQueue<Tuple>> t = new HashMap<>();
+        if (canPull(streams)) {
+            Map<Stream, PullSource> m = new HashMap<>();
+            for (Stream s : streams) {
+                TableReaderStream reader = s.getPullSource();
+                reader.setPullMode(true);
+                m.put(s, new PullSource(reader));
+            }
+            pullSources = Collections.unmodifiableMap(m);
+        } else {
+            Map<Stream, LinkedBlockingQueue<Tuple>> t = new HashMap<>();
 
-        for (Stream s : streams) {
-            t.put(s, new LinkedBlockingQueue<Tuple>(50));
+            for (Stream s : streams) {
+                t.put(s, new LinkedBlockingQueue<Tuple>(50));
+            }
+            tupleQueues = Collections.unmodifiableMap(t);
         }
-        tupleQueues = Collections.unmodifiableMap(t);
 
         for (Stream s : streams) {
             s.addSubscriber(this);
         }
     }
 
+    private static boolean canPull(Stream[] streams) {
+        for (Stream s : streams) {
+            TableReaderStream reader = s.getPullSource();
+            if (reader == null || s.getState() != SETUP || reader.getState() != SETUP) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static String getStreamName(Stream[] streams) {
         StringBuilder sb = new StringBuilder();
         sb.append("merge").append(counter.getAndIncrement());
@@ -53,8 +91,21 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
         return sb.toString();
     }
 
+    /**
+     *
+     * @return true if the tuples are pulled from the tables in the merge thread
+     */
+    public boolean isPullMode() {
+        return pullSources != null;
+    }
+
     @Override
     public void onTuple(Stream s, Tuple tuple) {
+        if (pullSources != null) {
+            // we are in the merge thread
+            pullSources.get(s).buffer.add(tuple);
+            return;
+        }
         try {
             tupleQueues.get(s).put(tuple);
         } catch (InterruptedException e) {
@@ -69,6 +120,10 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
             return;
         }
         log.debug("Got stream closed for {}", s);
+        if (pullSources != null) {
+            pullSources.get(s).finished = true;
+            return;
+        }
         try {
             tupleQueues.get(s).put(queueEndMark);
         } catch (InterruptedException e) {
@@ -80,17 +135,51 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
 
     @Override
     public void doStart() {
-        log.debug("Starting merge stream with {} substreams", streams.length);
-        // first start all the substreams
+        log.debug("Starting merge stream with {} substreams, pull mode: {}", streams.length, isPullMode());
+        // first start all the substreams; in pull mode they do not start any thread
         for (Stream s : streams) {
             s.start();
         }
         // now start the thread that collects data from the substreams
-        new Thread(this).start();
+        thread = new Thread(this, "MergeStream[" + getName() + "]");
+        thread.start();
     }
 
     @Override
     public void run() {
+        if (pullSources != null) {
+            runPull();
+        } else {
+            runPush();
+        }
+    }
+
+    private void runPull() {
+        PriorityQueue<PullSource> pq = new PriorityQueue<>(pullSources.size(),
+                ascending ? pullComparator : pullComparator.reversed());
+        try {
+            for (PullSource ps : pullSources.values()) {
+                if (ps.fetch()) {
+                    pq.add(ps);
+                }
+            }
+            while (!pq.isEmpty() && !quitting()) {
+                PullSource ps = pq.poll();
+                emitTuple(ps.head);
+                if (ps.fetch()) {
+                    pq.add(ps);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Got exception when merging the tables", e);
+        } finally {
+            // the table iterators have to be closed from this thread
+            closeSubstreams();
+            close();
+        }
+    }
+
+    private void runPush() {
         try {
             // first wait for all the queues to have at least a tuple
             log.debug("waiting for at least one tuple in each queue");
@@ -131,6 +220,13 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
 
     @Override
     protected void doClose() {
+        // in pull mode, if the merge thread is running, it will close the substreams when it sees the state change
+        if (pullSources == null || thread == null || thread == Thread.currentThread()) {
+            closeSubstreams();
+        }
+    }
+
+    private void closeSubstreams() {
         for (Stream s : streams) {
             s.close();
         }
@@ -138,6 +234,9 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
 
     private static final Comparator<TupleQueuePair> REVERSE_COMPARATOR = (o1, o2) -> -o1.compareTo(o2);
 
+    private final Comparator<PullSource> pullComparator = (ps1, ps2) -> DataType
+            .compare(ps1.head.getColumn(mergeColumn), ps2.head.getColumn(mergeColumn));
+
     class TupleQueuePair implements Comparable<TupleQueuePair> {
 
         LinkedBlockingQueue<Tuple> q;
@@ -153,4 +252,39 @@ public class MergeStream extends Stream implements StreamSubscriber, Runnable {
             return DataType.compare(t.getColumn(mergeColumn), o.t.getColumn(mergeColumn));
         }
     }
+
+    /**
+     * A stream fed by a table reader in pull mode; the tuples reaching the stream (they may be filtered or transformed
+     * on the way from the reader) are buffered until they are emitted by the merge.
+     */
+    class PullSource {
+        final TableReaderStream reader;
+        final ArrayDeque<Tuple> buffer = new ArrayDeque<>();
+        boolean finished;
+        Tuple head;
+
+        PullSource(TableReaderStream reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads rows from the table until a tuple having the merge column reaches the stream, and makes it the head.
+         * <p>
+         * The tuples without the merge column are dropped.
+         *
+         * @return false if there is no more data
+         */
+        boolean fetch() {
+            while (true) {
+                while (buffer.isEmpty() && !finished && reader.emitNext()) {
+                    // continue reading
+                }
+                head = buffer.poll();
+                if (head == null || head.hasColumn(mergeColumn)) {
+                    return head != null;
+                }
+                log.warn("Ignoring tuple because it does not have column {}", mergeColumn);
+            }
+        }
+    }
 }
@@ -21,6 +21,11 @@ import com.google.protobuf.CodedOutputStream.OutOfSpaceException;
 
 public class ParameterValueColumnSerializer implements ColumnSerializer<ParameterValue> {
 
+    @Override
+    public void skip(ByteArray byteArray, ColumnDefinition cd) {
+        byteArray.skip(byteArray.getInt());
+    }
+
     @Override
     public ParameterValue deserialize(ByteArray byteArray, ColumnDefinition cd) {
         Db.ParameterValue.Builder gpvb = Db.ParameterValue.newBuilder();
@@ -173,6 +173,20 @@ public abstract class PartitionManager {
         return partition;
     }
 
+    /**
+     * Returns the partition corresponding to the instant and value without creating it.
+     * 
+     * @param instant
+     *            - the time, ignored if the table is not partitioned by time
+     * @param value
+     *            - the value (the index for the enum partitions) or null in case of time only or no partitioning.
+     * @return the partition or null if it does not exist
+     */
+    public synchronized Partition getPartition(long instant, Object value) {
+        Interval tmpInterval = partitioningSpec.timeColumn == null ? pcache : intervals.getFit(instant);
+        return tmpInterval == null ? null : tmpInterval.get(value);
+    }
+
     public synchronized HistogramInfo createAndGetHistogram(long instant, String columnName) {
         HistogramInfo histo;
         Interval tmpInterval = pcache;
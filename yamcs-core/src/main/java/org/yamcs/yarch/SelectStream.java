@@ -131,6 +131,11 @@ public class SelectStream extends Stream implements StreamSubscriber {
         input.start();
     }
 
+    @Override
+    public TableReaderStream getPullSource() {
+        return input.getPullSource();
+    }
+
     @Override
     protected void doClose() {
         input.close();
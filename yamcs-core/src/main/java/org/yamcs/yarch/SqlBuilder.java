@@ -64,7 +64,9 @@ public class SqlBuilder {
         StringBuilder cond = new StringBuilder();
         cond.append(colName);
         cond.append(strict ? " > " : " >= ");
-        cond.append(instant);
+        // passed as argument rather than literal such that the compiled expressions can be reused
+        cond.append("?");
+        queryArgs.add(instant);
         conditions.add(cond.toString());
         return this;
     }
@@ -89,7 +91,9 @@ public class SqlBuilder {
         StringBuilder cond = new StringBuilder();
         cond.append(colName);
         cond.append(strict ? " < " : " <= ");
-        cond.append(instant);
+        // passed as argument rather than literal such that the compiled expressions can be reused
+        cond.append("?");
+        queryArgs.add(instant);
         conditions.add(cond.toString());
         return this;
     }
@@ -78,9 +78,57 @@ public abstract class Stream {
         subscriberCount.incrementAndGet();
     }
 
+    /**
+     * Adds a subscriber which receives the tuples in its own thread, through a bounded queue.
+     * <p>
+     * This isolates the producer and the other subscribers from a slow subscriber; what happens when the subscriber
+     * cannot keep up is given by the overflow policy.
+     * <p>
+     * The subscriber can be removed with {@link #removeSubscriber(StreamSubscriber)} passing either the original
+     * subscriber or the returned object.
+     *
+     * @param s
+     *            the subscriber
+     * @param queueSize
+     *            the maximum number of tuples waiting to be passed to the subscriber
+     * @param policy
+     *            what to do when the queue is full
+     * @return the subscriber wrapper, which provides the queue statistics
+     */
+    public AsyncStreamSubscriber addAsyncSubscriber(StreamSubscriber s, int queueSize,
+            AsyncStreamSubscriber.OverflowPolicy policy) {
+        AsyncStreamSubscriber as = new AsyncStreamSubscriber(this, s, queueSize, policy);
+        addSubscriber(as);
+        return as;
+    }
+
     public void removeSubscriber(StreamSubscriber s) {
-        subscribers.remove(s);
-        subscriberCount.decrementAndGet();
+        if (subscribers.remove(s)) {
+            subscriberCount.decrementAndGet();
+            if (s instanceof AsyncStreamSubscriber as) {
+                as.quit();
+            }
+            return;
+        }
+        for (StreamSubscriber s1 : subscribers) {
+            if (s1 instanceof AsyncStreamSubscriber as && as.getSubscriber() == s && subscribers.remove(as)) {
+                subscriberCount.decrementAndGet();
+                as.quit();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the table reader feeding this stream if the tuples can be pulled from the table, in the consumer thread
+     * (see {@link TableReaderStream#setPullMode(boolean)}).
+     * <p>
+     * This is possible if this stream is a table reader or it processes synchronously the tuples of one.
+     * 
+     * @return the table reader or null if this stream cannot be pulled
+     */
+    public TableReaderStream getPullSource() {
+        return null;
     }
 
     public ColumnDefinition getColumnDefinition(String colName) {
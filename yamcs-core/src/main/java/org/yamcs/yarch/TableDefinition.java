@@ -3,6 +3,9 @@ package org.yamcs.yarch;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -49,6 +52,16 @@ public class TableDefinition {
      * 
      */
     public static final int CURRENT_FORMAT_VERSION = 3;
+
+    /**
+     * Prefixes the serialized values written by the INSERT_APPEND writers as merge operands: the columns of such values
+     * are only added to the row if not already present.
+     * <p>
+     * The values written by the UPSERT_APPEND writers are merged without prefix and their columns overwrite the
+     * existing ones.
+     */
+    public static final int INSERT_APPEND_MARKER = -2;
+
     private final int formatVersion;
 
     // the definition of keys and values columns
@@ -61,6 +74,9 @@ public class TableDefinition {
     // keyDef+valueDef
     private volatile TupleDefinition tupleDef;
 
+    // the definition of the last deserialized row, see getRowDefinition
+    private volatile RowDefinition lastRowDef;
+
     private YarchDatabaseInstance ydb;
 
     // compressed and column family name are actually storage dependent
@@ -519,42 +535,99 @@ public class TableDefinition {
         }
     }
 
+    /**
+     * Deserializes a row.
+     * <p>
+     * The value can be the result of merging several serialized values (see {@link #INSERT_APPEND_MARKER}), in which
+     * case the columns of the subsequent values are added to the row, or overwrite the existing columns unless the
+     * value starts with the {@link #INSERT_APPEND_MARKER}.
+     */
     public Tuple deserialize(byte[] k, byte[] v) {
-        TupleDefinition tdef = new TupleDefinition();
-        ArrayList<Object> cols = new ArrayList<>();
+        return deserialize(k, v, null);
+    }
+
+    /**
+     * Same as {@link #deserialize(byte[], byte[])} but only the value columns part of the projection are decoded, the
+     * others are skipped.
+     * <p>
+     * The key columns are always part of the result.
+     * 
+     * @param valueProjection
+     *            - the indices of the value columns to be decoded, as returned by {@link #getValueProjection}. If null,
+     *            all the columns are decoded.
+     */
+    public Tuple deserialize(byte[] k, byte[] v, BitSet valueProjection) {
+        IndexedList<String, TableColumnDefinition> kdef = keyDef;
+        IndexedList<String, TableColumnDefinition> vdef = valueDef;
+        int nk = kdef.size();
+        Object[] cols = new Object[nk + vdef.size()];
+        // indices in the vdef of the value columns part of the tuple
+        int[] vidx = new int[vdef.size()];
+        int n = 0;
         ByteArray byteArray = ByteArray.wrap(k);
 
         try {
             // deserialize the key
-            for (TableColumnDefinition tcd : keyDef) {
-                tdef.addColumn(tcd);
-                cols.add(tcd.deserializeValue(byteArray));
+            for (int i = 0; i < nk; i++) {
+                cols[i] = kdef.get(i).deserializeValue(byteArray);
             }
 
             // deserialize the value
             byteArray = ByteArray.wrap(v);
+            boolean merged = false;
+            boolean keepExisting = false;
             while (true) {
                 int cidx = byteArray.getInt(); // column index
                 if (cidx == -1) {
-                    break;
+                    if (byteArray.position() >= byteArray.size()) {
+                        break;
+                    }
+                    // another value has been merged to this one
+                    merged = true;
+                    keepExisting = false;
+                    continue;
+                }
+                if (cidx == INSERT_APPEND_MARKER) {
+                    keepExisting = true;
+                    continue;
                 }
                 byte dt = (byte) (cidx >>> 24);
                 cidx &= 0xFFFFFF;
-                if (cidx >= valueDef.size()) {
-                    throw new DatabaseCorruptionException("Reference to index " + cidx
-                            + " found in table" + name + " but the table definition does not have this column");
+                if (cidx >= vdef.size()) {
+                    // the column may have been added since we started
+                    vdef = valueDef;
+                    if (cidx >= vdef.size()) {
+                        throw new DatabaseCorruptionException("Reference to index " + cidx
+                                + " found in table" + name + " but the table definition does not have this column");
+                    }
+                    cols = Arrays.copyOf(cols, nk + vdef.size());
+                    vidx = Arrays.copyOf(vidx, vdef.size());
                 }
 
-                TableColumnDefinition tcd = valueDef.get(cidx);
+                TableColumnDefinition tcd = vdef.get(cidx);
                 if (formatVersion >= 3 && tcd.getType().getTypeId() != dt) {
                     throw new DatabaseCorruptionException(String.format(
                             "Data type for table %s, column %s (id: %d) does not match the data read: expected %d, read: %d",
                             name, tcd.getName(), cidx, tcd.getType().getTypeId(), dt));
                 }
 
+                if (valueProjection != null && !valueProjection.get(cidx)) {
+                    tcd.skipValue(byteArray);
+                    continue;
+                }
                 Object o = tcd.deserializeValue(byteArray);
-                tdef.addColumn(tcd);
-                cols.add(o);
+                if (merged) {
+                    int idx = indexOf(vidx, n, cidx);
+                    if (idx >= 0) {
+                        if (!keepExisting) {
+                            cols[nk + idx] = o;
+                        }
+                        continue;
+                    }
+                }
+                vidx[n] = cidx;
+                cols[nk + n] = o;
+                n++;
             }
         } catch (IOException e) {
             throw new DatabaseCorruptionException(
@@ -564,7 +637,75 @@ public class TableDefinition {
                     e);
         }
 
-        return new Tuple(tdef, cols);
+        return new Tuple(getRowDefinition(kdef, vdef, vidx, n), cols, nk + n);
+    }
+
+    private static int indexOf(int[] a, int n, int x) {
+        for (int i = 0; i < n; i++) {
+            if (a[i] == x) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the definition of a row containing the key columns followed by the value columns having the given
+     * indices.
+     * <p>
+     * The rows of a table have usually the same columns so the definition of the last row is reused (it is frozen
+     * such that it can be shared between the tuples).
+     */
+    private TupleDefinition getRowDefinition(IndexedList<String, TableColumnDefinition> kdef,
+            IndexedList<String, TableColumnDefinition> vdef, int[] vidx, int n) {
+        RowDefinition rd = lastRowDef;
+        if (rd != null && rd.keyDef == kdef && rd.valueDef == vdef
+                && Arrays.equals(rd.vidx, 0, rd.vidx.length, vidx, 0, n)) {
+            return rd.tdef;
+        }
+        TupleDefinition tdef = new TupleDefinition();
+        for (TableColumnDefinition tcd : kdef) {
+            tdef.addColumn(tcd);
+        }
+        for (int i = 0; i < n; i++) {
+            tdef.addColumn(vdef.get(vidx[i]));
+        }
+        tdef.freeze();
+        lastRowDef = new RowDefinition(kdef, vdef, Arrays.copyOf(vidx, n), tdef);
+        return tdef;
+    }
+
+    static final class RowDefinition {
+        final IndexedList<String, TableColumnDefinition> keyDef;
+        final IndexedList<String, TableColumnDefinition> valueDef;
+        final int[] vidx;
+        final TupleDefinition tdef;
+
+        RowDefinition(IndexedList<String, TableColumnDefinition> keyDef,
+                IndexedList<String, TableColumnDefinition> valueDef, int[] vidx, TupleDefinition tdef) {
+            this.keyDef = keyDef;
+            this.valueDef = valueDef;
+            this.vidx = vidx;
+            this.tdef = tdef;
+        }
+    }
+
+    /**
+     * Returns the indices of the value columns having the given names, to be used with
+     * {@link #deserialize(byte[], byte[], BitSet)}.
+     * <p>
+     * The names not corresponding to value columns (e.g. the key columns) are ignored.
+     */
+    public BitSet getValueProjection(Collection<String> columnNames) {
+        IndexedList<String, TableColumnDefinition> vdef = valueDef;
+        BitSet projection = new BitSet(vdef.size());
+        for (String name : columnNames) {
+            int idx = vdef.getIndex(name);
+            if (idx >= 0) {
+                projection.set(idx);
+            }
+        }
+        return projection;
     }
 
     public boolean isCompressed() {
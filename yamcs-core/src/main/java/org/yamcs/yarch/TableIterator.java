@@ -0,0 +1,38 @@
+package org.yamcs.yarch;
+
+/**
+ * Pull based iterator through the rows of a table, in the order (ascending or descending) of the walker which created
+ * it.
+ *
+ * @see TableWalker#iterator()
+ */
+public interface TableIterator extends AutoCloseable {
+    /**
+     *
+     * @return true if the iterator is positioned on a row
+     */
+    boolean isValid();
+
+    /**
+     * Moves to the next row (which is the previous one for descending iterators).
+     */
+    void next();
+
+    /**
+     *
+     * @return the key of the current row
+     */
+    byte[] key();
+
+    /**
+     *
+     * @return the value of the current row
+     */
+    byte[] value();
+
+    /**
+     * Releases the resources. Has to be called from the thread using the iterator.
+     */
+    @Override
+    void close();
+}
@@ -1,5 +1,7 @@
 package org.yamcs.yarch;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -12,6 +14,11 @@ public class TableReaderStream extends Stream implements Runnable, TableVisitor
 
     protected TableDefinition tableDefinition;;
     Thread thread;
+    // if not null, only these value columns are decoded
+    BitSet valueProjection;
+    // in pull mode the tuples are emitted by calling emitNext
+    boolean pullMode;
+    TableIterator pullIterator;
 
     public TableReaderStream(YarchDatabaseInstance ydb, TableDefinition tblDef, TableWalker iterator) {
         super(ydb, tblDef.getName() + "_" + count.getAndIncrement(),
@@ -22,10 +29,58 @@ public class TableReaderStream extends Stream implements Runnable, TableVisitor
 
     @Override
     public void doStart() {
+        if (pullMode) {
+            return;
+        }
         thread = new Thread(this, "RdbTableReaderStream[" + getName() + "]");
         thread.start();
     }
 
+    @Override
+    public TableReaderStream getPullSource() {
+        return tblIterator.supportsIterator() ? this : null;
+    }
+
+    /**
+     * In pull mode the stream does not start a thread to walk the table; instead the tuples are read and emitted one
+     * by one by the consumer calling {@link #emitNext()}.
+     * <p>
+     * Has to be called before starting the stream and only if the walker supports iterators.
+     */
+    public void setPullMode(boolean pullMode) {
+        if (pullMode && !tblIterator.supportsIterator()) {
+            throw new UnsupportedOperationException("The table walker does not support iterators");
+        }
+        this.pullMode = pullMode;
+    }
+
+    /**
+     * Reads the next row from the table and emits it, in the calling thread. Used in pull mode.
+     * <p>
+     * Once there is no more data, the stream is closed. The stream has to be closed from the same thread which calls
+     * this method.
+     * 
+     * @return false if there is no more data
+     */
+    public boolean emitNext() {
+        if (!isRunning()) {
+            return false;
+        }
+        if (pullIterator == null) {
+            log.debug("starting to iterate table {} ", tableDefinition.getName());
+            pullIterator = tblIterator.iterator();
+        }
+        if (!pullIterator.isValid()) {
+            close();
+            return false;
+        }
+        Tuple t = dataToTuple(pullIterator.key(), pullIterator.value());
+        // advance before emitting because the subscribers may close the stream
+        pullIterator.next();
+        emitTuple(t);
+        return true;
+    }
+
     @Override
     public void run() {
         log.debug("starting a table stream from table {} ", tableDefinition.getName());
@@ -45,11 +100,27 @@ public class TableReaderStream extends Stream implements Runnable, TableVisitor
     }
 
     protected Tuple dataToTuple(byte[] k, byte[] v) {
-        return tableDefinition.deserialize(k, v);
+        return tableDefinition.deserialize(k, v, valueProjection);
+    }
+
+    /**
+     * Restricts the value columns decoded from the table to the given ones; the other value columns are skipped and
+     * are not part of the emitted tuples. The key columns are always emitted.
+     * <p>
+     * Has to be called before starting the stream.
+     * 
+     * @param columnNames
+     *            - the columns needed by the consumer or null if all columns are needed
+     */
+    public void setColumnProjection(Collection<String> columnNames) {
+        valueProjection = columnNames == null ? null : tableDefinition.getValueProjection(columnNames);
     }
 
     @Override
     public void doClose() {
+        if (pullIterator != null) {
+            pullIterator.close();
+        }
         try {
             tblIterator.close();
         } catch (YarchException e) {
@@ -25,6 +25,27 @@ public interface TableWalker {
     
     void walk(TableVisitor visitor) throws YarchException, StreamSqlException;
 
+    /**
+     * 
+     * @return true if the walker supports reading the rows with an {@link #iterator()}
+     */
+    default boolean supportsIterator() {
+        return false;
+    }
+
+    /**
+     * Returns a pull based iterator over the rows selected by the partition and range filters, as an alternative to
+     * {@link #walk(TableVisitor)} for read-only usage.
+     * <p>
+     * Only one of walk or iterator can be used for a walker.
+     * 
+     * @throws UnsupportedOperationException
+     *             if the walker does not support iterators (see {@link #supportsIterator()})
+     */
+    default TableIterator iterator() {
+        throw new UnsupportedOperationException();
+    }
+
     void close();
 
     boolean isBatchUpdates();
@@ -1,17 +1,20 @@
 package org.yamcs.yarch;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
  * Contains the tuple value (as an array of Columns) together with a pointer to its definition
- * 
+ * <p>
+ * The definition can be shared between many tuples (see {@link TupleDefinition#freeze()}); the methods adding or
+ * removing columns replace a frozen definition with a modified copy instead of changing it.
  */
 public class Tuple {
+    private static final Object[] EMPTY = new Object[0];
+
     private TupleDefinition definition;
-    List<Object> columns;
+    private Object[] columns;
+    private int size;
 
     /**
      * Create a new tuple with no column.
@@ -21,19 +24,37 @@ public class Tuple {
      */
     public Tuple() {
         this.definition = new TupleDefinition();
-        this.columns = new ArrayList<>();
+        this.columns = EMPTY;
     }
 
     public Tuple(TupleDefinition definition, List<Object> columns) {
-        if (definition.size() != columns.size()) {
+        this(definition, columns.toArray());
+    }
+
+    /**
+     * Create a tuple with the given column values.
+     * <p>
+     * The array is used as it is (it is not copied) so it should not be modified afterwards by the caller.
+     */
+    public Tuple(TupleDefinition definition, Object[] columns) {
+        if (definition.size() != columns.length) {
             throw new IllegalArgumentException("columns size does not match the definition size");
         }
-        this.setDefinition(definition);
+        this.definition = definition;
         this.columns = columns;
+        this.size = columns.length;
     }
 
-    public Tuple(TupleDefinition definition, Object[] columns) {
-        this(definition, new ArrayList<>(Arrays.asList(columns)));
+    /**
+     * Create a tuple with the first size elements of the array as column values. The array is used as it is.
+     */
+    Tuple(TupleDefinition definition, Object[] columns, int size) {
+        if (definition.size() != size || size > columns.length) {
+            throw new IllegalArgumentException("columns size does not match the definition size");
+        }
+        this.definition = definition;
+        this.columns = columns;
+        this.size = size;
     }
 
     /**
@@ -42,7 +63,7 @@ public class Tuple {
      * @param tdef
      */
     public Tuple(TupleDefinition tdef) {
-        columns = new ArrayList<>(Collections.nCopies(tdef.size(), null));
+        this(tdef, new Object[tdef.size()]);
     }
 
     public void setDefinition(TupleDefinition definition) {
@@ -53,20 +74,29 @@ public class Tuple {
         return definition;
     }
 
+    /**
+     * 
+     * @return a fixed-size list view of the column values
+     */
     public List<?> getColumns() {
-        return columns;
+        List<Object> l = Arrays.asList(columns);
+        return size == columns.length ? l : l.subList(0, size);
     }
 
     public void setColumns(List<Object> cols) {
-        this.columns = cols;
+        this.columns = cols.toArray();
+        this.size = columns.length;
     }
 
     public void setColumn(int index, Object value) {
-        columns.set(index, value);
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        columns[index] = value;
     }
 
     public void setColumn(String colName, Object value) {
-        columns.set(getColumnIndex(colName), value);
+        setColumn(getColumnIndex(colName), value);
     }
 
     /**
@@ -89,7 +119,7 @@ public class Tuple {
         if (i == -1) {
             return null;
         }
-        return (T) columns.get(i);
+        return (T) columns[i];
     }
 
     /**
@@ -185,7 +215,48 @@ public class Tuple {
     }
 
     public Object getColumn(int i) {
-        return columns.get(i);
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        }
+        return columns[i];
+    }
+
+    /**
+     * Get the value of the column with the given index as long.
+     * <p>
+     * Combined with an index obtained once from the (shared) definition, this avoids the column lookup by name.
+     * <p>
+     * Throws exception if the column does not exist or is of different type
+     */
+    public long getLongColumn(int i) {
+        return (Long) getColumn(i);
+    }
+
+    /**
+     * Get the value of the column with the given index as int.
+     * <p>
+     * Throws exception if the column does not exist or is of different type
+     */
+    public int getIntColumn(int i) {
+        return (Integer) getColumn(i);
+    }
+
+    /**
+     * Get the value of the column with the given index as double.
+     * <p>
+     * Throws exception if the column does not exist or is of different type
+     */
+    public double getDoubleColumn(int i) {
+        return (Double) getColumn(i);
+    }
+
+    /**
+     * Get the value of the column with the given index as boolean.
+     * <p>
+     * Throws exception if the column does not exist or is of different type
+     */
+    public boolean getBooleanColumn(int i) {
+        return (Boolean) getColumn(i);
     }
 
     /**
@@ -249,18 +320,34 @@ public class Tuple {
     }
 
     public void addColumn(String colName, DataType type, Object colValue) {
-        definition.addColumn(colName, type);
-        columns.add(colValue);
+        if (definition.isFrozen()) {
+            definition = definition.extend(colName, type);
+        } else {
+            definition.addColumn(colName, type);
+        }
+        if (size == columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(8, 2 * size));
+        }
+        columns[size++] = colValue;
     }
 
     @SuppressWarnings("unchecked")
     public <T> T removeColumn(String colName) {
-        int idx = definition.removeColumn(colName);
-        if (idx != -1) {
-            return (T) columns.remove(idx);
-        } else {
+        int idx = definition.getColumnIndex(colName);
+        if (idx == -1) {
             return null;
         }
+        if (definition.isFrozen()) {
+            TupleDefinition tdef = definition.copy();
+            tdef.removeColumn(colName);
+            definition = tdef;
+        } else {
+            definition.removeColumn(colName);
+        }
+        T v = (T) columns[idx];
+        System.arraycopy(columns, idx + 1, columns, idx, size - idx - 1);
+        columns[--size] = null;
+        return v;
     }
 
     /**
@@ -268,7 +355,7 @@ public class Tuple {
      * @return return the number of columns
      */
     public int size() {
-        return columns.size();
+        return size;
     }
 
     @Override
@@ -276,7 +363,8 @@ public class Tuple {
         StringBuilder sb = new StringBuilder();
         boolean first = true;
         sb.append("(");
-        for (Object c : columns) {
+        for (int i = 0; i < size; i++) {
+            Object c = columns[i];
             if (!first) {
                 sb.append(", ");
             } else {
@@ -1,16 +1,32 @@
 package org.yamcs.yarch;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes the columns of a tuple.
+ * <p>
+ * A definition can be frozen using {@link #freeze()}, after which it cannot be modified anymore and can be shared
+ * safely between tuples and threads. Tuples with a frozen definition can still have columns added or removed, they
+ * will get a modified copy of the definition (see {@link Tuple#addColumn(String, DataType, Object)}).
+ */
 public class TupleDefinition {
     private ArrayList<ColumnDefinition> columnDefinitions = new ArrayList<>();
     private HashMap<String, Integer> columnNameIndex = new HashMap<>();
     public static final int MAX_COLS = 32000;
 
+    // maximum number of extensions cached for each frozen definition
+    static final int MAX_CACHED_EXTENSIONS = 1000;
+
+    private volatile boolean frozen;
+    private volatile Map<String, TupleDefinition> extensions;
+
     public List<ColumnDefinition> getColumnDefinitions() {
-        return columnDefinitions;
+        return frozen ? Collections.unmodifiableList(columnDefinitions) : columnDefinitions;
     }
 
     public void addColumn(String name, DataType type) {
@@ -19,6 +35,7 @@ public class TupleDefinition {
     }
 
     public void addColumn(ColumnDefinition c) {
+        checkNotFrozen();
         if (columnNameIndex.containsKey(c.getName())) {
             throw new IllegalArgumentException("Tuple has already a column '" + c.getName() + "'");
         }
@@ -27,6 +44,7 @@ public class TupleDefinition {
     }
 
     public int removeColumn(String name) {
+        checkNotFrozen();
         Integer idx = columnNameIndex.remove(name);
         if (idx != null) {
             columnDefinitions.remove((int) idx);
@@ -88,6 +106,7 @@ public class TupleDefinition {
      * @param newName
      */
     void renameColumn(String oldName, String newName) {
+        checkNotFrozen();
         int idx = columnNameIndex.remove(oldName);
         ColumnDefinition oldCd = columnDefinitions.get(idx);
 
@@ -144,7 +163,7 @@ public class TupleDefinition {
 
     /**
      * 
-     * @return a copy of the tuple definition that can be used to add columns
+     * @return a (not frozen) copy of the tuple definition that can be used to add columns
      */
     public TupleDefinition copy() {
         TupleDefinition ntd = new TupleDefinition();
@@ -153,6 +172,68 @@ public class TupleDefinition {
         return ntd;
     }
 
+    /**
+     * Makes this definition immutable, such that it can be shared between tuples.
+     * 
+     * @return this definition
+     */
+    public TupleDefinition freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns a frozen definition containing the columns of this one followed by a column with the given name and
+     * type.
+     * <p>
+     * If this definition is frozen, the result is cached such that all the tuples extended with the same column
+     * share the same definition. This is what the producers adding one column to the tuples of a stream (for example
+     * the TM recorder adding the partition name) should use instead of copying the definition for each tuple.
+     * 
+     * @throws IllegalArgumentException
+     *             if this definition has already a column with the given name
+     */
+    public TupleDefinition extend(String name, DataType type) {
+        if (!frozen) {
+            return createExtension(name, type);
+        }
+        Map<String, TupleDefinition> m = extensions;
+        if (m == null) {
+            synchronized (this) {
+                m = extensions;
+                if (m == null) {
+                    extensions = m = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        TupleDefinition ext = m.get(name);
+        if (ext != null && ext.getColumn(ext.size() - 1).getType().equals(type)) {
+            return ext;
+        }
+        ext = createExtension(name, type);
+        if (m.size() < MAX_CACHED_EXTENSIONS) {
+            // if the same column name is used with different types, the last one is cached
+            m.put(name, ext);
+        }
+        return ext;
+    }
+
+    private TupleDefinition createExtension(String name, DataType type) {
+        TupleDefinition ntd = copy();
+        ntd.addColumn(name, type);
+        return ntd.freeze();
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The tuple definition is frozen");
+        }
+    }
+
     @Override
     public String toString() {
         return getStringDefinition();
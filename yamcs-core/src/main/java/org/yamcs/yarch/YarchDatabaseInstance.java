@@ -19,6 +19,7 @@ import org.yamcs.YamcsServer;
 import org.yamcs.management.ManagementService;
 import org.yamcs.utils.parser.ParseException;
 import org.yamcs.yarch.rocksdb.RdbStorageEngine;
+import org.yamcs.yarch.streamsql.PreparedStreamSqlStatement;
 import org.yamcs.yarch.streamsql.ResultListener;
 import org.yamcs.yarch.streamsql.StreamSqlException;
 import org.yamcs.yarch.streamsql.StreamSqlParser;
@@ -352,6 +353,15 @@ public class YarchDatabaseInstance {
         return YarchDatabase.getHome() + File.separator + instanceName;
     }
 
+    /**
+     * Creates a statement which can be executed multiple times with different arguments.
+     * <p>
+     * The expressions compiled for the statement are cached and reused at each execution.
+     */
+    public PreparedStreamSqlStatement prepareStatement(String query) {
+        return new PreparedStreamSqlStatement(this, query);
+    }
+
     public StreamSqlStatement createStatement(String query, Object... args) throws StreamSqlException, ParseException {
         StreamSqlParser parser = new StreamSqlParser(new java.io.StringReader(query));
         parser.setArgs(args);
@@ -0,0 +1,289 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.yamcs.yarch.YarchException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Merges data from multiple iterators sorting the output, like the {@link MergingIterator}, but each iterator is read
+ * in advance by a separate thread.
+ * <p>
+ * The data is passed from the reader threads in chunks through bounded queues, the memory used is limited to
+ * {@link #QUEUE_SIZE} chunks of {@link #CHUNK_SIZE} rows for each iterator.
+ * <p>
+ * The iterators passed in the constructor are owned by the reader threads: they are advanced (in the direction given
+ * by the ascending flag) and closed by the readers. {@link #close()} stops the readers and waits for them to finish,
+ * such that the resources the iterators depend on (read options, snapshot, database) can be released afterwards.
+ * <p>
+ * Only one of {@link #next()} or {@link #prev()} (according to the ascending flag) can be called.
+ * <p>
+ * The number of reader threads is limited globally to {@link #MAX_THREADS} and per scan to
+ * {@link #MAX_READERS_PER_SCAN}; see {@link #create(List, Comparator, boolean)}.
+ */
+class ParallelMergingIterator implements DbIterator {
+    static final int CHUNK_SIZE = 256;
+    static final int QUEUE_SIZE = 4;
+    static final long OFFER_TIMEOUT_MILLIS = 100;
+    static final int MAX_READERS_PER_SCAN = 4;
+    static final int MAX_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // the number of threads of the executor is bounded by the permits acquired in create()
+    static final ExecutorService executor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("RdbTableReader-%d").setDaemon(true).build());
+    static final Semaphore readerPermits = new Semaphore(MAX_THREADS);
+
+    private static final Chunk END = new Chunk(0);
+
+    final boolean ascending;
+    final PriorityQueue<Reader> priorityQueue;
+    final List<Reader> readers;
+    volatile boolean closed = false;
+    // if not null, each reader releases one permit when finished
+    final Semaphore permits;
+
+    /**
+     * Creates an iterator merging the given iterators using a reader thread for each of them.
+     * <p>
+     * The number of threads is not limited, {@link #create(List, Comparator, boolean)} should be used instead.
+     */
+    ParallelMergingIterator(List<DbIterator> itList, Comparator<byte[]> keyComparator, boolean ascending) {
+        this(itList, keyComparator, ascending, null);
+    }
+
+    private ParallelMergingIterator(List<DbIterator> itList, Comparator<byte[]> keyComparator, boolean ascending,
+            Semaphore permits) {
+        this.ascending = ascending;
+        this.permits = permits;
+        this.priorityQueue = new PriorityQueue<>(itList.size(), (r1, r2) -> keyComparator.compare(r1.key(), r2.key()));
+        this.readers = new ArrayList<>(itList.size());
+        for (DbIterator it : itList) {
+            Reader r = new Reader(it);
+            readers.add(r);
+            executor.execute(r);
+        }
+        try {
+            for (Reader r : readers) {
+                if (r.fetch()) {
+                    priorityQueue.add(r);
+                }
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an iterator merging the given iterators with at most {@link #MAX_READERS_PER_SCAN} reader threads, if
+     * enough threads are available (out of the {@link #MAX_THREADS} shared by all the scans).
+     * <p>
+     * If there are more iterators than readers, each reader merges a group of iterators. If less than two threads are
+     * available, the iterators are merged in the calling thread by a {@link MergingIterator}.
+     */
+    static DbIterator create(List<DbIterator> itList, Comparator<byte[]> keyComparator, boolean ascending) {
+        int n = 0;
+        int max = Math.min(itList.size(), MAX_READERS_PER_SCAN);
+        while (n < max && readerPermits.tryAcquire()) {
+            n++;
+        }
+        if (n < 2) {
+            readerPermits.release(n);
+            return new MergingIterator(itList, keyComparator);
+        }
+        List<List<DbIterator>> groups = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int i = 0; i < itList.size(); i++) {
+            groups.get(i % n).add(itList.get(i));
+        }
+        List<DbIterator> readerItList = new ArrayList<>(n);
+        for (List<DbIterator> group : groups) {
+            readerItList.add(group.size() == 1 ? group.get(0) : new MergingIterator(group, keyComparator));
+        }
+        return new ParallelMergingIterator(readerItList, keyComparator, ascending, readerPermits);
+    }
+
+    @Override
+    public boolean isValid() {
+        return !priorityQueue.isEmpty();
+    }
+
+    @Override
+    public void next() {
+        if (!ascending) {
+            throw new IllegalStateException("next() called on a descending iterator");
+        }
+        advance();
+    }
+
+    @Override
+    public void prev() {
+        if (ascending) {
+            throw new IllegalStateException("prev() called on an ascending iterator");
+        }
+        advance();
+    }
+
+    private void advance() {
+        Reader r = priorityQueue.poll();
+        r.pos++;
+        if (r.fetch()) {
+            priorityQueue.add(r);
+        }
+    }
+
+    @Override
+    public byte[] key() {
+        return priorityQueue.peek().key();
+    }
+
+    @Override
+    public byte[] value() {
+        return priorityQueue.peek().value();
+    }
+
+    /**
+     * Stops all the readers and waits for them to close their iterators
+     */
+    @Override
+    public void close() {
+        closed = true;
+        priorityQueue.clear();
+        boolean interrupted = false;
+        for (Reader r : readers) {
+            r.queue.clear();
+            while (true) {
+                try {
+                    r.finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // we cannot return before the reader has finished using the iterator
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class Chunk {
+        final byte[][] keys;
+        final byte[][] values;
+        int size;
+        Throwable error;
+
+        Chunk(int capacity) {
+            keys = new byte[capacity][];
+            values = new byte[capacity][];
+        }
+    }
+
+    class Reader implements Runnable {
+        final DbIterator it;
+        final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        // consumer side
+        Chunk current;
+        int pos;
+
+        Reader(DbIterator it) {
+            this.it = it;
+        }
+
+        @Override
+        public void run() {
+            // the terminal chunk (END or error) is published in all cases, otherwise the consumer blocks forever
+            Chunk last = END;
+            try {
+                while (!closed && it.isValid()) {
+                    Chunk chunk = new Chunk(CHUNK_SIZE);
+                    while (chunk.size < CHUNK_SIZE && it.isValid()) {
+                        chunk.keys[chunk.size] = it.key();
+                        chunk.values[chunk.size] = it.value();
+                        chunk.size++;
+                        if (ascending) {
+                            it.next();
+                        } else {
+                            it.prev();
+                        }
+                    }
+                    put(chunk);
+                }
+            } catch (Throwable e) {
+                last = new Chunk(0);
+                last.error = e;
+            } finally {
+                try {
+                    put(last);
+                    it.close();
+                } finally {
+                    if (permits != null) {
+                        permits.release();
+                    }
+                    finished.countDown();
+                }
+            }
+        }
+
+        private void put(Chunk chunk) {
+            try {
+                while (!closed) {
+                    if (queue.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Makes sure that the current chunk contains data at pos.
+         *
+         * @return false if there is no more data
+         */
+        boolean fetch() {
+            while (current == null || pos >= current.size) {
+                if (current == END) {
+                    return false;
+                }
+                try {
+                    current = queue.take();
+                } catch (InterruptedException e) {
+                    // the consumer is being closed
+                    Thread.currentThread().interrupt();
+                    current = END;
+                    return false;
+                }
+                pos = 0;
+                if (current.error != null) {
+                    throw new YarchException(current.error);
+                }
+            }
+            return true;
+        }
+
+        byte[] key() {
+            return current.keys[pos];
+        }
+
+        byte[] value() {
+            return current.values[pos];
+        }
+    }
+}
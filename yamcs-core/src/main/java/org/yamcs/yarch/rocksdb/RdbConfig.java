@@ -16,6 +16,8 @@ import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.IndexType;
 import org.rocksdb.LRUCache;
+import org.rocksdb.MergeOperator;
+import org.rocksdb.StringAppendOperator;
 import org.rocksdb.YamcsParchiveMergeOperator;
 import org.yamcs.ConfigurationException;
 import org.yamcs.YConfiguration;
@@ -38,6 +40,9 @@ public class RdbConfig {
     public static final String KEY_TABLESPACE_NAME_PATTERN = "tablespaceNamePattern";
     public static final String KEY_CF_PATTERN = "columnFamilyPattern";
     public static final String KEY_TF_CONFIG = "tableFormatConfig";
+    public static final String KEY_GROUP_COMMIT = "groupCommit";
+    public static final String KEY_MERGE_APPEND = "mergeAppend";
+    public static final String KEY_PARALLEL_SCAN = "parallelScan";
 
     public static final int DEFAULT_MAX_OPEN_FILES = 10000;
 
@@ -114,6 +119,9 @@ public class RdbConfig {
 
         long targetFileSizeBase;
         final LRUCache lruCache;
+        GroupCommitConfig groupCommitConfig;
+        boolean mergeAppend = false;
+        boolean parallelScan = false;
 
         /**
          * default tablespace config containing default
@@ -133,9 +141,11 @@ public class RdbConfig {
 
             defaultCfOptions.useFixedLengthPrefixExtractor(4);
             defaultCfOptions.setCompressionType(CompressionType.LZ4_COMPRESSION);
+            defaultCfOptions.setMergeOperator(newTableMergeOperator());
 
             rtDataCfOptions.useFixedLengthPrefixExtractor(4);
             rtDataCfOptions.setCompressionType(CompressionType.LZ4_COMPRESSION);
+            rtDataCfOptions.setMergeOperator(newTableMergeOperator());
             rtDataCfOptions.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION);
             rtDataCfOptions.setMaxWriteBufferNumber(4);
             rtDataCfOptions.setTargetFileSizeMultiplier(2);
@@ -192,6 +202,13 @@ public class RdbConfig {
                 dboptions.setAllowConcurrentMemtableWrite(tblspConfig.getBoolean("allowConcurrentMemtableWrite"));
             }
 
+            mergeAppend = tblspConfig.getBoolean(KEY_MERGE_APPEND, false);
+            parallelScan = tblspConfig.getBoolean(KEY_PARALLEL_SCAN, false);
+
+            if (tblspConfig.containsKey(KEY_GROUP_COMMIT)) {
+                groupCommitConfig = new GroupCommitConfig(tblspConfig.getConfig(KEY_GROUP_COMMIT));
+            }
+
             if (tblspConfig.containsKey(KEY_CF_CONFIG)) {
                 int count = 0;
                 List<YConfiguration> cfConfigs = tblspConfig.getConfigList(KEY_CF_CONFIG);
@@ -207,7 +224,7 @@ public class RdbConfig {
         public ColumnFamilyOptions getColumnFamilyOptions(String cfName) {
             for (CfConfig cfc : cfConfigList) {
                 if (cfc.cfNamePattern.matcher(cfName).matches()) {
-                    return cfc.options;
+                    return cfc.getOptions(cfName);
                 }
             }
             return defaultCfOptions;
@@ -220,11 +237,89 @@ public class RdbConfig {
         public Cache getTableCache() {
             return lruCache;
         }
+
+        /**
+         * 
+         * @return the group commit configuration of the table writers or null if the group commit is not enabled
+         */
+        public GroupCommitConfig getGroupCommitConfig() {
+            return groupCommitConfig;
+        }
+
+        /**
+         * 
+         * @return true if the INSERT_APPEND and UPSERT_APPEND table writers should write the new columns using RocksDB
+         *         merge operations instead of reading and rewriting the existing rows. Once merge operands have been
+         *         written, the tablespace cannot be read anymore by a Yamcs version without the merge operator.
+         */
+        public boolean isMergeAppend() {
+            return mergeAppend;
+        }
+
+        /**
+         * 
+         * @return true if the table walkers should read the value based partitions (e.g. the tm partitioned by packet
+         *         name) using one thread for each partition.
+         */
+        public boolean isParallelScan() {
+            return parallelScan;
+        }
+    }
+
+    /**
+     * Configuration of the table writers group commit (see {@link RdbTableWriter}).
+     */
+    public static class GroupCommitConfig {
+        public static final int DEFAULT_MAX_ROWS = 1000;
+        public static final long DEFAULT_MAX_LATENCY = 5;
+
+        final int maxRows;
+        final long maxLatency;
+        final int queueSize;
+
+        /**
+         * 
+         * @param maxRows
+         *            maximum number of rows written in one batch
+         * @param maxLatency
+         *            maximum time in milliseconds a row waits in a batch before the batch is written
+         * @param queueSize
+         *            maximum number of rows waiting to be batched; the producers are blocked when the queue is full
+         */
+        public GroupCommitConfig(int maxRows, long maxLatency, int queueSize) {
+            if (maxRows < 1 || maxLatency < 0 || queueSize < 1) {
+                throw new ConfigurationException("Invalid group commit configuration: maxRows: " + maxRows
+                        + ", maxLatency: " + maxLatency + ", queueSize: " + queueSize);
+            }
+            this.maxRows = maxRows;
+            this.maxLatency = maxLatency;
+            this.queueSize = queueSize;
+        }
+
+        GroupCommitConfig(YConfiguration gcConfig) {
+            this(gcConfig.getInt("maxRows", DEFAULT_MAX_ROWS),
+                    gcConfig.getLong("maxLatency", DEFAULT_MAX_LATENCY),
+                    gcConfig.getInt("queueSize", 10 * gcConfig.getInt("maxRows", DEFAULT_MAX_ROWS)));
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public long getMaxLatency() {
+            return maxLatency;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
     }
 
     static class CfConfig {
         Pattern cfNamePattern;
         ColumnFamilyOptions options;
+        // options used for the parameter archive column family if the pattern matches it
+        ColumnFamilyOptions parchiveOptions;
         final LRUCache lruCache;
 
         public CfConfig(LRUCache lruCache, Pattern cfNamePattern, ColumnFamilyOptions options) {
@@ -241,8 +336,28 @@ public class RdbConfig {
             } catch (PatternSyntaxException e) {
                 throw new ConfigurationException("Cannot parse regexp " + e);
             }
-            options = new ColumnFamilyOptions();
+            options = createOptions(cfConfig, newTableMergeOperator());
+            // the parameter archive uses its own merge operator
+            if (cfNamePattern.matcher(ParameterArchive.CF_NAME).matches()) {
+                parchiveOptions = createOptions(cfConfig, new YamcsParchiveMergeOperator());
+            }
+        }
+
+        /**
+         * 
+         * @return the options to be used for the given column family
+         */
+        ColumnFamilyOptions getOptions(String cfName) {
+            if (parchiveOptions != null && ParameterArchive.CF_NAME.equals(cfName)) {
+                return parchiveOptions;
+            }
+            return options;
+        }
+
+        private ColumnFamilyOptions createOptions(YConfiguration cfConfig, MergeOperator mergeOperator) {
+            ColumnFamilyOptions options = new ColumnFamilyOptions();
             options.useFixedLengthPrefixExtractor(4);
+            options.setMergeOperator(mergeOperator);
 
             if (cfConfig.containsKey("numLevels")) {
                 options.setNumLevels(cfConfig.getInt("numLevels"));
@@ -310,10 +425,25 @@ public class RdbConfig {
                         .setIndexType(partitionedIndex ? IndexType.kTwoLevelIndexSearch : IndexType.kBinarySearch);
                 options.setTableFormatConfig(tableFormatConfig);
             }
+            return options;
         }
 
     }
 
+    /**
+     * The merge operator used for the table column families (all column families except the parameter archive one).
+     * <p>
+     * It concatenates the values without delimiter; the resulting sequence of serialized (partial) rows is folded when
+     * reading by {@link org.yamcs.yarch.TableDefinition#deserialize(byte[], byte[])}.
+     * <p>
+     * The operator is installed regardless of the {@link TablespaceConfig#isMergeAppend()} option such that the
+     * tablespaces written with the option enabled remain readable after disabling it; without merge operands in the
+     * column family, it has no effect on the data.
+     */
+    static StringAppendOperator newTableMergeOperator() {
+        return new StringAppendOperator("");
+    }
+
     static CompressionType getCompressionType(String compr) {
         CompressionType ct = COMP_TYPES.get(compr);
         if (ct == null) {
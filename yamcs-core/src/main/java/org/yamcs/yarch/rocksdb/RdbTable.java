@@ -3,10 +3,12 @@ package org.yamcs.yarch.rocksdb;
 import java.io.IOException;
 import java.util.List;
 
+import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 import org.yamcs.utils.DatabaseCorruptionException;
 import org.yamcs.yarch.Table;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord;
 import org.yamcs.yarch.rocksdb.protobuf.Tablespace.TablespaceRecord.Type;
@@ -26,6 +28,7 @@ public class RdbTable extends Table {
     // column family name
     final String cfName;
     SecondaryIndexWriter indexWriter;
+    final RecentKeyFilter keyFilter = new RecentKeyFilter();
 
     public RdbTable(String yamcsInstance, Tablespace tablespace, TableDefinition tblDef, int tbsIndex, String cfName) {
         super(tblDef);
@@ -73,6 +76,14 @@ public class RdbTable extends Table {
         return indexWriter;
     }
 
+    /**
+     * 
+     * @return the filter used by the table writers to avoid the lookups when checking for duplicates
+     */
+    public RecentKeyFilter getKeyFilter() {
+        return keyFilter;
+    }
+
     public RdbHistogramInfo createAndGetHistogram(long instant, String columnName) {
         return (RdbHistogramInfo) partitionManager.createAndGetHistogram(instant, columnName);
     }
@@ -81,4 +92,30 @@ public class RdbTable extends Table {
         return cfName;
     }
 
+    /**
+     * Reads one row of a table which is not partitioned by value.
+     * 
+     * @param instant
+     *            - the value of the time partitioning column of the row, ignored if the table is not partitioned by
+     *            time
+     * @param key
+     *            - the primary key of the row, as returned by {@link TableDefinition#generateRow(Tuple)}
+     * @return the row or null if it does not exist
+     * @throws RocksDBException
+     */
+    public Tuple readRow(long instant, byte[] key) throws RocksDBException {
+        RdbPartition partition = (RdbPartition) partitionManager.getPartition(instant, null);
+        if (partition == null) {
+            return null;
+        }
+        YRDB rdb = tablespace.getRdb(partition.dir, false);
+        try {
+            ColumnFamilyHandle cfh = rdb.getColumnFamilyHandle(cfName);
+            byte[] v = rdb.get(cfh, RdbStorageEngine.dbKey(partition.tbsIndex, key));
+            return v == null ? null : tableDefinition.deserialize(key, v);
+        } finally {
+            tablespace.dispose(rdb);
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ import org.yamcs.yarch.Partition;
 import org.yamcs.yarch.PartitionManager;
 import org.yamcs.yarch.RawTuple;
 import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableIterator;
 import org.yamcs.yarch.TableVisitor;
 import org.yamcs.yarch.YarchException;
 import org.yamcs.yarch.streamsql.StreamSqlException;
@@ -32,6 +33,8 @@ public class RdbTableWalker extends AbstractTableWalker {
     static AtomicInteger count = new AtomicInteger(0);
 
     boolean batchUpdates = false;
+    // read the value based partitions in parallel
+    boolean parallelScan;
     protected TableVisitor visitor;
 
     protected RdbTableWalker(ExecutionContext ctx, TableDefinition tableDefinition,
@@ -40,6 +43,7 @@ public class RdbTableWalker extends AbstractTableWalker {
 
         this.tablespace = ctx.getTablespace();
         this.table = tablespace.getTable(tableDefinition);
+        this.parallelScan = RdbConfig.getInstance().getTablespaceConfig(tablespace.getName()).isParallelScan();
     }
 
     /**
@@ -65,8 +69,7 @@ public class RdbTableWalker extends AbstractTableWalker {
     }
 
     /**
-     * runs value based partitions: the partition value is encoded as the first bytes of the key, so we have to make
-     * multiple parallel iterators
+     * Walks the data of one interval
      *
      * @return true if the end condition has been reached
      * @throws RocksDBException
@@ -76,48 +79,15 @@ public class RdbTableWalker extends AbstractTableWalker {
             throws RocksDBException, StreamSqlException {
         DbIterator iterator = null;
 
-        RdbPartition p1 = (RdbPartition) interval.iterator().next();
-        final YRDB rdb;
-        if (p1.dir != null) {
-            log.debug("opening database {}", p1.dir);
-            rdb = tablespace.getRdb(p1.dir, false);
-        } else {
-            rdb = tablespace.getRdb();
-        }
-        ReadOptions readOptions = new ReadOptions();
-
-        readOptions.setTailing(follow);
-        if (!follow) {
-            Snapshot snapshot = ctx.getSnapshot(rdb);
-            readOptions.setSnapshot(snapshot);
-        }
+        final YRDB rdb = getRdb(interval);
+        ReadOptions readOptions = createReadOptions(rdb);
         WriteBatch writeBatch = batchUpdates ? new WriteBatch() : null;
         var cfh = rdb.getColumnFamilyHandle(table.cfName());
 
         try {
-            List<DbIterator> itList = new ArrayList<>(interval.size());
-            // create an iterator for each partitions
-            for (Partition p : interval) {
-                p1 = (RdbPartition) p;
-                if (!ascending) {
-                    readOptions.setTotalOrderSeek(true);
-                }
-                RocksIterator rocksIt = rdb.getDb().newIterator(cfh, readOptions);
-                DbIterator it = getPartitionIterator(rocksIt, p1.tbsIndex, ascending, tableRange);
-                if (it.isValid()) {
-                    itList.add(it);
-                } else {
-                    it.close();
-                }
-            }
-
-            if (itList.size() == 0) {
+            iterator = createIterator(rdb, cfh, readOptions, interval, tableRange);
+            if (iterator == null) {
                 return false;
-            } else if (itList.size() == 1) {
-                iterator = itList.get(0);
-            } else {
-                iterator = new MergingIterator(itList,
-                        ascending ? new SuffixAscendingComparator(4) : new SuffixDescendingComparator(4));
             }
             boolean endReached;
             if (ascending) {
@@ -145,6 +115,89 @@ public class RdbTableWalker extends AbstractTableWalker {
         }
     }
 
+    @Override
+    public boolean supportsIterator() {
+        return true;
+    }
+
+    @Override
+    protected TableIterator openInterval(PartitionManager.Interval interval, DbRange tableRange) {
+        YRDB rdb = getRdb(interval);
+        ReadOptions readOptions = null;
+        try {
+            readOptions = createReadOptions(rdb);
+            var cfh = rdb.getColumnFamilyHandle(table.cfName());
+            DbIterator iterator = createIterator(rdb, cfh, readOptions, interval, tableRange);
+            return new RdbTableIterator(rdb, readOptions, iterator);
+        } catch (RuntimeException e) {
+            if (readOptions != null) {
+                readOptions.close();
+            }
+            tablespace.dispose(rdb);
+            throw e;
+        }
+    }
+
+    private YRDB getRdb(PartitionManager.Interval interval) {
+        RdbPartition p1 = (RdbPartition) interval.iterator().next();
+        if (p1.dir != null) {
+            log.debug("opening database {}", p1.dir);
+            return tablespace.getRdb(p1.dir, false);
+        } else {
+            return tablespace.getRdb();
+        }
+    }
+
+    private ReadOptions createReadOptions(YRDB rdb) {
+        ReadOptions readOptions = new ReadOptions();
+
+        readOptions.setTailing(follow);
+        if (!follow) {
+            Snapshot snapshot = ctx.getSnapshot(rdb);
+            readOptions.setSnapshot(snapshot);
+        }
+        if (!ascending) {
+            readOptions.setTotalOrderSeek(true);
+        }
+        return readOptions;
+    }
+
+    /**
+     * runs value based partitions: the partition value is encoded as the first bytes of the key, so we have to make
+     * multiple parallel iterators
+     * 
+     * @return an iterator merging the data of all partitions of the interval or null if there is no data
+     */
+    private DbIterator createIterator(YRDB rdb, ColumnFamilyHandle cfh, ReadOptions readOptions,
+            PartitionManager.Interval interval, DbRange tableRange) {
+        List<DbIterator> itList = new ArrayList<>(interval.size());
+        // create an iterator for each partitions
+        for (Partition p : interval) {
+            RdbPartition p1 = (RdbPartition) p;
+            RocksIterator rocksIt = rdb.getDb().newIterator(cfh, readOptions);
+            DbIterator it = getPartitionIterator(rocksIt, p1.tbsIndex, ascending, tableRange);
+            if (it.isValid()) {
+                itList.add(it);
+            } else {
+                it.close();
+            }
+        }
+
+        if (itList.size() == 0) {
+            return null;
+        } else if (itList.size() == 1) {
+            return itList.get(0);
+        } else {
+            Comparator<byte[]> comparator = ascending ? new SuffixAscendingComparator(4)
+                    : new SuffixDescendingComparator(4);
+            if (parallelScan) {
+                return ParallelMergingIterator.create(itList, comparator, ascending);
+            } else {
+                return new MergingIterator(itList, comparator);
+            }
+        }
+    }
+
     // return true if the end condition has been reached
     boolean runAscending(YRDB rdb, ColumnFamilyHandle cfh, DbIterator iterator, WriteBatch writeBatch, byte[] rangeEnd)
             throws RocksDBException, StreamSqlException {
@@ -160,9 +213,9 @@ public class RdbTableWalker extends AbstractTableWalker {
             }
             TableVisitor.Action action = visitor.visit(key, iterator.value());
             if (writeBatch == null) {
-                executeAction(rdb, cfh, action, dbKey);
+                executeAction(rdb, cfh, table.getKeyFilter(), action, dbKey);
             } else {
-                executeAction(rdb, cfh, writeBatch, action, dbKey);
+                executeAction(rdb, cfh, table.getKeyFilter(), writeBatch, action, dbKey);
             }
             if (action.stop()) {
                 close();
@@ -188,9 +241,9 @@ public class RdbTableWalker extends AbstractTableWalker {
 
             TableVisitor.Action action = visitor.visit(key, iterator.value());
             if (writeBatch == null) {
-                executeAction(rdb, cfh, action, dbKey);
+                executeAction(rdb, cfh, table.getKeyFilter(), action, dbKey);
             } else {
-                executeAction(rdb, cfh, writeBatch, action, dbKey);
+                executeAction(rdb, cfh, table.getKeyFilter(), writeBatch, action, dbKey);
             }
 
             if (action.stop()) {
@@ -202,7 +255,8 @@ public class RdbTableWalker extends AbstractTableWalker {
         return false;
     }
 
-    static void executeAction(YRDB rdb, ColumnFamilyHandle cfh, TableVisitor.Action action, byte[] dbKey)
+    static void executeAction(YRDB rdb, ColumnFamilyHandle cfh, RecentKeyFilter keyFilter,
+            TableVisitor.Action action, byte[] dbKey)
             throws RocksDBException, StreamSqlException {
         if (action.action() == TableVisitor.ActionType.DELETE) {
             rdb.delete(cfh, dbKey);
@@ -218,13 +272,14 @@ public class RdbTableWalker extends AbstractTableWalker {
             }
 
             rdb.delete(cfh, dbKey);
+            keyFilter.add(rdb, cfh, tbsIndex, updatedDbKey);
             rdb.put(cfh, updatedDbKey, action.getUpdatedValue());
 
         }
     }
 
-    static void executeAction(YRDB rdb, ColumnFamilyHandle cfh, WriteBatch writeBatch, TableVisitor.Action action,
-            byte[] dbKey)
+    static void executeAction(YRDB rdb, ColumnFamilyHandle cfh, RecentKeyFilter keyFilter, WriteBatch writeBatch,
+            TableVisitor.Action action, byte[] dbKey)
             throws RocksDBException, StreamSqlException {
         if (action.action() == TableVisitor.ActionType.DELETE) {
             rdb.delete(cfh, dbKey);
@@ -239,6 +294,7 @@ public class RdbTableWalker extends AbstractTableWalker {
                         "duplicate key in update: " + StringConverter.arrayToHexString(updatedDbKey));
             }
             rdb.delete(cfh, dbKey);
+            keyFilter.add(rdb, cfh, tbsIndex, updatedDbKey);
             rdb.put(cfh, updatedDbKey, action.getUpdatedValue());
         }
     }
@@ -269,6 +325,60 @@ public class RdbTableWalker extends AbstractTableWalker {
         this.batchUpdates = batchUpdates;
     }
 
+    /**
+     * Iterator over the data of one interval, returning the keys without the tbsIndex prefix
+     */
+    class RdbTableIterator implements TableIterator {
+        final YRDB rdb;
+        final ReadOptions readOptions;
+        final DbIterator iterator;
+        byte[] key;
+
+        RdbTableIterator(YRDB rdb, ReadOptions readOptions, DbIterator iterator) {
+            this.rdb = rdb;
+            this.readOptions = readOptions;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean isValid() {
+            return iterator != null && iterator.isValid();
+        }
+
+        @Override
+        public void next() {
+            key = null;
+            if (ascending) {
+                iterator.next();
+            } else {
+                iterator.prev();
+            }
+        }
+
+        @Override
+        public byte[] key() {
+            if (key == null) {
+                byte[] dbKey = iterator.key();
+                key = Arrays.copyOfRange(dbKey, 4, dbKey.length);
+            }
+            return key;
+        }
+
+        @Override
+        public byte[] value() {
+            return iterator.value();
+        }
+
+        @Override
+        public void close() {
+            if (iterator != null) {
+                iterator.close();
+            }
+            readOptions.close();
+            tablespace.dispose(rdb);
+        }
+    }
+
     class RdbRawTuple extends RawTuple {
         RocksIterator iterator;
         byte[] partition;
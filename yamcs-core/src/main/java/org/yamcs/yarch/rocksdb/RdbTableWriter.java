@@ -5,6 +5,12 @@ import static org.yamcs.yarch.rocksdb.RdbStorageEngine.dbKey;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
@@ -13,6 +19,8 @@ import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.YamcsServer;
+import org.yamcs.utils.ByteArray;
+import org.yamcs.utils.ByteArrayWrapper;
 import org.yamcs.utils.TimeEncoding;
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.DataType;
@@ -25,6 +33,7 @@ import org.yamcs.yarch.Tuple;
 import org.yamcs.yarch.TupleDefinition;
 import org.yamcs.yarch.YarchDatabaseInstance;
 import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.rocksdb.RdbConfig.GroupCommitConfig;
 
 import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;;
 
@@ -39,7 +48,23 @@ import static org.yamcs.yarch.rocksdb.RdbStorageEngine.TBS_INDEX_SIZE;;
  * 
  * <p>
  * The histograms are written by the {@link HistogramWriter}.
- *
+ * 
+ * <p>
+ * If a {@link GroupCommitConfig} is given, the INSERT, UPSERT and LOAD modes use group commit: the tuples are queued
+ * and a dedicated thread writes them (including the secondary index entries) in {@link WriteBatch}es of at most
+ * {@link GroupCommitConfig#getMaxRows()} rows, each row waiting at most {@link GroupCommitConfig#getMaxLatency()}
+ * milliseconds for its batch to be written. The histograms are updated after each batch has been written. When the
+ * queue is full, the {@link #onTuple(Stream, Tuple)} blocks. The rows are visible to the readers only once their batch
+ * has been written; closing the writer flushes the queue.
+ * <p>
+ * The INSERT_APPEND and UPSERT_APPEND modes always write the tuples individually.
+ * <p>
+ * If {@link RdbConfig.TablespaceConfig#isMergeAppend()} is set (it is not by default), the INSERT_APPEND and
+ * UPSERT_APPEND modes do not read the existing row but write the new columns as a RocksDB merge operand; the operands
+ * are concatenated by the merge operator of the column family and folded into one row by
+ * {@link TableDefinition#deserialize(byte[], byte[])}.
+ * The existing row is only read (to decide if the histogram has to be updated) when the tuple contains a value for the
+ * histogram column.
  * 
  * @author nm
  *
@@ -52,14 +77,33 @@ public class RdbTableWriter extends TableWriter {
     private final RdbTable table;
 
     static final byte[] zerobytes = new byte[0];
+    // queued to signal the group commit thread to stop
+    static final Tuple END_SIGNAL = new Tuple();
     Tablespace tablespace;
     volatile boolean closed = false;
     WriteOptions wopt;
     final HistogramWriter histoWriter;
     final SecondaryIndexWriter secondaryIndexWriter;
+    final RecentKeyFilter keyFilter;
     TableDefinition tableDefinition;
+    final GroupCommitter groupCommitter;
+    boolean mergeAppend;
 
     public RdbTableWriter(YarchDatabaseInstance ydb, RdbTable table, InsertMode mode) {
+        this(ydb, table, mode,
+                RdbConfig.getInstance().getTablespaceConfig(table.getTablespace().getName()).getGroupCommitConfig());
+    }
+
+    /**
+     * 
+     * @param ydb
+     * @param table
+     * @param mode
+     * @param groupCommitConfig
+     *            if not null, the tuples are written using group commit (ignored for the APPEND modes).
+     */
+    public RdbTableWriter(YarchDatabaseInstance ydb, RdbTable table, InsertMode mode,
+            GroupCommitConfig groupCommitConfig) {
         super(ydb, table, mode);
         this.tableDefinition = table.getDefinition();
         this.partitioningSpec = tableDefinition.getPartitioningSpec();
@@ -74,6 +118,16 @@ public class RdbTableWriter extends TableWriter {
         }
         histoWriter = table.getHistogramWriter();
         secondaryIndexWriter = table.getSecondaryIndexWriter();
+        keyFilter = table.getKeyFilter();
+        mergeAppend = RdbConfig.getInstance().getTablespaceConfig(tablespace.getName()).isMergeAppend();
+
+        if (groupCommitConfig != null
+                && (mode == InsertMode.INSERT || mode == InsertMode.UPSERT || mode == InsertMode.LOAD)) {
+            groupCommitter = new GroupCommitter(groupCommitConfig);
+            groupCommitter.start();
+        } else {
+            groupCommitter = null;
+        }
     }
 
     @Override
@@ -92,6 +146,10 @@ public class RdbTableWriter extends TableWriter {
         if (closed) {
             return;
         }
+        if (groupCommitter != null) {
+            groupCommitter.enqueue(t);
+            return;
+        }
         try {
             RdbPartition partition = getDbPartition(t);
             YRDB rdb = tablespace.getRdb(partition.dir, false);
@@ -105,10 +163,18 @@ public class RdbTableWriter extends TableWriter {
                 upsert(rdb, cfh, partition, t);
                 break;
             case INSERT_APPEND:
-                insertAppend(rdb, cfh, partition, t);
+                if (mergeAppend) {
+                    mergeAppend(rdb, cfh, partition, t, true);
+                } else {
+                    insertAppend(rdb, cfh, partition, t);
+                }
                 break;
             case UPSERT_APPEND:
-                upsertAppend(rdb, cfh, partition, t);
+                if (mergeAppend) {
+                    mergeAppend(rdb, cfh, partition, t, false);
+                } else {
+                    upsertAppend(rdb, cfh, partition, t);
+                }
                 break;
             case LOAD:
                 load(rdb, cfh, partition, t);
@@ -116,9 +182,7 @@ public class RdbTableWriter extends TableWriter {
 
             tablespace.dispose(rdb);
         } catch (IOException | RocksDBException | YarchException e) {
-            log.error("failed to insert a record: ", e);
-            YamcsServer.getServer().getCrashHandler(ydb.getYamcsInstance()).handleCrash("Archive",
-                    "failed to insert a record in " + table.getName() + ": " + e);
+            handleWriteError(e);
         }
     }
 
@@ -127,6 +191,7 @@ public class RdbTableWriter extends TableWriter {
         Row row = tableDefinition.generateRow(t);
         byte[] k = dbKey(partition.tbsIndex, row.getKey());
         byte[] v = tableDefinition.serializeValue(t, row);
+        keyFilter.add(db, cfh, partition.tbsIndex, k);
         db.put(cfh, wopt, k, v);
         return true;
     }
@@ -136,7 +201,7 @@ public class RdbTableWriter extends TableWriter {
         Row row = tableDefinition.generateRow(t);
         byte[] k = dbKey(partition.tbsIndex, row.getKey());
 
-        if (rdb.get(cfh, k) != null) {
+        if (exists(rdb, cfh, partition, k)) {
             return;
         }
         byte[] v = tableDefinition.serializeValue(t, row);
@@ -157,7 +222,7 @@ public class RdbTableWriter extends TableWriter {
 
         boolean updated = false;
 
-        if (rdb.get(cfh, k) != null) {
+        if (exists(rdb, cfh, partition, k)) {
             updated = true;
         }
         writeToDb(rdb, cfh, partition, k, v, row);
@@ -171,6 +236,52 @@ public class RdbTableWriter extends TableWriter {
         }
     }
 
+    /**
+     * Blind write of the tuple columns as a merge operand.
+     * 
+     * @param keepExisting
+     *            if true (INSERT_APPEND) the columns already existing in the row are not overwritten
+     */
+    private void mergeAppend(YRDB rdb, ColumnFamilyHandle cfh, RdbPartition partition, Tuple t, boolean keepExisting)
+            throws RocksDBException, IOException {
+        Row row = tableDefinition.generateRow(t);
+        byte[] dbKey = dbKey(partition.tbsIndex, row.getKey());
+
+        ByteArray byteArray = new ByteArray();
+        if (keepExisting) {
+            byteArray.addInt(TableDefinition.INSERT_APPEND_MARKER);
+        }
+        tableDefinition.serializeValue(t, row, byteArray);
+        byte[] v = byteArray.toArray();
+
+        if (histoWriter == null || !hasHistogramValue(row)) {
+            mergeToDb(rdb, cfh, partition, dbKey, v, row);
+            return;
+        }
+
+        // the histogram is only updated for new rows
+        boolean inserted;
+        rdb.lock(dbKey);
+        try {
+            inserted = !exists(rdb, cfh, partition, dbKey);
+            mergeToDb(rdb, cfh, partition, dbKey, v, row);
+        } finally {
+            rdb.unlock(dbKey);
+        }
+        if (inserted) {
+            histoWriter.addHistogram(row);
+        }
+    }
+
+    private boolean hasHistogramValue(Row row) {
+        for (String colName : tableDefinition.getHistogramColumns()) {
+            if (row.get(colName) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void insertAppend(YRDB rdb, ColumnFamilyHandle cfh, RdbPartition partition, Tuple t)
             throws RocksDBException, IOException {
         Row row = tableDefinition.generateRow(t);
@@ -184,7 +295,8 @@ public class RdbTableWriter extends TableWriter {
             if (v != null) {// append to an existing row
                 Tuple oldt = tableDefinition.deserialize(dbKey, v);
                 TupleDefinition tdef = t.getDefinition();
-                TupleDefinition oldtdef = oldt.getDefinition();
+                // the definition of the deserialized tuple is shared, it cannot be modified
+                TupleDefinition oldtdef = oldt.getDefinition().copy();
 
                 ArrayList<Object> cols = new ArrayList<Object>(oldt.getColumns().size() + t.getColumns().size());
                 cols.addAll(oldt.getColumns());
@@ -196,6 +308,7 @@ public class RdbTableWriter extends TableWriter {
                     }
                 }
                 if (updated) {
+                    oldt.setDefinition(oldtdef);
                     oldt.setColumns(cols);
                     v = tableDefinition.serializeValue(oldt, row);
                     writeToDb(rdb, cfh, partition, dbKey, v, row);
@@ -230,7 +343,8 @@ public class RdbTableWriter extends TableWriter {
                 byte[] k = Arrays.copyOfRange(dbKey, TBS_INDEX_SIZE, dbKey.length);
                 Tuple oldt = tableDefinition.deserialize(k, v);
                 TupleDefinition tdef = t.getDefinition();
-                TupleDefinition oldtdef = oldt.getDefinition();
+                // the definition of the deserialized tuple is shared, it cannot be modified
+                TupleDefinition oldtdef = oldt.getDefinition().copy();
 
                 ArrayList<Object> cols = new ArrayList<>(oldt.getColumns().size() + t.getColumns().size());
                 cols.addAll(oldt.getColumns());
@@ -247,6 +361,7 @@ public class RdbTableWriter extends TableWriter {
                     }
                 }
                 if (updated) {
+                    oldt.setDefinition(oldtdef);
                     oldt.setColumns(cols);
                     v = tableDefinition.serializeValue(oldt, row);
                     writeToDb(rdb, cfh, partition, dbKey, v, row);
@@ -267,8 +382,17 @@ public class RdbTableWriter extends TableWriter {
         }
     }
 
+    /**
+     * checks if the key exists in the database, using the {@link RecentKeyFilter} to avoid the lookup if possible
+     */
+    private boolean exists(YRDB rdb, ColumnFamilyHandle cfh, RdbPartition partition, byte[] key)
+            throws RocksDBException {
+        return keyFilter.mayExist(rdb, cfh, partition.tbsIndex, key) && rdb.get(cfh, key) != null;
+    }
+
     private void writeToDb(YRDB rdb, ColumnFamilyHandle cfh, RdbPartition partition, byte[] key, byte[] value, Row row)
             throws RocksDBException {
+        keyFilter.add(rdb, cfh, partition.tbsIndex, key);
 
         if (secondaryIndexWriter == null) {
             rdb.put(cfh, key, value);
@@ -293,6 +417,33 @@ public class RdbTableWriter extends TableWriter {
         }
     }
 
+    private void mergeToDb(YRDB rdb, ColumnFamilyHandle cfh, RdbPartition partition, byte[] key, byte[] value,
+            Row row) throws RocksDBException {
+        keyFilter.add(rdb, cfh, partition.tbsIndex, key);
+
+        if (secondaryIndexWriter == null) {
+            rdb.merge(cfh, key, value);
+            return;
+        }
+        if (rdb == tablespace.getRdb()) {
+            try (WriteBatch writeBatch = new WriteBatch();
+                    WriteOptions writeOpts = new WriteOptions()) {
+                writeBatch.merge(cfh, key, value);
+                secondaryIndexWriter.addTuple(writeBatch, row, partition);
+                rdb.write(writeOpts, writeBatch);
+            }
+        } else {// secondary index and main data go into different databases, we cannot perform the write in a batch
+            rdb.merge(cfh, key, value);
+            cfh = tablespace.getRdb().getColumnFamilyHandle(table.cfName());
+            try (WriteBatch writeBatch = new WriteBatch();
+                    WriteOptions writeOpts = new WriteOptions()) {
+                writeBatch.merge(cfh, key, value);
+                secondaryIndexWriter.addTuple(writeBatch, row, partition);
+                tablespace.getRdb().write(writeOpts, writeBatch);
+            }
+        }
+    }
+
     /**
      * get the filename where the tuple would fit (can be a partition)
      * 
@@ -323,6 +474,189 @@ public class RdbTableWriter extends TableWriter {
             return;
         }
         closed = true;
+        if (groupCommitter != null) {
+            groupCommitter.stop();
+        }
+        log.debug("Table {}: {} duplicate key lookups avoided, {} performed", table.getName(),
+                keyFilter.getAvoidedReads(), keyFilter.getPerformedReads());
+    }
+
+    private void handleWriteError(Exception e) {
+        log.error("failed to insert a record: ", e);
+        YamcsServer.getServer().getCrashHandler(ydb.getYamcsInstance()).handleCrash("Archive",
+                "failed to insert a record in " + table.getName() + ": " + e);
+    }
+
+    /**
+     * Queues the tuples and writes them in batches from a dedicated thread.
+     * <p>
+     * All the batch state is only accessed from that thread.
+     */
+    class GroupCommitter implements Runnable {
+        final int maxRows;
+        final long maxLatencyNanos;
+        final BlockingQueue<Tuple> queue;
+        final Thread thread;
+
+        final WriteBatch batch = new WriteBatch();
+        // used when the secondary index is not in the same database with the partition
+        final WriteBatch mainBatch = new WriteBatch();
+        // keys of the rows in the current batch, used to detect duplicates not yet in the database
+        final Set<ByteArrayWrapper> batchKeys = new HashSet<>();
+        // rows of the current batch for which the histogram has to be updated after the write
+        final List<Row> histoRows = new ArrayList<>();
+        // the database of the current batch, borrowed from the tablespace
+        YRDB batchRdb;
+        int batchSize;
+        long batchStartNanos;
+
+        GroupCommitter(GroupCommitConfig config) {
+            this.maxRows = config.getMaxRows();
+            this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxLatency());
+            this.queue = new ArrayBlockingQueue<>(config.getQueueSize());
+            this.thread = new Thread(this, "RdbTableWriter-" + ydb.getName() + "-" + table.getName());
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void enqueue(Tuple t) {
+            try {
+                queue.put(t);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting to queue a tuple for table {}; tuple dropped", table.getName());
+            }
+        }
+
+        /**
+         * Writes all the queued tuples and stops the thread
+         */
+        void stop() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    queue.put(END_SIGNAL);
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Tuple t;
+                    if (batchSize == 0) {
+                        t = queue.take();
+                    } else {
+                        long waitNanos = batchStartNanos + maxLatencyNanos - System.nanoTime();
+                        t = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+                    }
+                    if (t == END_SIGNAL) {
+                        break;
+                    } else if (t == null) {
+                        flush();
+                    } else {
+                        add(t);
+                        if (batchSize >= maxRows) {
+                            flush();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                log.warn("Group commit thread for table {} interrupted", table.getName());
+                Thread.currentThread().interrupt();
+            } finally {
+                flush();
+                batch.close();
+                mainBatch.close();
+            }
+        }
+
+        private void add(Tuple t) {
+            try {
+                RdbPartition partition = getDbPartition(t);
+                YRDB rdb = tablespace.getRdb(partition.dir, false);
+                if (rdb == batchRdb) {
+                    tablespace.dispose(rdb);
+                } else {
+                    flush();
+                    batchRdb = rdb;
+                }
+                var cfh = rdb.createAndGetColumnFamilyHandle(table.cfName());
+
+                Row row = tableDefinition.generateRow(t);
+                byte[] k = dbKey(partition.tbsIndex, row.getKey());
+                boolean exists = false;
+                if (mode != InsertMode.LOAD) {
+                    exists = batchKeys.contains(new ByteArrayWrapper(k)) || exists(rdb, cfh, partition, k);
+                    if (exists && mode == InsertMode.INSERT) {
+                        return;
+                    }
+                }
+                byte[] v = tableDefinition.serializeValue(t, row);
+                if (batchSize == 0) {
+                    batchStartNanos = System.nanoTime();
+                }
+                keyFilter.add(rdb, cfh, partition.tbsIndex, k);
+                batch.put(cfh, k, v);
+                if (secondaryIndexWriter != null) {
+                    if (rdb == tablespace.getRdb()) {
+                        secondaryIndexWriter.addTuple(batch, row, partition);
+                    } else {
+                        // same as for the individual writes, the data goes also in the main database
+                        mainBatch.put(tablespace.getRdb().getColumnFamilyHandle(table.cfName()), k, v);
+                        secondaryIndexWriter.addTuple(mainBatch, row, partition);
+                    }
+                }
+                batchSize++;
+                if (mode != InsertMode.LOAD) {
+                    batchKeys.add(new ByteArrayWrapper(k));
+                    if (histoWriter != null && !exists) {
+                        histoRows.add(row);
+                    }
+                }
+            } catch (IOException | RocksDBException | YarchException e) {
+                handleWriteError(e);
+            }
+        }
+
+        private void flush() {
+            try {
+                if (batchSize > 0) {
+                    batchRdb.write(wopt, batch);
+                    if (mainBatch.count() > 0) {
+                        tablespace.getRdb().write(wopt, mainBatch);
+                    }
+                    if (histoWriter != null) {
+                        for (Row row : histoRows) {
+                            histoWriter.addHistogram(row);
+                        }
+                    }
+                }
+            } catch (IOException | RocksDBException e) {
+                handleWriteError(e);
+            } finally {
+                batch.clear();
+                mainBatch.clear();
+                batchKeys.clear();
+                histoRows.clear();
+                batchSize = 0;
+                if (batchRdb != null) {
+                    tablespace.dispose(batchRdb);
+                    batchRdb = null;
+                }
+            }
+        }
     }
 
     @Override
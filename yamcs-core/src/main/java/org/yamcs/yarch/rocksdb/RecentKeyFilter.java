@@ -0,0 +1,190 @@
+package org.yamcs.yarch.rocksdb;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
+import org.rocksdb.RocksDBException;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Keeps track of the keys recently written in the partitions of one table, allowing the INSERT writers to skip the
+ * point lookup used to detect duplicates when a duplicate is impossible.
+ * <p>
+ * For each partition, the filter knows a key {@code lowBound} such that all the keys greater than it that exist in the
+ * database have been written through this filter. It keeps:
+ * <ul>
+ * <li>the maximum key written; a key greater than that cannot exist. For the tables whose keys start with a time
+ * increasing monotonically (tm, events, etc) this is the common case.</li>
+ * <li>a bloom filter of the keys written since {@code lowBound}; a key greater than {@code lowBound} which is not in
+ * the bloom filter cannot exist.</li>
+ * </ul>
+ * The initial {@code lowBound} and maximum key of a partition are read from the database the first time the partition
+ * is used. When the bloom filter is full, it is reset and the {@code lowBound} moves to the maximum key written.
+ * <p>
+ * At most {@link #MAX_PARTITIONS} partition filters are kept. The filter of an evicted partition is not rebuilt: some
+ * keys recorded by the writers may still be in a write batch not yet committed and would be missed by reading the
+ * maximum key from the database. For the evicted partitions {@link #mayExist(YRDB, ColumnFamilyHandle, int, byte[])}
+ * always returns true.
+ * <p>
+ * All the writers of a table have to {@link #add(YRDB, ColumnFamilyHandle, int, byte[]) add} the keys they write; this
+ * is the case for the {@link RdbTableWriter}.
+ */
+public class RecentKeyFilter {
+    static final int MAX_PARTITIONS = 256;
+    static final int BLOOM_SIZE = 10_000;
+    static final double BLOOM_FPP = 0.01;
+
+    private final Map<Integer, PartitionFilter> partitions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, PartitionFilter> eldest) {
+            if (size() > MAX_PARTITIONS) {
+                evicted.add(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+    // partitions whose filter has been evicted, the lookup is always performed for them
+    private final Set<Integer> evicted = new HashSet<>();
+    private final int bloomSize;
+
+    final AtomicLong avoidedReads = new AtomicLong();
+    final AtomicLong performedReads = new AtomicLong();
+
+    public RecentKeyFilter() {
+        this(BLOOM_SIZE);
+    }
+
+    RecentKeyFilter(int bloomSize) {
+        this.bloomSize = bloomSize;
+    }
+
+    /**
+     * Returns false if the key certainly does not exist in the database, true if it may exist.
+     * <p>
+     * The caller is expected to perform a lookup if true is returned; the call is counted as a performed read.
+     */
+    public boolean mayExist(YRDB rdb, ColumnFamilyHandle cfh, int tbsIndex, byte[] key) throws RocksDBException {
+        PartitionFilter pf = getPartitionFilter(rdb, cfh, tbsIndex);
+        boolean r;
+        if (pf == null) {
+            r = true;
+        } else {
+            synchronized (pf) {
+                r = pf.mayExist(key);
+            }
+        }
+        if (r) {
+            performedReads.incrementAndGet();
+        } else {
+            avoidedReads.incrementAndGet();
+        }
+        return r;
+    }
+
+    /**
+     * Records a key written in the database
+     */
+    public void add(YRDB rdb, ColumnFamilyHandle cfh, int tbsIndex, byte[] key) throws RocksDBException {
+        PartitionFilter pf = getPartitionFilter(rdb, cfh, tbsIndex);
+        if (pf == null) {
+            return;
+        }
+        synchronized (pf) {
+            pf.add(key);
+        }
+    }
+
+    /**
+     *
+     * @return the number of lookups skipped because the key could not exist
+     */
+    public long getAvoidedReads() {
+        return avoidedReads.get();
+    }
+
+    /**
+     *
+     * @return the number of times a lookup was needed
+     */
+    public long getPerformedReads() {
+        return performedReads.get();
+    }
+
+    /**
+     * Returns the filter of the partition, creating it if the partition is used for the first time, or null if the
+     * filter of the partition has been evicted.
+     */
+    private PartitionFilter getPartitionFilter(YRDB rdb, ColumnFamilyHandle cfh, int tbsIndex)
+            throws RocksDBException {
+        synchronized (partitions) {
+            PartitionFilter pf = partitions.get(tbsIndex);
+            if (pf == null && !evicted.contains(tbsIndex)) {
+                pf = new PartitionFilter(readMaxKey(rdb, cfh, tbsIndex));
+                partitions.put(tbsIndex, pf);
+            }
+            return pf;
+        }
+    }
+
+    /**
+     * returns the maximum key in the database starting with tbsIndex or null if there is no such key
+     */
+    private static byte[] readMaxKey(YRDB rdb, ColumnFamilyHandle cfh, int tbsIndex) throws RocksDBException {
+        byte[] prefix = RdbStorageEngine.dbKey(tbsIndex);
+        try (ReadOptions ro = new ReadOptions().setTotalOrderSeek(true);
+                DescendingPrefixIterator it = new DescendingPrefixIterator(rdb.newIterator(cfh, ro), prefix)) {
+            return it.isValid() ? it.key() : null;
+        }
+    }
+
+    class PartitionFilter {
+        // all the keys greater than lowBound existing in the database are in the bloom filter
+        // null means all the keys
+        byte[] lowBound;
+        byte[] maxKey;
+        BloomFilter<byte[]> bloom;
+        int count;
+
+        PartitionFilter(byte[] maxKey) {
+            this.lowBound = maxKey;
+            this.maxKey = maxKey;
+            this.bloom = newBloom();
+        }
+
+        boolean mayExist(byte[] key) {
+            if (maxKey == null || Arrays.compareUnsigned(key, maxKey) > 0) {
+                return false;
+            }
+            if (lowBound != null && Arrays.compareUnsigned(key, lowBound) <= 0) {
+                return true;
+            }
+            return bloom.mightContain(key);
+        }
+
+        void add(byte[] key) {
+            if (count >= bloomSize) {
+                bloom = newBloom();
+                count = 0;
+                lowBound = maxKey;
+            }
+            bloom.put(key);
+            count++;
+            if (maxKey == null || Arrays.compareUnsigned(key, maxKey) > 0) {
+                maxKey = key;
+            }
+        }
+
+        private BloomFilter<byte[]> newBloom() {
+            return BloomFilter.create(Funnels.byteArrayFunnel(), bloomSize, BLOOM_FPP);
+        }
+    }
+}
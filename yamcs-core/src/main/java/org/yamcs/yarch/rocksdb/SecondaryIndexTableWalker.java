@@ -154,9 +154,9 @@ public class SecondaryIndexTableWalker implements TableWalker {
             if (rowValue != null) {
                 TableVisitor.Action action = visitor.visit(pk, rowValue);
                 if (writeBatch == null) {
-                    RdbTableWalker.executeAction(rdb, cfh, action, dbKey);
+                    RdbTableWalker.executeAction(rdb, cfh, table.getKeyFilter(), action, dbKey);
                 } else {
-                    RdbTableWalker.executeAction(rdb, cfh, writeBatch, action, dbKey);
+                    RdbTableWalker.executeAction(rdb, cfh, table.getKeyFilter(), writeBatch, action, dbKey);
                 }
                 if (action.stop()) {
                     close();
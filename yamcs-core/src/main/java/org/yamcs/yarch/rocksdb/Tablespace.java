@@ -717,6 +717,14 @@ public class Tablespace {
         for (TableWalker rrs : walkers.keySet()) {
             rrs.close();
         }
+        // the writers using group commit may still have rows to write
+        List<RdbTableWriter> writers = new ArrayList<>();
+        synchronized (tableWriters) {
+            tableWriters.values().forEach(writers::addAll);
+        }
+        for (RdbTableWriter w : writers) {
+            w.close();
+        }
         synchronized (sequences) {
             for (RdbSequence seq : sequences.values()) {
                 seq.close();
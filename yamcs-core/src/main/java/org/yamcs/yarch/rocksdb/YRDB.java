@@ -263,6 +263,13 @@ public class YRDB {
         db.put(cfh, k, v);
     }
 
+    public void merge(ColumnFamilyHandle cfh, byte[] k, byte[] v) throws RocksDBException {
+        if (closed) {
+            throw new IllegalStateException("Database is closed");
+        }
+        db.merge(cfh, k, v);
+    }
+
     public void put(byte[] k, byte[] v) throws RocksDBException {
         if (closed) {
             throw new IllegalStateException("Database is closed");
@@ -0,0 +1,142 @@
+package org.yamcs.yarch.streamsql;
+
+import java.io.StringReader;
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.SimpleCompiler;
+import org.yamcs.yarch.ColumnDefinition;
+import org.yamcs.yarch.CompiledExpression;
+
+/**
+ * Caches the classes generated by {@link Expression#compile()} such that executing the same statement (or a statement
+ * with the same shape) again does not compile the expressions again.
+ * <p>
+ * The generated sources refer to the query arguments (the <code>?</code> in the statements) via the array passed to the
+ * constructor so the statements differing only by their arguments share the same classes.
+ * <p>
+ * The expressions use unique names (derived from their identity hash code) for the generated variables; these are
+ * renamed in the order they appear in the source before looking up the cache. Only the names belonging to the
+ * compiled expression tree are renamed, such that string literals are never modified.
+ * <p>
+ * The cache is bounded, the least recently used classes are evicted.
+ */
+public class CompiledExpressionCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    static final String CLASS_NAME = "Expression_generated";
+    /**
+     * the part of the generated column names which makes them unique
+     */
+    static final Pattern UNIQUE_ID_PATTERN = Pattern.compile("(?<=[A-Za-z_])0x[0-9a-f]+d\\b");
+
+    private static final CompiledExpressionCache INSTANCE = new CompiledExpressionCache(DEFAULT_MAX_SIZE);
+
+    private final Map<String, Constructor<CompiledExpression>> classes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    CompiledExpressionCache(int maxSize) {
+        classes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Constructor<CompiledExpression>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public static CompiledExpressionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the constructor of the class compiled from the given source, compiling it if it is not in the cache.
+     * <p>
+     * The constructor has two arguments: the definition of the resulting column and the statement arguments.
+     * 
+     * @param source
+     *            - the generated java source
+     * @param uniqueIds
+     *            - the unique ids (see {@link #UNIQUE_ID_PATTERN}) of the expressions part of the compiled tree
+     */
+    Constructor<CompiledExpression> getConstructor(String source, Set<String> uniqueIds)
+            throws CompileException, ReflectiveOperationException {
+        String normalizedSource = normalize(source, uniqueIds);
+        Constructor<CompiledExpression> constructor;
+        synchronized (classes) {
+            constructor = classes.get(normalizedSource);
+        }
+        if (constructor != null) {
+            hits.incrementAndGet();
+            return constructor;
+        }
+        misses.incrementAndGet();
+
+        // compile outside the lock; in the worst case the same source is compiled twice
+        SimpleCompiler compiler = new SimpleCompiler();
+        compiler.cook(new StringReader(normalizedSource));
+        @SuppressWarnings("unchecked")
+        Class<CompiledExpression> cexprClass = (Class<CompiledExpression>) compiler.getClassLoader()
+                .loadClass("org.yamcs.yarch." + CLASS_NAME);
+        constructor = cexprClass.getConstructor(ColumnDefinition.class, Object[].class);
+        synchronized (classes) {
+            classes.put(normalizedSource, constructor);
+        }
+        return constructor;
+    }
+
+    static String normalize(String source, Set<String> uniqueIds) {
+        Map<String, String> names = new HashMap<>();
+        Matcher m = UNIQUE_ID_PATTERN.matcher(source);
+        StringBuilder sb = new StringBuilder(source.length());
+        while (m.find()) {
+            String id = m.group();
+            if (uniqueIds.contains(id)) {
+                m.appendReplacement(sb, names.computeIfAbsent(id, k -> "_" + names.size()));
+            }
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     *
+     * @return the number of compilations avoided because the class was found in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     *
+     * @return the number of compilations performed
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     *
+     * @return the number of classes in the cache
+     */
+    public int size() {
+        synchronized (classes) {
+            return classes.size();
+        }
+    }
+
+    /**
+     * Removes all classes from the cache
+     */
+    public void clear() {
+        synchronized (classes) {
+            classes.clear();
+        }
+    }
+}
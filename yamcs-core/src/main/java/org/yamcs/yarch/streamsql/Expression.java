@@ -1,13 +1,12 @@
 package org.yamcs.yarch.streamsql;
 
-import java.io.StringReader;
 import java.lang.reflect.Constructor;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Matcher;
 
-import org.codehaus.janino.SimpleCompiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamcs.utils.StringConverter;
@@ -40,11 +39,16 @@ public abstract class Expression {
                 }
             }
         }
-        colName = String.format("%s0x%xd", this.getClass().getSimpleName(), this.hashCode());
+        colName = generatedColumnName();
     }
 
-    // TODO: this is now called from within the parser at query preparation time.
-    // when we add PreparedStatements, we should allow passing the args at execution time
+    private String generatedColumnName() {
+        return String.format("%s0x%xd", this.getClass().getSimpleName(), this.hashCode());
+    }
+
+    // called from within the parser at query preparation time.
+    // The arguments are passed to the compiled expressions when they are instantiated, such that the classes generated
+    // for the statements differing only by their arguments can be shared (see CompiledExpressionCache)
     public void setArgs(Object[] args) {
         this.args = args;
         if (children != null) {
@@ -157,12 +161,14 @@ public abstract class Expression {
 
     public abstract void fillCode_getValueReturn(StringBuilder code) throws StreamSqlException;
 
-    // TODO: when adding support for PreparedStatements we should remember the result of the compilation
-    // and create new instances of that class with different arguments
-    // (currently the arguments are passed from the parser.)
-    // additional code should be added to verify that the arguments match the expected type
+    /**
+     * Generates the java code for this expression and instantiates it with the current arguments.
+     * <p>
+     * The compiled classes are cached by the {@link CompiledExpressionCache} such that the compilation happens only
+     * the first time an expression (or an expression with the same shape but different arguments) is seen.
+     */
     public CompiledExpression compile() throws StreamSqlException {
-        String className = "Expression_generated";
+        String className = CompiledExpressionCache.CLASS_NAME;
         StringBuilder source = new StringBuilder();
         source.append("package org.yamcs.yarch;\n")
                 .append("import org.yamcs.parameter.ParameterValue;\n")
@@ -201,14 +207,10 @@ public abstract class Expression {
 
         // System.out.println("source: " + source);
         try {
-            SimpleCompiler compiler = new SimpleCompiler();
-            compiler.cook(new StringReader(source.toString()));
-
-            @SuppressWarnings("unchecked")
-            Class<CompiledExpression> cexprClass = (Class<CompiledExpression>) compiler.getClassLoader()
-                    .loadClass("org.yamcs.yarch." + className);
-            Constructor<CompiledExpression> cexprConstructor = cexprClass.getConstructor(ColumnDefinition.class,
-                    Object[].class);
+            Set<String> uniqueIds = new HashSet<>();
+            collectUniqueIds(uniqueIds);
+            Constructor<CompiledExpression> cexprConstructor = CompiledExpressionCache.getInstance()
+                    .getConstructor(source.toString(), uniqueIds);
             ColumnDefinition cdef = new ColumnDefinition(colName, type);
             return cexprConstructor.newInstance(cdef, args);
         } catch (Exception e) {
@@ -217,6 +219,24 @@ public abstract class Expression {
         }
     }
 
+    /**
+     * collects the unique part of the generated column names of this expression and its children
+     */
+    void collectUniqueIds(Set<String> ids) {
+        String generatedName = generatedColumnName();
+        if (generatedName.equals(colName)) {
+            Matcher m = CompiledExpressionCache.UNIQUE_ID_PATTERN.matcher(generatedName);
+            if (m.find()) {
+                ids.add(m.group());
+            }
+        }
+        if (children != null) {
+            for (Expression c : children) {
+                c.collectUniqueIds(ids);
+            }
+        }
+    }
+
     /**
      * when the expression behaves like a column expression, this is the column name
      * 
@@ -3,7 +3,6 @@ package org.yamcs.yarch.streamsql;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.yamcs.yarch.CompiledExpression;
 import org.yamcs.yarch.DataType;
@@ -12,8 +11,6 @@ import org.yamcs.yarch.FilterableTarget;
 import org.yamcs.utils.parser.ParseException;
 
 public class InExpression extends Expression {
-    static AtomicInteger at = new AtomicInteger();
-    private int count = at.incrementAndGet();
     boolean negation;
     
     public InExpression(Expression expr, InClause inClause) throws ParseException {
@@ -67,16 +64,20 @@ public class InExpression extends Expression {
         type = DataType.BOOLEAN;
     }
 
+    private String setName() {
+        return "inSet_" + sanitizeName(colName);
+    }
+
     @Override
     protected void fillCode_Declarations(StringBuilder code) {
-        code.append("\tjava.util.Set inSet" + count + "=new java.util.HashSet();\n");
+        code.append("\tjava.util.Set " + setName() + "=new java.util.HashSet();\n");
     }
 
     @Override
     protected void fillCode_Constructor(StringBuilder code) throws StreamSqlException {
         for (int i = 1; i < children.length; i++) {
             if (children[i].isConstant()) {
-                code.append("\t\tinSet" + count + ".add(");
+                code.append("\t\t" + setName() + ".add(");
                 children[i].fillCode_getValueReturn(code);
                 code.append(");\n");
             }
@@ -87,7 +88,7 @@ public class InExpression extends Expression {
     protected void fillCode_getValueBody(StringBuilder code) throws StreamSqlException {
         for (int i = 1; i < children.length; i++) {
             if (!children[i].isConstant()) {
-                code.append("\t\tinSet" + count + ".add(");
+                code.append("\t\t" + setName() + ".add(");
                 children[i].fillCode_getValueReturn(code);
                 code.append(");\n");
             }
@@ -99,7 +100,7 @@ public class InExpression extends Expression {
         if(negation) {
             code.append("!");
         }
-        code.append("inSet" + count + ".contains(");
+        code.append(setName() + ".contains(");
         children[0].fillCode_getValueReturn(code);
         code.append(")");
     }
@@ -0,0 +1,48 @@
+package org.yamcs.yarch.streamsql;
+
+import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.YarchDatabaseInstance;
+
+/**
+ * A StreamSQL query which can be executed multiple times with different arguments.
+ * <p>
+ * The arguments are specified in the query using <code>?</code> and are passed at execution time.
+ * <p>
+ * The types of the arguments are used during the parsing, so the query is parsed again for each execution; the
+ * expensive part, the compilation of the expressions, is performed only the first time thanks to the
+ * {@link CompiledExpressionCache}.
+ */
+public class PreparedStreamSqlStatement {
+    final YarchDatabaseInstance ydb;
+    final String query;
+
+    public PreparedStreamSqlStatement(YarchDatabaseInstance ydb, String query) {
+        this.ydb = ydb;
+        this.query = query;
+    }
+
+    /**
+     * Executes the statement with the given arguments.
+     * <p>
+     * If the result contains streaming data (select from table or stream) you have to close the result
+     */
+    public StreamSqlResult execute(Object... args) throws StreamSqlException, ParseException {
+        return ydb.execute(ydb.createStatement(query, args));
+    }
+
+    /**
+     * Executes the statement with the given arguments sending the result to the listener
+     */
+    public void execute(ResultListener resultListener, Object... args) throws StreamSqlException, ParseException {
+        ydb.execute(ydb.createStatement(query, args), resultListener);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return query;
+    }
+}
@@ -40,7 +40,7 @@ public class RelationalExpression extends Expression {
         if ((children[0] instanceof ColumnExpression) && children[1].isConstant()) {
             ColumnExpression cexpr = (ColumnExpression) children[0];
             Object cvalue;
-            if (children[1] instanceof ValueExpression) {
+            if (children[1] instanceof ValueExpression || children[1] instanceof ArgumentExpression) {
                 cvalue = children[1].getConstantValue();
             } else {
                 CompiledExpression compexpr = children[1].compile();
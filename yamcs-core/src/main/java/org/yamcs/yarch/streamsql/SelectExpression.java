@@ -2,7 +2,9 @@ package org.yamcs.yarch.streamsql;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.yamcs.yarch.ColumnDefinition;
 import org.yamcs.yarch.CompiledAggregateExpression;
@@ -233,6 +235,7 @@ public class SelectExpression implements StreamExpression {
         if (whereClause != null) {
             whereClause.addFilter(tupleSourceExpression);
         }
+        tupleSourceExpression.setColumnProjection(getRequiredColumns());
 
         Stream stream = tupleSourceExpression.execute(c);
         CompiledExpression cWhereClause = (whereClause == null) ? null : whereClause.compile();
@@ -289,6 +292,34 @@ public class SelectExpression implements StreamExpression {
         }
     }
 
+    /**
+     * Returns the input columns required to evaluate the where clause and the select list or null if all the columns
+     * are required (select *, aggregates, windows or a column which cannot be determined).
+     */
+    private Set<String> getRequiredColumns() {
+        if (selectStar || windowSpec != null || (aggList != null && !aggList.isEmpty())) {
+            return null;
+        }
+        Set<ColumnDefinition> inputs = new HashSet<>();
+        if (whereClause != null) {
+            whereClause.collectRequiredInputs(inputs);
+        }
+        for (SelectItem item : selectList) {
+            if (item == SelectItem.STAR) {
+                return null;
+            }
+            item.expr.collectRequiredInputs(inputs);
+        }
+        Set<String> columns = new HashSet<>();
+        for (ColumnDefinition cd : inputs) {
+            if (cd == null) {
+                return null;
+            }
+            columns.add(cd.getName());
+        }
+        return columns;
+    }
+
     @Override
     public boolean isFinite() {
         return tupleSourceExpression.isFinite();
@@ -0,0 +1,95 @@
+package org.yamcs.yarch.streamsql;
+
+import java.util.function.Consumer;
+
+import org.yamcs.yarch.AsyncStreamSubscriber;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.ExecutionContext;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.StreamSubscriber;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchDatabaseInstance;
+
+/**
+ * Lists the subscribers of a stream.
+ * <p>
+ * The queue statistics are only available for the asynchronous subscribers (see {@link AsyncStreamSubscriber}); the
+ * synchronous ones receive the tuples in the thread emitting them, they have no queue and their processed count is
+ * not tracked (-1).
+ */
+public class ShowStreamSubscribersStatement extends SimpleStreamSqlStatement {
+
+    private static final TupleDefinition TDEF = new TupleDefinition();
+    static {
+        TDEF.addColumn("name", DataType.STRING);
+        TDEF.addColumn("mode", DataType.STRING);
+        TDEF.addColumn("queueSize", DataType.INT);
+        TDEF.addColumn("queueCapacity", DataType.INT);
+        TDEF.addColumn("overflowPolicy", DataType.STRING);
+        TDEF.addColumn("processed", DataType.LONG);
+        TDEF.addColumn("dropped", DataType.LONG);
+        TDEF.addColumn("meanLatency", DataType.DOUBLE);
+        TDEF.addColumn("maxLatency", DataType.DOUBLE);
+    }
+
+    String name;
+
+    public ShowStreamSubscribersStatement(String name) {
+        this.name = name;
+    }
+
+    @Override
+    protected void execute(ExecutionContext context, Consumer<Tuple> consumer) throws StreamSqlException {
+        YarchDatabaseInstance ydb = context.getDb();
+        Stream s = null;
+        synchronized (ydb) {
+            s = ydb.getStream(name);
+        }
+        if (s == null) {
+            throw new ResourceNotFoundException(name);
+        }
+
+        for (StreamSubscriber subscriber : s.getSubscribers()) {
+            Tuple tuple;
+            if (subscriber instanceof AsyncStreamSubscriber as) {
+                tuple = new Tuple(TDEF, new Object[] {
+                        getSubscriberName(as.getSubscriber()),
+                        "ASYNC",
+                        as.getQueueSize(),
+                        as.getQueueCapacity(),
+                        as.getOverflowPolicy().name(),
+                        as.getProcessedCount(),
+                        as.getDroppedCount(),
+                        as.getMeanLatencyNanos() / 1e6,
+                        as.getMaxLatencyNanos() / 1e6,
+                });
+            } else {
+                tuple = new Tuple(TDEF, new Object[] {
+                        getSubscriberName(subscriber),
+                        "SYNC",
+                        0,
+                        0,
+                        "NONE",
+                        -1L,
+                        0L,
+                        0d,
+                        0d,
+                });
+            }
+            consumer.accept(tuple);
+        }
+    }
+
+    private static String getSubscriberName(StreamSubscriber subscriber) {
+        if (subscriber.getDescription() != null) {
+            return subscriber.getDescription();
+        }
+        return subscriber.getClass().getSimpleName();
+    }
+
+    @Override
+    protected TupleDefinition getResultDefinition() {
+        return TDEF;
+    }
+}
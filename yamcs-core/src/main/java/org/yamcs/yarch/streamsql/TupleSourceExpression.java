@@ -1,6 +1,7 @@
 package org.yamcs.yarch.streamsql;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Set;
 
 import org.yamcs.logging.Log;
@@ -44,6 +45,8 @@ public class TupleSourceExpression implements FilterableTarget {
 
     boolean ascending = true;
     boolean follow = false;
+    // the columns needed from the table, null means all
+    Collection<String> columnProjection;
 
     // after binding
     TupleDefinition definition;
@@ -159,7 +162,9 @@ public class TupleSourceExpression implements FilterableTarget {
             break;
         case TABLE:
             TableWalker tblit = tableWalkerBuilder.build();
-            stream = new TableReaderStream(ydb, tableWalkerBuilder.getTableDefinition(), tblit);
+            TableReaderStream tblStream = new TableReaderStream(ydb, tableWalkerBuilder.getTableDefinition(), tblit);
+            tblStream.setColumnProjection(columnProjection);
+            stream = tblStream;
             break;
         case TABLE_HISTOGRAM:
             HistogramReaderStream histoStream = histogramStreamBuilder.build();
@@ -173,6 +178,14 @@ public class TupleSourceExpression implements FilterableTarget {
         return stream;
     }
 
+    /**
+     * Sets the columns required by the consumer of this source. When reading from a table, the other value columns are
+     * not decoded.
+     */
+    public void setColumnProjection(Collection<String> columnProjection) {
+        this.columnProjection = columnProjection;
+    }
+
     public void setHistogramMergeTime(BigDecimal mergeTime) {
         histogramMergeTime = mergeTime;
     }
@@ -0,0 +1,216 @@
+package org.yamcs.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.parameter.LastValueCache;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.InputParameter;
+import org.yamcs.xtce.OnParameterUpdateTrigger;
+import org.yamcs.xtce.OutputParameter;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.TriggerSetType;
+
+public class AlgorithmTriggerIndexTest {
+    Parameter p1, p2, p3, p4, p5;
+    List<String> updated;
+    List<String> executed;
+    LastValueCache lvc;
+
+    @BeforeEach
+    public void setup() {
+        p1 = new Parameter("p1");
+        p2 = new Parameter("p2");
+        p3 = new Parameter("p3");
+        p4 = new Parameter("p4");
+        p5 = new Parameter("p5");
+        updated = Collections.synchronizedList(new ArrayList<>());
+        executed = Collections.synchronizedList(new ArrayList<>());
+        lvc = new LastValueCache();
+    }
+
+    @Test
+    public void testChain() {
+        AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", null, 10);
+        // a: p1 -> p2, b: p2 -> p3, c: p4 -> p5, d: p1 -> (triggered by p4)
+        add(ctx, "a", List.of(p1), List.of(p1), p2);
+        add(ctx, "b", List.of(p2), List.of(p2), p3);
+        add(ctx, "c", List.of(p4), List.of(p4), p5);
+        add(ctx, "d", List.of(p1), List.of(p4), null);
+
+        ProcessingContext pctx = process(ctx, p1);
+        assertEquals(List.of("a", "b", "d"), updated);
+        assertEquals(List.of("a", "b"), executed);
+        assertEquals(3, pctx.getTmParams().size());
+
+        updated.clear();
+        executed.clear();
+        process(ctx, p4);
+        assertEquals(List.of("c", "d"), updated);
+        assertEquals(List.of("c", "d"), executed);
+
+        updated.clear();
+        executed.clear();
+        process(ctx, p3);
+        assertEquals(List.of(), updated);
+    }
+
+    @Test
+    public void testSameAsFullScan() {
+        List<Parameter> params = List.of(p1, p2, p3, p4, p5);
+        List<List<String>> results = new ArrayList<>();
+        for (boolean useIndex : new boolean[] { true, false }) {
+            AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", null, 10);
+            ctx.useTriggerIndex = useIndex;
+            add(ctx, "a", List.of(p1, p3), List.of(p1), p2);
+            add(ctx, "b", List.of(p2), List.of(p2), p4);
+            add(ctx, "c", List.of(p4, p5), List.of(p5), null);
+            add(ctx, "e", List.of(p3), null, null);
+            executed.clear();
+            for (Parameter p : params) {
+                for (Parameter q : params) {
+                    process(ctx, p, q);
+                }
+            }
+            results.add(new ArrayList<>(executed));
+        }
+        assertEquals(results.get(0), results.get(1));
+    }
+
+    @Test
+    public void testUnindexed() {
+        AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", null, 10);
+        add(ctx, "a", List.of(p1), null, null);
+        add(ctx, "b", List.of(p2), List.of(p2), null);
+
+        ActiveAlgorithm a = ctx.getAlgorithm("/a");
+        assertNull(AlgorithmTriggerIndex.getIndexParameters(a));
+        assertEquals(1, new AlgorithmTriggerIndex(ctx.executionOrder, 0).getUnindexedCount());
+
+        process(ctx, p3);
+        assertEquals(List.of("a"), updated);
+    }
+
+    @Test
+    public void testAddRemove() {
+        AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", null, 10);
+        add(ctx, "a", List.of(p1), List.of(p1), null);
+        process(ctx, p1);
+        add(ctx, "b", List.of(p1), List.of(p1), null);
+        process(ctx, p1);
+        ctx.removeAlgorithm("/a");
+        process(ctx, p1);
+        assertEquals(List.of("a", "a", "b", "b"), executed);
+    }
+
+    @Test
+    public void testLevels() {
+        AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", null, 10);
+        add(ctx, "a", List.of(p1), List.of(p1), p2);
+        add(ctx, "b", List.of(p2), List.of(p2), p3);
+        add(ctx, "c", List.of(p4), List.of(p4), p5);
+        // writes p2 which is read by b
+        add(ctx, "d", List.of(p1), List.of(p1), p2);
+        // reads p3 written by b
+        add(ctx, "e", List.of(p3, p4), null, null);
+
+        AlgorithmTriggerIndex idx = new AlgorithmTriggerIndex(ctx.executionOrder, 0);
+        assertArrayEquals(new int[] { 0, 1, 0, 1, 2 }, idx.levels);
+        assertEquals(3, idx.levelMembers.length);
+    }
+
+    @Test
+    public void testParallelSameAsSerial() throws Exception {
+        List<Parameter> params = List.of(p1, p2, p3, p4, p5);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<List<String>> results = new ArrayList<>();
+            for (boolean parallel : new boolean[] { true, false }) {
+                AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", null, 10);
+                if (parallel) {
+                    ctx.setExecutorService(pool);
+                }
+                add(ctx, "a", List.of(p1), List.of(p1), p2);
+                add(ctx, "b", List.of(p1, p3), List.of(p1), p4);
+                add(ctx, "c", List.of(p2), List.of(p2), p5);
+                add(ctx, "d", List.of(p4), List.of(p4), p5);
+                add(ctx, "e", List.of(p5), List.of(p5), p3);
+                add(ctx, "f", List.of(p1), null, null);
+                List<String> l = new ArrayList<>();
+                for (Parameter p : params) {
+                    for (Parameter q : params) {
+                        for (ParameterValue pv : process(ctx, p, q).getTmParams()) {
+                            l.add(pv.getParameter().getName());
+                        }
+                        l.add("|");
+                    }
+                }
+                results.add(l);
+            }
+            assertEquals(results.get(1), results.get(0));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ProcessingContext process(AlgorithmExecutionContext ctx, Parameter... params) {
+        ProcessingContext pctx = ProcessingContext.createForTmProcessing(lvc, 1000);
+        for (Parameter p : params) {
+            ParameterValue pv = new ParameterValue(p);
+            pv.setEngValue(ValueUtility.getSint32Value(1));
+            pctx.addTmParam(pv);
+        }
+        ctx.process(1000, pctx);
+        return pctx;
+    }
+
+    private void add(AlgorithmExecutionContext ctx, String name, List<Parameter> inputs, List<Parameter> triggers,
+            Parameter output) {
+        CustomAlgorithm algo = new CustomAlgorithm(name);
+        algo.setQualifiedName("/" + name);
+        for (Parameter p : inputs) {
+            algo.addInput(new InputParameter(new ParameterInstanceRef(p, true)));
+        }
+        if (triggers != null) {
+            TriggerSetType tst = new TriggerSetType();
+            for (Parameter p : triggers) {
+                tst.addOnParameterUpdateTrigger(new OnParameterUpdateTrigger(p));
+            }
+            algo.setTriggerSet(tst);
+        }
+        if (output != null) {
+            algo.addOutput(new OutputParameter(output));
+        }
+        ctx.addAlgorithm(new ActiveAlgorithm(algo, ctx, new AbstractAlgorithmExecutor(algo, ctx) {
+            @Override
+            public synchronized boolean update(ProcessingContext processingCtx) {
+                updated.add(name);
+                return super.update(processingCtx);
+            }
+
+            @Override
+            public AlgorithmExecutionResult execute(long acqTime, long genTime, ProcessingContext pctx) {
+                executed.add(name);
+                List<ParameterValue> out = new ArrayList<>();
+                if (output != null) {
+                    ParameterValue pv = new ParameterValue(output);
+                    pv.setEngValue(ValueUtility.getSint32Value(2));
+                    out.add(pv);
+                }
+                return new AlgorithmExecutionResult(out);
+            }
+        }));
+    }
+}
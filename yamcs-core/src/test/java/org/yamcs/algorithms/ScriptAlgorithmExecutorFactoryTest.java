@@ -0,0 +1,71 @@
+package org.yamcs.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javax.script.ScriptEngineManager;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.YConfiguration;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.MdbFactory;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.xtce.CustomAlgorithm;
+
+public class ScriptAlgorithmExecutorFactoryTest {
+    static ProcessorData pdata;
+
+    @BeforeAll
+    public static void beforeClass() {
+        YConfiguration.setupTest(null);
+        Mdb mdb = MdbFactory.createInstanceByConfig("empty-match-criteria");
+        pdata = new ProcessorData("test", mdb, new ProcessorConfig());
+    }
+
+    @Test
+    public void testSharedEngine() {
+        ScriptAlgorithmExecutorFactory factory = new ScriptAlgorithmExecutorFactory(new ScriptEngineManager(),
+                "JavaScript", null);
+        AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", pdata, 10);
+        ScriptAlgorithmExecutor e1 = factory.makeExecutor(createAlgorithm("a1"), ctx);
+        ScriptAlgorithmExecutor e2 = factory.makeExecutor(createAlgorithm("a2"), ctx);
+        assertSame(e1.invocable, e2.invocable);
+        assertSame(AlgorithmExecutionContext.getExecutionGroup(new ActiveAlgorithm(e1.getAlgorithm(), ctx, e1)),
+                AlgorithmExecutionContext.getExecutionGroup(new ActiveAlgorithm(e2.getAlgorithm(), ctx, e2)));
+    }
+
+    @Test
+    public void testEnginePerAlgorithm() throws Exception {
+        ScriptAlgorithmExecutorFactory factory = new ScriptAlgorithmExecutorFactory(new ScriptEngineManager(),
+                "JavaScript", null);
+        AlgorithmExecutionContext ctx = new AlgorithmExecutionContext("test", pdata, 10);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ctx.setExecutorService(pool);
+            ScriptAlgorithmExecutor e1 = factory.makeExecutor(createAlgorithm("a1"), ctx);
+            ScriptAlgorithmExecutor e2 = factory.makeExecutor(createAlgorithm("a2"), ctx);
+            assertNotSame(e1.invocable, e2.invocable);
+            assertNotSame(AlgorithmExecutionContext.getExecutionGroup(new ActiveAlgorithm(e1.getAlgorithm(), ctx, e1)),
+                    AlgorithmExecutionContext.getExecutionGroup(new ActiveAlgorithm(e2.getAlgorithm(), ctx, e2)));
+
+            // each engine contains the function of its algorithm
+            assertEquals(1, ((Number) e1.invocable.invokeFunction("_a1")).intValue());
+            assertEquals(2, ((Number) e2.invocable.invokeFunction("_a2")).intValue());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private CustomAlgorithm createAlgorithm(String name) {
+        CustomAlgorithm algo = new CustomAlgorithm(name);
+        algo.setQualifiedName("/" + name);
+        algo.setLanguage("JavaScript");
+        algo.setAlgorithmText("return " + name.substring(1) + ";");
+        return algo;
+    }
+}
@@ -0,0 +1,120 @@
+package org.yamcs.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.utils.TimeInterval;
+import org.yamcs.yarch.Stream;
+import org.yamcs.yarch.StreamSubscriber;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.protobuf.Db.Event;
+
+public class EventTextIndexTest extends YarchTestCase {
+
+    @Test
+    public void testIndexTerms() {
+        Set<String> terms = EventTextIndex.getIndexTerms("Battery voltage LOW: 12V");
+        assertTrue(terms.contains("battery"));
+        assertTrue(terms.contains("ttery"));
+        assertTrue(terms.contains("ery"));
+        assertTrue(terms.contains("low"));
+        assertTrue(terms.contains("12v"));
+        assertFalse(terms.contains("ry"));
+        assertFalse(terms.contains("2v"));
+
+        terms = EventTextIndex.getIndexTerms("abcdefghijklmnopqrstuvwxyz");
+        assertTrue(terms.contains("abcdefghijklmnop"));
+        assertTrue(terms.contains("xyz"));
+        assertFalse(terms.contains("abcdefghijklmnopq"));
+    }
+
+    @Test
+    public void testSearchTerms() {
+        assertEquals(List.of("voltage", "low"), EventTextIndex.getSearchTerms("Voltage%low"));
+        assertEquals(List.of("attery"), EventTextIndex.getSearchTerms("attery v"));
+        assertEquals(List.of("abcdefghijklmnop"), EventTextIndex.getSearchTerms("abcdefghijklmnopqrstuvwxyz"));
+        assertTrue(EventTextIndex.getSearchTerms("is 1 ok").isEmpty());
+        assertNull(EventTextIndex.getSearchTerms("abc*"));
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        ydb.execute("create table " + EventRecorder.TABLE_NAME
+                + "(gentime timestamp, source enum, seqNum int, body PROTOBUF('" + Event.class.getName()
+                + "'), primary key(gentime, source, seqNum))");
+        ydb.execute("create stream events_in(gentime timestamp, source enum, seqNum int, body PROTOBUF('"
+                + Event.class.getName() + "'))");
+        ydb.execute("insert into " + EventRecorder.TABLE_NAME + " select * from events_in");
+        Stream s = ydb.getStream("events_in");
+
+        // recorded before the index is created, will be indexed by the build
+        emit(s, 1000, "src1", 1, "Battery voltage low");
+        emit(s, 2000, "src2", 2, "Heater switched on");
+
+        EventTextIndex textIndex = new EventTextIndex(ydb, 1000);
+        assertFalse(textIndex.isReady());
+        assertNull(textIndex.search("voltage", new TimeInterval()));
+
+        s.addSubscriber(textIndex);
+        emit(s, 3000, "src1", 3, "Battery VOLTAGE nominal");
+        textIndex.build();
+        assertTrue(textIndex.isReady());
+        emit(s, 4000, "src2", 4, "Low battery charge");
+
+        assertEquals(List.of(1, 3), getSeqNums(textIndex, "voltage", new TimeInterval(), true));
+        assertEquals(List.of(3, 1), getSeqNums(textIndex, "voltage", new TimeInterval(), false));
+        assertEquals(List.of(1, 3, 4), getSeqNums(textIndex, "atter", new TimeInterval(), true));
+        assertEquals(List.of(1, 4), getSeqNums(textIndex, "battery%low", new TimeInterval(), true));
+        assertEquals(List.of(3), getSeqNums(textIndex, "voltage", new TimeInterval(2000, 4000), true));
+        assertTrue(textIndex.search("missing", new TimeInterval()).isEmpty());
+
+        // not usable for the index
+        assertNull(textIndex.search("on", new TimeInterval()));
+        assertNull(textIndex.search("volt.*", new TimeInterval()));
+
+        // too many candidates
+        EventTextIndex textIndex1 = new EventTextIndex(ydb, 2);
+        assertTrue(textIndex1.isReady());
+        assertNull(textIndex1.search("atter", new TimeInterval()));
+        assertEquals(2, textIndex1.search("voltage", new TimeInterval()).size());
+    }
+
+    private List<Integer> getSeqNums(EventTextIndex textIndex, String text, TimeInterval interval,
+            boolean ascending) throws Exception {
+        NavigableSet<byte[]> keys = textIndex.search(text, interval);
+        List<Integer> result = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        Stream stream = textIndex.newEventStream(keys, ascending);
+        stream.addSubscriber(new StreamSubscriber() {
+            @Override
+            public void onTuple(Stream s, Tuple tuple) {
+                result.add(tuple.getIntColumn("seqNum"));
+            }
+
+            @Override
+            public void streamClosed(Stream s) {
+                latch.countDown();
+            }
+        });
+        stream.start();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private void emit(Stream s, long gentime, String source, int seqNum, String message) {
+        Event ev = Event.newBuilder().setGenerationTime(gentime).setSource(source).setSeqNumber(seqNum)
+                .setMessage(message).build();
+        s.emitTuple(new Tuple(s.getDefinition(), new Object[] { gentime, source, seqNum, ev }));
+    }
+}
@@ -63,6 +63,44 @@ public class DownsamplerTest {
         assertEquals(1, samples.size());
     }
 
+    @Test
+    public void testMergeOutOfOrder() {
+        Sample sample = new Sample(0);
+        sample.merge(2, 10, 4, 50, 6, 60, 50, 60, 5000);
+        // older aggregate, e.g. coming from another parameter group
+        sample.merge(1, 1, 1, 10, 1, 10, 10, 10, -1);
+        assertEquals(3, sample.n);
+        assertEquals(10, sample.firstTime);
+        assertEquals(60, sample.lastTime);
+        assertEquals(1, sample.min, 1e-10);
+        assertEquals(6, sample.max, 1e-10);
+
+        // older single value
+        sample.process(5, 2, 1000);
+        assertEquals(5, sample.firstTime);
+        assertEquals(60, sample.lastTime);
+        // the expiration of the newest value is kept for the gap detection
+        assertEquals(5000, sample.expireMillis);
+    }
+
+    @Test
+    public void testNaN() {
+        Sample sample = new Sample(0, 1, Double.NaN, -1);
+        sample.process(2, 3, -1);
+        sample.process(3, Double.NaN, -1);
+        sample.process(4, 1, -1);
+        assertEquals(1, sample.min, 1e-10);
+        assertEquals(4, sample.minTime);
+        assertEquals(3, sample.max, 1e-10);
+        assertEquals(2, sample.maxTime);
+
+        sample = new Sample(0);
+        sample.merge(1, Double.NaN, Double.NaN, 1, Double.NaN, 1, 1, 1, -1);
+        sample.merge(2, 3, 1, 3, 2, 2, 2, 3, -1);
+        assertEquals(1, sample.min, 1e-10);
+        assertEquals(2, sample.max, 1e-10);
+    }
+
     @Test
     public void testSamplingInvalid() {
         assertThrows(IllegalArgumentException.class, () -> {
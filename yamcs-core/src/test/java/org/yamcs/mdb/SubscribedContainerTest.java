@@ -0,0 +1,135 @@
+package org.yamcs.mdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yamcs.mdb.MatchCriteriaEvaluator.MatchResult;
+import org.yamcs.mdb.SubscribedContainer.InheritingContainer;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Comparison;
+import org.yamcs.xtce.ComparisonList;
+import org.yamcs.xtce.IntegerParameterType;
+import org.yamcs.xtce.MatchCriteria;
+import org.yamcs.xtce.OperatorType;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.SequenceContainer;
+
+public class SubscribedContainerTest {
+    Parameter apid;
+    Parameter type;
+    SubscribedContainer root;
+
+    @BeforeEach
+    public void setup() {
+        apid = new Parameter("apid");
+        apid.setParameterType(new IntegerParameterType.Builder().setName("apidType").build());
+        type = new Parameter("type");
+        type.setParameterType(new IntegerParameterType.Builder().setName("typeType").build());
+
+        root = new SubscribedContainer(new SequenceContainer("root"));
+        for (int i = 0; i < 10; i++) {
+            addChild("c" + i, eq(apid, 100 + i));
+        }
+        ComparisonList cl = new ComparisonList();
+        cl.addComparison(eq(apid, 100));
+        cl.addComparison(eq(type, 3));
+        addChild("c10", cl);
+        addChild("c11", eq(type, 7));
+        addChild("c12", null);
+    }
+
+    @Test
+    public void testCandidates() {
+        assertEquals(List.of("c0", "c10", "c11", "c12"), names(root.getInheritingCandidates(ctx(100L, null))));
+        assertEquals(List.of("c5", "c11", "c12"), names(root.getInheritingCandidates(ctx(105L, 3L))));
+        assertEquals(List.of("c11", "c12"), names(root.getInheritingCandidates(ctx(999L, 7L))));
+        assertEquals(List.of("c11", "c12"), names(root.getInheritingCandidates(ctx(null, 7L))));
+    }
+
+    @Test
+    public void testSameResultAsLinearScan() {
+        for (Long a : new Long[] { null, 99L, 100L, 103L, 109L, 110L }) {
+            for (Long t : new Long[] { null, 3L, 7L }) {
+                ProcessingContext ctx = ctx(a, t);
+                assertEquals(matching(root.inheritingContainers.toArray(new InheritingContainer[0]), ctx),
+                        matching(root.getInheritingCandidates(ctx), ctx));
+            }
+        }
+    }
+
+    @Test
+    public void testNotIndexed() {
+        SubscribedContainer sc = new SubscribedContainer(new SequenceContainer("root1"));
+        for (int i = 0; i < 10; i++) {
+            Comparison c = new Comparison(new ParameterInstanceRef(apid, true), Integer.toString(i),
+                    OperatorType.LARGERTHAN);
+            SequenceContainer child = new SequenceContainer("c" + i);
+            child.setRestrictionCriteria(c);
+            sc.addIneriting(new SubscribedContainer(child));
+        }
+        ProcessingContext ctx = ctx(5L, null);
+        assertEquals(10, sc.getInheritingCandidates(ctx).length);
+        assertFalse(new SubscribedContainer.DispatchTable(sc.inheritingContainers).isIndexed());
+        assertTrue(new SubscribedContainer.DispatchTable(root.inheritingContainers).isIndexed());
+    }
+
+    @Test
+    public void testAddAfterLookup() {
+        assertEquals(List.of("c11", "c12"), names(root.getInheritingCandidates(ctx(120L, null))));
+        addChild("c13", eq(apid, 120));
+        assertEquals(List.of("c11", "c12", "c13"), names(root.getInheritingCandidates(ctx(120L, null))));
+    }
+
+    private void addChild(String name, MatchCriteria criteria) {
+        SequenceContainer sc = new SequenceContainer(name);
+        sc.setRestrictionCriteria(criteria);
+        root.addIneriting(new SubscribedContainer(sc));
+    }
+
+    private static Comparison eq(Parameter p, long value) {
+        return new Comparison(new ParameterInstanceRef(p, true), Long.toString(value), OperatorType.EQUALITY);
+    }
+
+    private ProcessingContext ctx(Long apidValue, Long typeValue) {
+        List<ParameterValue> pvs = new ArrayList<>();
+        if (apidValue != null) {
+            pvs.add(pv(apid, apidValue));
+        }
+        if (typeValue != null) {
+            pvs.add(pv(type, typeValue));
+        }
+        return ProcessingContext.createForTestTm(pvs.toArray(new ParameterValue[0]));
+    }
+
+    private static ParameterValue pv(Parameter p, long value) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setEngValue(ValueUtility.getSint64Value(value));
+        return pv;
+    }
+
+    private static List<String> matching(InheritingContainer[] candidates, ProcessingContext ctx) {
+        List<String> r = new ArrayList<>();
+        for (InheritingContainer ic : candidates) {
+            if (ic.matches(ctx) == MatchResult.OK) {
+                r.add(ic.container.conainerDef.getName());
+            }
+        }
+        return r;
+    }
+
+    private static List<String> names(InheritingContainer[] candidates) {
+        List<String> r = new ArrayList<>();
+        for (InheritingContainer ic : candidates) {
+            r.add(ic.container.conainerDef.getName());
+        }
+        return r;
+    }
+}
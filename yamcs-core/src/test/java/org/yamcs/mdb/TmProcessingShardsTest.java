@@ -0,0 +1,126 @@
+package org.yamcs.mdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.ProcessorConfig.TmShardKey;
+import org.yamcs.TmPacket;
+import org.yamcs.YConfiguration;
+import org.yamcs.logging.Log;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.Parameter;
+
+public class TmProcessingShardsTest {
+
+    @Test
+    public void testApid() {
+        assertEquals(0x7FF, TmProcessingShards.getApid(new byte[] { (byte) 0xFF, (byte) 0xFF, 0, 0 }));
+        assertEquals(0x123, TmProcessingShards.getApid(new byte[] { 0x09, 0x23 }));
+        assertEquals(0, TmProcessingShards.getApid(new byte[] { 0x09 }));
+    }
+
+    @Test
+    public void testOrderPerApid() throws Exception {
+        YConfiguration.setupTest(null);
+        Mdb mdb = MdbFactory.createInstanceByConfig("empty-match-criteria");
+        Parameter para2 = mdb.getParameter("/EMC/para2");
+
+        ProcessorConfig pconfig = new ProcessorConfig();
+        pconfig.setTmProcessingThreads(4);
+        XtceTmProcessor tmProcessor = new XtceTmProcessor(mdb, pconfig);
+
+        Map<Integer, List<Double>> received = new HashMap<>();
+        AtomicBoolean inDelivery = new AtomicBoolean();
+        AtomicBoolean concurrentDelivery = new AtomicBoolean();
+        tmProcessor.setParameterProcessor(ctx -> {
+            if (!inDelivery.compareAndSet(false, true)) {
+                concurrentDelivery.set(true);
+            }
+            ContainerProcessingResult result = (ContainerProcessingResult) ctx;
+            ParameterValue pv = result.getParameterResult().getLastInserted(para2);
+            int apid = (int) pv.getGenerationTime();
+            received.computeIfAbsent(apid, k -> new ArrayList<>()).add(pv.getEngValue().getDoubleValue());
+            inDelivery.set(false);
+        });
+        tmProcessor.startProviding(para2);
+        tmProcessor.startAsync().awaitRunning();
+
+        int numApids = 10;
+        int numPackets = 1000;
+        for (int i = 0; i < numPackets; i++) {
+            int apid = i % numApids;
+            byte[] buf = new byte[16];
+            ByteBuffer bb = ByteBuffer.wrap(buf);
+            bb.putShort((short) apid);
+            bb.putDouble(8, i);
+            // the APID is passed in the generation time to find it back in the result
+            tmProcessor.processPacket(new TmPacket(TimeEncoding.getWallclockTime(), apid, i, buf),
+                    mdb.getRootSequenceContainer());
+        }
+        // the queued packets are processed before the processor stops
+        tmProcessor.stopAsync().awaitTerminated(10, TimeUnit.SECONDS);
+
+        assertFalse(concurrentDelivery.get());
+        assertEquals(numApids, received.size());
+        for (int apid = 0; apid < numApids; apid++) {
+            List<Double> l = received.get(apid);
+            assertEquals(numPackets / numApids, l.size());
+            for (int j = 0; j < l.size(); j++) {
+                assertEquals(apid + j * numApids, l.get(j), 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testStopFromWorkerWithFullQueue() throws Exception {
+        YConfiguration.setupTest(null);
+        Mdb mdb = MdbFactory.createInstanceByConfig("empty-match-criteria");
+        XtceTmProcessor tmProcessor = new XtceTmProcessor(mdb, new ProcessorConfig());
+
+        int queueSize = 2;
+        TmProcessingShards shards = new TmProcessingShards("test", tmProcessor,
+                new XtceTmExtractor[] { new XtceTmExtractor(mdb) }, TmShardKey.APID, queueSize,
+                new Log(TmProcessingShardsTest.class));
+        CountDownLatch queueFull = new CountDownLatch(1);
+        AtomicInteger processed = new AtomicInteger();
+        tmProcessor.setParameterProcessor(ctx -> {
+            if (processed.incrementAndGet() == 1) {
+                // stop from the worker thread while its queue is full
+                try {
+                    queueFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                shards.stop();
+            }
+        });
+        shards.start();
+        for (int i = 0; i < queueSize + 1; i++) {
+            assertTrue(shards.submit(new TmPacket(TimeEncoding.getWallclockTime(), new byte[16]),
+                    mdb.getRootSequenceContainer()));
+        }
+        queueFull.countDown();
+
+        Thread worker = shards.workers[0].thread;
+        worker.join(10000);
+        assertFalse(worker.isAlive());
+        // the packets queued before the stop are processed
+        assertEquals(queueSize + 1, processed.get());
+        assertFalse(shards.submit(new TmPacket(TimeEncoding.getWallclockTime(), new byte[16]),
+                mdb.getRootSequenceContainer()));
+    }
+}
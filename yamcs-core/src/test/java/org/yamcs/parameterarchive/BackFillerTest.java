@@ -0,0 +1,115 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.yamcs.parameterarchive.TestUtils.checkEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yamcs.YamcsServer;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameterarchive.BackFiller.Chunk;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.Parameter;
+
+public class BackFillerTest extends BaseParchiveTest {
+    static final long INTERVAL = ParameterArchive.getIntervalDuration();
+    static Parameter p1;
+
+    @BeforeAll
+    public static void beforeClass() {
+        p1 = new Parameter("p1");
+        p1.setQualifiedName("/test/p1");
+        TimeEncoding.setUp();
+
+        timeService = new MockupTimeService();
+        YamcsServer.setMockupTimeService(timeService);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        instance = "BackFillerTest";
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        long start = 10 * INTERVAL;
+        // 20 intervals, 2 threads -> at most 8 chunks of 3 intervals
+        List<Chunk> chunks = BackFiller.getChunks(start, start + 20 * INTERVAL - 1, 2);
+        assertEquals(7, chunks.size());
+        checkChunks(chunks, start, start + 20 * INTERVAL);
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            assertEquals(3 * INTERVAL, chunks.get(i).stop() - chunks.get(i).start());
+        }
+        assertEquals(2 * INTERVAL, chunks.get(6).stop() - chunks.get(6).start());
+
+        // fewer intervals than chunks -> one interval per chunk
+        chunks = BackFiller.getChunks(start, start + 3 * INTERVAL - 1, 4);
+        assertEquals(3, chunks.size());
+        checkChunks(chunks, start, start + 3 * INTERVAL);
+    }
+
+    @Test
+    public void testStopInTheMiddleOfChunk() {
+        // the start and stop are not aligned, the chunks cover the intervals containing them
+        long start = 10 * INTERVAL + 1000;
+        long stop = 15 * INTERVAL + INTERVAL / 2;
+        List<Chunk> chunks = BackFiller.getChunks(start, stop, 1);
+        assertEquals(3, chunks.size());
+        checkChunks(chunks, 10 * INTERVAL, 16 * INTERVAL);
+        assertEquals(2 * INTERVAL, chunks.get(0).stop() - chunks.get(0).start());
+        assertTrue(chunks.get(2).start() < stop && stop < chunks.get(2).stop());
+
+        // a range within a single interval gives one chunk
+        chunks = BackFiller.getChunks(start, start + 1000, 4);
+        assertEquals(1, chunks.size());
+        checkChunks(chunks, 10 * INTERVAL, 11 * INTERVAL);
+    }
+
+    @Test
+    public void testNoDataAfterCollectionStop() throws Exception {
+        openDb("none");
+        long stop = 2 * INTERVAL;
+
+        BackFillerTask task = new BackFillerTask(parchive);
+        task.setCollectionStart(INTERVAL);
+        task.setCollectionStop(stop);
+
+        ParameterValue pv0 = getParameterValue(p1, INTERVAL - 100, "before start");
+        ParameterValue pv1 = getParameterValue(p1, INTERVAL, "pv1");
+        ParameterValue pv2 = getParameterValue(p1, stop - 1, "pv2");
+        ParameterValue pv3 = getParameterValue(p1, stop, "at stop");
+        ParameterValue pv4 = getParameterValue(p1, stop + 100, "after stop");
+        for (ParameterValue pv : Arrays.asList(pv0, pv1, pv2, pv3, pv4)) {
+            task.processParameters(Arrays.asList(pv));
+        }
+        task.flush();
+        assertEquals(2, task.getNumProcessedParameters());
+
+        int p1id = parchive.getParameterIdDb().get(p1.getQualifiedName())[0].getPid();
+        int pgid = parchive.getParameterGroupIdDb().getAllGroups(p1id)[0];
+        List<ParameterValueArray> l = retrieveSingleParamSingleGroup(0, TimeEncoding.POSITIVE_INFINITY, p1id, pgid,
+                true);
+        assertEquals(1, l.size());
+        ParameterValueArray pva = l.get(0);
+        checkEquals(pva, pv1, pv2);
+    }
+
+    // checks that the chunks are contiguous, made of whole intervals and cover [start, stop)
+    private void checkChunks(List<Chunk> chunks, long start, long stop) {
+        assertEquals(start, chunks.get(0).start());
+        assertEquals(stop, chunks.get(chunks.size() - 1).stop());
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk c = chunks.get(i);
+            assertEquals(ParameterArchive.getIntervalStart(c.start()), c.start());
+            assertEquals(0, (c.stop() - c.start()) % INTERVAL);
+            if (i > 0) {
+                assertEquals(chunks.get(i - 1).stop(), c.start());
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yamcs.YamcsServer;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.SortedIntArray;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.Parameter;
+
+public class ColumnarParameterRetrievalTest extends BaseParchiveTest {
+    static Parameter p1, p2, p3;
+
+    @BeforeAll
+    public static void beforeClass() {
+        p1 = new Parameter("p1");
+        p2 = new Parameter("p2");
+        p3 = new Parameter("p3");
+        p1.setQualifiedName("/test/p1");
+        p2.setQualifiedName("/test/p2");
+        p3.setQualifiedName("/test/p3");
+        TimeEncoding.setUp();
+
+        timeService = new MockupTimeService();
+        YamcsServer.setMockupTimeService(timeService);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        instance = "ColumnarParameterRetrievalTest";
+    }
+
+    @Test
+    public void testGetRows() {
+        SortedIntArray gaps = new SortedIntArray(new int[] { 1, 3 });
+        assertArrayEquals(new int[] { 0, 2, 4 }, ColumnarParameterRetrieval.getRows(gaps, 0, 5, true));
+        assertArrayEquals(new int[] { 1, 3 }, ColumnarParameterRetrieval.getRows(gaps, 1, 5, true));
+
+        // descending: positions posStop down to posStart+1
+        assertArrayEquals(new int[] { 0, 2 }, ColumnarParameterRetrieval.getRows(gaps, 0, 4, false));
+    }
+
+    @Test
+    public void testSparseGroup() throws Exception {
+        openDb("none", true, 0.5);
+        ParameterValue pv1_0 = getParameterValue(p1, 100, "pv1_0");
+        ParameterValue pv2_0 = getParameterValue(p2, 100, "pv2_0");
+        ParameterValue pv1_1 = getParameterValue(p1, 200, "pv1_1");
+        ParameterValue pv2_2 = getParameterValue(p2, 300, "pv2_2");
+
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), pv1_0.getEngValue().getType());
+        int p2id = pidMap.createAndGet(p2.getQualifiedName(), pv2_0.getEngValue().getType());
+        var pg = pgidMap.getGroup(IntArray.wrap(p1id, p2id));
+
+        PGSegment pgSegment = new PGSegment(pg.id, 0);
+        pgSegment.addRecord(100, IntArray.wrap(p1id, p2id), Arrays.asList(pv1_0, pv2_0));
+        pgSegment.addRecord(200, IntArray.wrap(p1id), Arrays.asList(pv1_1));
+        pgSegment.addRecord(300, IntArray.wrap(p2id), Arrays.asList(pv2_2));
+        parchive.writeToArchive(0, Arrays.asList(pgSegment));
+
+        List<ParameterColumnChunk> l = retrieveColumnar(0, TimeEncoding.MAX_INSTANT, new int[] { p1id, p2id }, true);
+        assertEquals(1, l.size());
+        ParameterColumnChunk chunk = l.get(0);
+        assertArrayEquals(new long[] { 100, 200, 300 }, chunk.getTimestamps());
+        assertEquals(2, chunk.numColumns());
+
+        assertEquals(2, chunk.getEngValues(0).size());
+        assertEquals("pv1_1", chunk.getEngValues(0).getValue(1).getStringValue());
+        assertArrayEquals(new int[] { 0, 1 }, chunk.getRows(0));
+
+        assertEquals(2, chunk.getEngValues(1).size());
+        assertEquals("pv2_2", chunk.getEngValues(1).getValue(1).getStringValue());
+        assertArrayEquals(new int[] { 0, 2 }, chunk.getRows(1));
+
+        List<ParameterColumnChunk> ld = retrieveColumnar(0, TimeEncoding.MAX_INSTANT, new int[] { p1id, p2id },
+                false);
+        assertEquals(1, ld.size());
+        chunk = ld.get(0);
+        assertArrayEquals(new long[] { 300, 200, 100 }, chunk.getTimestamps());
+        assertEquals("pv1_1", chunk.getEngValues(0).getValue(0).getStringValue());
+        assertArrayEquals(new int[] { 1, 2 }, chunk.getRows(0));
+        assertArrayEquals(new int[] { 0, 2 }, chunk.getRows(1));
+    }
+
+    @Test
+    public void testMultipleGroups() throws Exception {
+        openDb("none");
+        ParameterValue pv1_0 = getParameterValue(p1, 100, "pv1_0");
+        ParameterValue pv3_0 = getParameterValue(p3, 50, "pv3_0");
+        long interval2 = ParameterArchive.getIntervalEnd(0) + 1;
+        long t2 = interval2 + 10;
+        ParameterValue pv1_1 = getParameterValue(p1, t2, "pv1_1");
+
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), pv1_0.getEngValue().getType());
+        int p3id = pidMap.createAndGet(p3.getQualifiedName(), pv3_0.getEngValue().getType());
+        var pg1 = pgidMap.getGroup(IntArray.wrap(p1id));
+        var pg3 = pgidMap.getGroup(IntArray.wrap(p3id));
+
+        PGSegment pgs1 = new PGSegment(pg1.id, 0);
+        pgs1.addRecord(100, IntArray.wrap(p1id), Arrays.asList(pv1_0));
+        PGSegment pgs3 = new PGSegment(pg3.id, 0);
+        pgs3.addRecord(50, IntArray.wrap(p3id), Arrays.asList(pv3_0));
+        parchive.writeToArchive(0, Arrays.asList(pgs1, pgs3));
+
+        PGSegment pgs1b = new PGSegment(pg1.id, interval2);
+        pgs1b.addRecord(t2, IntArray.wrap(p1id), Arrays.asList(pv1_1));
+        parchive.writeToArchive(interval2, Arrays.asList(pgs1b));
+
+        List<ParameterColumnChunk> l = retrieveColumnar(0, TimeEncoding.MAX_INSTANT, new int[] { p1id, p3id }, true);
+        assertEquals(3, l.size());
+        for (int i = 1; i < l.size(); i++) {
+            assertTrue(l.get(i - 1).getStart() <= l.get(i).getStart());
+        }
+        assertEquals(pg1.id, l.get(2).getParameterGroupId());
+        assertArrayEquals(new long[] { t2 }, l.get(2).getTimestamps());
+        assertNull(l.get(2).getRows(0));
+
+        // the limit stops the retrieval after the chunk reaching it
+        List<ParameterColumnChunk> l1 = retrieveColumnar(0, TimeEncoding.MAX_INSTANT, new int[] { p1id, p3id }, true,
+                2);
+        assertEquals(2, l1.size());
+
+        // the first interval is excluded
+        List<ParameterColumnChunk> l2 = retrieveColumnar(101, TimeEncoding.MAX_INSTANT, new int[] { p1id, p3id },
+                true);
+        assertEquals(1, l2.size());
+        assertEquals(pg1.id, l2.get(0).getParameterGroupId());
+        assertArrayEquals(new long[] { t2 }, l2.get(0).getTimestamps());
+    }
+
+    List<ParameterColumnChunk> retrieveColumnar(long start, long stop, int[] parameterIds, boolean ascending)
+            throws Exception {
+        return retrieveColumnar(start, stop, parameterIds, ascending, -1);
+    }
+
+    List<ParameterColumnChunk> retrieveColumnar(long start, long stop, int[] parameterIds, boolean ascending,
+            int limit) throws Exception {
+        ParameterId[] pids = Arrays.stream(parameterIds).mapToObj(pid -> pidMap.getParameterId(pid))
+                .toArray(ParameterId[]::new);
+        MultipleParameterRequest mpvr = new MultipleParameterRequest(start, stop, pids, null, ascending, true, true,
+                true);
+        mpvr.setLimit(limit);
+        List<ParameterColumnChunk> l = new ArrayList<>();
+        new ColumnarParameterRetrieval(parchive, mpvr).retrieve(l::add);
+        return l;
+    }
+}
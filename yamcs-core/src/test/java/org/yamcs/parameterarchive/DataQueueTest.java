@@ -27,6 +27,7 @@ public class DataQueueTest {
     private static final long INTERVAL_SIZE_MILLIS = 8388608000L;
 
     Function<PGSegment, CompletableFuture<Void>> dbWriter = pgs -> CompletableFuture.completedFuture(null);
+    Function<Long, CompletableFuture<Void>> rollupBuilder = interval -> CompletableFuture.completedFuture(null);
     FillerLock fillerLock;
 
     @BeforeAll
@@ -45,7 +46,7 @@ public class DataQueueTest {
         List<BasicParameterValue> plist1 = getParaList(9);
         List<BasicParameterValue> plist2 = getParaList(10);
 
-        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, fillerLock);
+        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, rollupBuilder, fillerLock);
         sq.addRecord(10, new BasicParameterList(IntArray.wrap(1), plist2));
         sq.addRecord(9, new BasicParameterList(IntArray.wrap(1), plist1));
 
@@ -72,7 +73,7 @@ public class DataQueueTest {
         List<BasicParameterValue> plist1 = getParaList(t1);
         List<BasicParameterValue> plist2 = getParaList(t1 + 1);
 
-        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, fillerLock);
+        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, rollupBuilder, fillerLock);
         sq.addRecord(t1 + 1, new BasicParameterList(IntArray.wrap(1), plist2));
         sq.addRecord(t1, new BasicParameterList(IntArray.wrap(1), plist1));
 
@@ -96,7 +97,7 @@ public class DataQueueTest {
      */
     @Test
     public void testEmptyQueue() {
-        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, fillerLock);
+        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, rollupBuilder, fillerLock);
         assertFalse(sq.hasDataToWrite());
         assertEquals(0, sq.getPVSegments(1, false).size());
         assertEquals(0, sq.getPVSegments(1, true).size());
@@ -107,7 +108,7 @@ public class DataQueueTest {
      */
     @Test
     public void testQueueCapacity() {
-        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, fillerLock);
+        DataQueue sq = new DataQueue(1, 2, dbWriter, t -> null, rollupBuilder, fillerLock);
 
         // Add two values in each separate interval, until the cache has only one
         // slot free.
@@ -2,6 +2,8 @@ package org.yamcs.parameterarchive;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -35,4 +37,46 @@ public class DoubleValueSegmentTest {
         assertArrayEquals(new double[] { 1.2, 2.3, 3 }, dvs1.getRange(0, 3, true).getDoubleArray(), 1e-10);
         assertArrayEquals(new double[] { 3, 2.3 }, dvs1.getRange(0, 2, false).getDoubleArray(), 1e-10);
     }
+
+    @Test
+    public void testCompressed() throws DecodingException {
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            dvs.add(ValueUtility.getDoubleValue(20 + Math.round(Math.sin(i / 50.0) * 100) / 10.0));
+        }
+        dvs.add(ValueUtility.getDoubleValue(Double.NaN));
+        dvs.add(ValueUtility.getDoubleValue(Double.NEGATIVE_INFINITY));
+        dvs.add(ValueUtility.getDoubleValue(-0.0));
+
+        // the default encoding is the raw one, understood by the merge operator
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_RAW, SegmentEncoderDecoder.encode(dvs)[1]);
+
+        byte[] b = SegmentEncoderDecoder.encodeCompressed(dvs);
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_XOR, b[1]);
+        assertTrue(b.length < 8 * dvs.size());
+
+        DoubleValueSegment dvs1 = (DoubleValueSegment) SegmentEncoderDecoder.decode(b, 0);
+        assertFalse(ParameterArchive.isMergeable(dvs1));
+        assertEquals(dvs.size(), dvs1.size());
+        for (int i = 0; i < dvs.size(); i++) {
+            assertEquals(Double.doubleToRawLongBits(dvs.values.get(i)),
+                    Double.doubleToRawLongBits(dvs1.values.get(i)));
+        }
+    }
+
+    @Test
+    public void testRandomRaw() throws DecodingException {
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        var random = new java.util.Random(1);
+        for (int i = 0; i < 100; i++) {
+            dvs.add(ValueUtility.getDoubleValue(Double.longBitsToDouble(random.nextLong())));
+        }
+        byte[] b = SegmentEncoderDecoder.encodeCompressed(dvs);
+        // random bits cannot be compressed
+        assertEquals(DoubleValueSegment.SUBFORMAT_ID_RAW, b[1]);
+
+        DoubleValueSegment dvs1 = (DoubleValueSegment) SegmentEncoderDecoder.decode(b, 0);
+        assertArrayEquals(dvs.values.toArray(), dvs1.values.toArray(), 0);
+    }
 }
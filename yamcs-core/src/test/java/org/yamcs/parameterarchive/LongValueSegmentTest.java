@@ -2,6 +2,7 @@ package org.yamcs.parameterarchive;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -84,4 +85,37 @@ public class LongValueSegmentTest {
         assertArrayEquals(new long[] { 1, 2, 3 }, fvs1.getRange(0, 3, true).getLongArray());
         assertArrayEquals(new long[] { 3, 2 }, fvs1.getRange(0, 2, false).getLongArray());
     }
+
+    @Test
+    public void testCompressedTimestamps() throws DecodingException {
+        LongValueSegment lvs = new LongValueSegment(Type.TIMESTAMP);
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < 1000; i++) {
+            t += 1000 + (i % 3);
+            lvs.add(ValueUtility.getTimestampValue(t));
+        }
+        assertEquals(LongValueSegment.SUBFORMAT_ID_RAW, SegmentEncoderDecoder.encode(lvs)[1] & 0xF);
+
+        byte[] b = SegmentEncoderDecoder.encodeCompressed(lvs);
+        assertEquals(LongValueSegment.SUBFORMAT_ID_DELTAZG_FPF128_VB, b[1] & 0xF);
+        assertTrue(b.length < 1000);
+
+        LongValueSegment lvs1 = (LongValueSegment) SegmentEncoderDecoder.decode(b, 0);
+        assertArrayEquals(lvs.values.toArray(), lvs1.values.toArray());
+        assertEquals(ValueUtility.getTimestampValue(t), lvs1.getValue(999));
+    }
+
+    @Test
+    public void testCompressedLargeDeltas() throws DecodingException {
+        LongValueSegment lvs = new LongValueSegment(Type.SINT64);
+        long[] values = new long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0, 1L << 40, 1L << 40, 1L << 40, -1, -1, -1, -1 };
+        for (long v : values) {
+            lvs.add(ValueUtility.getSint64Value(v));
+        }
+        byte[] b = SegmentEncoderDecoder.encodeCompressed(lvs);
+        assertEquals(LongValueSegment.SUBFORMAT_ID_DELTAZG_VB, b[1] & 0xF);
+
+        LongValueSegment lvs1 = (LongValueSegment) SegmentEncoderDecoder.decode(b, 0);
+        assertArrayEquals(values, lvs1.values.toArray());
+    }
 }
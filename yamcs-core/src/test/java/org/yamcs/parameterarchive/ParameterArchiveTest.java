@@ -10,6 +10,7 @@ import static org.yamcs.parameter.ParameterStatus.isNominal;
 import static org.yamcs.parameter.ParameterStatus.isInvalid;
 import static org.yamcs.parameterarchive.TestUtils.checkEquals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -18,16 +19,21 @@ import java.util.Map;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.yamcs.YConfiguration;
 import org.yamcs.YamcsServer;
+import org.yamcs.parameter.BasicParameterValue;
+import org.yamcs.parameter.ParameterRetrievalOptions;
 import org.yamcs.parameter.ParameterValue;
 import org.yamcs.parameterarchive.ParameterArchive.Partition;
 import org.yamcs.protobuf.Yamcs.Value.Type;
 import org.yamcs.utils.IntArray;
 import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
 import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.util.DoubleRange;
 import org.yamcs.yarch.protobuf.Db.ParameterStatus;
 
 public class ParameterArchiveTest extends BaseParchiveTest {
@@ -599,6 +605,239 @@ public class ParameterArchiveTest extends BaseParchiveTest {
         checkEquals(l2a.get(0), 100, pv1_0, pv1_1);
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = { "none", "YYYY" })
+    public void testContinueDoubleSegment(String partitioningSchema) throws Exception {
+        openDb(partitioningSchema);
+        ParameterValue[] pvs = getDoubleLongValues(6);
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE, Type.SINT64);
+        var pg1 = pgidMap.getGroup(IntArray.wrap(p1id));
+
+        PGSegment pgSegment1 = new PGSegment(pg1.id, 0);
+        for (int i = 0; i < 3; i++) {
+            pgSegment1.addRecord(pvs[i].getGenerationTime(), pg1.pids, Arrays.asList(pvs[i]));
+        }
+        parchive.writeToArchive(pgSegment1);
+        pgSegment1.freeze();
+
+        // the first segment is written raw and the second one is merged to it
+        PGSegment pgSegment2 = new PGSegment(pg1.id, 0);
+        for (int i = 3; i < pvs.length; i++) {
+            pgSegment2.addRecord(pvs[i].getGenerationTime(), pg1.pids, Arrays.asList(pvs[i]));
+        }
+        pgSegment2.continueSegment(pgSegment1);
+        pgSegment2.setLastInInterval();
+        parchive.writeToArchive(pgSegment2);
+
+        List<ParameterValueArray> l = retrieveSingleParamSingleGroup(0, TimeEncoding.POSITIVE_INFINITY, p1id,
+                pg1.id, true);
+        assertEquals(1, l.size());
+        checkEquals(l.get(0), pvs);
+        assertTrue(parchive.readPGsegment(pg1, 0).isMergeable());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "none", "YYYY" })
+    public void testRewriteCompressedSegment(String partitioningSchema) throws Exception {
+        openDb(partitioningSchema);
+        ParameterValue[] pvs = getDoubleLongValues(6);
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE, Type.SINT64);
+        var pg1 = pgidMap.getGroup(IntArray.wrap(p1id));
+
+        // the only segment of the interval is written compressed
+        PGSegment pgSegment1 = new PGSegment(pg1.id, 0);
+        for (int i = 0; i < 3; i++) {
+            pgSegment1.addRecord(pvs[i].getGenerationTime(), pg1.pids, Arrays.asList(pvs[i]));
+        }
+        pgSegment1.setLastInInterval();
+        parchive.writeToArchive(pgSegment1);
+
+        // it cannot be continued with the merge operator so it is rewritten, as the realtime filler does
+        PGSegment prevSeg = parchive.readPGsegment(pg1, 0);
+        assertFalse(prevSeg.isMergeable());
+        prevSeg.makeWritable();
+        for (int i = 3; i < pvs.length; i++) {
+            prevSeg.addRecord(pvs[i].getGenerationTime(), pg1.pids, Arrays.asList(pvs[i]));
+        }
+        parchive.writeToArchive(prevSeg);
+
+        List<ParameterValueArray> l = retrieveSingleParamSingleGroup(0, TimeEncoding.POSITIVE_INFINITY, p1id,
+                pg1.id, true);
+        assertEquals(1, l.size());
+        checkEquals(l.get(0), pvs);
+        assertTrue(parchive.readPGsegment(pg1, 0).isMergeable());
+    }
+
+    @Test
+    public void testRollupRetrievalOrder() throws Exception {
+        openDb("none");
+        long intv = ParameterArchive.getIntervalDuration();
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        int p2id = pidMap.createAndGet(p2.getQualifiedName(), Type.DOUBLE);
+        var pg1 = pgidMap.getGroup(IntArray.wrap(p1id));
+        var pg2 = pgidMap.getGroup(IntArray.wrap(p1id, p2id));
+
+        // p1 is alone in the intervals 1 and 3 and together with p2 in the interval 2 and 4
+        // the interval 4 is too sparse to have a rollup
+        for (int k = 1; k <= 4; k++) {
+            var pg = (k % 2 == 1) ? pg1 : pg2;
+            PGSegment pgs = new PGSegment(pg.id, k * intv);
+            long step = k == 4 ? 100_000 : 100;
+            for (int j = 0; j < 20; j++) {
+                long t = k * intv + j * step;
+                List<BasicParameterValue> l = new ArrayList<>();
+                l.add(getDoubleValue(p1, t, j));
+                if (pg == pg2) {
+                    l.add(getDoubleValue(p2, t, -j));
+                }
+                pgs.addRecord(t, pg.pids, l);
+            }
+            pgs.setLastInInterval();
+            parchive.writeToArchive(pgs);
+        }
+
+        List<Long> times = new ArrayList<>();
+        boolean[] fullResolution = new boolean[1];
+        var opts = ParameterRetrievalOptions.newBuilder().withStartStop(intv, 5 * intv).withAscending(true).build();
+        new RollupRetrieval(parchive, p1.getQualifiedName(), 0, opts).retrieve(new RollupConsumer() {
+            @Override
+            public void accept(ParameterValueArray pva) {
+                fullResolution[0] = true;
+                for (long t : pva.getTimestamps()) {
+                    times.add(t);
+                }
+            }
+
+            @Override
+            public void acceptRollup(RollupSegment rollup, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    times.add(rollup.getFirstTime(i));
+                }
+            }
+        });
+        assertTrue(fullResolution[0]);
+        for (int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i - 1) <= times.get(i));
+        }
+        assertEquals(intv, (long) times.get(0));
+        assertEquals(4 * intv + 19 * 100_000, (long) times.get(times.size() - 1));
+    }
+
+    @Test
+    public void testRollupWrittenWhenIntervalComplete() throws Exception {
+        openDb("none");
+        long intv = ParameterArchive.getIntervalDuration();
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        var pg1 = pgidMap.getGroup(IntArray.wrap(p1id));
+
+        PGSegment pgs1 = new PGSegment(pg1.id, intv);
+        for (int j = 0; j < 20; j++) {
+            long t = intv + j * 100;
+            pgs1.addRecord(t, pg1.pids, Arrays.asList(getDoubleValue(p1, t, j)));
+        }
+        parchive.writeToArchive(pgs1);
+        pgs1.freeze();
+        // the interval is not complete, there is no rollup
+        assertEquals(0, countRollupValues(intv, 2 * intv));
+
+        PGSegment pgs2 = new PGSegment(pg1.id, intv);
+        for (int j = 20; j < 30; j++) {
+            long t = intv + j * 100;
+            pgs2.addRecord(t, pg1.pids, Arrays.asList(getDoubleValue(p1, t, j)));
+        }
+        pgs2.continueSegment(pgs1);
+        pgs2.setLastInInterval();
+        parchive.writeToArchive(pgs2);
+        // the rollup is built from both segments
+        assertEquals(30, countRollupValues(intv, 2 * intv));
+    }
+
+    private int countRollupValues(long start, long stop) throws Exception {
+        int[] count = new int[1];
+        var opts = ParameterRetrievalOptions.newBuilder().withStartStop(start, stop).withAscending(true).build();
+        new RollupRetrieval(parchive, p1.getQualifiedName(), 0, opts).retrieve(new RollupConsumer() {
+            @Override
+            public void accept(ParameterValueArray pva) {
+            }
+
+            @Override
+            public void acceptRollup(RollupSegment rollup, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    count[0] += rollup.getCount(i);
+                }
+            }
+        });
+        return count[0];
+    }
+
+    private ParameterValue getDoubleValue(Parameter p, long t, double v) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setGenerationTime(t);
+        pv.setEngValue(ValueUtility.getDoubleValue(v));
+        return pv;
+    }
+
+    private ParameterValue[] getDoubleLongValues(int n) {
+        ParameterValue[] pvs = new ParameterValue[n];
+        for (int i = 0; i < pvs.length; i++) {
+            pvs[i] = new ParameterValue(p1);
+            pvs[i].setGenerationTime(100 * (i + 1));
+            pvs[i].setEngValue(ValueUtility.getDoubleValue(20.5 + i * 0.25));
+            pvs[i].setRawValue(ValueUtility.getSint64Value(1000 + i));
+        }
+        return pvs;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "none", "YYYY" })
+    public void testValueRange(String partitioningSchema) throws Exception {
+        openDb(partitioningSchema);
+        long t2 = 1L << ParameterArchive.NUMBITS_MASK;
+        ParameterValue[] pvs = new ParameterValue[6];
+        for (int i = 0; i < pvs.length; i++) {
+            pvs[i] = new ParameterValue(p1);
+            // the first 3 values are in the first interval, the last 3 in the second one
+            pvs[i].setGenerationTime(i < 3 ? 100 * (i + 1) : t2 + 100 * (i + 1));
+            pvs[i].setEngValue(ValueUtility.getDoubleValue(i < 3 ? 20 + i : 30 + i));
+        }
+        int p1id = pidMap.createAndGet(p1.getQualifiedName(), Type.DOUBLE);
+        var pg1 = pgidMap.getGroup(IntArray.wrap(p1id));
+
+        PGSegment pgSegment1 = new PGSegment(pg1.id, 0);
+        for (int i = 0; i < 3; i++) {
+            pgSegment1.addRecord(pvs[i].getGenerationTime(), pg1.pids, Arrays.asList(pvs[i]));
+        }
+        parchive.writeToArchive(pgSegment1);
+        PGSegment pgSegment2 = new PGSegment(pg1.id, t2);
+        for (int i = 3; i < pvs.length; i++) {
+            pgSegment2.addRecord(pvs[i].getGenerationTime(), pg1.pids, Arrays.asList(pvs[i]));
+        }
+        parchive.writeToArchive(pgSegment2);
+
+        // the second interval is skipped based on its zone map
+        List<ParameterValueArray> l = retrieveValueRange(p1id, pg1.id, new DoubleRange(Double.NaN, 24, true, false));
+        assertEquals(1, l.size());
+        checkEquals(l.get(0), pvs[0], pvs[1], pvs[2]);
+
+        // values from both intervals are filtered
+        l = retrieveValueRange(p1id, pg1.id, new DoubleRange(21, 34, true, false));
+        assertEquals(2, l.size());
+        checkEquals(l.get(0), pvs[1], pvs[2]);
+        checkEquals(l.get(1), pvs[3]);
+
+        l = retrieveValueRange(p1id, pg1.id, new DoubleRange(100, Double.NaN, true, false));
+        assertEquals(0, l.size());
+    }
+
+    private List<ParameterValueArray> retrieveValueRange(int pid, int pgid, DoubleRange range) throws Exception {
+        SingleValueConsumer c = new SingleValueConsumer();
+        ParameterRetrievalOptions opts = ParameterRetrievalOptions.newBuilder()
+                .withStartStop(0, TimeEncoding.POSITIVE_INFINITY).withAscending(true)
+                .withRetrieveParameterStatus(true).withValueRange(range).build();
+        new SingleParameterRetrieval(parchive, pid, new int[] { pgid }, opts).retrieve(c);
+        return c.list;
+    }
+
     public static YConfiguration backFillerDisabledConfig() {
         Map<String, Object> pam = new HashMap<>();
         Map<String, Object> bfm = new HashMap<>();
@@ -1,11 +1,17 @@
 package org.yamcs.parameterarchive;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -125,6 +131,37 @@ public class ParameterIdDbTest {
         }
     }
 
+    @Test
+    public void testConcurrentCreate() throws Exception {
+        ParameterIdDb pidDb = pdb("testConcurrentCreate");
+        int n = 1000;
+        int numThreads = 8;
+        int[][] pids = new int[numThreads][n];
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int k = 0; k < numThreads; k++) {
+            int[] tpids = pids[k];
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < n; i++) {
+                    tpids[i] = pidDb.createAndGet("/testConcurrentCreate/p" + i, Value.Type.DOUBLE);
+                }
+            }));
+        }
+        for (var f : futures) {
+            f.get();
+        }
+        executor.shutdown();
+
+        assertEquals(n, pidDb.size());
+        for (int k = 1; k < numThreads; k++) {
+            assertArrayEquals(pids[0], pids[k]);
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals("/testConcurrentCreate/p" + i, pidDb.getParameterFqnById(pids[0][i]));
+        }
+        assertEquals(n + 1, pidDb.getAllPids().size());
+    }
+
     @Test
     public void test4() throws Exception {
         ParameterIdDb pidDb = pdb("test4");
@@ -0,0 +1,136 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ReadAheadIteratorTest {
+    ExecutorService executor;
+
+    @BeforeEach
+    public void before() {
+        executor = Executors.newFixedThreadPool(1);
+    }
+
+    @AfterEach
+    public void after() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testOrder() {
+        CountingIterator source = new CountingIterator(100, -1);
+        ReadAheadIterator<Integer> it = new ReadAheadIterator<>(source, executor, 3, 2);
+        List<Integer> l = new ArrayList<>();
+        while (it.isValid()) {
+            l.add(it.value());
+            it.next();
+        }
+        assertEquals(100, l.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, l.get(i));
+        }
+        assertTrue(source.closed);
+    }
+
+    @Test
+    public void testEmpty() {
+        CountingIterator source = new CountingIterator(0, -1);
+        ReadAheadIterator<Integer> it = new ReadAheadIterator<>(source, executor, 3, 2);
+        assertFalse(it.isValid());
+        assertTrue(source.closed);
+    }
+
+    @Test
+    public void testSharedExecutor() {
+        // more iterators than threads, consumed in an interleaved manner like in the merging retrievals
+        List<ReadAheadIterator<Integer>> l = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            l.add(new ReadAheadIterator<>(new CountingIterator(50, -1), executor, 2, 2));
+        }
+        for (int k = 0; k < 50; k++) {
+            for (var it : l) {
+                assertTrue(it.isValid());
+                assertEquals(k, it.value());
+                it.next();
+            }
+        }
+        for (var it : l) {
+            assertFalse(it.isValid());
+        }
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        CountingIterator source = new CountingIterator(1000, -1);
+        ReadAheadIterator<Integer> it = new ReadAheadIterator<>(source, executor, 3, 2);
+        assertEquals(0, it.value());
+        it.close();
+        assertFalse(it.isValid());
+
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        assertTrue(source.closed);
+        // the read ahead is limited to maxBatches
+        assertTrue(source.count <= 9);
+    }
+
+    @Test
+    public void testException() {
+        CountingIterator source = new CountingIterator(100, 10);
+        ReadAheadIterator<Integer> it = new ReadAheadIterator<>(source, executor, 3, 2);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, it.value());
+            it.next();
+        }
+        assertThrows(ParameterArchiveException.class, () -> it.isValid());
+        assertTrue(source.closed);
+    }
+
+    static class CountingIterator implements ParchiveIterator<Integer> {
+        final int n;
+        final int failAt;
+        volatile int count = 0;
+        volatile boolean closed = false;
+
+        CountingIterator(int n, int failAt) {
+            this.n = n;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public boolean isValid() {
+            if (count == failAt) {
+                throw new ParameterArchiveException("failed at " + count);
+            }
+            return count < n;
+        }
+
+        @Override
+        public Integer value() {
+            return count;
+        }
+
+        @Override
+        public void next() {
+            count++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
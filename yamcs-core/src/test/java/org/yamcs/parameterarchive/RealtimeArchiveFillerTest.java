@@ -1,15 +1,21 @@
 package org.yamcs.parameterarchive;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.lang.management.MemoryPoolMXBean;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -262,7 +268,6 @@ public class RealtimeArchiveFillerTest {
     @Test
     public void testFullIntervalOutsideSortingThresholdIsArchived()
             throws InterruptedException, RocksDBException, IOException {
-        when(parameterArchive.getMaxSegmentSize()).thenReturn(2);
         when(yamcsServer.getProcessor(anyString(), anyString())).thenReturn(processor);
         RealtimeArchiveFiller filler = getFiller(1000);
         filler.start();
@@ -297,7 +302,6 @@ public class RealtimeArchiveFillerTest {
     @Test
     public void testSegmentStartIdxComputation()
             throws InterruptedException, RocksDBException, IOException {
-        when(parameterArchive.getMaxSegmentSize()).thenReturn(2);
         when(yamcsServer.getProcessor(anyString(), anyString())).thenReturn(processor);
         RealtimeArchiveFiller filler = getFiller(1000);
 
@@ -414,6 +418,98 @@ public class RealtimeArchiveFillerTest {
         // verify(parameterArchive, times(SegmentQueue.QSIZE - 1)).writeToArchive(any(PGSegment.class));
     }
 
+    /**
+     * Tests that when the queue is full, the new data is spilled and written to the archive at shutdown.
+     */
+    @Test
+    public void testSpillWhenQueueIsFull() throws InterruptedException, RocksDBException, IOException {
+        when(parameterArchive.getMaxSegmentSize()).thenReturn(2);
+        List<PGSegment> segList = fillQueueAndShutdown(getFiller(1000));
+        assertTrue(segList.stream().anyMatch(seg -> seg.getSegmentEnd() == 2 * QSIZE - 2));
+    }
+
+    /**
+     * Tests that when the queue is full and spilling is disabled, the new data is dropped.
+     */
+    @Test
+    public void testNoSpill() throws InterruptedException, RocksDBException, IOException {
+        when(parameterArchive.getMaxSegmentSize()).thenReturn(2);
+        RealtimeArchiveFiller filler = getFiller(1000, "spillBufferSize: 0\nmaxSpillFileSize: 0\n");
+        assertNull(filler.spill);
+        List<PGSegment> segList = fillQueueAndShutdown(filler);
+        assertTrue(segList.stream().noneMatch(seg -> seg.getSegmentEnd() == 2 * QSIZE - 2));
+    }
+
+    /**
+     * Tests that the rollups of an interval flushed due to low memory are built once the interval is complete.
+     */
+    @Test
+    public void testRollupsAfterLowMemoryFlush() throws InterruptedException, RocksDBException, IOException {
+        when(yamcsServer.getProcessor(anyString(), anyString())).thenReturn(processor);
+        when(parameterArchive.getMaxSegmentSize()).thenReturn(500);
+        RealtimeArchiveFiller filler = getFiller(1000);
+        filler.start();
+        filler.updateItems(0, getValues(0, "/myproject/value"));
+        filler.updateItems(0, getValues(1, "/myproject/value"));
+
+        MemoryPoolMXBean memoryBean = AbstractArchiveFiller.memoryBean;
+        MemoryPoolMXBean lowMemoryBean = mock(MemoryPoolMXBean.class);
+        when(lowMemoryBean.isCollectionUsageThresholdExceeded()).thenReturn(true);
+        try {
+            AbstractArchiveFiller.memoryBean = lowMemoryBean;
+            // the first interval is flushed before being complete and the new data is spilled
+            filler.updateItems(0, getValues(INTERVAL_SIZE_MILLIS + 2000, "/myproject/value"));
+            assertTrue(filler.spillingForMemory);
+        } finally {
+            AbstractArchiveFiller.memoryBean = memoryBean;
+        }
+        // the spilled data is replayed, the first interval is now complete
+        filler.updateItems(0, getValues(INTERVAL_SIZE_MILLIS + 3000, "/myproject/value"));
+        assertFalse(filler.spillActive);
+
+        filler.executor.shutdown();
+        filler.executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        ArgumentCaptor<PGSegment> segCaptor = ArgumentCaptor.forClass(PGSegment.class);
+        verify(parameterArchive).writeToArchive(segCaptor.capture());
+        PGSegment seg = segCaptor.getValue();
+        assertEquals(0, seg.getSegmentStart());
+        assertEquals(1, seg.getSegmentEnd());
+        assertFalse(seg.isLastInInterval());
+        verify(parameterArchive).buildRollups(0, 0L);
+    }
+
+    @Test
+    public void testSpillBufferTooLarge() {
+        assertThrows(ConfigurationException.class, () -> getFiller(1000, "spillBufferSize: 2048\n"));
+    }
+
+    private List<PGSegment> fillQueueAndShutdown(RealtimeArchiveFiller filler)
+            throws InterruptedException, RocksDBException, IOException {
+        when(yamcsServer.getProcessor(anyString(), anyString())).thenReturn(processor);
+        filler.start();
+
+        // two values per segment, nothing is sent to the archive because of the sorting threshold
+        for (int i = 0; i < 2 * (QSIZE - 1); i++) {
+            filler.processParameters(getValues(i, "/myproject/value"));
+        }
+        assertEquals(QSIZE - 1, filler.getSegments(0, 0, true).size());
+        assertFalse(filler.spillActive);
+
+        // the queue is full
+        filler.processParameters(getValues(2 * QSIZE - 2, "/myproject/value"));
+        assertEquals(QSIZE - 1, filler.getSegments(0, 0, true).size());
+        if (filler.spill != null) {
+            assertEquals(1, filler.spill.numRecords());
+            assertTrue(filler.spillActive);
+        }
+
+        filler.shutDown();
+        ArgumentCaptor<PGSegment> segCaptor = ArgumentCaptor.forClass(PGSegment.class);
+        verify(parameterArchive, atLeastOnce()).writeToArchive(segCaptor.capture());
+        return segCaptor.getAllValues();
+    }
+
     /**
      * Tests with gaps. Two segments in the same interval, the second segment does not have all the parameters from the
      * interval
@@ -485,10 +581,14 @@ public class RealtimeArchiveFillerTest {
     }
 
     private RealtimeArchiveFiller getFiller(long sortingThreshold) {
+        return getFiller(sortingThreshold, "");
+    }
+
+    private RealtimeArchiveFiller getFiller(long sortingThreshold, String extraConfig) {
         String configStr = String.format(
                 "sortingThreshold: %d\n"
                         + "pastJumpThreshold: %d\n",
-                sortingThreshold, PAST_JUMP_THRESHOLD_SECS);
+                sortingThreshold, PAST_JUMP_THRESHOLD_SECS) + extraConfig;
         YConfiguration config = YConfiguration.wrap(new Yaml().load(configStr));
         RealtimeArchiveFiller filler = new RealtimeArchiveFiller(parameterArchive, config);
         filler.setYamcsServer(yamcsServer);
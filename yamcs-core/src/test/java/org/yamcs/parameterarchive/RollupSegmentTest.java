@@ -0,0 +1,139 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.protobuf.Yamcs.Value.Type;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+
+public class RollupSegmentTest {
+    static final long INTERVAL = ParameterArchive.getIntervalStart(1L << 40);
+
+    @Test
+    public void testBuild() {
+        // 3 values in the first bucket, 2 in the second one
+        var pvs = getPvs(new long[] { 0, 100, 1000, 1024, 2000 }, new double[] { 3, 1, 2, 5, 4 });
+
+        RollupSegment rs = RollupSegment.build(0, pvs, true);
+        assertEquals(2, rs.size());
+
+        assertEquals(INTERVAL, rs.getBucketStart(0));
+        assertEquals(3, rs.getCount(0));
+        assertEquals(6, rs.getSum(0), 1e-10);
+        assertEquals(1, rs.getMin(0), 1e-10);
+        assertEquals(INTERVAL + 100, rs.getMinTime(0));
+        assertEquals(3, rs.getMax(0), 1e-10);
+        assertEquals(INTERVAL, rs.getMaxTime(0));
+        assertEquals(3, rs.getFirst(0), 1e-10);
+        assertEquals(2, rs.getLast(0), 1e-10);
+        assertEquals(INTERVAL + 1000, rs.getLastTime(0));
+
+        assertEquals(INTERVAL + 1024, rs.getBucketStart(1));
+        assertEquals(2, rs.getCount(1));
+        assertEquals(9, rs.getSum(1), 1e-10);
+        assertEquals(5, rs.getFirst(1), 1e-10);
+        assertEquals(4, rs.getLast(1), 1e-10);
+    }
+
+    @Test
+    public void testDensity() {
+        var pvs = getPvs(new long[] { 0, 5000, 10000 }, new double[] { 1, 2, 3 });
+        assertNull(RollupSegment.build(0, pvs, true));
+
+        RollupSegment rs = RollupSegment.build(0, pvs, false);
+        assertEquals(3, rs.size());
+    }
+
+    @Test
+    public void testMergeAndEncode() throws DecodingException {
+        RollupSegment rs1 = RollupSegment.build(0, getPvs(new long[] { 0, 10 }, new double[] { 1, 2 }), true);
+        RollupSegment rs2 = RollupSegment.build(0, getPvs(new long[] { 20, 3000 }, new double[] { -1, 7 }), false);
+        rs1.merge(rs2);
+
+        assertEquals(2, rs1.size());
+        assertEquals(3, rs1.getCount(0));
+        assertEquals(-1, rs1.getMin(0), 1e-10);
+        assertEquals(INTERVAL + 20, rs1.getLastTime(0));
+        assertEquals(INTERVAL + 2048, rs1.getBucketStart(1));
+
+        ByteBuffer bb = ByteBuffer.allocate(rs1.getMaxSerializedSize());
+        rs1.writeTo(bb);
+        bb.flip();
+        RollupSegment rs3 = RollupSegment.parseFrom(bb, INTERVAL);
+
+        assertEquals(rs1.size(), rs3.size());
+        for (int i = 0; i < rs1.size(); i++) {
+            assertEquals(rs1.getBucketStart(i), rs3.getBucketStart(i));
+            assertEquals(rs1.getCount(i), rs3.getCount(i));
+            assertEquals(rs1.getSum(i), rs3.getSum(i), 1e-10);
+            assertEquals(rs1.getMin(i), rs3.getMin(i), 1e-10);
+            assertEquals(rs1.getMax(i), rs3.getMax(i), 1e-10);
+            assertEquals(rs1.getMinTime(i), rs3.getMinTime(i));
+            assertEquals(rs1.getMaxTime(i), rs3.getMaxTime(i));
+            assertEquals(rs1.getFirstTime(i), rs3.getFirstTime(i));
+            assertEquals(rs1.getLastTime(i), rs3.getLastTime(i));
+            assertEquals(rs1.getLastExpireMillis(i), rs3.getLastExpireMillis(i));
+        }
+    }
+
+    @Test
+    public void testNaNAndExpiration() throws DecodingException {
+        SortedTimeSegment ts = new SortedTimeSegment(INTERVAL);
+        ParameterValueSegment pvs = new ParameterValueSegment(1, ts, Type.DOUBLE, null);
+        long[] times = new long[] { 0, 10, 20, 1024, 1030 };
+        double[] values = new double[] { Double.NaN, 2, 1, 5, Double.NaN };
+        long[] expires = new long[] { 0, 0, 3000, 0, 2000 };
+        for (int i = 0; i < times.length; i++) {
+            ParameterValue pv = new ParameterValue(new Parameter("p1"));
+            pv.setGenerationTime(INTERVAL + times[i]);
+            pv.setEngValue(ValueUtility.getDoubleValue(values[i]));
+            if (expires[i] > 0) {
+                pv.setExpireMillis(expires[i]);
+            }
+            pvs.insert(ts.size(), pv);
+            ts.add(INTERVAL + times[i]);
+        }
+        RollupSegment rs = RollupSegment.build(0, pvs, false);
+        assertEquals(2, rs.size());
+        assertEquals(3, rs.getCount(0));
+        assertEquals(1, rs.getMin(0), 1e-10);
+        assertEquals(INTERVAL + 20, rs.getMinTime(0));
+        assertEquals(2, rs.getMax(0), 1e-10);
+        assertEquals(3000, rs.getLastExpireMillis(0));
+
+        assertEquals(5, rs.getMin(1), 1e-10);
+        assertEquals(5, rs.getMax(1), 1e-10);
+        assertEquals(2000, rs.getLastExpireMillis(1));
+
+        ByteBuffer bb = ByteBuffer.allocate(rs.getMaxSerializedSize());
+        rs.writeTo(bb);
+        bb.flip();
+        RollupSegment rs1 = RollupSegment.parseFrom(bb, INTERVAL);
+        assertEquals(3000, rs1.getLastExpireMillis(0));
+        assertEquals(2000, rs1.getLastExpireMillis(1));
+    }
+
+    @Test
+    public void testSelectLevel() {
+        assertEquals(-1, RollupSegment.selectLevel(1000));
+        assertEquals(0, RollupSegment.selectLevel(4096));
+        assertEquals(1, RollupSegment.selectLevel(300_000));
+        assertEquals(2, RollupSegment.selectLevel(24 * 3600_000L));
+    }
+
+    private ParameterValueSegment getPvs(long[] times, double[] values) {
+        SortedTimeSegment ts = new SortedTimeSegment(INTERVAL);
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        for (int i = 0; i < times.length; i++) {
+            ts.add(INTERVAL + times[i]);
+            dvs.add(ValueUtility.getDoubleValue(values[i]));
+        }
+        return new ParameterValueSegment(1, ts, dvs, null, null, null);
+    }
+}
@@ -0,0 +1,79 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.ValueUtility;
+
+public class SegmentCacheTest {
+    byte[] key1 = new SegmentKey(1, 2, 0, SegmentKey.TYPE_ENG_VALUE).encode();
+    byte[] key2 = new SegmentKey(1, 2, 0, SegmentKey.TYPE_RAW_VALUE).encode();
+
+    @Test
+    public void testHitMiss() throws DecodingException {
+        SegmentCache cache = new SegmentCache(1024 * 1024);
+        byte[] v = encode(1.0, 2.0, 3.0);
+
+        BaseSegment s1 = cache.get(key1, v, 0);
+        BaseSegment s2 = cache.get(key1, v.clone(), 0);
+        assertSame(s1, s2);
+        assertEquals(3, ((DoubleValueSegment) s1).size());
+
+        BaseSegment s3 = cache.get(key2, v, 0);
+        assertNotSame(s1, s3);
+
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(2, cache.stats().missCount());
+        assertEquals(2, cache.size());
+        assertTrue(cache.weight() > 2 * v.length);
+    }
+
+    @Test
+    public void testValueChanged() throws DecodingException {
+        SegmentCache cache = new SegmentCache(1024 * 1024);
+        BaseSegment s1 = cache.get(key1, encode(1.0, 2.0), 0);
+        // the segment has been extended in the database, the cached one cannot be used
+        BaseSegment s2 = cache.get(key1, encode(1.0, 2.0, 3.0), 0);
+
+        assertNotSame(s1, s2);
+        assertEquals(3, ((DoubleValueSegment) s2).size());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() throws DecodingException {
+        SegmentCache cache = new SegmentCache(1024 * 1024);
+        byte[] v = encode(1.0, 2.0);
+        BaseSegment s1 = cache.get(key1, v, 0);
+        cache.invalidate(key1);
+        assertEquals(0, cache.size());
+
+        BaseSegment s2 = cache.get(key1, v, 0);
+        assertNotSame(s1, s2);
+    }
+
+    @Test
+    public void testEviction() throws DecodingException {
+        byte[] v = encode(1.0, 2.0, 3.0);
+        SegmentCache cache = new SegmentCache(SegmentCache.ENTRY_OVERHEAD + 2 * v.length + 100);
+        cache.get(key1, v, 0);
+        cache.get(key2, v, 0);
+
+        // the weight limit is split among the internal segments of the cache so both entries may be evicted
+        assertTrue(cache.size() <= 1);
+        assertTrue(cache.stats().evictionCount() >= 1);
+    }
+
+    static byte[] encode(double... values) {
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        for (double d : values) {
+            dvs.add(ValueUtility.getDoubleValue(d));
+        }
+        dvs.consolidate();
+        return SegmentEncoderDecoder.encode(dvs);
+    }
+}
@@ -0,0 +1,136 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yamcs.parameter.BasicParameterValue;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.protobuf.Pvalue.MonitoringResult;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.IntArray;
+import org.yamcs.utils.ValueUtility;
+
+public class SpillBufferTest {
+    Path dir;
+
+    @BeforeEach
+    public void before() throws IOException {
+        dir = Files.createTempDirectory("SpillBufferTest");
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        SpillBuffer spill = new SpillBuffer(1024 * 1024, 0, () -> dir);
+
+        ParameterValue pv1 = new ParameterValue("p1");
+        pv1.setEngValue(ValueUtility.getDoubleValue(3.14));
+        pv1.setRawValue(ValueUtility.getUint32Value(314));
+        pv1.setExpireMillis(1500);
+
+        ParameterValue pv2 = new ParameterValue("p2");
+        pv2.setEngValue(ValueUtility.getEnumeratedValue(3, "three"));
+        pv2.setInvalid();
+        pv2.setMonitoringResult(MonitoringResult.WARNING);
+
+        ParameterValue pv3 = new ParameterValue("p1");
+        pv3.setEngValue(ValueUtility.getDoubleValue(2.71));
+
+        BasicParameterList pvList = new BasicParameterList(IntArray.wrap(1, 2), Arrays.asList(pv1, pv2));
+        pvList.next = new BasicParameterList(IntArray.wrap(1), Arrays.asList(pv3));
+        assertTrue(spill.add(100, pvList));
+        assertEquals(1, spill.numRecords());
+
+        var r = spill.peek();
+        assertEquals(100, r.t());
+        BasicParameterList l = r.pvList();
+        assertEquals(IntArray.wrap(1, 2), l.getPids());
+        checkEquals(pv1, l.getValues().get(0));
+        checkEquals(pv2, l.getValues().get(1));
+        assertEquals(IntArray.wrap(1), l.next().getPids());
+        checkEquals(pv3, l.next().getValues().get(0));
+        assertNull(l.next().next());
+
+        spill.remove();
+        assertTrue(spill.isEmpty());
+        assertNull(spill.peek());
+    }
+
+    @Test
+    public void testOverflowToFile() throws Exception {
+        // the memory buffer fits a few records only
+        SpillBuffer spill = new SpillBuffer(200, 1024 * 1024, () -> dir);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(spill.add(i, getList(i)));
+            if (i % 3 == 0) {
+                // consume from time to time such that the memory buffer is reused while the file has data
+                assertEquals(i / 3, spill.peek().t());
+                spill.remove();
+            }
+        }
+        assertEquals(1, Files.list(dir).count());
+
+        List<Long> l = drain(spill);
+        assertEquals(100 - 34, l.size());
+        for (int i = 0; i < l.size(); i++) {
+            assertEquals(34 + i, l.get(i));
+        }
+        // the file is deleted after being read
+        assertEquals(0, Files.list(dir).count());
+
+        // the buffer can be used again
+        assertTrue(spill.add(1000, getList(1000)));
+        assertEquals(Arrays.asList(1000L), drain(spill));
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        SpillBuffer spill = new SpillBuffer(100, 100, () -> dir);
+        int n = 0;
+        while (spill.add(n, getList(n))) {
+            n++;
+        }
+        assertTrue(n > 0);
+        assertFalse(spill.add(n, getList(n)));
+        assertTrue(spill.size() <= 200);
+        assertEquals(n, drain(spill).size());
+
+        spill.add(0, getList(0));
+        spill.close();
+        assertTrue(spill.isEmpty());
+        assertEquals(0, Files.list(dir).count());
+    }
+
+    private List<Long> drain(SpillBuffer spill) throws IOException, DecodingException {
+        List<Long> l = new ArrayList<>();
+        while (!spill.isEmpty()) {
+            var r = spill.peek();
+            l.add(r.t());
+            assertEquals(ValueUtility.getSint64Value(r.t()), r.pvList().getValues().get(0).getEngValue());
+            spill.remove();
+        }
+        return l;
+    }
+
+    private BasicParameterList getList(long x) {
+        ParameterValue pv = new ParameterValue("p1");
+        pv.setEngValue(ValueUtility.getSint64Value(x));
+        return new BasicParameterList(IntArray.wrap(1), Arrays.asList(pv));
+    }
+
+    private void checkEquals(BasicParameterValue expected, BasicParameterValue actual) {
+        assertEquals(expected.getEngValue(), actual.getEngValue());
+        assertEquals(expected.getRawValue(), actual.getRawValue());
+        assertEquals(ParameterStatusSegment.getStatus(expected, null), ParameterStatusSegment.getStatus(actual, null));
+    }
+}
@@ -0,0 +1,96 @@
+package org.yamcs.parameterarchive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.utils.DecodingException;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.util.DoubleRange;
+
+public class ZoneMapSegmentTest {
+    static final long INTERVAL = ParameterArchive.getIntervalStart(1L << 40);
+
+    @Test
+    public void testBuild() {
+        ZoneMapSegment zm = ZoneMapSegment.build(getPvs(3, -1, Double.NaN, 7));
+        assertNotNull(zm);
+        assertEquals(4, zm.size());
+        assertEquals(1, zm.getNanCount());
+        assertEquals(0, zm.getInvalidCount());
+        assertEquals(-1, zm.getMin(), 1e-10);
+        assertEquals(7, zm.getMax(), 1e-10);
+    }
+
+    @Test
+    public void testNotNumeric() {
+        SortedTimeSegment ts = new SortedTimeSegment(INTERVAL);
+        ts.add(INTERVAL);
+        StringValueSegment vs = new StringValueSegment(false);
+        vs.add(ValueUtility.getStringValue("abc"));
+        assertNull(ZoneMapSegment.build(new ParameterValueSegment(1, ts, vs, null, null, null)));
+    }
+
+    @Test
+    public void testAllNan() {
+        ZoneMapSegment zm = ZoneMapSegment.build(getPvs(Double.NaN, Double.NaN));
+        assertEquals(2, zm.getNanCount());
+        assertTrue(Double.isNaN(zm.getMin()));
+        assertFalse(zm.mayMatch(new DoubleRange(Double.NaN, Double.NaN, true, false)));
+    }
+
+    @Test
+    public void testMerge() {
+        ZoneMapSegment zm1 = ZoneMapSegment.build(getPvs(Double.NaN));
+        ZoneMapSegment zm2 = ZoneMapSegment.build(getPvs(5, 2));
+        ZoneMapSegment zm3 = ZoneMapSegment.build(getPvs(10, Double.NaN));
+        zm1.merge(zm2);
+        zm1.merge(zm3);
+
+        assertEquals(5, zm1.size());
+        assertEquals(2, zm1.getNanCount());
+        assertEquals(2, zm1.getMin(), 1e-10);
+        assertEquals(10, zm1.getMax(), 1e-10);
+    }
+
+    @Test
+    public void testMayMatch() {
+        ZoneMapSegment zm = ZoneMapSegment.build(getPvs(1, 3));
+
+        assertTrue(zm.mayMatch(new DoubleRange(Double.NaN, Double.NaN, true, false)));
+        assertTrue(zm.mayMatch(new DoubleRange(2, 2.5, true, false)));
+        assertTrue(zm.mayMatch(new DoubleRange(0, 10, true, false)));
+        assertTrue(zm.mayMatch(new DoubleRange(3, Double.NaN, true, false)));
+        assertTrue(zm.mayMatch(new DoubleRange(Double.NaN, 1, true, true)));
+
+        assertFalse(zm.mayMatch(new DoubleRange(5, 10, true, false)));
+        assertFalse(zm.mayMatch(new DoubleRange(Double.NaN, 1, true, false)));
+        assertFalse(zm.mayMatch(new DoubleRange(3, Double.NaN, false, false)));
+    }
+
+    @Test
+    public void testEncode() throws DecodingException {
+        ZoneMapSegment zm = ZoneMapSegment.build(getPvs(3, -1, Double.NaN, 7));
+        byte[] b = SegmentEncoderDecoder.encode(zm);
+        ZoneMapSegment zm1 = (ZoneMapSegment) SegmentEncoderDecoder.decode(b, INTERVAL);
+
+        assertEquals(zm.size(), zm1.size());
+        assertEquals(zm.getNanCount(), zm1.getNanCount());
+        assertEquals(zm.getInvalidCount(), zm1.getInvalidCount());
+        assertEquals(zm.getMin(), zm1.getMin(), 1e-10);
+        assertEquals(zm.getMax(), zm1.getMax(), 1e-10);
+    }
+
+    private ParameterValueSegment getPvs(double... values) {
+        SortedTimeSegment ts = new SortedTimeSegment(INTERVAL);
+        DoubleValueSegment dvs = new DoubleValueSegment();
+        for (int i = 0; i < values.length; i++) {
+            ts.add(INTERVAL + i * 100);
+            dvs.add(ValueUtility.getDoubleValue(values[i]));
+        }
+        return new ParameterValueSegment(1, ts, dvs, null, null, null);
+    }
+}
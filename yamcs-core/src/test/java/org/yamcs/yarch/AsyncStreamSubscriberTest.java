@@ -0,0 +1,178 @@
+package org.yamcs.yarch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yamcs.utils.parser.ParseException;
+import org.yamcs.yarch.AsyncStreamSubscriber.OverflowPolicy;
+import org.yamcs.yarch.streamsql.StreamSqlResult;
+
+public class AsyncStreamSubscriberTest extends YarchTestCase {
+    Stream stream;
+
+    @BeforeEach
+    public void createStream() throws Exception {
+        ydb.execute("create stream async_in(x int)");
+        stream = ydb.getStream("async_in");
+    }
+
+    void emit(int x) {
+        stream.emitTuple(new Tuple(stream.getDefinition(), new Object[] { x }));
+    }
+
+    @Test
+    public void testOrderAndClose() throws Exception {
+        MySubscriber sub = new MySubscriber(null);
+        AsyncStreamSubscriber as = stream.addAsyncSubscriber(sub, 10, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            emit(i);
+        }
+        stream.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+
+        assertEquals(100, sub.received.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, sub.received.get(i));
+        }
+        assertEquals(100, as.getProcessedCount());
+        assertEquals(0, as.getDroppedCount());
+        assertEquals(0, as.getQueueSize());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        Semaphore release = new Semaphore(0);
+        MySubscriber sub = new MySubscriber(release);
+        AsyncStreamSubscriber as = stream.addAsyncSubscriber(sub, 5, OverflowPolicy.DROP_OLDEST);
+
+        emit(0);
+        // wait for the subscriber to block in processing the first tuple
+        assertTrue(sub.entered.tryAcquire(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 20; i++) {
+            emit(i);
+        }
+        assertEquals(5, as.getQueueSize());
+        assertEquals(14, as.getDroppedCount());
+
+        release.release(100);
+        stream.close();
+        assertTrue(sub.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 15, 16, 17, 18, 19), sub.received);
+    }
+
+    @Test
+    public void testFail() throws Exception {
+        Semaphore release = new Semaphore(0);
+        MySubscriber sub = new MySubscriber(release);
+        AsyncStreamSubscriber as = stream.addAsyncSubscriber(sub, 2, OverflowPolicy.FAIL);
+
+        emit(0);
+        assertTrue(sub.entered.tryAcquire(10, TimeUnit.SECONDS));
+        emit(1);
+        emit(2);
+        assertEquals(1, stream.getSubscriberCount());
+
+        emit(3);
+        assertTrue(as.isFailed());
+        assertEquals(0, stream.getSubscriberCount());
+        assertEquals(3, as.getDroppedCount());
+        release.release(100);
+    }
+
+    @Test
+    public void testRemoveByDelegate() throws Exception {
+        MySubscriber sub = new MySubscriber(null);
+        stream.addAsyncSubscriber(sub, 10, OverflowPolicy.BLOCK);
+        assertEquals(1, stream.getSubscriberCount());
+
+        stream.removeSubscriber(sub);
+        assertEquals(0, stream.getSubscriberCount());
+        assertTrue(stream.getSubscribers().isEmpty());
+
+        // removing again does not change the count
+        stream.removeSubscriber(sub);
+        assertEquals(0, stream.getSubscriberCount());
+    }
+
+    @Test
+    public void testShowSubscribers() throws Exception {
+        Semaphore release = new Semaphore(0);
+        MySubscriber sub = new MySubscriber(release);
+        stream.addAsyncSubscriber(sub, 2, OverflowPolicy.DROP_OLDEST);
+        MySubscriber syncSub = new MySubscriber(null);
+        stream.addSubscriber(syncSub);
+
+        emit(0);
+        assertTrue(sub.entered.tryAcquire(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 5; i++) {
+            emit(i);
+        }
+
+        StreamSqlResult r = ydb.execute("show stream async_in subscribers");
+        Tuple t = r.next();
+        assertEquals("MySubscriber", t.getColumn("name"));
+        assertEquals("ASYNC", t.getColumn("mode"));
+        assertEquals(2, t.getIntColumn("queueSize"));
+        assertEquals(2, t.getIntColumn("queueCapacity"));
+        assertEquals("DROP_OLDEST", t.getColumn("overflowPolicy"));
+        assertEquals(0L, t.getLongColumn("processed"));
+        assertEquals(2L, t.getLongColumn("dropped"));
+
+        t = r.next();
+        assertEquals("MySubscriber", t.getColumn("name"));
+        assertEquals("SYNC", t.getColumn("mode"));
+        assertEquals(-1L, t.getLongColumn("processed"));
+        assertFalse(r.hasNext());
+        r.close();
+
+        // the columns of the stream are listed as before
+        r = ydb.execute("show stream async_in");
+        t = r.next();
+        assertEquals("x", t.getColumn("column"));
+        assertFalse(r.hasNext());
+        r.close();
+
+        assertThrows(ParseException.class, () -> ydb.execute("show stream async_in subscriber"));
+        release.release(100);
+    }
+
+    static class MySubscriber implements StreamSubscriber {
+        final List<Integer> received = new ArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        final Semaphore entered = new Semaphore(0);
+        final Semaphore release;
+
+        MySubscriber(Semaphore release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onTuple(Stream s, Tuple tuple) {
+            entered.release();
+            if (release != null) {
+                try {
+                    release.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            received.add(tuple.getIntColumn("x"));
+        }
+
+        @Override
+        public void streamClosed(Stream s) {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.yamcs.yarch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.yarch.streamsql.StreamSqlResult;
+
+public class ColumnProjectionTest extends YarchTestCase {
+
+    @Test
+    public void testDeserializeProjection() throws Exception {
+        ydb.execute("create table tbl1(k int, s string, b binary, d double, t timestamp, e enum, primary key(k))");
+        TableDefinition tblDef = ydb.getTable("tbl1");
+
+        TupleDefinition tdef = tblDef.getTupleDefinition();
+        Tuple t = new Tuple(tdef, new Object[] { 3, "s3", new byte[] { 1, 2, 3 }, 3.5, 1000L, "e3" });
+        byte[] k = tblDef.generateRow(t).getKey();
+        byte[] v = tblDef.serializeValue(t, null);
+
+        Tuple t1 = tblDef.deserialize(k, v, tblDef.getValueProjection(List.of("k", "d", "e")));
+        assertEquals(3, t1.getDefinition().size());
+        assertEquals(3, (int) t1.getColumn("k"));
+        assertEquals(3.5, (double) t1.getColumn("d"));
+        assertEquals("e3", t1.getColumn("e"));
+        assertFalse(t1.hasColumn("s"));
+        assertFalse(t1.hasColumn("b"));
+
+        t1 = tblDef.deserialize(k, v, new BitSet());
+        assertEquals(1, t1.getDefinition().size());
+        assertEquals(3, (int) t1.getColumn("k"));
+
+        t1 = tblDef.deserialize(k, v, tblDef.getValueProjection(List.of("b", "t")));
+        byte[] b = t1.getColumn("b");
+        assertArrayEquals(new byte[] { 1, 2, 3 }, b);
+        assertEquals(1000L, (long) t1.getColumn("t"));
+        assertFalse(t1.hasColumn("s"));
+
+        t1 = tblDef.deserialize(k, v, null);
+        assertEquals(6, t1.getDefinition().size());
+        assertEquals("s3", t1.getColumn("s"));
+    }
+
+    @Test
+    public void testSelectProjection() throws Exception {
+        ydb.execute("create table tbl2(k int, s string, x int, y string, primary key(k))");
+        for (int i = 0; i < 10; i++) {
+            ydb.execute("insert into tbl2(k, s, x, y) values(" + i + ", 's" + i + "', " + (i * 10) + ", 'y" + i
+                    + "')");
+        }
+
+        StreamSqlResult res = ydb.execute("select k, x + 1 as z from tbl2 where s = 's4' or k = 7");
+        assertTrue(res.hasNext());
+        Tuple t = res.next();
+        assertEquals(4, (int) t.getColumn("k"));
+        assertEquals(41, (int) t.getColumn("z"));
+        assertTrue(res.hasNext());
+        t = res.next();
+        assertEquals(7, (int) t.getColumn("k"));
+        assertEquals(71, (int) t.getColumn("z"));
+        assertFalse(res.hasNext());
+        res.close();
+
+        res = ydb.execute("select y from tbl2 where k >= 8");
+        assertEquals("y8", res.next().getColumn("y"));
+        assertEquals("y9", res.next().getColumn("y"));
+        assertFalse(res.hasNext());
+        res.close();
+    }
+}
@@ -0,0 +1,63 @@
+package org.yamcs.yarch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.yarch.streamsql.CompiledExpressionCache;
+import org.yamcs.yarch.streamsql.PreparedStreamSqlStatement;
+import org.yamcs.yarch.streamsql.StreamSqlResult;
+
+public class PreparedStatementTest extends YarchTestCase {
+
+    void populate() throws Exception {
+        ydb.execute("create table tbl1(x int, v string, primary key(x))");
+        for (int i = 0; i < 10; i++) {
+            ydb.execute("insert into tbl1(x, v) values(" + i + ", 'v" + i + "')");
+        }
+    }
+
+    List<Integer> fetchX(StreamSqlResult res) {
+        List<Integer> l = new ArrayList<>();
+        while (res.hasNext()) {
+            l.add(res.next().getIntColumn("x"));
+        }
+        res.close();
+        return l;
+    }
+
+    @Test
+    public void testReuseCompiledExpressions() throws Exception {
+        populate();
+        CompiledExpressionCache cache = CompiledExpressionCache.getInstance();
+        PreparedStreamSqlStatement stmt = ydb
+                .prepareStatement("select x from tbl1 where v = ? or v in (?, ?) or x + ? > 20");
+
+        assertEquals(List.of(1, 3, 5), fetchX(stmt.execute("v1", "v3", "v5", 0)));
+        long misses = cache.getMisses();
+        long hits = cache.getHits();
+
+        assertEquals(List.of(2, 4, 9), fetchX(stmt.execute("v2", "v4", "v5", 12)));
+        assertEquals(misses, cache.getMisses());
+        assertTrue(cache.getHits() > hits);
+
+        // the same query not prepared also uses the cache
+        hits = cache.getHits();
+        StreamSqlResult res = ydb.execute("select x from tbl1 where v = ? or v in (?, ?) or x + ? > 20",
+                "v0", "v0", "v0", 0);
+        assertEquals(List.of(0), fetchX(res));
+        assertEquals(misses, cache.getMisses());
+        assertTrue(cache.getHits() > hits);
+    }
+
+    @Test
+    public void testLiteralsNotShared() throws Exception {
+        populate();
+        // the literals are part of the generated code, the results have to be different
+        assertEquals(List.of(7), fetchX(ydb.execute("select x from tbl1 where v = 'v7' or x + 1 > 20")));
+        assertEquals(List.of(8), fetchX(ydb.execute("select x from tbl1 where v = 'v8' or x + 1 > 20")));
+    }
+}
@@ -1,8 +1,12 @@
 package org.yamcs.yarch;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -157,6 +161,53 @@ public class StreamMergeTest extends YarchTestCase {
         execute("drop table tm3");
     }
 
+    @Test
+    public void testPullMode() throws Exception {
+        populate("tm1", 0, 1000, 2, 1000);
+        populate("tm2", 1, 1000, 2, 2000);
+
+        StreamSqlResult r = ydb.execute("create stream tm_out as merge "
+                + "(select * from tm1 where apidSeqCount = 1000), tm2 using \"time\"");
+        InternalStream s = (InternalStream) ydb.getStream("tm_out");
+        assertTrue(((MergeStream) s.inner).isPullMode());
+
+        List<Long> times = new ArrayList<>();
+        Semaphore semaphore = new Semaphore(0);
+        s.addSubscriber(new StreamSubscriber() {
+            @Override
+            public void streamClosed(Stream stream) {
+                semaphore.release();
+            }
+
+            @Override
+            public void onTuple(Stream stream, Tuple tuple) {
+                times.add(tuple.getLongColumn("time"));
+            }
+        });
+        s.start();
+        assertTrue(semaphore.tryAcquire(30, TimeUnit.SECONDS));
+        assertEquals(1000, times.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1000L * i, times.get(i));
+        }
+        r.close();
+        execute("drop table tm1");
+        execute("drop table tm2");
+    }
+
+    @Test
+    public void testPushModeWithLiveStream() throws Exception {
+        populate("tm1", 0, 10, 1, 1000);
+        ydb.execute("create stream live_in(\"time\" timestamp, apidSeqCount int, packet binary)");
+
+        ydb.execute("create stream tm_out as merge tm1, live_in using \"time\"");
+        InternalStream s = (InternalStream) ydb.getStream("tm_out");
+        assertFalse(((MergeStream) s.inner).isPullMode());
+
+        execute("close stream tm_out");
+        execute("drop table tm1");
+    }
+
     interface Checker {
         public void check(int i, long time, int apidSeqCount);
     }
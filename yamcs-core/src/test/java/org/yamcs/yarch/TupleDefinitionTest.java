@@ -0,0 +1,93 @@
+package org.yamcs.yarch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class TupleDefinitionTest {
+
+    TupleDefinition createDefinition() {
+        TupleDefinition tdef = new TupleDefinition();
+        tdef.addColumn("a", DataType.INT);
+        tdef.addColumn("b", DataType.STRING);
+        return tdef;
+    }
+
+    @Test
+    public void testFrozen() {
+        TupleDefinition tdef = createDefinition().freeze();
+        assertTrue(tdef.isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> tdef.addColumn("c", DataType.INT));
+        assertThrows(UnsupportedOperationException.class, () -> tdef.removeColumn("a"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> tdef.getColumnDefinitions().add(new ColumnDefinition("c", DataType.INT)));
+
+        TupleDefinition tdef1 = tdef.copy();
+        assertFalse(tdef1.isFrozen());
+        tdef1.addColumn("c", DataType.INT);
+        assertEquals(2, tdef.size());
+    }
+
+    @Test
+    public void testExtend() {
+        TupleDefinition tdef = createDefinition().freeze();
+        TupleDefinition ext1 = tdef.extend("c", DataType.LONG);
+        assertTrue(ext1.isFrozen());
+        assertEquals(3, ext1.size());
+        assertEquals(2, ext1.getColumnIndex("c"));
+        assertSame(ext1, tdef.extend("c", DataType.LONG));
+
+        TupleDefinition ext2 = tdef.extend("c", DataType.DOUBLE);
+        assertNotSame(ext1, ext2);
+        assertEquals(DataType.DOUBLE, ext2.getColumn("c").getType());
+
+        assertThrows(IllegalArgumentException.class, () -> tdef.extend("a", DataType.INT));
+
+        // not frozen definitions are not cached
+        TupleDefinition tdef1 = createDefinition();
+        assertNotSame(tdef1.extend("c", DataType.LONG), tdef1.extend("c", DataType.LONG));
+    }
+
+    @Test
+    public void testTupleCopyOnWrite() {
+        TupleDefinition tdef = createDefinition().freeze();
+        Tuple t1 = new Tuple(tdef, new Object[] { 1, "x" });
+        Tuple t2 = new Tuple(tdef, new Object[] { 2, "y" });
+
+        t1.addColumn("c", 3L);
+        assertEquals(2, tdef.size());
+        assertEquals(3, t1.size());
+        assertEquals(3L, t1.getLongColumn(2));
+        assertEquals(List.of(1, "x", 3L), t1.getColumns());
+        assertSame(tdef, t2.getDefinition());
+
+        assertEquals("x", t1.removeColumn("b"));
+        assertEquals(2, tdef.size());
+        assertEquals(List.of(1, 3L), t1.getColumns());
+        assertEquals(3L, (long) t1.getColumn("c"));
+        assertNull(t2.removeColumn("d"));
+        assertSame(tdef, t2.getDefinition());
+
+        assertEquals(2, t2.getIntColumn(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> t1.getColumn(2));
+    }
+
+    @Test
+    public void testAddColumns() {
+        Tuple t = new Tuple();
+        for (int i = 0; i < 20; i++) {
+            t.addColumn("c" + i, i);
+        }
+        assertEquals(20, t.size());
+        assertEquals(20, t.getColumns().size());
+        assertEquals(13, t.getIntColumn("c13"));
+    }
+}
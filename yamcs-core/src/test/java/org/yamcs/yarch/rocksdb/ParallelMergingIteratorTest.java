@@ -0,0 +1,197 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.utils.ByteArrayUtils;
+import org.yamcs.yarch.YarchException;
+import org.yamcs.yarch.rocksdb.RdbTableWalker.SuffixAscendingComparator;
+import org.yamcs.yarch.rocksdb.RdbTableWalker.SuffixDescendingComparator;
+
+public class ParallelMergingIteratorTest {
+
+    // iterates over the keys prefix:k for k in [start, end) with the given step
+    static class ListIterator implements DbIterator {
+        final List<byte[]> keys = new ArrayList<>();
+        int pos;
+        boolean closed;
+        int failAt = -1;
+        boolean failWithError;
+
+        ListIterator(int prefix, int start, int end, int step, boolean ascending) {
+            for (int k = start; k < end; k += step) {
+                byte[] key = new byte[8];
+                ByteArrayUtils.encodeInt(prefix, key, 0);
+                ByteArrayUtils.encodeInt(k, key, 4);
+                keys.add(key);
+            }
+            pos = ascending ? 0 : keys.size() - 1;
+        }
+
+        @Override
+        public boolean isValid() {
+            return pos >= 0 && pos < keys.size();
+        }
+
+        @Override
+        public void next() {
+            check();
+            pos++;
+        }
+
+        @Override
+        public void prev() {
+            check();
+            pos--;
+        }
+
+        private void check() {
+            if (pos == failAt) {
+                if (failWithError) {
+                    throw new AssertionError("test failure");
+                }
+                throw new IllegalStateException("test failure");
+            }
+        }
+
+        @Override
+        public byte[] key() {
+            return keys.get(pos);
+        }
+
+        @Override
+        public byte[] value() {
+            return new byte[] { (byte) pos };
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    List<ListIterator> createIterators(int n, int numKeys, boolean ascending) {
+        List<ListIterator> l = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            l.add(new ListIterator(i, i, numKeys, n, ascending));
+        }
+        return l;
+    }
+
+    @Test
+    public void testAscending() {
+        int numKeys = 10 * ParallelMergingIterator.CHUNK_SIZE * ParallelMergingIterator.QUEUE_SIZE;
+        List<ListIterator> itList = createIterators(3, numKeys, true);
+        ParallelMergingIterator it = new ParallelMergingIterator(new ArrayList<>(itList),
+                new SuffixAscendingComparator(4), true);
+        for (int k = 0; k < numKeys; k++) {
+            assertTrue(it.isValid());
+            assertEquals(k, ByteArrayUtils.decodeInt(it.key(), 4));
+            assertEquals(k % 3, ByteArrayUtils.decodeInt(it.key(), 0));
+            it.next();
+        }
+        assertFalse(it.isValid());
+        it.close();
+        for (ListIterator li : itList) {
+            assertTrue(li.closed);
+        }
+    }
+
+    @Test
+    public void testDescending() {
+        int numKeys = 3000;
+        List<ListIterator> itList = createIterators(4, numKeys, false);
+        ParallelMergingIterator it = new ParallelMergingIterator(new ArrayList<>(itList),
+                new SuffixDescendingComparator(4), false);
+        for (int k = numKeys - 1; k >= 0; k--) {
+            assertTrue(it.isValid());
+            assertEquals(k, ByteArrayUtils.decodeInt(it.key(), 4));
+            it.prev();
+        }
+        assertFalse(it.isValid());
+        it.close();
+    }
+
+    @Test
+    public void testEarlyClose() {
+        int numKeys = 100 * ParallelMergingIterator.CHUNK_SIZE;
+        List<ListIterator> itList = createIterators(2, numKeys, true);
+        ParallelMergingIterator it = new ParallelMergingIterator(new ArrayList<>(itList),
+                new SuffixAscendingComparator(4), true);
+        for (int k = 0; k < 10; k++) {
+            it.next();
+        }
+        // the readers are blocked on the full queues, they have to be stopped
+        it.close();
+        assertFalse(it.isValid());
+        for (ListIterator li : itList) {
+            assertTrue(li.closed);
+            assertTrue(li.pos < numKeys / 2);
+        }
+    }
+
+    @Test
+    public void testReaderError() {
+        List<ListIterator> itList = createIterators(2, 2000, true);
+        itList.get(1).failAt = 700;
+        ParallelMergingIterator it = new ParallelMergingIterator(new ArrayList<>(itList),
+                new SuffixAscendingComparator(4), true);
+        assertThrows(YarchException.class, () -> {
+            while (it.isValid()) {
+                it.next();
+            }
+        });
+        it.close();
+        for (ListIterator li : itList) {
+            assertTrue(li.closed);
+        }
+    }
+
+    @Test
+    public void testReaderThrowsError() {
+        List<ListIterator> itList = createIterators(2, 2000, true);
+        itList.get(0).failAt = 300;
+        itList.get(0).failWithError = true;
+        ParallelMergingIterator it = new ParallelMergingIterator(new ArrayList<>(itList),
+                new SuffixAscendingComparator(4), true);
+        assertThrows(YarchException.class, () -> {
+            while (it.isValid()) {
+                it.next();
+            }
+        });
+        it.close();
+        for (ListIterator li : itList) {
+            assertTrue(li.closed);
+        }
+    }
+
+    @Test
+    public void testCreateLimitsReaders() {
+        int n = 2 * ParallelMergingIterator.MAX_READERS_PER_SCAN + 1;
+        int numKeys = 5000;
+        int availablePermits = ParallelMergingIterator.readerPermits.availablePermits();
+        List<ListIterator> itList = createIterators(n, numKeys, true);
+        DbIterator it = ParallelMergingIterator.create(new ArrayList<>(itList), new SuffixAscendingComparator(4),
+                true);
+        assertTrue(it instanceof ParallelMergingIterator);
+        assertEquals(Math.min(ParallelMergingIterator.MAX_READERS_PER_SCAN, ParallelMergingIterator.MAX_THREADS),
+                ((ParallelMergingIterator) it).readers.size());
+        for (int k = 0; k < numKeys; k++) {
+            assertTrue(it.isValid());
+            assertEquals(k, ByteArrayUtils.decodeInt(it.key(), 4));
+            it.next();
+        }
+        assertFalse(it.isValid());
+        it.close();
+        for (ListIterator li : itList) {
+            assertTrue(li.closed);
+        }
+        assertEquals(availablePermits, ParallelMergingIterator.readerPermits.availablePermits());
+    }
+}
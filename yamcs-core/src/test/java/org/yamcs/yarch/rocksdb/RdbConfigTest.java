@@ -0,0 +1,55 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.RocksDB;
+import org.yamcs.YConfiguration;
+import org.yamcs.parameterarchive.ParameterArchive;
+import org.yamcs.yarch.rocksdb.RdbConfig.CfConfig;
+import org.yamcs.yarch.rocksdb.RdbConfig.TablespaceConfig;
+
+public class RdbConfigTest {
+
+    @BeforeAll
+    public static void beforeClass() {
+        RocksDB.loadLibrary();
+    }
+
+    @Test
+    public void testParchiveMergeOperatorKept() {
+        TablespaceConfig tc = new TablespaceConfig(YConfiguration.wrap(Map.of(
+                RdbConfig.KEY_TABLESPACE_NAME_PATTERN, ".*",
+                RdbConfig.KEY_CF_CONFIG, List.of(Map.of(
+                        RdbConfig.KEY_CF_PATTERN, ".*",
+                        "numLevels", 5)))));
+        assertFalse(tc.isMergeAppend());
+
+        CfConfig cfc = tc.cfConfigList.get(0);
+        // the pattern matches the parameter archive, the options are created with its merge operator
+        assertNotNull(cfc.parchiveOptions);
+        ColumnFamilyOptions parchiveOptions = tc.getColumnFamilyOptions(ParameterArchive.CF_NAME);
+        assertSame(cfc.parchiveOptions, parchiveOptions);
+        assertNotSame(parchiveOptions, tc.getColumnFamilyOptions("rt_data"));
+        assertSame(cfc.options, tc.getColumnFamilyOptions("rt_data"));
+    }
+
+    @Test
+    public void testTableOnlyPattern() {
+        TablespaceConfig tc = new TablespaceConfig(YConfiguration.wrap(Map.of(
+                RdbConfig.KEY_TABLESPACE_NAME_PATTERN, ".*",
+                RdbConfig.KEY_CF_CONFIG, List.of(Map.of(
+                        RdbConfig.KEY_CF_PATTERN, "rt_.*")))));
+        assertNull(tc.cfConfigList.get(0).parchiveOptions);
+        assertSame(tc.cfConfigList.get(0).options, tc.getColumnFamilyOptions("rt_data"));
+    }
+}
@@ -0,0 +1,236 @@
+package org.yamcs.yarch.rocksdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.yamcs.yarch.DataType;
+import org.yamcs.yarch.TableDefinition;
+import org.yamcs.yarch.TableWriter.InsertMode;
+import org.yamcs.yarch.Tuple;
+import org.yamcs.yarch.TupleDefinition;
+import org.yamcs.yarch.YarchTestCase;
+import org.yamcs.yarch.rocksdb.RdbConfig.GroupCommitConfig;
+import org.yamcs.yarch.streamsql.StreamSqlResult;
+
+public class RdbTableWriterTest extends YarchTestCase {
+    static final int N = 2500;
+
+    RdbTableWriter createWriter(String tblName, InsertMode mode, GroupCommitConfig gcc) throws Exception {
+        ydb.execute("create table " + tblName + "(a int, b int, c string, primary key(a), index(b)) histogram(c)");
+        TableDefinition tblDef = ydb.getTable(tblName);
+        RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
+        RdbTable table = rse.getTablespace(ydb).getTable(tblDef);
+        return new RdbTableWriter(ydb, table, mode, gcc);
+    }
+
+    // writes N rows, each key twice, the second time with b = -a
+    void writeTuples(RdbTableWriter writer) {
+        TupleDefinition tdef = ydb.getTable("tbl").getTupleDefinition();
+        for (int i = 0; i < N; i++) {
+            writer.onTuple(null, new Tuple(tdef, new Object[] { i, i, "c" + (i % 10) }));
+            writer.onTuple(null, new Tuple(tdef, new Object[] { i, -i, "c" + (i % 10) }));
+        }
+        writer.close();
+    }
+
+    void verify(boolean upsert) throws Exception {
+        StreamSqlResult res = ydb.execute("select * from tbl");
+        for (int i = 0; i < N; i++) {
+            assertTrue(res.hasNext());
+            Tuple t = res.next();
+            assertEquals(i, (int) t.getColumn("a"));
+            assertEquals(upsert ? -i : i, (int) t.getColumn("b"));
+        }
+        assertFalse(res.hasNext());
+        res.close();
+
+        // retrieve using the secondary index
+        int b = upsert ? -7 : 7;
+        res = ydb.execute("select * from tbl where b = " + b);
+        assertTrue(res.hasNext());
+        assertEquals(7, (int) res.next().getColumn("a"));
+        assertFalse(res.hasNext());
+        res.close();
+
+        res = ydb.execute("select * from tbl where c = 'c3'");
+        int count = 0;
+        while (res.hasNext()) {
+            res.next();
+            count++;
+        }
+        res.close();
+        assertEquals(N / 10, count);
+    }
+
+    @Test
+    public void testGroupCommitInsert() throws Exception {
+        RdbTableWriter writer = createWriter("tbl", InsertMode.INSERT, new GroupCommitConfig(1000, 5, 100));
+        writeTuples(writer);
+        verify(false);
+    }
+
+    @Test
+    public void testGroupCommitUpsert() throws Exception {
+        RdbTableWriter writer = createWriter("tbl", InsertMode.UPSERT, new GroupCommitConfig(1000, 5, 100));
+        writeTuples(writer);
+        verify(true);
+    }
+
+    @Test
+    public void testGroupCommitSmallQueue() throws Exception {
+        // one row per batch and a queue that fills up immediately
+        RdbTableWriter writer = createWriter("tbl", InsertMode.INSERT, new GroupCommitConfig(1, 0, 1));
+        writeTuples(writer);
+        verify(false);
+    }
+
+    @Test
+    public void testNoGroupCommit() throws Exception {
+        RdbTableWriter writer = createWriter("tbl", InsertMode.INSERT, null);
+        writeTuples(writer);
+        verify(false);
+
+        // the first write of each key is beyond the max key, the second is found in the bloom filter
+        RecentKeyFilter keyFilter = writer.keyFilter;
+        assertEquals(N, keyFilter.getAvoidedReads());
+        assertEquals(N, keyFilter.getPerformedReads());
+    }
+
+    @Test
+    public void testKeyFilterExistingData() throws Exception {
+        RdbTableWriter writer = createWriter("tbl", InsertMode.INSERT, null);
+        writeTuples(writer);
+
+        TupleDefinition tdef = ydb.getTable("tbl").getTupleDefinition();
+        Tuple t = new Tuple(tdef, new Object[] { 10, 10, "c0" });
+        RdbPartition partition = writer.getDbPartition(t);
+        YRDB rdb = writer.tablespace.getRdb(partition.dir, false);
+        var cfh = rdb.getColumnFamilyHandle(writer.tablespace.getTable(ydb.getTable("tbl")).cfName());
+
+        // a new filter (as after a restart) has to find the maximum key from the database
+        RecentKeyFilter keyFilter = new RecentKeyFilter(10);
+        byte[] k = RdbStorageEngine.dbKey(partition.tbsIndex, ydb.getTable("tbl").generateRow(t).getKey());
+        assertTrue(keyFilter.mayExist(rdb, cfh, partition.tbsIndex, k));
+
+        t = new Tuple(tdef, new Object[] { N + 10, 10, "c0" });
+        byte[] k1 = RdbStorageEngine.dbKey(partition.tbsIndex, ydb.getTable("tbl").generateRow(t).getKey());
+        assertFalse(keyFilter.mayExist(rdb, cfh, partition.tbsIndex, k1));
+        keyFilter.add(rdb, cfh, partition.tbsIndex, k1);
+        assertTrue(keyFilter.mayExist(rdb, cfh, partition.tbsIndex, k1));
+
+        // fill the bloom filter such that it is reset, the keys before it has been reset may exist
+        for (int i = 1; i <= 10; i++) {
+            t = new Tuple(tdef, new Object[] { N + 10 + 2 * i, 10, "c0" });
+            keyFilter.add(rdb, cfh, partition.tbsIndex,
+                    RdbStorageEngine.dbKey(partition.tbsIndex, ydb.getTable("tbl").generateRow(t).getKey()));
+        }
+        assertTrue(keyFilter.mayExist(rdb, cfh, partition.tbsIndex, k1));
+        t = new Tuple(tdef, new Object[] { N + 10 + 21, 10, "c0" });
+        byte[] k2 = RdbStorageEngine.dbKey(partition.tbsIndex, ydb.getTable("tbl").generateRow(t).getKey());
+        assertFalse(keyFilter.mayExist(rdb, cfh, partition.tbsIndex, k2));
+
+        writer.tablespace.dispose(rdb);
+    }
+
+    @Test
+    public void testKeyFilterEviction() throws Exception {
+        RdbTableWriter writer = createWriter("tbl", InsertMode.INSERT, null);
+        TupleDefinition tdef = ydb.getTable("tbl").getTupleDefinition();
+        Tuple t = new Tuple(tdef, new Object[] { 10, 10, "c0" });
+        RdbPartition partition = writer.getDbPartition(t);
+        YRDB rdb = writer.tablespace.getRdb(partition.dir, false);
+        var cfh = rdb.getColumnFamilyHandle(writer.tablespace.getTable(ydb.getTable("tbl")).cfName());
+
+        // partitions without data in the database; the key is recorded but (as if still in a write batch) not written
+        int tbsIndex = 1_000_000;
+        RecentKeyFilter keyFilter = new RecentKeyFilter(10);
+        byte[] k = RdbStorageEngine.dbKey(tbsIndex, new byte[] { 1 });
+        keyFilter.add(rdb, cfh, tbsIndex, k);
+        assertTrue(keyFilter.mayExist(rdb, cfh, tbsIndex, k));
+
+        for (int i = 1; i <= RecentKeyFilter.MAX_PARTITIONS; i++) {
+            assertFalse(keyFilter.mayExist(rdb, cfh, tbsIndex + i, RdbStorageEngine.dbKey(tbsIndex + i)));
+        }
+        // the filter of the first partition has been evicted, it cannot be rebuilt from the database
+        assertTrue(keyFilter.mayExist(rdb, cfh, tbsIndex, k));
+        assertTrue(keyFilter.mayExist(rdb, cfh, tbsIndex, RdbStorageEngine.dbKey(tbsIndex, new byte[] { 2 })));
+
+        writer.tablespace.dispose(rdb);
+    }
+
+    void appendTuples(InsertMode mode, boolean mergeAppend) throws Exception {
+        ydb.execute("create table tbl_append(a int, x int, y string, z int, primary key(a)) histogram(y)");
+        TableDefinition tblDef = ydb.getTable("tbl_append");
+        RdbStorageEngine rse = (RdbStorageEngine) ydb.getStorageEngine(tblDef);
+        RdbTable table = rse.getTablespace(ydb).getTable(tblDef);
+        RdbTableWriter writer = new RdbTableWriter(ydb, table, mode, null);
+        writer.mergeAppend = mergeAppend;
+
+        TupleDefinition tdef1 = new TupleDefinition();
+        tdef1.addColumn("a", DataType.INT);
+        tdef1.addColumn("x", DataType.INT);
+        tdef1.addColumn("y", DataType.STRING);
+        TupleDefinition tdef2 = new TupleDefinition();
+        tdef2.addColumn("a", DataType.INT);
+        tdef2.addColumn("z", DataType.INT);
+        TupleDefinition tdef3 = new TupleDefinition();
+        tdef3.addColumn("a", DataType.INT);
+        tdef3.addColumn("x", DataType.INT);
+
+        writer.onTuple(null, new Tuple(tdef1, new Object[] { 1, 10, "y1" }));
+        writer.onTuple(null, new Tuple(tdef2, new Object[] { 1, 20 }));
+        // switch the write method in the middle, the rows written as merge operands have to be understood
+        writer.mergeAppend = !mergeAppend;
+        writer.onTuple(null, new Tuple(tdef3, new Object[] { 1, 11 }));
+        writer.mergeAppend = mergeAppend;
+        writer.onTuple(null, new Tuple(tdef3, new Object[] { 2, 12 }));
+        writer.onTuple(null, new Tuple(tdef2, new Object[] { 2, 22 }));
+        writer.onTuple(null, new Tuple(tdef3, new Object[] { 2, 13 }));
+        writer.close();
+    }
+
+    void verifyAppend(boolean upsert) throws Exception {
+        StreamSqlResult res = ydb.execute("select * from tbl_append");
+        assertTrue(res.hasNext());
+        Tuple t = res.next();
+        assertEquals(1, (int) t.getColumn("a"));
+        assertEquals(upsert ? 11 : 10, (int) t.getColumn("x"));
+        assertEquals("y1", t.getColumn("y"));
+        assertEquals(20, (int) t.getColumn("z"));
+
+        assertTrue(res.hasNext());
+        t = res.next();
+        assertEquals(2, (int) t.getColumn("a"));
+        assertEquals(upsert ? 13 : 12, (int) t.getColumn("x"));
+        assertFalse(t.hasColumn("y"));
+        assertEquals(22, (int) t.getColumn("z"));
+        assertFalse(res.hasNext());
+        res.close();
+    }
+
+    @Test
+    public void testMergeUpsertAppend() throws Exception {
+        appendTuples(InsertMode.UPSERT_APPEND, true);
+        verifyAppend(true);
+    }
+
+    @Test
+    public void testMergeInsertAppend() throws Exception {
+        appendTuples(InsertMode.INSERT_APPEND, true);
+        verifyAppend(false);
+    }
+
+    @Test
+    public void testReadModifyWriteUpsertAppend() throws Exception {
+        appendTuples(InsertMode.UPSERT_APPEND, false);
+        verifyAppend(true);
+    }
+
+    @Test
+    public void testReadModifyWriteInsertAppend() throws Exception {
+        appendTuples(InsertMode.INSERT_APPEND, false);
+        verifyAppend(false);
+    }
+}
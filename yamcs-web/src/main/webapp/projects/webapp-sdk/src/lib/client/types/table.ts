@@ -28,6 +28,14 @@ export interface SubscriberInfo {
   className: string;
   hashCode: number;
   description?: string;
+  async?: boolean;
+  queueSize?: number;
+  queueCapacity?: number;
+  overflowPolicy?: string;
+  droppedCount?: number;
+  processedCount?: number;
+  meanLatency?: number;
+  maxLatency?: number;
 }
 
 export interface StreamData {